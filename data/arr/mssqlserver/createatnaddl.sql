@@ -34,6 +34,8 @@ DROP TABLE participantobject;
 DROP TABLE auditmessage;
 
 DROP TABLE auditlog;
+DROP TABLE auditsummary;
+DROP TABLE auditpartition;
 
 
 
@@ -212,3 +214,71 @@ CREATE TABLE auditlog (
   errormessage VARCHAR(500),
   CONSTRAINT auditlog_pkey PRIMARY KEY (uniqueid)
 );
+
+--
+-- Definition of table auditsummary
+-- One denormalized row per audit log (written at ingest) used to search the
+-- repository without joining the audit message tables.  Rows for audit
+-- messages that could not be parsed use the received time as the event time.
+--
+
+CREATE TABLE auditsummary (
+  uniqueid VARCHAR(50) NOT NULL,
+  eventdatetime DATETIME NOT NULL,
+  receiveddatetime DATETIME NOT NULL,
+  clientipaddress VARCHAR(100),
+  protocol VARCHAR(10),
+  eventtypecode VARCHAR(50),
+  eventtypename VARCHAR(100),
+  eventactioncode CHAR(1),
+  eventoutcomeindicator INT,
+  userid VARCHAR(200),
+  patientid VARCHAR(200),
+  status CHAR(1) DEFAULT 'E' NOT NULL,
+  CONSTRAINT auditsummary_pkey PRIMARY KEY (uniqueid)
+);
+
+--DROP INDEX "auditsummary_eventdatetime_index";
+CREATE INDEX "auditsummary_eventdatetime_index"
+  ON auditsummary (eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_clientip_index";
+CREATE INDEX "auditsummary_clientip_index"
+  ON auditsummary (clientipaddress, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_patientid_index";
+CREATE INDEX "auditsummary_patientid_index"
+  ON auditsummary (patientid, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_userid_index";
+CREATE INDEX "auditsummary_userid_index"
+  ON auditsummary (userid, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_eventtype_index";
+CREATE INDEX "auditsummary_eventtype_index"
+  ON auditsummary (eventtypecode, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_outcome_index";
+CREATE INDEX "auditsummary_outcome_index"
+  ON auditsummary (eventoutcomeindicator, eventdatetime, uniqueid);
+
+--
+-- Definition of table auditpartition
+-- Catalog of the time partitions of the audit tables.  Each partition is a set
+-- of tables named <table>_<partitionid> (e.g. auditlog_201310) created at
+-- runtime from the tables above, which act as templates and hold the records
+-- stored before partitioning was introduced.
+--   status - A (active), R (being archived), X (archived and dropped)
+--
+
+CREATE TABLE auditpartition (
+  partitionid VARCHAR(8) NOT NULL,
+  startdatetime DATETIME NOT NULL,
+  enddatetime DATETIME NOT NULL,
+  status CHAR(1) DEFAULT 'A' NOT NULL,
+  createddatetime DATETIME NOT NULL,
+  archiveddatetime DATETIME,
+  archivefile VARCHAR(500),
+  recordcount INT,
+  CONSTRAINT auditpartition_pkey PRIMARY KEY (partitionid)
+);
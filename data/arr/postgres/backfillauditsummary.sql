@@ -0,0 +1,50 @@
+--
+--  This code is subject to the HIEOS License, Version 1.0
+-- 
+--  Copyright(c) 2008-2009 Vangent, Inc.  All rights reserved.
+-- 
+--  Unless required by applicable law or agreed to in writing, software
+--  distributed under the License is distributed on an "AS IS" BASIS,
+--  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- 
+--  See the License for the specific language governing permissions and
+--  limitations under the License.
+--
+
+--
+-- PostgreSQL backfill of the ATNA ARR auditsummary table
+--
+-- Creates the summary rows (used by the audit list and search) for audit
+-- records stored before the auditsummary table was introduced.  Run once after
+-- upgrading; audit records that already have a summary row are skipped, so the
+-- script may safely be re-run.
+--
+-- The summary matches the one written at ingest: the user is a requestor (or
+-- any active participant) and the patient is a participant object of type
+-- Person (1) in role Patient (1).  Audit logs without a parsed audit message
+-- use the received time as the event time.
+--
+
+INSERT INTO auditsummary (uniqueid, eventdatetime, receiveddatetime, clientipaddress, protocol,
+  eventtypecode, eventtypename, eventactioncode, eventoutcomeindicator, userid, patientid, status)
+SELECT l.uniqueid,
+  COALESCE(m.eventdatetime, l.receiveddatetime),
+  l.receiveddatetime,
+  l.clientipaddress,
+  l.protocol,
+  t.codevalue,
+  t.displayname,
+  m.eventactioncode,
+  m.eventoutcomeindicator,
+  COALESCE(
+    (SELECT MIN(ap.userid) FROM activeparticipant ap
+      WHERE ap.amid = l.uniqueid AND ap.userisrequestor = 'T'),
+    (SELECT MIN(ap.userid) FROM activeparticipant ap
+      WHERE ap.amid = l.uniqueid)),
+  (SELECT MIN(SUBSTRING(convert_from(po.id, 'UTF8') FROM 1 FOR 200)) FROM participantobject po
+    WHERE po.amid = l.uniqueid AND po.typecode = 1 AND po.typecoderole = 1),
+  COALESCE(m.status, 'E')
+FROM auditlog l
+LEFT OUTER JOIN auditmessage m ON m.uniqueid = l.uniqueid
+LEFT OUTER JOIN amcodevalue t ON t.parentid = l.uniqueid AND t.attributename = 'T' AND t.seqno = 1
+WHERE NOT EXISTS (SELECT 1 FROM auditsummary s WHERE s.uniqueid = l.uniqueid);
@@ -33,6 +33,8 @@ DROP TABLE IF EXISTS participantobject;
 DROP TABLE IF EXISTS auditmessage;
 
 DROP TABLE IF EXISTS auditlog;
+DROP TABLE IF EXISTS auditsummary;
+DROP TABLE IF EXISTS auditpartition;
 
 
 --
@@ -246,6 +248,88 @@ WITH (OIDS=FALSE);
 
 ALTER TABLE auditlog OWNER TO arr;
 
+--
+-- Definition of table auditsummary
+-- One denormalized row per audit log (written at ingest) used to search the
+-- repository without joining the audit message tables.  Rows for audit
+-- messages that could not be parsed use the received time as the event time.
+--
+
+CREATE TABLE auditsummary (
+  uniqueid CHARACTER VARYING(50) NOT NULL,
+  eventdatetime TIMESTAMP(3) NOT NULL,
+  receiveddatetime TIMESTAMP(3) NOT NULL,
+  clientipaddress CHARACTER VARYING(100),
+  protocol CHARACTER VARYING(10),
+  eventtypecode CHARACTER VARYING(50),
+  eventtypename CHARACTER VARYING(100),
+  eventactioncode CHAR(1),
+  eventoutcomeindicator INTEGER,
+  userid CHARACTER VARYING(200),
+  patientid CHARACTER VARYING(200),
+  status CHAR(1) DEFAULT 'E' NOT NULL,
+  CONSTRAINT auditsummary_pkey PRIMARY KEY (uniqueid)
+)
+WITH (OIDS=FALSE);
+
+ALTER TABLE auditsummary OWNER TO arr;
+
+--DROP INDEX "auditsummary_eventdatetime_index";
+CREATE INDEX "auditsummary_eventdatetime_index"
+  ON auditsummary
+  USING btree
+  (eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_clientip_index";
+CREATE INDEX "auditsummary_clientip_index"
+  ON auditsummary
+  USING btree
+  (clientipaddress, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_patientid_index";
+CREATE INDEX "auditsummary_patientid_index"
+  ON auditsummary
+  USING btree
+  (patientid, eventdatetime, uniqueid);
 
+--DROP INDEX "auditsummary_userid_index";
+CREATE INDEX "auditsummary_userid_index"
+  ON auditsummary
+  USING btree
+  (userid, eventdatetime, uniqueid);
 
+--DROP INDEX "auditsummary_eventtype_index";
+CREATE INDEX "auditsummary_eventtype_index"
+  ON auditsummary
+  USING btree
+  (eventtypecode, eventdatetime, uniqueid);
+
+--DROP INDEX "auditsummary_outcome_index";
+CREATE INDEX "auditsummary_outcome_index"
+  ON auditsummary
+  USING btree
+  (eventoutcomeindicator, eventdatetime, uniqueid);
+
+--
+-- Definition of table auditpartition
+-- Catalog of the time partitions of the audit tables.  Each partition is a set
+-- of tables named <table>_<partitionid> (e.g. auditlog_201310) created at
+-- runtime from the tables above, which act as templates and hold the records
+-- stored before partitioning was introduced.
+--   status - A (active), R (being archived), X (archived and dropped)
+--
+
+CREATE TABLE auditpartition (
+  partitionid CHARACTER VARYING(8) NOT NULL,
+  startdatetime TIMESTAMP(3) NOT NULL,
+  enddatetime TIMESTAMP(3) NOT NULL,
+  status CHAR(1) DEFAULT 'A' NOT NULL,
+  createddatetime TIMESTAMP(3) NOT NULL,
+  archiveddatetime TIMESTAMP(3),
+  archivefile CHARACTER VARYING(500),
+  recordcount INTEGER,
+  CONSTRAINT auditpartition_pkey PRIMARY KEY (partitionid)
+)
+WITH (OIDS=FALSE);
 
+ALTER TABLE auditpartition OWNER TO arr;
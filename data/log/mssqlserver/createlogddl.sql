@@ -59,6 +59,14 @@ CREATE INDEX MAIN_IP_INDEX
   ON main
   (ip);
 
+-- Index: MAIN_TIME_INDEX
+
+-- DROP INDEX MAIN_TIME_INDEX;
+
+CREATE INDEX MAIN_TIME_INDEX
+  ON main
+  (timereceived, messageid);
+
 
 
 -- Table: logdetail
@@ -82,6 +82,7 @@ CREATE TABLE `main` (
   PRIMARY KEY (`messageid`),
   KEY `MAIN_IP_INDEX` (`ip`) USING BTREE,
   KEY `MAIN_MID_INDEX` (`messageid`) USING BTREE,
+  KEY `MAIN_TIME_INDEX` (`timereceived`,`messageid`) USING BTREE,
   CONSTRAINT `main_ip_fkey` FOREIGN KEY (`ip`) REFERENCES `ip` (`ip`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
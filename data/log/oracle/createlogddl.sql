@@ -56,6 +56,13 @@ CREATE TABLE main (
 CREATE INDEX "MAIN_IP_INDEX"
   ON main (ip);
 
+-- Index: "MAIN_TIME_INDEX"
+
+--DROP INDEX "MAIN_TIME_INDEX";
+
+CREATE INDEX "MAIN_TIME_INDEX"
+  ON main (timereceived, messageid);
+
 
 
 --
@@ -75,6 +75,15 @@ CREATE INDEX "MAIN_IP_INDEX"
   USING btree
   (ip);
 
+-- Index: "MAIN_TIME_INDEX"
+
+-- DROP INDEX "MAIN_TIME_INDEX";
+
+CREATE INDEX "MAIN_TIME_INDEX"
+  ON main
+  USING btree
+  (timereceived, messageid);
+
 -- Index: "MAIN_MID_INDEX"
 
 -- DROP INDEX "MAIN_MID_INDEX";
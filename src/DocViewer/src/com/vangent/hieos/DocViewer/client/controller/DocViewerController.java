@@ -231,10 +231,23 @@ public class DocViewerController {
 	 */
 	public void findDocuments(PatientRecord patientRecord,
 			DocumentContainerCanvas documentContainerCanvas) {
+		this.findDocuments(patientRecord, documentContainerCanvas, false);
+	}
+
+	/**
+	 * 
+	 * @param patientRecord
+	 * @param documentContainerCanvas
+	 * @param refresh
+	 *            true to bypass cached query results.
+	 */
+	public void findDocuments(PatientRecord patientRecord,
+			DocumentContainerCanvas documentContainerCanvas, boolean refresh) {
 		DocumentSearchCriteriaDTO criteria = new DocumentSearchCriteriaDTO();
 		criteria.setPatient(patientRecord.getPatient());
 		String searchMode = this.getConfig().get(ConfigDTO.KEY_SEARCH_MODE);
 		criteria.setSearchMode(searchMode);
+		criteria.setRefresh(refresh);
 		DocumentListObserver observer = new DocumentListObserver(
 				documentContainerCanvas);
 		this.findDocuments(criteria, observer);
@@ -23,6 +23,7 @@ import com.vangent.hieos.DocViewer.client.model.patient.PatientDTO;
 public class DocumentSearchCriteriaDTO implements IsSerializable {
 	private PatientDTO patient;
 	private String searchMode;
+	private boolean refresh = false;
 
 	public void setPatient(PatientDTO patient) {
 		this.patient = patient;
@@ -40,4 +41,17 @@ public class DocumentSearchCriteriaDTO implements IsSerializable {
 		return searchMode;
 	}
 
+	/**
+	 * 
+	 * @param refresh
+	 *            true to bypass any cached query results.
+	 */
+	public void setRefresh(boolean refresh) {
+		this.refresh = refresh;
+	}
+
+	public boolean isRefresh() {
+		return refresh;
+	}
+
 }
@@ -130,6 +130,23 @@ public class PatientContainerCanvas extends Canvas {
 					}
 				});
 
+		// Refresh documents (bypasses cached query results) ...
+		final ToolStripButton refreshDocumentsButton = new ToolStripButton();
+		refreshDocumentsButton.setTitle("Refresh");
+		refreshDocumentsButton.setTooltip("Refresh Patient Documents");
+		refreshDocumentsButton.setIcon("document.png");
+		refreshDocumentsButton
+				.addClickHandler(new com.smartgwt.client.widgets.events.ClickHandler() {
+					@Override
+					public void onClick(ClickEvent event) {
+						documentsButton.setSelected(true);
+						patientContainerCanvas
+								.setPatientContentCanvas(documentContainerCanvas);
+						controller.findDocuments(patientRecord,
+								documentContainerCanvas, true);
+					}
+				});
+
 		// Demographics ...
 		final ToolStripButton demographicsButton = new ToolStripButton();
 		// demographicsButton.setAlign(Alignment.LEFT);
@@ -188,6 +205,7 @@ public class PatientContainerCanvas extends Canvas {
 		toolStrip.addMember(demographicsButton);
 		toolStrip.addSeparator();
 		toolStrip.addMember(documentsButton);
+		toolStrip.addMember(refreshDocumentsButton);
 		toolStrip.addSeparator();
 		demographicsButton.setSelected(true); // Default (FOR NOW).
 		toolStrip.addMember(consentButton);
@@ -201,6 +219,7 @@ public class PatientContainerCanvas extends Canvas {
 				.hasPermissionToFeature(AuthenticationContextDTO.PERMISSION_VIEWDOCS);
 		if (!hasPermission) {
 			documentsButton.setDisabled(true);
+			refreshDocumentsButton.setDisabled(true);
 		}
 		
 		// Ability to manage consent (to some degree)?
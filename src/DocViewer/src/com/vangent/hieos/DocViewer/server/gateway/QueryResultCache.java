@@ -0,0 +1,125 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.DocViewer.server.gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Short-lived cache of cross-community query results, keyed by user, search
+ * mode and patient, so that repeated browsing of a patient within a session
+ * does not fan out to every community again.  Callers still audit the query
+ * when the results come from the cache.
+ * 
+ * @param <T>
+ *            result item type.
+ */
+public class QueryResultCache<T> {
+
+	private final long ttlMillis;
+	private final Map<String, CacheEntry<T>> cache;
+
+	/**
+	 * 
+	 * @param maxEntries
+	 * @param ttlSeconds
+	 */
+	public QueryResultCache(final int maxEntries, int ttlSeconds) {
+		this.ttlMillis = ttlSeconds * 1000L;
+		this.cache = new LinkedHashMap<String, CacheEntry<T>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, CacheEntry<T>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param userId
+	 * @param searchMode
+	 * @param patientId
+	 * @return
+	 */
+	public static String getKey(String userId, String searchMode,
+			String patientId) {
+		return userId + "|" + searchMode + "|" + patientId;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return a copy of the cached results (null if not cached or expired).
+	 */
+	public synchronized List<T> get(String key) {
+		CacheEntry<T> entry = cache.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() >= entry.expiresAt) {
+			cache.remove(key);
+			return null;
+		}
+		return new ArrayList<T>(entry.results);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param results
+	 */
+	public synchronized void put(String key, List<T> results) {
+		cache.put(key, new CacheEntry<T>(new ArrayList<T>(results),
+				System.currentTimeMillis() + ttlMillis));
+	}
+
+	/**
+	 * 
+	 * @param key
+	 */
+	public synchronized void remove(String key) {
+		cache.remove(key);
+	}
+
+	/**
+	 * 
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * 
+	 */
+	private static class CacheEntry<T> {
+
+		private final List<T> results;
+		private final long expiresAt;
+
+		/**
+		 * 
+		 * @param results
+		 * @param expiresAt
+		 */
+		CacheEntry(List<T> results, long expiresAt) {
+			this.results = results;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -19,8 +19,10 @@ import java.util.List;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
+import javax.xml.namespace.QName;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.log4j.Logger;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.vangent.hieos.DocViewer.client.exception.RemoteServiceException;
@@ -34,6 +36,7 @@ import com.vangent.hieos.DocViewer.server.atna.ATNAAuditService;
 import com.vangent.hieos.DocViewer.server.framework.ServletUtilMixin;
 import com.vangent.hieos.DocViewer.server.gateway.InitiatingGateway;
 import com.vangent.hieos.DocViewer.server.gateway.InitiatingGatewayFactory;
+import com.vangent.hieos.DocViewer.server.gateway.QueryResultCache;
 import com.vangent.hieos.DocViewer.server.xua.XUAService;
 import com.vangent.hieos.authutil.model.AuthenticationContext;
 import com.vangent.hieos.authutil.model.Credentials;
@@ -62,10 +65,19 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 	 * 
 	 */
 	private static final long serialVersionUID = 3195773598502538894L;
+	private final static Logger logger = Logger
+			.getLogger(DocumentRemoteServiceImpl.class);
 	private final ServletUtilMixin servletUtil = new ServletUtilMixin();
 
 	static final String PROP_ADHOCQUERY_SINGLEPID_TEMPLATE = "AdhocQuerySinglePIDTemplate";
 	static final String PROP_CONTENT_URL = "ContentURL";
+	static final String PROP_QUERY_RESULT_CACHE_SIZE = "QueryResultCacheSize";
+	static final String PROP_QUERY_RESULT_CACHE_TTL = "QueryResultCacheTTLSeconds";
+	private static final int DEFAULT_QUERY_RESULT_CACHE_SIZE = 500;
+	private static final int DEFAULT_QUERY_RESULT_CACHE_TTL = 120;
+
+	// null if disabled.
+	private QueryResultCache<DocumentMetadataDTO> queryResultCache = null;
 
 	/**
 	 * 
@@ -74,6 +86,30 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 	public void init() {
 		// Initialize servlet.
 		servletUtil.init(this.getServletContext());
+		int cacheSize = this.getIntProperty(PROP_QUERY_RESULT_CACHE_SIZE,
+				DEFAULT_QUERY_RESULT_CACHE_SIZE);
+		int cacheTTL = this.getIntProperty(PROP_QUERY_RESULT_CACHE_TTL,
+				DEFAULT_QUERY_RESULT_CACHE_TTL);
+		if (cacheSize > 0 && cacheTTL > 0) {
+			queryResultCache = new QueryResultCache<DocumentMetadataDTO>(
+					cacheSize, cacheTTL);
+		}
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	private int getIntProperty(String key, int defaultValue) {
+		String value = servletUtil.getProperty(key);
+		try {
+			return (value != null) ? Integer.parseInt(value.trim())
+					: defaultValue;
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
 	}
 
 	/**
@@ -99,6 +135,21 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 
 		ServletContext servletContext = this.getServletContext();
 
+		// Repeated searches (same user, patient and search mode) are served
+		// from the cache unless a refresh was requested.
+		String cacheKey = null;
+		if (queryResultCache != null) {
+			String userId = (authCreds != null) ? authCreds.getUserId() + "@"
+					+ authCreds.getAuthDomainTypeKey() : request.getSession()
+					.getId();
+			cacheKey = QueryResultCache.getKey(userId,
+					criteria.getSearchMode(), criteria.getPatient()
+							.getPatientID());
+			if (criteria.isRefresh()) {
+				queryResultCache.remove(cacheKey);
+			}
+		}
+
 		// First build the query message (from a template).
 		System.out.println("DocViewer::findDocuments - target PID = "
 				+ criteria.getPatient().getPatientID());
@@ -112,6 +163,20 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 				InitiatingGateway ig = InitiatingGatewayFactory
 						.getInitiatingGateway(searchMode, servletUtil);
 
+				if (cacheKey != null && !criteria.isRefresh()) {
+					List<DocumentMetadataDTO> cached = queryResultCache
+							.get(cacheKey);
+					if (cached != null) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("DocViewer::findDocuments - cached results");
+						}
+						// ATNA Audit (the user still queried the patient's documents).
+						this.audit(authCreds, authCtxt, ig, query,
+								ATNAAuditEvent.OutcomeIndicator.SUCCESS);
+						return cached;
+					}
+				}
+
 				// Issue Document Retrieve ...
 				System.out.println("Doc Query ...");
 
@@ -139,6 +204,11 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 					// Convert the response into value objects.
 					this.loadDocumentMetadataList(documentMetadataList,
 							response);
+
+					// Only cache complete (successful) responses.
+					if (cacheKey != null && this.isSuccess(response)) {
+						queryResultCache.put(cacheKey, documentMetadataList);
+					}
 				}
 			}
 		} catch (SOAPFaultException ex) {
@@ -157,6 +227,16 @@ public class DocumentRemoteServiceImpl extends RemoteServiceServlet implements
 	}
 
 	
+	/**
+	 * 
+	 * @param response
+	 * @return
+	 */
+	private boolean isSuccess(OMElement response) {
+		String status = response.getAttributeValue(new QName("status"));
+		return status != null && status.endsWith(":Success");
+	}
+
 	/**
 	 * 
 	 * @param documentMetadataList
@@ -16,6 +16,7 @@ import com.vangent.hieos.DocViewer.server.atna.ATNAAuditService;
 import com.vangent.hieos.DocViewer.server.framework.ServletUtilMixin;
 import com.vangent.hieos.DocViewer.server.gateway.InitiatingGateway;
 import com.vangent.hieos.DocViewer.server.gateway.InitiatingGatewayFactory;
+import com.vangent.hieos.DocViewer.server.servlets.docview.RenderedDocumentCache.RenderedDocument;
 import com.vangent.hieos.DocViewer.server.xua.XUAService;
 import com.vangent.hieos.authutil.model.AuthenticationContext;
 import com.vangent.hieos.authutil.model.Credentials;
@@ -30,8 +31,11 @@ import com.vangent.hieos.xutil.xua.utils.XUAObject;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -40,8 +44,10 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
+import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import org.apache.axiom.om.OMElement;
 
 /**
@@ -59,10 +65,44 @@ public class DocViewServlet extends HttpServlet {
 	private final ServletUtilMixin servletUtil = new ServletUtilMixin();
 
 	static final String PROP_RETRIEVE_SINGLE_DOC_TEMPLATE = "RetrieveSingleDocTemplate";
+	static final String PROP_RENDERED_DOCUMENT_CACHE_SIZE = "RenderedDocumentCacheSize";
+	static final String PROP_RENDERED_DOCUMENT_CACHE_MAX_ENTRY_SIZE = "RenderedDocumentCacheMaxEntrySize";
+	private static final int DEFAULT_RENDERED_DOCUMENT_CACHE_SIZE = 50;
+	private static final int DEFAULT_RENDERED_DOCUMENT_CACHE_MAX_ENTRY_SIZE = 1024 * 1024;
+
+	private StyleSheetCache styleSheetCache;
+	// null if disabled.
+	private RenderedDocumentCache renderedDocumentCache;
 
 	@Override
 	public void init() {
 		servletUtil.init(this.getServletContext());
+		styleSheetCache = new StyleSheetCache(this.getServletContext());
+		int cacheSize = this.getIntProperty(
+				PROP_RENDERED_DOCUMENT_CACHE_SIZE,
+				DEFAULT_RENDERED_DOCUMENT_CACHE_SIZE);
+		if (cacheSize > 0) {
+			renderedDocumentCache = new RenderedDocumentCache(cacheSize,
+					this.getIntProperty(
+							PROP_RENDERED_DOCUMENT_CACHE_MAX_ENTRY_SIZE,
+							DEFAULT_RENDERED_DOCUMENT_CACHE_MAX_ENTRY_SIZE));
+		}
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	private int getIntProperty(String key, int defaultValue) {
+		String value = servletUtil.getProperty(key);
+		try {
+			return (value != null) ? Integer.parseInt(value.trim())
+					: defaultValue;
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
 	}
 
 	/**
@@ -273,22 +313,19 @@ public class DocViewServlet extends HttpServlet {
 		// String contentType = mtom.getContent_type();
 		System.out.println("mimeType = " + mimeType);
 		if (mimeType.equals("text/xml")) {
-			String document = this.getHMTL(request, this.getServletContext(),
-					mtom.getContents());
-			this.writeContentToOutput(response, document, "text/html");
+			this.writeHTMLToOutput(request, response, mtom.getContents());
 		} else if (mimeType.equals("application/pdf")) {
 			byte[] document = mtom.getContents();
 			this.writeContentToOutput(response, document, mimeType);
 		} else if (mimeType.equals("text/plain")) {
-			String document = new String(mtom.getContents());
-			// Wrapper in HTML.
-			this.writeContentToOutput(response, "<html><body>" + document
-					+ "</body></html>", "text/html");
+			// Wrapper in HTML (content bytes are written as is).
+			this.writeContentToOutput(response, mtom.getContents(),
+					"text/html", "<html><body>".getBytes(),
+					"</body></html>".getBytes());
 			// response.setContentType("text/html;charset=UTF-8");
 		} else {
-			// FIXME: defaulting now to given mime type (and as string):
-			String document = new String(mtom.getContents());
-			this.writeContentToOutput(response, document, mimeType);
+			// FIXME: defaulting now to given mime type:
+			this.writeContentToOutput(response, mtom.getContents(), mimeType);
 			// response.setContentType("text/html;charset=UTF-8");
 		}
 	}
@@ -301,11 +338,32 @@ public class DocViewServlet extends HttpServlet {
 	 */
 	private void writeContentToOutput(HttpServletResponse response,
 			byte[] content, String contentType) {
+		this.writeContentToOutput(response, content, contentType, null, null);
+	}
+
+	/**
+	 * 
+	 * @param response
+	 * @param content
+	 * @param contentType
+	 * @param prefix
+	 *            written before the content (may be null).
+	 * @param suffix
+	 *            written after the content (may be null).
+	 */
+	private void writeContentToOutput(HttpServletResponse response,
+			byte[] content, String contentType, byte[] prefix, byte[] suffix) {
 		ServletOutputStream out = null;
 		try {
 			response.setContentType(contentType);
 			out = response.getOutputStream();
+			if (prefix != null) {
+				out.write(prefix);
+			}
 			out.write(content);
+			if (suffix != null) {
+				out.write(suffix);
+			}
 			// out.print(content);
 		} catch (IOException ex) {
 			// FIXME
@@ -397,41 +455,95 @@ public class DocViewServlet extends HttpServlet {
 	}
 
 	/**
+	 * Renders the (CDA) document using the requested style sheet, streaming
+	 * the result to the response.  Rendered documents are cached (by document
+	 * id, style sheet and content hash) for repeated views.
 	 * 
-	 * @param servletContext
+	 * @param request
+	 * @param response
 	 * @param bytes
-	 * @return
 	 */
-	private String getHMTL(HttpServletRequest request,
-			ServletContext servletContext, byte[] bytes) {
+	private void writeHTMLToOutput(HttpServletRequest request,
+			HttpServletResponse response, byte[] bytes) {
 		String xmlTemplateFileName = this.getXMLTemplateFileName(request);
 		System.out.println("XML Template File Name = " + xmlTemplateFileName);
-		ByteArrayInputStream xmlis = new ByteArrayInputStream(bytes);
-		InputStream xslis = servletContext
-				.getResourceAsStream("/resources/xsl/" + xmlTemplateFileName);
-		return this.applyStyleSheetToXML(xmlis, xslis);
+		String cacheKey = null;
+		if (renderedDocumentCache != null) {
+			cacheKey = RenderedDocumentCache.getKey(
+					request.getParameter("doc_id"), xmlTemplateFileName,
+					this.getContentHash(bytes));
+			RenderedDocument cached = renderedDocumentCache.get(cacheKey);
+			if (cached != null) {
+				this.writeContentToOutput(response, cached.getContent(),
+						cached.getContentType());
+				return;
+			}
+		}
+		ServletOutputStream out = null;
+		try {
+			Transformer transformer = styleSheetCache.getTemplates(
+					xmlTemplateFileName).newTransformer();
+			String contentType = this.getHTMLContentType(transformer);
+			response.setContentType(contentType);
+			out = response.getOutputStream();
+			CapturingOutputStream capture = null;
+			OutputStream target = out;
+			if (cacheKey != null) {
+				capture = new CapturingOutputStream(out,
+						renderedDocumentCache.getMaxEntrySize());
+				target = capture;
+			}
+			transformer.transform(new StreamSource(new ByteArrayInputStream(
+					bytes)), new StreamResult(target));
+			if (capture != null && capture.getCaptured() != null) {
+				renderedDocumentCache.put(cacheKey, new RenderedDocument(
+						capture.getCaptured(), contentType));
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			if (out == null) {
+				this.writeExceptionToOutput(response, ex);
+			}
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ex) {
+					// FIXME
+				}
+			}
+		}
 	}
 
 	/**
 	 * 
-	 * @param xml
-	 * @param xsl
+	 * @param transformer
 	 * @return
 	 */
-	private String applyStyleSheetToXML(InputStream xml, InputStream xsl) {
-		ByteArrayOutputStream output = new ByteArrayOutputStream();
+	private String getHTMLContentType(Transformer transformer) {
+		String encoding = transformer.getOutputProperty(OutputKeys.ENCODING);
+		return (encoding != null) ? "text/html;charset=" + encoding
+				: "text/html";
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 * @return
+	 */
+	private String getContentHash(byte[] bytes) {
 		try {
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory
-					.newTransformer(new javax.xml.transform.stream.StreamSource(
-							xsl));
-			transformer.transform(new javax.xml.transform.stream.StreamSource(
-					xml), new javax.xml.transform.stream.StreamResult(output));
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			// Should not happen; fall back to something reasonably unique.
+			return bytes.length + ":" + Arrays.hashCode(bytes);
 		}
-		return output.toString();
 	}
 
 	/**
@@ -455,4 +567,62 @@ public class DocViewServlet extends HttpServlet {
 					targetEndpoint, outcome);
 		}
 	}
+
+	/**
+	 * Passes output through while keeping a copy (up to a limit) for the
+	 * rendered document cache.
+	 */
+	private static class CapturingOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private final int limit;
+		private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+		/**
+		 * 
+		 * @param out
+		 * @param limit
+		 */
+		CapturingOutputStream(OutputStream out, int limit) {
+			this.out = out;
+			this.limit = limit;
+		}
+
+		/**
+		 * 
+		 * @return null if the output exceeded the limit.
+		 */
+		byte[] getCaptured() {
+			return (copy != null) ? copy.toByteArray() : null;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			if (copy != null) {
+				if (copy.size() + 1 > limit) {
+					copy = null;
+				} else {
+					copy.write(b);
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			if (copy != null) {
+				if (copy.size() + len > limit) {
+					copy = null;
+				} else {
+					copy.write(b, off, len);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+	}
 }
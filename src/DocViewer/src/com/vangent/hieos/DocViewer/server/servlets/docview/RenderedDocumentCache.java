@@ -0,0 +1,130 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.DocViewer.server.servlets.docview;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU cache of rendered (HTML) documents, keyed by document unique id,
+ * style sheet and content hash, so repeated views of the same document skip
+ * the transform.
+ */
+public class RenderedDocumentCache {
+
+	private final int maxEntrySize;
+	private final Map<String, RenderedDocument> cache;
+
+	/**
+	 * 
+	 * @param maxEntries
+	 * @param maxEntrySize
+	 *            largest rendered document (in bytes) that will be cached.
+	 */
+	public RenderedDocumentCache(final int maxEntries, int maxEntrySize) {
+		this.maxEntrySize = maxEntrySize;
+		this.cache = new LinkedHashMap<String, RenderedDocument>(16, 0.75f,
+				true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, RenderedDocument> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param documentId
+	 * @param styleSheetFileName
+	 * @param contentHash
+	 * @return
+	 */
+	public static String getKey(String documentId, String styleSheetFileName,
+			String contentHash) {
+		return documentId + "|" + styleSheetFileName + "|" + contentHash;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return null if not cached.
+	 */
+	public synchronized RenderedDocument get(String key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param renderedDocument
+	 */
+	public synchronized void put(String key, RenderedDocument renderedDocument) {
+		if (renderedDocument.getContent().length <= maxEntrySize) {
+			cache.put(key, renderedDocument);
+		}
+	}
+
+	/**
+	 * 
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * 
+	 */
+	public static class RenderedDocument {
+
+		private final byte[] content;
+		private final String contentType;
+
+		/**
+		 * 
+		 * @param content
+		 * @param contentType
+		 */
+		public RenderedDocument(byte[] content, String contentType) {
+			this.content = content;
+			this.contentType = contentType;
+		}
+
+		/**
+		 * 
+		 * @return
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * 
+		 * @return
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+	}
+}
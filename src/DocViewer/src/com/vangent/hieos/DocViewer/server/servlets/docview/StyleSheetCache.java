@@ -0,0 +1,111 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.DocViewer.server.servlets.docview;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.ServletContext;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Compiled (thread-safe) style sheets, keyed by their path under
+ * /resources/xsl.  Style sheets are compiled once and reused for every
+ * document view.
+ */
+public class StyleSheetCache {
+
+	private static final String XSL_DIR = "/resources/xsl/";
+	private final ServletContext servletContext;
+	private final TransformerFactory transformerFactory;
+	private final ConcurrentHashMap<String, Templates> templatesMap = new ConcurrentHashMap<String, Templates>();
+
+	/**
+	 * 
+	 * @param servletContext
+	 */
+	public StyleSheetCache(ServletContext servletContext) {
+		this.servletContext = servletContext;
+		this.transformerFactory = TransformerFactory.newInstance();
+	}
+
+	/**
+	 * 
+	 * @param styleSheetFileName
+	 *            path relative to /resources/xsl.
+	 * @return
+	 * @throws TransformerConfigurationException
+	 *             if the style sheet does not exist or can not be compiled.
+	 */
+	public Templates getTemplates(String styleSheetFileName)
+			throws TransformerConfigurationException {
+		Templates templates = templatesMap.get(styleSheetFileName);
+		if (templates == null) {
+			templates = this.compile(styleSheetFileName);
+			Templates existing = templatesMap.putIfAbsent(styleSheetFileName,
+					templates);
+			if (existing != null) {
+				templates = existing;
+			}
+		}
+		return templates;
+	}
+
+	/**
+	 * Drop all compiled style sheets (e.g. after a style sheet changed).
+	 */
+	public void clear() {
+		templatesMap.clear();
+	}
+
+	/**
+	 * 
+	 * @param styleSheetFileName
+	 * @return
+	 * @throws TransformerConfigurationException
+	 */
+	private Templates compile(String styleSheetFileName)
+			throws TransformerConfigurationException {
+		String path = XSL_DIR + styleSheetFileName;
+		URL url = null;
+		try {
+			url = servletContext.getResource(path);
+		} catch (IOException ex) {
+			// Handled below.
+		}
+		InputStream xslis = (url != null) ? servletContext
+				.getResourceAsStream(path) : null;
+		if (xslis == null) {
+			throw new TransformerConfigurationException(
+					"Style sheet not found: " + styleSheetFileName);
+		}
+		try {
+			// The system id allows xsl:include/xsl:import to resolve
+			// relative to the style sheet.
+			StreamSource source = new StreamSource(xslis, url.toExternalForm());
+			synchronized (transformerFactory) {
+				return transformerFactory.newTemplates(source);
+			}
+		} finally {
+			try {
+				xslis.close();
+			} catch (IOException ex) {
+				// Ignore.
+			}
+		}
+	}
+}
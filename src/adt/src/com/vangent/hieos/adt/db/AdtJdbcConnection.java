@@ -25,15 +25,19 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import org.apache.log4j.Logger;
 
@@ -46,8 +50,13 @@ import org.apache.log4j.Logger;
 public class AdtJdbcConnection {
 
     private final static Logger logger = Logger.getLogger(AdtJdbcConnection.class);
+    /**
+     * Number of patient ids bound into each "IN" list (shorter lists are padded
+     * so that a single prepared statement is used).
+     */
+    private final static int IN_LIST_SIZE = 16;
     private Connection con = null;
-    private Statement stmt = null;
+    private Map<String, PreparedStatement> preparedStatements = new HashMap<String, PreparedStatement>();
     /**
      * Constant representing the name of the ADT database table.
      */
@@ -84,21 +93,9 @@ public class AdtJdbcConnection {
      * @throws com.vangent.hieos.xutil.exception.XdsInternalException
      */
     private void initialize() throws XdsInternalException, SQLException {
+        // Connections come from the container's pool; statements are prepared
+        // on first use and re-used for the life of this instance.
         con = this.getConnection();
-        try {
-            // Changed the resultset scroll type from insensitive to sensitive because MS SQL Server does not
-            // support scroll type insensitive with concurrency type of update
-            stmt = con.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-        } catch (SQLException ex) {
-            logger.error("ADT: Could not create statement", ex);
-            try {
-                con.close();
-                con = null;
-            } catch (SQLException ex1) {
-                logger.error("ADT: Could not close connection", ex1);
-            }
-            throw ex;
-        }
     }
 
     /**
@@ -115,14 +112,14 @@ public class AdtJdbcConnection {
      * Close the connection.
      */
     public void closeConnection() {
-        try {
-            if (stmt != null) {
+        for (PreparedStatement stmt : preparedStatements.values()) {
+            try {
                 stmt.close();
-                stmt = null;
+            } catch (SQLException e) {
+                logger.error("ADT: Could not close statement", e);
             }
-        } catch (SQLException e) {
-            logger.error("ADT: Could not close statement", e);
         }
+        preparedStatements.clear();
         try {
             if (con != null) {
                 con.close();
@@ -134,28 +131,72 @@ public class AdtJdbcConnection {
     }
 
     /**
+     * Returns a (forward-only, read-only) prepared statement for the given SQL,
+     * preparing it on first use.
      *
      * @param sql
      * @return
      * @throws java.sql.SQLException
      */
-    private ResultSet executeQuery(String sql) throws SQLException {
-        ResultSet result = null;
-        logger.trace("SQL(adt) = " + sql);
-        result = stmt.executeQuery(sql);
-        return result;
+    private PreparedStatement getPreparedStatement(String sql) throws SQLException {
+        PreparedStatement stmt = preparedStatements.get(sql);
+        if (stmt == null) {
+            logger.trace("SQL(adt) = " + sql);
+            stmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     *
+     * @param sql
+     * @param params
+     * @return
+     * @throws java.sql.SQLException
+     */
+    private ResultSet executeQuery(String sql, String... params) throws SQLException {
+        PreparedStatement stmt = this.getPreparedStatement(sql);
+        this.setParameters(stmt, params);
+        return stmt.executeQuery();
     }
 
     /**
      * Executes the SQL update to the database.
      * @param sql The SQL of the update.
+     * @param params Values bound to the "?" parameters of the SQL (in order).
      * @throws java.sql.SQLException Thrown if database access error.
      * @return An int representing the number of rows affected by update.  (If zero,
      * then no update occured.)
      */
-    private int executeUpdate(String sql) throws SQLException {
-        logger.trace("SQL(adt) = " + sql);
-        return stmt.executeUpdate(sql);
+    private int executeUpdate(String sql, String... params) throws SQLException {
+        PreparedStatement stmt = this.getPreparedStatement(sql);
+        this.setParameters(stmt, params);
+        return stmt.executeUpdate();
+    }
+
+    /**
+     *
+     * @param stmt
+     * @param params
+     * @throws java.sql.SQLException
+     */
+    private void setParameters(PreparedStatement stmt, String... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            stmt.setString(i + 1, params[i]);
+        }
+    }
+
+    /**
+     *
+     * @param result
+     */
+    private void closeResultSet(ResultSet result) {
+        try {
+            result.close();
+        } catch (SQLException e) {
+            logger.error("ADT: Could not close result set", e);
+        }
     }
 
     /**
@@ -176,34 +217,30 @@ public class AdtJdbcConnection {
     public boolean addAdtRecord(AdtRecord record) throws SQLException {
 
         // First see if we are in INSERT or UPDATE mode.
-        StringBuffer sb = new StringBuffer();
-        sb.append("SELECT uuid FROM ");
-        sb.append(ADT_MAIN_TABLE);
-        sb.append(" WHERE " + ADT_MAIN_UUID + " = '" + record.getUuid() + "'");
-        ResultSet resultSet = this.executeQuery(sb.toString());
-        boolean updateMode = resultSet.first();
-        sb = new StringBuffer();
+        ResultSet resultSet = this.executeQuery("SELECT " + ADT_MAIN_UUID + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_UUID + " = ?", record.getUuid());
+        boolean updateMode;
+        try {
+            updateMode = resultSet.next();
+        } finally {
+            this.closeResultSet(resultSet);
+        }
+        int rowsAffected;
         if (updateMode == false) {
             // Insert:
-            sb.append("INSERT INTO ");
-            sb.append(ADT_MAIN_TABLE);
-            sb.append(" (");
-            sb.append(ADT_MAIN_PATIENTID + "," + ADT_MAIN_UUID + "," + ADT_MAIN_STATUS + "," + "timestamp" + ")");
-            sb.append(" VALUES ");
-            sb.append("('");
-            sb.append(record.getPatientId() + "','" + record.getUuid() + "','" + record.getPatientStatus() + "','" + getDate() + "')");
+            String sql = "INSERT INTO " + ADT_MAIN_TABLE
+                    + " (" + ADT_MAIN_PATIENTID + "," + ADT_MAIN_UUID + "," + ADT_MAIN_STATUS + "," + "timestamp" + ")"
+                    + " VALUES (?,?,?,?)";
             if (logger.isDebugEnabled()) {
-                logger.debug("Patient ADD SQL: " + sb.toString());
+                logger.debug("Patient ADD SQL: " + sql + " [" + record.getPatientId() + "]");
             }
+            rowsAffected = this.executeUpdate(sql,
+                    record.getPatientId(), record.getUuid(), record.getPatientStatus(), getDate());
         } else {
             // Update:
-            sb.append("UPDATE ");
-            sb.append(ADT_MAIN_TABLE);
-            sb.append(" SET ");
-            sb.append("timestamp" + " = " + "'" + getDate() + "'");
-            sb.append(" WHERE " + ADT_MAIN_UUID + " = '" + record.getUuid() + "'");
+            rowsAffected = this.executeUpdate("UPDATE " + ADT_MAIN_TABLE + " SET timestamp = ?"
+                    + " WHERE " + ADT_MAIN_UUID + " = ?", getDate(), record.getUuid());
         }
-        int rowsAffected = this.executeUpdate(sb.toString());
         return rowsAffected > 0;
     }
 
@@ -216,13 +253,13 @@ public class AdtJdbcConnection {
      * @return Boolean.  True if ID does exist.  False if ID does not exist.
      */
     public boolean doesIdExist(String id) throws SQLException {
-        StringBuffer sb = new StringBuffer();
-        sb.append("SELECT id ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        //sb.append("WHERE " + this.ADT_MAIN_PATIENTID + " = '" + id + "';");
-        sb.append("WHERE " + ADT_MAIN_PATIENTID + " = '" + id + "'");
-        ResultSet result = this.executeQuery(sb.toString());
-        return result.next();
+        ResultSet result = this.executeQuery("SELECT " + ADT_MAIN_PATIENTID + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_PATIENTID + " = ?", id);
+        try {
+            return result.next();
+        } finally {
+            this.closeResultSet(result);
+        }
     }
 
     /**
@@ -233,13 +270,58 @@ public class AdtJdbcConnection {
      * @return Boolean.  True if active patient exists.  False if active patient does not exist.
      */
     public boolean doesActiveIdExist(String id) throws SQLException {
+        ResultSet result = this.executeQuery("SELECT " + ADT_MAIN_PATIENTID + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_PATIENTID + " = ? AND " + ADT_MAIN_STATUS + " = ?",
+                id, ADT_MAIN_ACTIVE_STATUS);
+        try {
+            return result.next();
+        } finally {
+            this.closeResultSet(result);
+        }
+    }
+
+    /**
+     * Returns the subset of the given patient ids that are known and active.
+     * Ids are checked in as few (indexed) queries as possible.
+     *
+     * @param ids The IDs to query on.
+     * @throws java.sql.SQLException Thrown if database access error.
+     * @return Set of active patient ids (empty if none).
+     */
+    public Set<String> getActiveIds(Collection<String> ids) throws SQLException {
+        Set<String> activeIds = new HashSet<String>();
+        // Remove duplicates (and nulls) to keep the "IN" lists short.
+        List<String> distinctIds = new ArrayList<String>(new LinkedHashSet<String>(ids));
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty()) {
+            return activeIds;
+        }
         StringBuffer sb = new StringBuffer();
-        sb.append("SELECT id ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        sb.append("WHERE " + ADT_MAIN_PATIENTID + " = '" + id + "' ");
-        sb.append("AND " + ADT_MAIN_STATUS + " = '" + ADT_MAIN_ACTIVE_STATUS + "'");
-        ResultSet result = this.executeQuery(sb.toString());
-        return result.next();
+        sb.append("SELECT " + ADT_MAIN_PATIENTID + " FROM " + ADT_MAIN_TABLE);
+        sb.append(" WHERE " + ADT_MAIN_STATUS + " = ? AND " + ADT_MAIN_PATIENTID + " IN (");
+        for (int i = 0; i < IN_LIST_SIZE; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        sb.append(")");
+        String sql = sb.toString();
+        for (int from = 0; from < distinctIds.size(); from += IN_LIST_SIZE) {
+            List<String> chunk = distinctIds.subList(from, Math.min(from + IN_LIST_SIZE, distinctIds.size()));
+            String[] params = new String[IN_LIST_SIZE + 1];
+            params[0] = ADT_MAIN_ACTIVE_STATUS;
+            for (int i = 0; i < IN_LIST_SIZE; i++) {
+                // Pad with the last id (duplicates in the "IN" list are harmless).
+                params[i + 1] = chunk.get(Math.min(i, chunk.size() - 1));
+            }
+            ResultSet result = this.executeQuery(sql, params);
+            try {
+                while (result.next()) {
+                    activeIds.add(result.getString(1));
+                }
+            } finally {
+                this.closeResultSet(result);
+            }
+        }
+        return activeIds;
     }
 
     /**
@@ -249,17 +331,17 @@ public class AdtJdbcConnection {
      * @throws java.sql.SQLException
      */
     public String getPatientUUID(String patientId) throws SQLException {
-        StringBuffer sb = new StringBuffer();
-        sb.append("SELECT UUID ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        //sb.append("WHERE " + this.ADT_MAIN_PATIENTID + " = '" + patientId + "';");
-        sb.append("WHERE " + ADT_MAIN_PATIENTID + " = '" + patientId + "'");
-        ResultSet result = this.executeQuery(sb.toString());
-        if (result.first() == false) {
-            // not found.
-            return null;  // Early exit.
+        ResultSet result = this.executeQuery("SELECT " + ADT_MAIN_UUID + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_PATIENTID + " = ?", patientId);
+        try {
+            if (result.next() == false) {
+                // not found.
+                return null;  // Early exit.
+            }
+            return result.getString(1);
+        } finally {
+            this.closeResultSet(result);
         }
-        return result.getString(ADT_MAIN_UUID);
     }
 
     /**
@@ -270,23 +352,22 @@ public class AdtJdbcConnection {
      * @throws com.vangent.hieos.xutil.exception.XdsInternalException
      */
     public AdtRecord getAdtRecord(String uuid) throws SQLException, XdsInternalException {
-        StringBuffer sb = new StringBuffer();
-        sb.append("SELECT * ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        //sb.append("WHERE " + ADT_MAIN_UUID + " = '" + uuid + "';");
-        sb.append("WHERE " + ADT_MAIN_UUID + " = '" + uuid + "'");
-        ResultSet result = this.executeQuery(sb.toString());
+        ResultSet result = this.executeQuery("SELECT " + ADT_MAIN_PATIENTID + "," + ADT_MAIN_STATUS
+                + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_UUID + " = ?", uuid);
         try {
-            result.next();
-        } catch (SQLException e) {
-            // not found.
-            return null;
+            if (result.next() == false) {
+                // not found.
+                return null;
+            }
+            AdtRecord record = new AdtRecord();
+            record.setUuid(uuid);
+            record.setPatientId(result.getString(1));
+            record.setPatientStatus(result.getString(2));
+            return record;
+        } finally {
+            this.closeResultSet(result);
         }
-        AdtRecord record = new AdtRecord();
-        record.setUuid(uuid);
-        record.setPatientId(result.getString(ADT_MAIN_PATIENTID));
-        record.setPatientStatus(result.getString(ADT_MAIN_STATUS));
-        return record;
     }
 
     /**
@@ -296,12 +377,8 @@ public class AdtJdbcConnection {
      */
     public void deleteAdtRecord(String uuid) throws SQLException {
         // Delete the main table entries.
-        StringBuffer sb = new StringBuffer();
-        sb.append("DELETE ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        //sb.append("WHERE " + this.ADT_MAIN_UUID + " = '" + uuid + "';");
-        sb.append("WHERE " + ADT_MAIN_UUID + " = '" + uuid + "'");
-        this.executeUpdate(sb.toString());
+        this.executeUpdate("DELETE FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_UUID + " = ?", uuid);
     }
 
     /**
@@ -311,19 +388,10 @@ public class AdtJdbcConnection {
      * @throws SQLException
      */
     public void updateAdtRecordStatus(String uuid, String status) throws SQLException {
-        StringBuffer sb;
-        int rowsAffected;
-
         // update the Patient table status.
-        sb = new StringBuffer();
-        sb.append("UPDATE ");
-        sb.append(ADT_MAIN_TABLE);
-        sb.append(" SET ");
-        sb.append(ADT_MAIN_STATUS + " = " + "'" + status + "'").append(",");
-        sb.append("timestamp" + " = " + "'" + getDate() + "'");
-        sb.append(" WHERE " + ADT_MAIN_UUID + " = '" + uuid + "'");
-
-        rowsAffected = this.executeUpdate(sb.toString());
+        int rowsAffected = this.executeUpdate("UPDATE " + ADT_MAIN_TABLE
+                + " SET " + ADT_MAIN_STATUS + " = ?, timestamp = ?"
+                + " WHERE " + ADT_MAIN_UUID + " = ?", status, getDate(), uuid);
         if (rowsAffected == 0) {
             throw new SQLException("ADT Patient not found with UUID = " + uuid);
         }
@@ -336,15 +404,16 @@ public class AdtJdbcConnection {
      * @return String with Status.  NULL if patient does not exist.
      */
     public String getPatientStatus(String id) throws SQLException {
-        StringBuffer sb = new StringBuffer();
-        sb.append("SELECT status ");
-        sb.append("FROM " + ADT_MAIN_TABLE + " ");
-        sb.append("WHERE " + ADT_MAIN_PATIENTID + " = '" + id + "'");
-        ResultSet result = this.executeQuery(sb.toString());
-        if (result.next()) {
-            return result.getString(1);
-        } else {
-            return null;
+        ResultSet result = this.executeQuery("SELECT " + ADT_MAIN_STATUS + " FROM " + ADT_MAIN_TABLE
+                + " WHERE " + ADT_MAIN_PATIENTID + " = ?", id);
+        try {
+            if (result.next()) {
+                return result.getString(1);
+            } else {
+                return null;
+            }
+        } finally {
+            this.closeResultSet(result);
         }
     }
 
@@ -34,6 +34,8 @@ public class Verify {
 
     /**
      * Checks if a Patient exists in the database and is also Active 
+     * (a single query on a connection borrowed from the container's pool;
+     * statement re-use across requests is left to the pool's statement cache).
      *
      * @param patientId
      * @return
@@ -50,8 +50,12 @@ public class ATNAServer {
         // Create server to process inbound messages.
         int poolSize = props.getIntegerProperty(POOL_SIZE);
         log.info("Initializing Server Environment");
-        TCPServer tcpServer = new TCPServer(poolSize, props);
-        UDPServer udpServer = new UDPServer(poolSize, props);
+
+        // Shared (long-lived) JMS producers for both servers.
+        AuditQueueWriter auditQueueWriter = new AuditQueueWriter(props, poolSize * 2);
+        auditQueueWriter.startup();
+        TCPServer tcpServer = new TCPServer(poolSize, props, auditQueueWriter);
+        UDPServer udpServer = new UDPServer(poolSize, props, auditQueueWriter);
 
         // Start the servers
         udpServer.start();
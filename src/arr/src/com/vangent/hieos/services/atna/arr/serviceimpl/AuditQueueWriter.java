@@ -0,0 +1,89 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.serviceimpl;
+
+import com.vangent.hieos.xutil.jms.JMSProducerPool;
+import com.vangent.hieos.xutil.socket.ServerProperties;
+import java.util.HashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * Places received audit messages on the ATNA queue using a shared, long-lived
+ * JMS producer pool (rather than a JMS connection per message).
+ */
+public class AuditQueueWriter {
+
+    private static final Logger log = Logger.getLogger(AuditQueueWriter.class);
+    private final static String JMS_FACTORY = "jms_queue_mgr";
+    private final static String JMS_QUEUE = "jms_queue";
+    private final static String JMS_FACTORY_CLASS = "jms_factory_class";
+    private final static String JMS_FACTORY_URL = "jms_url";
+    private final static String JMS_SESSION_POOL_SIZE = "jms_session_pool_size";
+    private final JMSProducerPool producerPool;
+
+    /**
+     *
+     * @param props
+     * @param defaultSessionPoolSize Used if jms_session_pool_size is not configured.
+     */
+    public AuditQueueWriter(ServerProperties props, int defaultSessionPoolSize) {
+        int sessionPoolSize = defaultSessionPoolSize;
+        if (props.getProperty(JMS_SESSION_POOL_SIZE) != null) {
+            sessionPoolSize = props.getIntegerProperty(JMS_SESSION_POOL_SIZE);
+        }
+        this.producerPool = new JMSProducerPool(
+                props.getProperty(JMS_FACTORY),
+                props.getProperty(JMS_QUEUE),
+                props.getProperty(JMS_FACTORY_CLASS),
+                props.getProperty(JMS_FACTORY_URL),
+                sessionPoolSize);
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void startup() throws Exception {
+        producerPool.startup();
+    }
+
+    /**
+     * Write message to the ATNA Queue.
+     *
+     * @param protocol
+     * @param clientIP
+     * @param clientPort
+     * @param message
+     * @throws Exception
+     */
+    public void write(String protocol, String clientIP, int clientPort, String message) throws Exception {
+        // Populate the Audit Queue Object
+        HashMap<String, Object> auditMap = new HashMap<String, Object>();
+        auditMap.put("protocol", protocol);
+        auditMap.put("clientIP", clientIP);
+        auditMap.put("clientPort", clientPort);
+        auditMap.put("message", message);
+        if (log.isDebugEnabled()) {
+            log.debug(protocol + " MESSAGE RECEIVED FROM CLIENT: " + clientIP + ":" + clientPort + " Length: " + message.length());
+            log.debug(message);
+        }
+        producerPool.sendMessage(auditMap);
+    }
+
+    /**
+     * 
+     */
+    public void close() {
+        producerPool.close();
+    }
+}
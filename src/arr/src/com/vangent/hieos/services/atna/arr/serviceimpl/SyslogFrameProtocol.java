@@ -0,0 +1,116 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.serviceimpl;
+
+import com.vangent.hieos.xutil.socket.NIOFrameDecoder;
+import com.vangent.hieos.xutil.socket.NIOFrameProtocol;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Syslog over TCP/TLS octet-counting framing (RFC 5425 / RFC 6587):
+ * MSG-LEN SP SYSLOG-MSG.  Allows a sender to transmit many audit messages on a
+ * single connection.
+ */
+public class SyslogFrameProtocol implements NIOFrameProtocol {
+
+    private static final int MAX_LENGTH_DIGITS = 10;
+    private final int maxMessageSize;
+
+    /**
+     *
+     * @param maxMessageSize Largest message (in bytes) accepted.
+     */
+    public SyslogFrameProtocol(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public NIOFrameDecoder createDecoder() {
+        return new OctetCountingDecoder();
+    }
+
+    /**
+     *
+     * @param payload
+     * @return
+     */
+    public ByteBuffer encode(byte[] payload) {
+        byte[] header = (payload.length + " ").getBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + payload.length);
+        buffer.put(header);
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Parses the MSG-LEN header once per frame and then waits for the
+     * message body to arrive.
+     */
+    private class OctetCountingDecoder implements NIOFrameDecoder {
+
+        private int messageLength = -1;  // Length of the current frame (-1 until the header is read).
+
+        /**
+         *
+         * @param buffer
+         * @return
+         * @throws IOException
+         */
+        public byte[] decode(ByteBuffer buffer) throws IOException {
+            if (messageLength < 0) {
+                // Skip stray line endings some senders place between frames.
+                while (buffer.hasRemaining()
+                        && (buffer.get(buffer.position()) == '\n' || buffer.get(buffer.position()) == '\r')) {
+                    buffer.get();
+                }
+                int start = buffer.position();
+                int limit = buffer.limit();
+                int length = 0;
+                int i = start;
+                for (; i < limit; i++) {
+                    byte b = buffer.get(i);
+                    if (b == ' ') {
+                        break;
+                    }
+                    if (b < '0' || b > '9' || (i == start && b == '0') || i - start >= MAX_LENGTH_DIGITS) {
+                        throw new IOException("Message is not octet-counted (RFC 5425): invalid MSG-LEN");
+                    }
+                    length = (length * 10) + (b - '0');
+                    if (length > maxMessageSize) {
+                        throw new IOException("Message exceeds maximum size of " + maxMessageSize + " bytes");
+                    }
+                }
+                if (i >= limit) {
+                    return null;  // Header not complete.
+                }
+                if (i == start) {
+                    throw new IOException("Message is not octet-counted (RFC 5425): missing MSG-LEN");
+                }
+                buffer.position(i + 1);
+                messageLength = length;
+            }
+            if (buffer.remaining() < messageLength) {
+                return null;
+            }
+            byte[] frame = new byte[messageLength];
+            buffer.get(frame);
+            messageLength = -1;
+            return frame;
+        }
+    }
+}
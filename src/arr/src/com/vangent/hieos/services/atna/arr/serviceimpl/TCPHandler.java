@@ -12,103 +12,167 @@
  */
 package com.vangent.hieos.services.atna.arr.serviceimpl;
 
-import com.vangent.hieos.xutil.jms.JMSHandler;
 import com.vangent.hieos.xutil.socket.ServerProperties;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.Socket;
-import java.util.HashMap;
+import java.net.SocketTimeoutException;
 import org.apache.log4j.Logger;
 
 /**
+ * Handles a (blocking) TCP/TLS connection.  Octet-counted senders (RFC 5425)
+ * may send any number of audit messages on the connection; otherwise the whole
+ * connection (up to EOF) is treated as a single audit message.  A connection
+ * that stays idle (between messages) for longer than socket_timeout
+ * milliseconds is closed so it does not hold a pool thread.
  *
  * @author Adeola Odunlami
  */
 public class TCPHandler implements Runnable {
 
     private static final Logger log = Logger.getLogger(TCPHandler.class);
+    private static final String MAX_MESSAGE_SIZE = "max_message_size";
+    private static final String SO_TIMEOUT = "socket_timeout";
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final String SYSLOG_CHARSET = "UTF-8";
     private Socket clientConnection;
     private ServerProperties props;
-    private final static String JMS_FACTORY = "jms_queue_mgr";
-    private final static String JMS_QUEUE = "jms_queue";
-    private final static String JMS_FACTORY_CLASS = "jms_factory_class";
-    private final static String JMS_FACTORY_URL = "jms_url";
+    private AuditQueueWriter auditQueueWriter;
 
     /**
      *
      * @param clientConnection
      * @param props
+     * @param auditQueueWriter
      */
-    TCPHandler(Socket clientConnection, ServerProperties props) {
+    TCPHandler(Socket clientConnection, ServerProperties props, AuditQueueWriter auditQueueWriter) {
         this.clientConnection = clientConnection;
         this.props = props;
-        log.info("TCPHandler Instantiated ");
+        this.auditQueueWriter = auditQueueWriter;
+        if (log.isTraceEnabled()) {
+            log.trace("TCPHandler Instantiated ");
+        }
     }
 
     /**
-     *  Performs the work - Writes message to Audit Queue
+     *  Performs the work - Writes message(s) to Audit Queue
      * 
      */
     public void run() {
-        InputStreamReader isr = null;
-        BufferedReader br = null;
-
-        // Instantiate the message handler
-        String jmsFactory = props.getProperty(JMS_FACTORY);
-        String jmsDestination = props.getProperty(JMS_QUEUE);
-        String jmsFactoryClass = props.getProperty(JMS_FACTORY_CLASS);
-        String jmsFactoryURL = props.getProperty(JMS_FACTORY_URL);
-        JMSHandler jmsHandler = new JMSHandler(jmsFactory, jmsDestination);
-
-        HashMap<String, Object> auditMap = new HashMap<String, Object>();
-        auditMap.put("protocol", "TCP");
-        StringBuffer message = new StringBuffer();
-
+        String clientIP = clientConnection.getInetAddress().getHostAddress();
+        int clientPort = clientConnection.getLocalPort();
+        String message = null;
         try {
             // read and service request
-            log.info("Processing TCP Message from " + clientConnection.getInetAddress().getHostAddress());
-            isr = new InputStreamReader(clientConnection.getInputStream());
-            br = new BufferedReader(isr);
-            String inputLine = null;
+            log.info("Processing TCP Message from " + clientIP);
+            if (props.getProperty(SO_TIMEOUT) != null) {
+                clientConnection.setSoTimeout(props.getIntegerProperty(SO_TIMEOUT));
+            }
+            InputStream in = new BufferedInputStream(clientConnection.getInputStream());
 
-            // Read message from client
-            while ((inputLine = br.readLine()) != null) {
-                //log.info("TCPMessage Line: " + inputLine);
-                message.append(inputLine);
+            // Octet-counted frames start with the (non-zero) message length.
+            in.mark(1);
+            int firstByte;
+            try {
+                firstByte = in.read();
+            } catch (SocketTimeoutException ex) {
+                log.info("Closing idle TCP connection from " + clientIP);
+                return;
             }
-            if (log.isDebugEnabled()) {
-                log.debug("TCP Message From Client: ");
-                log.debug(message);
+            in.reset();
+            if (firstByte >= '1' && firstByte <= '9') {
+                int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+                if (props.getProperty(MAX_MESSAGE_SIZE) != null) {
+                    maxMessageSize = props.getIntegerProperty(MAX_MESSAGE_SIZE);
+                }
+                DataInputStream dis = new DataInputStream(in);
+                while ((message = this.readFrame(dis, maxMessageSize)) != null) {
+                    auditQueueWriter.write("TCP", clientIP, clientPort, message);
+                }
+            } else if (firstByte != -1) {
+                message = this.readToEndOfStream(in);
+                auditQueueWriter.write("TCP", clientIP, clientPort, message);
             }
-
-            auditMap.put("clientIP", clientConnection.getInetAddress().getHostAddress());
-            auditMap.put("clientPort", clientConnection.getLocalPort());
-            auditMap.put("message", message);
-
-            //Parse, Process and Save the Audit Message
-            jmsHandler.createConnectionFactoryFromProperties(jmsFactoryClass, jmsFactoryURL);
-            jmsHandler.createJMSSession();
-            jmsHandler.sendMessage(auditMap);
-
         } catch (Exception ex) {
             log.error("Error Audit Message Not Written to Queue: ", ex);
             log.error("Audit Message Protocol: " + "TCP/TLS");
-            log.error("Audit Message Client IP: " + clientConnection.getInetAddress().getHostAddress());
-            log.error("Audit Message Client Port: " + clientConnection.getLocalPort());
+            log.error("Audit Message Client IP: " + clientIP);
+            log.error("Audit Message Client Port: " + clientPort);
             log.error("Audit Message XML: " + message);
-            ex.printStackTrace();
         } finally {
-            // Close Streams & Connection
-            jmsHandler.close();
+            // Close Connection
             try {
-                isr.close();
-                br.close();
                 clientConnection.close();
             } catch (IOException ex) {
                 log.error(ex);
             }
         }
+    }
+
+    /**
+     * Reads the next octet-counted frame (MSG-LEN SP SYSLOG-MSG).
+     *
+     * @param dis
+     * @param maxMessageSize
+     * @return The message, or null at end of stream (or when idle too long).
+     * @throws IOException
+     */
+    private String readFrame(DataInputStream dis, int maxMessageSize) throws IOException {
+        int b;
+        try {
+            b = dis.read();
+            // Skip stray line endings some senders place between frames.
+            while (b == '\n' || b == '\r') {
+                b = dis.read();
+            }
+        } catch (SocketTimeoutException ex) {
+            // Idle between messages; close the connection normally.
+            log.info("Closing idle TCP connection from " + clientConnection.getInetAddress().getHostAddress());
+            return null;
+        }
+        if (b == -1) {
+            return null;
+        }
+        int length = 0;
+        while (b != ' ') {
+            if (b < '0' || b > '9') {
+                throw new IOException("Message is not octet-counted (RFC 5425): invalid MSG-LEN");
+            }
+            length = (length * 10) + (b - '0');
+            if (length > maxMessageSize) {
+                throw new IOException("Message exceeds maximum size of " + maxMessageSize + " bytes");
+            }
+            b = dis.read();
+        }
+        byte[] frame = new byte[length];
+        dis.readFully(frame);
+        return new String(frame, SYSLOG_CHARSET);
+    }
 
+    /**
+     * Legacy (non-framed) senders: one message per connection.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    private String readToEndOfStream(InputStream in) throws IOException {
+        StringBuffer message = new StringBuffer();
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+        String inputLine = null;
+
+        // Read message from client
+        while ((inputLine = br.readLine()) != null) {
+            message.append(inputLine);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("TCP Message From Client: ");
+            log.debug(message);
+        }
+        return message.toString();
     }
 }
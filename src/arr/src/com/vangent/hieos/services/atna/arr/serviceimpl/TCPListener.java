@@ -29,6 +29,7 @@ public class TCPListener implements Callable {
     private ServerSocket serverSocket;
     private ServerProperties props;
     private ExecutorService pool;
+    private AuditQueueWriter auditQueueWriter;
 
     private static final String TCP_PORT = "tcp_port";
     private static final Logger log = Logger.getLogger(TCPListener.class);
@@ -38,11 +39,14 @@ public class TCPListener implements Callable {
      * @param serverSocket
      * @param props
      * @param pool
+     * @param auditQueueWriter
      */
-    public TCPListener(ServerSocket serverSocket, ServerProperties props, ExecutorService pool) {
+    public TCPListener(ServerSocket serverSocket, ServerProperties props, ExecutorService pool,
+            AuditQueueWriter auditQueueWriter) {
         this.serverSocket = serverSocket;
         this.props = props;
         this.pool = pool;
+        this.auditQueueWriter = auditQueueWriter;
     }
 
     /**
@@ -55,7 +59,7 @@ public class TCPListener implements Callable {
             log.info("Waiting For TCP Messages on Port: " + tcpPort);
             while (true) {
                 Socket clientConnection = serverSocket.accept();
-                pool.execute(new TCPHandler(clientConnection, props));
+                pool.execute(new TCPHandler(clientConnection, props, auditQueueWriter));
             }
         } catch (Exception ex) {
             log.error(ex.toString());
@@ -13,36 +13,50 @@
 package com.vangent.hieos.services.atna.arr.serviceimpl;
 
 import com.vangent.hieos.xutil.socket.BasicServer;
+import com.vangent.hieos.xutil.socket.NIOConnection;
+import com.vangent.hieos.xutil.socket.NIOFrameHandler;
+import com.vangent.hieos.xutil.socket.NIOServer;
 import com.vangent.hieos.xutil.socket.ServerProperties;
 import com.vangent.hieos.xutil.socket.TLSSocketSupport;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.Future;
 import org.apache.log4j.Logger;
 
 /**
+ * TCP/TLS syslog server.  When nio_enabled is set, connections are serviced by
+ * a single selector thread and octet-counted (RFC 5425) messages are handed to
+ * the thread pool as they arrive; otherwise a thread is used per connection.
  *
  * @author Adeola Odunlami
  */
-public class TCPServer extends BasicServer {
+public class TCPServer extends BasicServer implements NIOFrameHandler {
 
     private static final Logger log = Logger.getLogger(TCPServer.class);
     private ServerSocket serverSocket;
-    private static final String SO_TIMEOUT = "socket_timeout"; 
+    private NIOServer nioServer;
+    private final AuditQueueWriter auditQueueWriter;
     private static final String SO_BACKLOG = "socket_backlog";
     private static final String TLS_ENABLED = "tls_enabled";
     private static final String TCP_PORT = "tcp_port";
+    private static final String NIO_ENABLED = "nio_enabled";
+    private static final String MAX_MESSAGE_SIZE = "max_message_size";
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final Charset SYSLOG_CHARSET = Charset.forName("UTF-8");
 
 
     /**
      *
      * @param poolSize
      * @param props
+     * @param auditQueueWriter
      * @throws IOException
      */
-    public TCPServer(int poolSize, ServerProperties props) throws IOException {
+    public TCPServer(int poolSize, ServerProperties props, AuditQueueWriter auditQueueWriter) throws IOException {
         super(poolSize, props);
+        this.auditQueueWriter = auditQueueWriter;
     }
 
     /**
@@ -56,7 +70,21 @@ public class TCPServer extends BasicServer {
             int soBacklog = props.getIntegerProperty(SO_BACKLOG);
             int tcpPort = props.getIntegerProperty(TCP_PORT);
 
-            if (props.getProperty(TLS_ENABLED).equalsIgnoreCase("true")) {
+            if ("true".equalsIgnoreCase(props.getProperty(NIO_ENABLED))) {
+                int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+                if (props.getProperty(MAX_MESSAGE_SIZE) != null) {
+                    maxMessageSize = props.getIntegerProperty(MAX_MESSAGE_SIZE);
+                }
+                nioServer = new NIOServer("ATNA", tcpPort, soBacklog,
+                        new SyslogFrameProtocol(maxMessageSize), this, pool);
+                if (props.getProperty(TLS_ENABLED).equalsIgnoreCase("true")) {
+                    TLSSocketSupport socketSupport = new TLSSocketSupport();
+                    nioServer.setTLS(socketSupport.getServerSSLContext(), null, true);
+                    log.info("+++++ NIO SOCKET [TLS] configured (PORT = " + tcpPort + ") +++++");
+                } else {
+                    log.info("+++++ NIO SOCKET [non-TLS] configured (PORT = " + tcpPort + ") +++++");
+                }
+            } else if (props.getProperty(TLS_ENABLED).equalsIgnoreCase("true")) {
                 TLSSocketSupport socketSupport = new TLSSocketSupport();
                 serverSocket = socketSupport.getSecureServerSocket(tcpPort, soBacklog);
                 log.info("+++++ SOCKET [TLS] created (PORT = " + tcpPort + ") +++++");
@@ -77,9 +105,14 @@ public class TCPServer extends BasicServer {
      */
     @Override
     public void listen() throws IOException {
+        if (nioServer != null) {
+            log.info("Waiting For TCP Messages on Port: " + props.getIntegerProperty(TCP_PORT) + " (NIO)");
+            nioServer.startup();
+            return;
+        }
         try {
             // Start new Thread and Listen on the TCP Server
-            TCPListener listener = new TCPListener(serverSocket, props, pool);
+            TCPListener listener = new TCPListener(serverSocket, props, pool, auditQueueWriter);
             Future<String> future = pool.submit(listener);
         } catch (Exception ex) {
             log.error(ex.toString());
@@ -97,11 +130,11 @@ public class TCPServer extends BasicServer {
         try {
             int tcpPort = props.getIntegerProperty(TCP_PORT);
             //serverSocket = start();
-            //serverSocket.setSoTimeout(props.getIntegerProperty(SO_TIMEOUT));
+            // Idle client connections time out (see TCPHandler).
             log.info("Waiting For TCP Messages on Port: " + tcpPort);
             while (true) {
                 Socket clientConnection = serverSocket.accept();
-                pool.execute(new TCPHandler(clientConnection, props));
+                pool.execute(new TCPHandler(clientConnection, props, auditQueueWriter));
             }
         } catch (Exception ex) {
             log.error(ex.toString());
@@ -110,11 +143,57 @@ public class TCPServer extends BasicServer {
         }
     }
 
+    /**
+     *
+     * @param connection
+     */
+    public void connectionOpened(NIOConnection connection) {
+        log.info("Processing TCP Messages from " + connection.getRemoteAddress().getHostAddress());
+    }
+
+    /**
+     * Write message to the Audit Queue (no response is returned to the sender).
+     *
+     * @param connection
+     * @param frame
+     * @return
+     * @throws Exception
+     */
+    public byte[] handleFrame(NIOConnection connection, byte[] frame) throws Exception {
+        String message = new String(frame, SYSLOG_CHARSET);
+        try {
+            auditQueueWriter.write("TCP", connection.getRemoteAddress().getHostAddress(),
+                    connection.getRemotePort(), message);
+        } catch (Exception ex) {
+            log.error("Error Audit Message Not Written to Queue: " + ex.getMessage());
+            log.error("Audit Message Protocol: " + (connection.isSecure() ? "TLS" : "TCP"));
+            log.error("Audit Message Client IP: " + connection.getRemoteAddress().getHostAddress());
+            log.error("Audit Message Client Port: " + connection.getRemotePort());
+            log.error("Audit Message XML: " + message);
+            throw ex;
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param connection
+     */
+    public void connectionClosed(NIOConnection connection) {
+        if (log.isDebugEnabled()) {
+            log.debug("TCP connection closed (" + connection + ", " + nioServer.getStatistics() + ")");
+        }
+    }
+
     /**
      *
      */
     @Override
     public void close() {
+        if (nioServer != null) {
+            nioServer.shutdownAndAwaitTermination();
+            log.info(nioServer.getStatistics());
+        }
         log.info("Closing TCP ServerSocket");
         if (serverSocket != null) {
             try {
@@ -12,10 +12,7 @@
  */
 package com.vangent.hieos.services.atna.arr.serviceimpl;
 
-import com.vangent.hieos.xutil.jms.JMSHandler;
-import com.vangent.hieos.xutil.socket.ServerProperties;
 import java.net.DatagramPacket;
-import java.util.HashMap;
 import org.apache.log4j.Logger;
 
 /**
@@ -26,21 +23,19 @@ public class UDPHandler implements Runnable {
 
     private static final Logger log = Logger.getLogger(UDPHandler.class);
     private DatagramPacket clientPacket;
-    private ServerProperties props;
-    private final static String JMS_FACTORY = "jms_queue_mgr";
-    private final static String JMS_QUEUE = "jms_queue";
-    private final static String JMS_FACTORY_CLASS = "jms_factory_class";
-    private final static String JMS_FACTORY_URL = "jms_url";
+    private AuditQueueWriter auditQueueWriter;
 
     /**
      *
      * @param clientPacket
-     * @param props
+     * @param auditQueueWriter
      */
-    UDPHandler(DatagramPacket clientPacket, ServerProperties props) {
+    UDPHandler(DatagramPacket clientPacket, AuditQueueWriter auditQueueWriter) {
         this.clientPacket = clientPacket;
-        this.props = props;
-        log.info("UDPHandler Instantiated ");
+        this.auditQueueWriter = auditQueueWriter;
+        if (log.isTraceEnabled()) {
+            log.trace("UDPHandler Instantiated ");
+        }
     }
 
     /**
@@ -48,35 +43,14 @@ public class UDPHandler implements Runnable {
      * 
      */
     public void run() {
-        // Instantiate the message handler
-        String jmsFactory = props.getProperty(JMS_FACTORY);
-        String jmsDestination = props.getProperty(JMS_QUEUE);
-        String jmsFactoryClass = props.getProperty(JMS_FACTORY_CLASS);
-        String jmsFactoryURL = props.getProperty(JMS_FACTORY_URL);
-        JMSHandler jmsHandler = new JMSHandler(jmsFactory, jmsDestination);
-
         // Extract the data from the packet
         String clientIP = clientPacket.getAddress().getHostAddress();
         int clientPort = clientPacket.getPort();
-        String message = new String(clientPacket.getData()).trim();
+        String message = new String(clientPacket.getData(), clientPacket.getOffset(), clientPacket.getLength()).trim();
 
         try {
-            // Populate the Audit Queue Object
-            HashMap<String, Object> auditMap = new HashMap<String, Object>();
-            auditMap.put("protocol", "UDP");
-            auditMap.put("clientIP", clientIP);
-            auditMap.put("clientPort", clientPort);
-            auditMap.put("message", message);
-            if (log.isDebugEnabled()) {
-                log.debug("UDP MESSAGE RECEIVED FROM CLIENT: " + clientIP + ":" + clientPort + " Length: " + message.length());
-                log.debug(message);
-            }
-
             //Place Audit Message on AuditMessageQueue
-            jmsHandler.createConnectionFactoryFromProperties(jmsFactoryClass, jmsFactoryURL);
-            jmsHandler.createJMSSession();
-            jmsHandler.sendMessage(auditMap);
-
+            auditQueueWriter.write("UDP", clientIP, clientPort, message);
         } catch (Exception ex) {
             log.error("Error Audit Message Not Written to Queue: ", ex);
             log.error("Audit Message Protocol: " + "UDP");
@@ -84,8 +58,6 @@ public class UDPHandler implements Runnable {
             log.error("Audit Message Client Port: " + clientPort);
             log.error("Audit Message XML: " + message);
             ex.printStackTrace();
-        } finally {
-            jmsHandler.close();
         }
 
     }
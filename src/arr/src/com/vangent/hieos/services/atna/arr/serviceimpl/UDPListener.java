@@ -28,6 +28,7 @@ public class UDPListener implements Callable {
     private DatagramSocket serverSocket;
     private ServerProperties props;
     private ExecutorService pool;
+    private AuditQueueWriter auditQueueWriter;
 
     private static final String UDP_PORT = "udp_port";
     private static final String UDP_PACKET_SIZE = "udp_packet_size";
@@ -38,11 +39,14 @@ public class UDPListener implements Callable {
      * @param serverSocket
      * @param props
      * @param pool
+     * @param auditQueueWriter
      */
-    public UDPListener(DatagramSocket serverSocket, ServerProperties props, ExecutorService pool) {
+    public UDPListener(DatagramSocket serverSocket, ServerProperties props, ExecutorService pool,
+            AuditQueueWriter auditQueueWriter) {
         this.serverSocket = serverSocket;
         this.props = props;
         this.pool = pool;
+        this.auditQueueWriter = auditQueueWriter;
     }
 
     /**
@@ -62,7 +66,7 @@ public class UDPListener implements Callable {
                 // Wait for a UDP client connection
                 serverSocket.receive(clientPacket);
                 // Process the packet received
-                pool.execute(new UDPHandler(clientPacket, props));
+                pool.execute(new UDPHandler(clientPacket, auditQueueWriter));
             }
         } catch  (Exception ex) {
             log.error(ex.toString());
@@ -28,6 +28,7 @@ public class UDPServer extends BasicServer{
 
     private static final Logger log = Logger.getLogger(UDPServer.class);
     private DatagramSocket serverSocket;
+    private final AuditQueueWriter auditQueueWriter;
     private static final String UDP_PORT = "udp_port";
     private static final String UDP_PACKET_SIZE = "udp_packet_size";
 
@@ -35,10 +36,12 @@ public class UDPServer extends BasicServer{
      *
      * @param poolSize
      * @param props
+     * @param auditQueueWriter
      * @throws IOException
      */
-    public UDPServer(int poolSize, ServerProperties props) throws IOException {
+    public UDPServer(int poolSize, ServerProperties props, AuditQueueWriter auditQueueWriter) throws IOException {
         super(poolSize, props);
+        this.auditQueueWriter = auditQueueWriter;
     }
 
     /**
@@ -66,7 +69,7 @@ public class UDPServer extends BasicServer{
     public void listen() throws IOException {
         try {
             // Start new Thread and Listen on the UDP Server
-           UDPListener listener = new UDPListener(serverSocket, props, pool);
+           UDPListener listener = new UDPListener(serverSocket, props, pool, auditQueueWriter);
            Future<String> future = pool.submit(listener);
         } catch  (Exception ex) {
             log.error(ex.toString());
@@ -99,7 +102,7 @@ public class UDPServer extends BasicServer{
                 // Wait for a UDP client connection
                 serverSocket.receive(clientPacket);
                 // Process the packet received
-                pool.execute(new UDPHandler(clientPacket, props));
+                pool.execute(new UDPHandler(clientPacket, auditQueueWriter));
             }
         } catch  (Exception ex) {
             log.error(ex.toString());
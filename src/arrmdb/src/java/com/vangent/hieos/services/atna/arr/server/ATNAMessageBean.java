@@ -12,9 +12,12 @@
  */
 package com.vangent.hieos.services.atna.arr.server;
 
+import com.vangent.hieos.services.atna.arr.storage.AuditPartitionManager;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import com.vangent.hieos.services.atna.arr.support.AuditMessageHandler;
 import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ejb.MessageDriven;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -34,6 +37,23 @@ public class ATNAMessageBean implements MessageListener {
     public ATNAMessageBean() {
     }
 
+    /**
+     * Starts the audit partition retention job (with the first bean instance).
+     */
+    @PostConstruct
+    public void initialize() {
+        AuditPartitionManager.register();
+    }
+
+    /**
+     * Stops the audit partition retention job once the last bean instance is
+     * removed (e.g. on undeploy).
+     */
+    @PreDestroy
+    public void destroy() {
+        AuditPartitionManager.unregister();
+    }
+
     /**
      *
      * @param message
@@ -53,7 +73,9 @@ public class ATNAMessageBean implements MessageListener {
             }
 
             if (message instanceof ObjectMessage) {
-                logger.info("ATNA ObjectMessage Retrieved From Queue");
+                if (logger.isTraceEnabled()) {
+                    logger.trace("ATNA ObjectMessage Retrieved From Queue");
+                }
                 ObjectMessage m = (ObjectMessage) message;
                 HashMap auditMap = (HashMap) m.getObject();
                 protocol = (String) auditMap.get("protocol");
@@ -71,13 +93,14 @@ public class ATNAMessageBean implements MessageListener {
                     throw new AuditException("AUDIT MESSAGE is neither a String or StringBuffer: " + messageObject);
                 }
 
-                logger.info("AUDIT XML LOG: " + protocol + " : " + clientIP + " : " + clientPort + " : " + xmlMessage);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("AUDIT XML LOG: " + protocol + " : " + clientIP + " : " + clientPort + " : " + xmlMessage);
+                }
                 // Remove the SYSLOG (RFC 5424) Header from the XML Message if present
                 String auditMessage = parseMessage(xmlMessage);
 
-                // Parse the XML Message and persist the Audit Data
+                // Parse the XML Message (the Audit Data is persisted with the Audit Log below)
                 handler.createATNAMessage(auditMessage);
-                handler.persistMessage();
             } else {
                 logger.error("Received message of Invalid Class Type: " + message.getClass().getName());
             }
@@ -93,7 +116,7 @@ public class ATNAMessageBean implements MessageListener {
                 }
                 // Always save the raw XML that was transmitted and error message (if applicable)
                 handler.createATNALog(clientIP, clientPort, protocol, xmlMessage, errorMessage);
-                handler.persistLog();
+                handler.persistMessageAndLog();
             } catch (AuditException ex) {
                 logger.error(ex);
                 ex.printStackTrace(System.err);
@@ -118,8 +141,10 @@ public class ATNAMessageBean implements MessageListener {
             throw new AuditException("Invalid Audit Message Received - Does not begin with <AuditMessage");
         }
         String message = inMessage.substring(beginPosition, inMessage.length());
-        String header = inMessage.substring(0, beginPosition - 1);
-        logger.info("AUDIT HEADER FROM CLIENT: " + header);
+        if (logger.isDebugEnabled()) {
+            String header = inMessage.substring(0, Math.max(0, beginPosition - 1));
+            logger.debug("AUDIT HEADER FROM CLIENT: " + header);
+        }
         //logger.trace("AUDIT MESSAGE FROM CLIENT: " + message);
         return message;
     }
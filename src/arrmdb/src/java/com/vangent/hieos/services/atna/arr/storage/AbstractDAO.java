@@ -39,6 +39,7 @@ abstract class AbstractDAO {
     protected static int DAO_ACTION_DELETE = 3;
     protected int action = DAO_ACTION_QUERY;
     protected Object parent;
+    protected AuditPartition partition = AuditPartition.LEGACY;
     protected Connection conn;
     
     private static final Logger log = Logger.getLogger(AbstractDAO.class);
@@ -59,6 +60,13 @@ abstract class AbstractDAO {
         this.parent = parent;
     }
 
+    /**
+     * Sets the time partition whose tables this DAO reads and writes.
+     */
+    public void setPartition(AuditPartition partition) {
+        this.partition = partition;
+    }
+
     /*
      * Initialize an object from specified ResultSet.
      */
@@ -156,6 +164,14 @@ abstract class AbstractDAO {
         return "";
     }
 
+    /*
+     * Gets the foreign key ref to the parent table for the given object.
+     * Derived classes supporting objects of more than one parent override this.
+     */
+    protected String getParentId(Object object) {
+        return getParentId();
+    }
+
     /*
      * Gets the column name that is foreign key ref into parent table.
      * Must be overridden by derived class if it is not 'parent'
@@ -285,11 +301,7 @@ abstract class AbstractDAO {
             }
 
             // Walks through the Object and inserts sub objects within the hierarchy
-            iter = objects.iterator();
-            while (iter.hasNext()) {
-                Object obj = iter.next();
-                insertComposedObjects(obj);
-            }
+            insertComposedObjects(objects);
 
         } catch (SQLException e) {
               System.out.println("\n--- SQLException caught ---\n");
@@ -316,6 +328,21 @@ abstract class AbstractDAO {
     protected void insertComposedObjects(Object object) throws AuditException {
     }
 
+    /**
+     * Inserts the sub objects of all objects just inserted.  By default this is
+     * done object by object; DAOs may override to insert the sub objects of the
+     * whole list with a single batch per table.
+     *
+     * @param objects
+     * @throws AuditException
+     */
+    protected void insertComposedObjects(List<?> objects) throws AuditException {
+        Iterator<?> iter = objects.iterator();
+        while (iter.hasNext()) {
+            insertComposedObjects(iter.next());
+        }
+    }
+
     /**
      * Creates a SQL statement for the specific table with the object data
      *
@@ -13,12 +13,15 @@
 package com.vangent.hieos.services.atna.arr.storage;
 
 import com.vangent.hieos.services.atna.arr.support.ATNAActiveParticipant;
+import com.vangent.hieos.services.atna.arr.support.ATNACodedValue;
 import com.vangent.hieos.services.atna.arr.support.ATNAMessage;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.log4j.Logger;
 
 /**
@@ -38,7 +41,7 @@ public class ActiveParticipantDAO extends AbstractDAO {
     }
 
     public String getTableName() {
-        return getTableNameStatic();
+        return partition.getTableName(getTableNameStatic());
     }
 
     /**
@@ -76,7 +79,7 @@ public class ActiveParticipantDAO extends AbstractDAO {
             logger.debug("AP Prepared Statement For: " + ap.getUniqueID());
             if (action == DAO_ACTION_INSERT) {
                 pstmt.setString(1, ap.getUniqueID());
-                pstmt.setString(2, getParentId());
+                pstmt.setString(2, getParentId(ap));
                 pstmt.setString(3, ap.getUserID());
                 pstmt.setString(4, ap.getAlternativeUserID());
                 pstmt.setString(5, ap.getUserName());
@@ -101,6 +104,12 @@ public class ActiveParticipantDAO extends AbstractDAO {
         return parentId;
     }
 
+    @Override
+    protected String getParentId(Object object) {
+        ATNAActiveParticipant ap = (ATNAActiveParticipant) object;
+        return ap.getParent() != null ? ap.getParent() : getParentId();
+    }
+
     @Override
     protected void loadObject(Object obj, ResultSet rs) throws AuditException {
     }
@@ -112,16 +121,22 @@ public class ActiveParticipantDAO extends AbstractDAO {
 
     /**
      * This method will insert all records that are directly dependent on the
-     * ActiveParticipant by invoking the insert method of each sub DAO.
-     * @param object
+     * ActiveParticipants by invoking the insert method of each sub DAO.
+     * @param objects
      * @throws AuditException
      */
     @Override
-    protected void insertComposedObjects(Object object) throws AuditException {
-        ATNAActiveParticipant ap = (ATNAActiveParticipant) object;
-
+    protected void insertComposedObjects(List<?> objects) throws AuditException {
+        List<ATNACodedValue> roleIDCodes = new ArrayList<ATNACodedValue>();
+        for (Object object : objects) {
+            ATNAActiveParticipant ap = (ATNAActiveParticipant) object;
+            if (ap.getRoleIDCodes() != null) {
+                roleIDCodes.addAll(ap.getRoleIDCodes());
+            }
+        }
         CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
+        codeValueDAO.setPartition(partition);
         codeValueDAO.setTableName(CodeValueDAO.APCODEVALUE);
-        codeValueDAO.insert(ap.getRoleIDCodes());
+        codeValueDAO.insert(roleIDCodes);
     }
 }
@@ -45,7 +45,7 @@ public class AuditLogDAO extends AbstractDAO {
     }
 
     public String getTableName() {
-        return getTableNameStatic();
+        return partition.getTableName(getTableNameStatic());
     }
 
     @Override
@@ -135,7 +135,7 @@ public class AuditLogDAO extends AbstractDAO {
         ResultSet rs = null;
         try {
             String sql = "SELECT uniqueid, clientipaddress, receiveddatetime, protocol, xml, errorMessage " +
-                    " FROM auditlog WHERE clientipaddress = ? order by receiveddatetime desc";
+                    " FROM " + getTableName() + " WHERE clientipaddress = ? order by receiveddatetime desc";
 
             stmt = conn.prepareStatement(sql);
             stmt.setString(1, searchCriteria.getClientIPAddress());
@@ -177,7 +177,7 @@ public class AuditLogDAO extends AbstractDAO {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
-            String sql = "SELECT distinct clientipaddress FROM auditlog";
+            String sql = "SELECT distinct clientipaddress FROM " + getTableName();
             stmt = conn.prepareStatement(sql);
             logger.info("SQL = " + sql);
 
@@ -212,8 +212,8 @@ public class AuditLogDAO extends AbstractDAO {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
-            String sql = "SELECT uniqueid, clientipaddress, clientport, receiveddatetime, xml, protocol, errormessage FROM auditlog " +
-                    " WHERE clientipaddress = ?";
+            String sql = "SELECT uniqueid, clientipaddress, clientport, receiveddatetime, xml, protocol, errormessage FROM " + getTableName() +
+                    " WHERE uniqueid = ?";
             stmt = conn.prepareStatement(sql);
             stmt.setString(1, uniqueId);
             logger.info("SQL = " + sql);
@@ -223,8 +223,9 @@ public class AuditLogDAO extends AbstractDAO {
                 log.setUniqueID(rs.getString(1));
                 log.setClientIPAddress(rs.getString(2));
                 log.setClientPort(rs.getString(3));
-                log.setReceivedDateTime(rs.getDate(4));
-                log.setXml(rs.getString(5));
+                log.setReceivedDateTime((java.util.Date) rs.getTimestamp(4));
+                byte[] xml = rs.getBytes(5);
+                log.setXml(xml != null ? new String(xml) : null);
                 log.setProtocol(rs.getString(6));
                 log.setErrorMessage(rs.getString(7));
             }
@@ -12,8 +12,11 @@
  */
 package com.vangent.hieos.services.atna.arr.storage;
 
+import com.vangent.hieos.services.atna.arr.support.ATNAActiveParticipant;
+import com.vangent.hieos.services.atna.arr.support.ATNAAuditSource;
 import com.vangent.hieos.services.atna.arr.support.ATNACodedValue;
 import com.vangent.hieos.services.atna.arr.support.ATNAMessage;
+import com.vangent.hieos.services.atna.arr.support.ATNAParticipantObject;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -41,46 +44,80 @@ public class AuditMessageDAO extends AbstractDAO {
     }
 
     public String getTableName() {
-        return getTableNameStatic();
+        return partition.getTableName(getTableNameStatic());
     }
 
     /**
      * This method will insert all records that are directly dependent on the
-     * AuditMessage by invoking the insert method of each sub DAO.
-     * @param object
-     * @throws loadObject
+     * AuditMessages by invoking the insert method of each sub DAO once (a
+     * single batch per table, no matter how many messages are being inserted).
+     * @param objects
+     * @throws AuditException
      */
     @Override
-    protected void insertComposedObjects(Object object) throws AuditException {
-        super.insertComposedObjects(object);
-        ATNAMessage am = (ATNAMessage) object;
+    protected void insertComposedObjects(List<?> objects) throws AuditException {
+        List<ATNACodedValue> codedValues = new ArrayList<ATNACodedValue>();
+        List<ATNAAuditSource> auditSources = new ArrayList<ATNAAuditSource>();
+        List<ATNAActiveParticipant> activeParticipants = new ArrayList<ATNAActiveParticipant>();
+        List<ATNAParticipantObject> participantObjects = new ArrayList<ATNAParticipantObject>();
+        for (Object object : objects) {
+            ATNAMessage am = (ATNAMessage) object;
 
-        // Add Event ID (one) & Type Code (one or more)
-        CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
-        codeValueDAO.setTableName(CodeValueDAO.AMCODEVALUE);
+            // Event ID (one) & Type Code (one or more)
+            if (am.getEventID() != null) {
+                codedValues.add(am.getEventID());
+            }
+            if (am.getEventTypeCodes() != null) {
+                codedValues.addAll(am.getEventTypeCodes());
+            }
+
+            // Should always be one or more Audit Sources - usually one
+            if (am.getAuditSources() != null) {
+                for (ATNAAuditSource as : am.getAuditSources()) {
+                    if (as.getParent() == null) {
+                        as.setParent(am.getUniqueID());
+                    }
+                    auditSources.add(as);
+                }
+            }
 
-        // First add event id record to a list for insert method
-        List<ATNACodedValue> eventIds = new ArrayList<ATNACodedValue>();
-        eventIds.add(am.getEventID());
-        codeValueDAO.insert(eventIds);
+            // Should always be one or more activeparticipants
+            if (am.getActiveParticipants() != null) {
+                for (ATNAActiveParticipant ap : am.getActiveParticipants()) {
+                    if (ap.getParent() == null) {
+                        ap.setParent(am.getUniqueID());
+                    }
+                    activeParticipants.add(ap);
+                }
+            }
 
-        // Now add the event type codes
-        codeValueDAO.insert(am.getEventTypeCodes());
+            // Participant Object is optional, there may be zero or more records
+            if (am.getParticipantObjects() != null) {
+                for (ATNAParticipantObject po : am.getParticipantObjects()) {
+                    if (po.getParent() == null) {
+                        po.setParent(am.getUniqueID());
+                    }
+                    participantObjects.add(po);
+                }
+            }
+        }
+
+        CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
+        codeValueDAO.setPartition(partition);
+        codeValueDAO.setTableName(CodeValueDAO.AMCODEVALUE);
+        codeValueDAO.insert(codedValues);
 
-        // Should always be one or more Audit Sources - usually one
         AuditSourceDAO auditSourceDAO = new AuditSourceDAO(conn);
-        auditSourceDAO.setParent(object);
-        auditSourceDAO.insert(am.getAuditSources());
+        auditSourceDAO.setPartition(partition);
+        auditSourceDAO.insert(auditSources);
 
-        // Should always be one or more activeparticipants
         ActiveParticipantDAO activeParticipantDAO = new ActiveParticipantDAO(conn);
-        activeParticipantDAO.setParent(object);
-        activeParticipantDAO.insert(am.getActiveParticipants());
+        activeParticipantDAO.setPartition(partition);
+        activeParticipantDAO.insert(activeParticipants);
 
-        // Participant Object is optional, there may be zero or more records
         ParticipantObjectDAO participantObjectDAO = new ParticipantObjectDAO(conn);
-        participantObjectDAO.setParent(object);
-        participantObjectDAO.insert(am.getParticipantObjects());
+        participantObjectDAO.setPartition(partition);
+        participantObjectDAO.insert(participantObjects);
     }
 
     @Override
@@ -137,7 +174,7 @@ public class AuditMessageDAO extends AbstractDAO {
                 pstmt.setString(2, am.getEventActionCode());
                 pstmt.setTimestamp(3, new Timestamp(am.getEventDateTime().getTime()));
                 pstmt.setInt(4, am.getEventOutcomeIndicator());
-                pstmt.setString(5, "E");
+                pstmt.setString(5, am.getStatus() != null ? am.getStatus() : "E");
 
             } else if (action == DAO_ACTION_DELETE) {
                 pstmt.setString(1, am.getUniqueID());
@@ -0,0 +1,129 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.storage;
+
+import java.util.Date;
+
+/**
+ * A time partition of the audit tables: the audit records whose event date time
+ * falls in [startDateTime, endDateTime), stored in tables named
+ * <table>_<partitionId>.  The LEGACY partition is the (unsuffixed) template
+ * tables holding the records stored before partitioning.
+ */
+public class AuditPartition {
+
+    public static final String STATUS_ACTIVE = "A";
+    public static final String STATUS_ARCHIVING = "R";
+    public static final String STATUS_ARCHIVED = "X";
+    public static final AuditPartition LEGACY = new AuditPartition("", null, null, STATUS_ACTIVE);
+    private final String partitionId;
+    private final Date startDateTime;
+    private final Date endDateTime;
+    private final String status;
+
+    /**
+     *
+     * @param partitionId
+     * @param startDateTime
+     * @param endDateTime
+     * @param status
+     */
+    public AuditPartition(String partitionId, Date startDateTime, Date endDateTime, String status) {
+        this.partitionId = partitionId;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+        this.status = status;
+    }
+
+    /**
+     * @return the partitionId (e.g. 201310 or 20131018)
+     */
+    public String getPartitionId() {
+        return partitionId;
+    }
+
+    /**
+     * @return the startDateTime (inclusive), null for the legacy partition
+     */
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    /**
+     * @return the endDateTime (exclusive), null for the legacy partition
+     */
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+
+    /**
+     * @return the status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isLegacy() {
+        return partitionId.length() == 0;
+    }
+
+    /**
+     *
+     * @param dateTime
+     * @return true if the partition holds records for the given event date time
+     */
+    public boolean contains(Date dateTime) {
+        return !isLegacy() && !dateTime.before(startDateTime) && dateTime.before(endDateTime);
+    }
+
+    /**
+     *
+     * @param start (inclusive) or null
+     * @param end (exclusive) or null
+     * @return true if the partition may hold records in the given range
+     */
+    public boolean overlaps(Date start, Date end) {
+        if (isLegacy()) {
+            return true;
+        }
+        return (start == null || endDateTime.after(start)) && (end == null || startDateTime.before(end));
+    }
+
+    /**
+     *
+     * @param baseTableName
+     * @return the name of the given table in this partition
+     */
+    public String getTableName(String baseTableName) {
+        return isLegacy() ? baseTableName : baseTableName + "_" + partitionId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof AuditPartition) && ((AuditPartition) obj).partitionId.equals(partitionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return partitionId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return isLegacy() ? "legacy" : partitionId;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.storage;
+
+import com.vangent.hieos.services.atna.arr.support.AuditException;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes the audit records of a partition to a (compressed) zip file:
+ *
+ *   auditsummary.txt - the audit summaries
+ *   auditlog.txt - the audit logs, without the XML
+ *   xml/<uniqueid>.xml - the XML received for each audit log
+ *
+ * The text files are tab separated with a header line (\N for null, and tab,
+ * newline and backslash escaped), so they can be reloaded with the database's
+ * bulk loader.  The parsed audit message tables are not archived; they can be
+ * rebuilt from the XML.
+ */
+public class AuditPartitionArchiver {
+
+    private static final Logger logger = Logger.getLogger(AuditPartitionArchiver.class);
+    private static final int FETCH_SIZE = 500;
+    private final Connection conn;
+    private final AuditPartition partition;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     *
+     * @param conn
+     * @param partition
+     */
+    public AuditPartitionArchiver(Connection conn, AuditPartition partition) {
+        this.conn = conn;
+        this.partition = partition;
+    }
+
+    /**
+     * Archives the partition to the given file.  The file is only created if
+     * the whole partition was archived.
+     *
+     * @param archiveFile
+     * @return the number of audit logs archived
+     * @throws AuditException
+     * @throws IOException
+     * @throws SQLException
+     */
+    public int archive(File archiveFile) throws AuditException, IOException, SQLException {
+        File partFile = new File(archiveFile.getPath() + ".part");
+        boolean archived = false;
+        // Some drivers (e.g. PostgreSQL) only stream result sets within a transaction.
+        conn.setAutoCommit(false);
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(partFile)));
+        try {
+            zip.setLevel(9);
+            String summaryTable = partition.getTableName(AuditSummaryDAO.getTableNameStatic());
+            String logTable = partition.getTableName(AuditLogDAO.getTableNameStatic());
+            int summaryCount = this.writeTable(zip, "auditsummary.txt", "SELECT * FROM " + summaryTable + " ORDER BY eventdatetime, uniqueid");
+            int logCount = this.writeTable(zip, "auditlog.txt", "SELECT uniqueid, clientipaddress, clientport, receiveddatetime, "
+                    + "protocol, errormessage FROM " + logTable + " ORDER BY receiveddatetime, uniqueid");
+            int xmlCount = this.writeXml(zip, "SELECT uniqueid, xml FROM " + logTable + " ORDER BY receiveddatetime, uniqueid");
+            if (xmlCount != logCount) {
+                throw new AuditException("Audit log count changed while archiving partition " + partition
+                        + " (" + logCount + " / " + xmlCount + ")");
+            }
+            zip.close();
+            if (!partFile.renameTo(archiveFile)) {
+                throw new IOException("Unable to rename " + partFile + " to " + archiveFile);
+            }
+            archived = true;
+            logger.info("Archived partition " + partition + ": " + summaryCount + " summaries, " + logCount + " logs");
+            return logCount;
+        } finally {
+            conn.rollback();  // Nothing was changed.
+            if (!archived) {
+                try {
+                    zip.close();
+                } catch (IOException ex) {
+                    // Ignore - already failed.
+                }
+                partFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the result of the query as a tab separated file.
+     *
+     * @param zip
+     * @param entryName
+     * @param sql
+     * @return the number of rows written
+     * @throws IOException
+     * @throws SQLException
+     */
+    private int writeTable(ZipOutputStream zip, String entryName, String sql) throws IOException, SQLException {
+        zip.putNextEntry(new ZipEntry(entryName));
+        int count = 0;
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            stmt.setFetchSize(FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            StringBuilder line = new StringBuilder();
+            for (int i = 1; i <= columnCount; i++) {
+                line.append(i > 1 ? "\t" : "").append(metaData.getColumnName(i).toLowerCase());
+            }
+            this.writeLine(zip, line);
+            while (rs.next()) {
+                line.setLength(0);
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        line.append('\t');
+                    }
+                    Object value = rs.getObject(i);
+                    if (value == null) {
+                        line.append("\\N");
+                    } else if (value instanceof Timestamp) {
+                        line.append(dateFormat.format((Timestamp) value));
+                    } else {
+                        escape(line, value.toString());
+                    }
+                }
+                this.writeLine(zip, line);
+                ++count;
+            }
+        } finally {
+            stmt.close();
+        }
+        zip.closeEntry();
+        return count;
+    }
+
+    /**
+     * Writes the XML of each audit log to its own entry.
+     *
+     * @param zip
+     * @param sql
+     * @return the number of audit logs written
+     * @throws IOException
+     * @throws SQLException
+     */
+    private int writeXml(ZipOutputStream zip, String sql) throws IOException, SQLException {
+        int count = 0;
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            stmt.setFetchSize(FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                zip.putNextEntry(new ZipEntry("xml/" + rs.getString(1) + ".xml"));
+                byte[] xml = rs.getBytes(2);
+                if (xml != null) {
+                    zip.write(xml);
+                }
+                zip.closeEntry();
+                ++count;
+            }
+        } finally {
+            stmt.close();
+        }
+        return count;
+    }
+
+    /**
+     *
+     * @param out
+     * @param line
+     * @throws IOException
+     */
+    private void writeLine(OutputStream out, StringBuilder line) throws IOException {
+        line.append('\n');
+        out.write(line.toString().getBytes("UTF-8"));
+    }
+
+    /**
+     *
+     * @param line
+     * @param value
+     */
+    private static void escape(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+}
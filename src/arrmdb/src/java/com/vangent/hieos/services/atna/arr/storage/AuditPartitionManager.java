@@ -0,0 +1,646 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.storage;
+
+import com.vangent.hieos.services.atna.arr.support.AuditException;
+import com.vangent.hieos.xutil.socket.ServerProperties;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Manages the time partitions of the audit tables.  Audit records are written
+ * to the partition (per day or month) covering their event date time; the
+ * partition's tables are created from the template tables on first use and
+ * recorded in the auditpartition catalog.  Searches only read the partitions
+ * overlapping the requested time range (plus the legacy tables).  Records with
+ * an event date time too far from the server's clock (e.g. a sender with a bad
+ * clock) are written to the legacy tables, which are always searched, rather
+ * than creating partitions far in the past or future.
+ *
+ * If a retention period is configured, a background job archives partitions
+ * older than the retention period to a compressed file (see
+ * AuditPartitionArchiver) and then drops their tables.  The job runs while the
+ * ATNA message bean is deployed (see register/unregister); the legacy tables
+ * are never archived.
+ *
+ * Configured in atnaserver.properties:
+ *   partition_period - month (default) or day
+ *   event_time_window_days - 31 (default)
+ *   retention_days - 0 (default) keeps all partitions
+ *   archive_dir - directory for archive files
+ *   retention_check_interval_minutes - 60 (default)
+ */
+public class AuditPartitionManager {
+
+    private static final Logger logger = Logger.getLogger(AuditPartitionManager.class);
+    private static final String PROPERTIES_FILE = "atnaserver.properties";
+    // How long the partition catalog is cached before it is re-read (other
+    // servers may create or archive partitions).
+    private static final long CATALOG_REFRESH_MILLIS = 60 * 1000L;
+    private static final PartitionTable[] PARTITION_TABLES = {
+        new PartitionTable(AuditMessageDAO.getTableNameStatic(), "uniqueid"),
+        new PartitionTable(CodeValueDAO.AMCODEVALUE, "parentid, attributename, seqno"),
+        new PartitionTable(AuditSourceDAO.getTableNameStatic(), "uniqueid", "amid"),
+        new PartitionTable(CodeValueDAO.ASCODEVALUE, "parentid, attributename, seqno"),
+        new PartitionTable(ActiveParticipantDAO.getTableNameStatic(), "uniqueid", "amid"),
+        new PartitionTable(CodeValueDAO.APCODEVALUE, "parentid, attributename, seqno"),
+        new PartitionTable(ParticipantObjectDAO.getTableNameStatic(), "uniqueid", "amid"),
+        new PartitionTable(CodeValueDAO.POCODEVALUE, "parentid, attributename, seqno"),
+        new PartitionTable(TypeValueDAO.POTYPEVALUE, "parentid, seqno"),
+        new PartitionTable(AuditLogDAO.getTableNameStatic(), "uniqueid"),
+        new PartitionTable(AuditSummaryDAO.getTableNameStatic(), "uniqueid",
+        "eventdatetime, uniqueid",
+        "clientipaddress, eventdatetime, uniqueid",
+        "patientid, eventdatetime, uniqueid",
+        "userid, eventdatetime, uniqueid",
+        "eventtypecode, eventdatetime, uniqueid",
+        "eventoutcomeindicator, eventdatetime, uniqueid")
+    };
+    private static AuditPartitionManager _instance = null;
+    private static int listenerCount = 0;
+    private boolean dailyPartitions = false;
+    private int eventTimeWindowDays = 31;
+    private int retentionDays = 0;
+    private String archiveDirectory = "archive";
+    private int retentionCheckIntervalMinutes = 60;
+    private List<AuditPartition> partitions = new ArrayList<AuditPartition>();  // Newest first.
+    private long catalogLoadTime = 0;
+    private ScheduledExecutorService retentionExecutor = null;
+
+    /**
+     *
+     */
+    private AuditPartitionManager() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static synchronized AuditPartitionManager getInstance() {
+        if (_instance == null) {
+            AuditPartitionManager manager = new AuditPartitionManager();
+            manager.loadConfiguration();
+            _instance = manager;
+        }
+        return _instance;
+    }
+
+    /**
+     * Registers a (message bean) instance; the retention job is started with
+     * the first one.
+     */
+    public static synchronized void register() {
+        if (++listenerCount == 1) {
+            getInstance().startRetention();
+        }
+    }
+
+    /**
+     * Unregisters a (message bean) instance; the retention job is stopped once
+     * the last one is gone.
+     */
+    public static synchronized void unregister() {
+        if (listenerCount > 0 && --listenerCount == 0) {
+            shutdown();
+        }
+    }
+
+    /**
+     * Returns the partition to write an audit record with the given event date
+     * time to, creating the partition if it does not exist.  The legacy
+     * partition is returned if the event date time is outside the event time
+     * window around the current time.
+     *
+     * @param eventDateTime
+     * @return
+     * @throws AuditException if the partition is being archived or cannot be created.
+     */
+    public synchronized AuditPartition getWritePartition(Date eventDateTime) throws AuditException {
+        long windowMillis = eventTimeWindowDays * 24L * 60 * 60 * 1000;
+        long now = System.currentTimeMillis();
+        if (eventDateTime == null || Math.abs(eventDateTime.getTime() - now) > windowMillis) {
+            logger.warn("Audit event date time " + eventDateTime + " is more than " + eventTimeWindowDays
+                    + " days from the current time - using the legacy partition");
+            return AuditPartition.LEGACY;
+        }
+        if (System.currentTimeMillis() - catalogLoadTime > CATALOG_REFRESH_MILLIS) {
+            this.loadCatalog();
+        }
+        AuditPartition partition = this.findPartition(eventDateTime);
+        if (partition == null) {
+            // May have been created by another server.
+            this.loadCatalog();
+            partition = this.findPartition(eventDateTime);
+        }
+        if (partition == null) {
+            partition = this.createPartition(eventDateTime);
+        }
+        if (!partition.getStatus().equals(AuditPartition.STATUS_ACTIVE)) {
+            throw new AuditException("Audit partition " + partition + " is being archived");
+        }
+        return partition;
+    }
+
+    /**
+     * Returns the partitions that may hold audit records with event date times
+     * in the given range, newest first, followed by the legacy partition.
+     *
+     * @param start (inclusive) or null
+     * @param end (exclusive) or null
+     * @return
+     * @throws AuditException
+     */
+    public synchronized List<AuditPartition> getReadPartitions(Date start, Date end) throws AuditException {
+        if (System.currentTimeMillis() - catalogLoadTime > CATALOG_REFRESH_MILLIS) {
+            this.loadCatalog();
+        }
+        List<AuditPartition> readPartitions = new ArrayList<AuditPartition>();
+        for (AuditPartition partition : partitions) {
+            if (partition.overlaps(start, end)) {
+                readPartitions.add(partition);
+            }
+        }
+        readPartitions.add(AuditPartition.LEGACY);
+        return readPartitions;
+    }
+
+    /**
+     * Archives and drops all partitions older than the retention period.
+     */
+    public void applyRetention() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_MONTH, -retentionDays);
+        List<AuditPartition> expiredPartitions = new ArrayList<AuditPartition>();
+        try {
+            this.loadCatalog();
+            for (AuditPartition partition : this.getPartitions()) {
+                if (partition.getStatus().equals(AuditPartition.STATUS_ACTIVE)
+                        && !partition.getEndDateTime().after(cutoff.getTime())) {
+                    expiredPartitions.add(partition);
+                }
+            }
+        } catch (AuditException ex) {
+            logger.error("Unable to read audit partition catalog: " + ex.getMessage());
+            return;
+        }
+        for (AuditPartition partition : expiredPartitions) {
+            this.archivePartition(partition);
+        }
+    }
+
+    /**
+     * Stops the retention job (if running).
+     */
+    public static synchronized void shutdown() {
+        if (_instance != null && _instance.retentionExecutor != null) {
+            _instance.retentionExecutor.shutdownNow();
+        }
+        _instance = null;
+    }
+
+    /**
+     *
+     */
+    private void loadConfiguration() {
+        try {
+            ServerProperties props = new ServerProperties(PROPERTIES_FILE);
+            String period = props.getProperty("partition_period");
+            dailyPartitions = period != null && period.trim().equalsIgnoreCase("day");
+            if (props.getProperty("event_time_window_days") != null) {
+                eventTimeWindowDays = props.getIntegerProperty("event_time_window_days");
+            }
+            if (props.getProperty("retention_days") != null) {
+                retentionDays = props.getIntegerProperty("retention_days");
+            }
+            if (props.getProperty("archive_dir") != null) {
+                archiveDirectory = props.getProperty("archive_dir");
+            }
+            if (props.getProperty("retention_check_interval_minutes") != null) {
+                retentionCheckIntervalMinutes = props.getIntegerProperty("retention_check_interval_minutes");
+            }
+        } catch (Exception ex) {
+            logger.warn("Unable to load " + PROPERTIES_FILE + " - using monthly partitions and no retention");
+        }
+        logger.info("AuditPartitionManager started (period = " + (dailyPartitions ? "day" : "month")
+                + ", event time window days = " + eventTimeWindowDays
+                + ", retention days = " + retentionDays + ", archive dir = " + archiveDirectory + ")");
+    }
+
+    /**
+     * Starts the retention job (if a retention period is configured).
+     */
+    private synchronized void startRetention() {
+        if (retentionDays <= 0 || retentionExecutor != null) {
+            return;
+        }
+        retentionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AuditRetention");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        retentionExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                try {
+                    applyRetention();
+                } catch (RuntimeException ex) {
+                    logger.error("Unexpected error applying audit retention", ex);
+                }
+            }
+        }, retentionCheckIntervalMinutes, retentionCheckIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     *
+     * @return
+     */
+    private synchronized List<AuditPartition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     *
+     * @param eventDateTime
+     * @return
+     */
+    private AuditPartition findPartition(Date eventDateTime) {
+        for (AuditPartition partition : partitions) {
+            if (partition.contains(eventDateTime)) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the (not yet dropped) partitions from the catalog.
+     *
+     * @throws AuditException
+     */
+    private synchronized void loadCatalog() throws AuditException {
+        Connection conn = null;
+        try {
+            conn = HelperDAO.getConnection();
+            List<AuditPartition> loadedPartitions = new ArrayList<AuditPartition>();
+            PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT partitionid, startdatetime, enddatetime, status FROM auditpartition WHERE status <> ?");
+            try {
+                stmt.setString(1, AuditPartition.STATUS_ARCHIVED);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    loadedPartitions.add(new AuditPartition(rs.getString(1),
+                            new Date(rs.getTimestamp(2).getTime()), new Date(rs.getTimestamp(3).getTime()),
+                            rs.getString(4)));
+                }
+            } finally {
+                stmt.close();
+            }
+            Collections.sort(loadedPartitions, new Comparator<AuditPartition>() {
+
+                public int compare(AuditPartition p1, AuditPartition p2) {
+                    return p2.getStartDateTime().compareTo(p1.getStartDateTime());
+                }
+            });
+            partitions = loadedPartitions;
+            catalogLoadTime = System.currentTimeMillis();
+        } catch (Exception ex) {
+            logger.error(ex);
+            throw new AuditException("Unable to load audit partition catalog", ex);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Creates (or re-creates, if it was archived) the partition covering the
+     * given event date time.
+     *
+     * @param eventDateTime
+     * @return
+     * @throws AuditException
+     */
+    private AuditPartition createPartition(Date eventDateTime) throws AuditException {
+        Calendar start = Calendar.getInstance();
+        start.setTime(eventDateTime);
+        if (!dailyPartitions) {
+            start.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.set(Calendar.MINUTE, 0);
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MILLISECOND, 0);
+        Calendar end = (Calendar) start.clone();
+        end.add(dailyPartitions ? Calendar.DAY_OF_MONTH : Calendar.MONTH, 1);
+        String partitionId = new SimpleDateFormat(dailyPartitions ? "yyyyMMdd" : "yyyyMM").format(start.getTime());
+        AuditPartition partition = new AuditPartition(partitionId, start.getTime(), end.getTime(), AuditPartition.STATUS_ACTIVE);
+
+        Connection conn = null;
+        try {
+            conn = HelperDAO.getConnection();
+            conn.setAutoCommit(true);
+            String status = this.getCatalogStatus(conn, partitionId);
+            if (status == null || status.equals(AuditPartition.STATUS_ARCHIVED)) {
+                try {
+                    this.createTables(conn, partition);
+                } catch (SQLException ex) {
+                    // Another server may have created the partition at the same time.
+                    this.loadCatalog();
+                    AuditPartition existing = this.findPartition(eventDateTime);
+                    if (existing != null) {
+                        return existing;
+                    }
+                    throw ex;
+                }
+                if (status == null) {
+                    PreparedStatement stmt = conn.prepareStatement("INSERT INTO auditpartition "
+                            + "(partitionid, startdatetime, enddatetime, status, createddatetime) values(?,?,?,?,?)");
+                    try {
+                        stmt.setString(1, partitionId);
+                        stmt.setTimestamp(2, new Timestamp(start.getTimeInMillis()));
+                        stmt.setTimestamp(3, new Timestamp(end.getTimeInMillis()));
+                        stmt.setString(4, AuditPartition.STATUS_ACTIVE);
+                        stmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+                        stmt.executeUpdate();
+                    } finally {
+                        stmt.close();
+                    }
+                } else {
+                    logger.warn("Re-creating archived audit partition " + partitionId);
+                    this.updateCatalogStatus(conn, partitionId, AuditPartition.STATUS_ARCHIVED, AuditPartition.STATUS_ACTIVE);
+                }
+                logger.info("Created audit partition " + partitionId);
+            }
+            this.loadCatalog();
+            AuditPartition created = this.findPartition(eventDateTime);
+            if (created == null) {
+                throw new AuditException("Audit partition " + partitionId + " not found after creation");
+            }
+            return created;
+        } catch (AuditException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.error(ex);
+            throw new AuditException("Unable to create audit partition " + partitionId, ex);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Archives the partition to a file and then drops its tables.
+     *
+     * @param partition
+     */
+    private void archivePartition(AuditPartition partition) {
+        String partitionId = partition.getPartitionId();
+        Connection conn = null;
+        try {
+            // Claim the partition (another server may be archiving it).
+            conn = HelperDAO.getConnection();
+            conn.setAutoCommit(true);
+            boolean claimed = this.updateCatalogStatus(conn, partitionId,
+                    AuditPartition.STATUS_ACTIVE, AuditPartition.STATUS_ARCHIVING);
+            closeConnection(conn);
+            conn = null;
+            if (!claimed) {
+                return;
+            }
+            this.loadCatalog();
+
+            // Give other servers time to see that the partition is no longer writable.
+            Thread.sleep(2 * CATALOG_REFRESH_MILLIS);
+
+            File directory = new File(archiveDirectory);
+            directory.mkdirs();
+            String timestamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+            File archiveFile = new File(directory, "arr-" + partitionId + "-" + timestamp + ".zip");
+            conn = HelperDAO.getConnection();
+            int recordCount;
+            try {
+                recordCount = new AuditPartitionArchiver(conn, partition).archive(archiveFile);
+            } catch (Exception ex) {
+                logger.error("Unable to archive audit partition " + partitionId + ": " + ex.getMessage(), ex);
+                conn.setAutoCommit(true);
+                this.updateCatalogStatus(conn, partitionId, AuditPartition.STATUS_ARCHIVING, AuditPartition.STATUS_ACTIVE);
+                return;
+            }
+            conn.setAutoCommit(true);
+            if (!this.dropTables(conn, partition)) {
+                logger.error("Audit partition " + partitionId + " archived to " + archiveFile
+                        + " but not all tables were dropped - left in status " + AuditPartition.STATUS_ARCHIVING);
+                return;
+            }
+            PreparedStatement stmt = conn.prepareStatement("UPDATE auditpartition SET status = ?, "
+                    + "archiveddatetime = ?, archivefile = ?, recordcount = ? WHERE partitionid = ?");
+            try {
+                stmt.setString(1, AuditPartition.STATUS_ARCHIVED);
+                stmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                stmt.setString(3, archiveFile.getPath());
+                stmt.setInt(4, recordCount);
+                stmt.setString(5, partitionId);
+                stmt.executeUpdate();
+            } finally {
+                stmt.close();
+            }
+            this.loadCatalog();
+            logger.info("Archived audit partition " + partitionId + " (" + recordCount + " records) to " + archiveFile);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted archiving audit partition " + partitionId
+                    + " - left in status " + AuditPartition.STATUS_ARCHIVING);
+        } catch (Exception ex) {
+            logger.error("Unable to archive audit partition " + partitionId, ex);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     *
+     * @param conn
+     * @param partitionId
+     * @return the status or null if not in the catalog
+     * @throws SQLException
+     */
+    private String getCatalogStatus(Connection conn, String partitionId) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement("SELECT status FROM auditpartition WHERE partitionid = ?");
+        try {
+            stmt.setString(1, partitionId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     *
+     * @param conn
+     * @param partitionId
+     * @param fromStatus
+     * @param toStatus
+     * @return true if the status was changed
+     * @throws SQLException
+     */
+    private boolean updateCatalogStatus(Connection conn, String partitionId, String fromStatus, String toStatus) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE auditpartition SET status = ? WHERE partitionid = ? AND status = ?");
+        try {
+            stmt.setString(1, toStatus);
+            stmt.setString(2, partitionId);
+            stmt.setString(3, fromStatus);
+            return stmt.executeUpdate() == 1;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Creates the partition's tables with the structure of the template tables.
+     * DDL is not transactional on all databases, so if any table cannot be
+     * created the tables already created here are dropped again.
+     *
+     * @param conn
+     * @param partition
+     * @throws SQLException
+     */
+    private void createTables(Connection conn, AuditPartition partition) throws SQLException {
+        boolean sqlServer = conn.getMetaData().getDatabaseProductName().toLowerCase().contains("microsoft");
+        int createdCount = 0;
+        Statement stmt = conn.createStatement();
+        try {
+            for (PartitionTable table : PARTITION_TABLES) {
+                String tableName = partition.getTableName(table.name);
+                if (sqlServer) {
+                    stmt.executeUpdate("SELECT * INTO " + tableName + " FROM " + table.name + " WHERE 1 = 0");
+                } else {
+                    stmt.executeUpdate("CREATE TABLE " + tableName + " AS SELECT * FROM " + table.name + " WHERE 1 = 0");
+                }
+                ++createdCount;
+                stmt.executeUpdate("ALTER TABLE " + tableName + " ADD CONSTRAINT " + tableName
+                        + "_pk PRIMARY KEY (" + table.primaryKey + ")");
+                for (int i = 0; i < table.indexes.length; i++) {
+                    stmt.executeUpdate("CREATE INDEX " + tableName + "_i" + (i + 1)
+                            + " ON " + tableName + " (" + table.indexes[i] + ")");
+                }
+            }
+        } catch (SQLException ex) {
+            if (createdCount > 0) {
+                logger.warn("Unable to create audit partition " + partition.getPartitionId()
+                        + " - dropping the " + createdCount + " table(s) created");
+                this.dropTables(conn, partition, createdCount);
+            }
+            throw ex;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     *
+     * @param conn
+     * @param partition
+     * @return true if all tables were dropped
+     */
+    private boolean dropTables(Connection conn, AuditPartition partition) {
+        return this.dropTables(conn, partition, PARTITION_TABLES.length);
+    }
+
+    /**
+     * Drops the first tableCount tables of the partition (in reverse order).
+     *
+     * @param conn
+     * @param partition
+     * @param tableCount
+     * @return true if all tables were dropped
+     */
+    private boolean dropTables(Connection conn, AuditPartition partition, int tableCount) {
+        boolean dropped = true;
+        for (int i = tableCount - 1; i >= 0; i--) {
+            String tableName = partition.getTableName(PARTITION_TABLES[i].name);
+            try {
+                Statement stmt = conn.createStatement();
+                try {
+                    stmt.executeUpdate("DROP TABLE " + tableName);
+                } finally {
+                    stmt.close();
+                }
+            } catch (SQLException ex) {
+                logger.error("Unable to drop " + tableName + ": " + ex.getMessage());
+                dropped = false;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     *
+     * @param conn
+     */
+    private static void closeConnection(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                logger.error("Error closing db connection: " + ex);
+            }
+        }
+    }
+
+    /**
+     * A partitioned table: its template table name, primary key and indexes.
+     */
+    private static class PartitionTable {
+
+        private final String name;
+        private final String primaryKey;
+        private final String[] indexes;
+
+        /**
+         *
+         * @param name
+         * @param primaryKey
+         * @param indexes
+         */
+        PartitionTable(String name, String primaryKey, String... indexes) {
+            this.name = name;
+            this.primaryKey = primaryKey;
+            this.indexes = indexes;
+        }
+    }
+}
@@ -13,12 +13,15 @@
 package com.vangent.hieos.services.atna.arr.storage;
 
 import com.vangent.hieos.services.atna.arr.support.ATNAAuditSource;
+import com.vangent.hieos.services.atna.arr.support.ATNACodedValue;
 import com.vangent.hieos.services.atna.arr.support.ATNAMessage;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.log4j.Logger;
 
 /**
@@ -38,7 +41,7 @@ public class AuditSourceDAO extends AbstractDAO {
     }
 
     public String getTableName() {
-        return getTableNameStatic();
+        return partition.getTableName(getTableNameStatic());
     }
 
     @Override
@@ -85,7 +88,7 @@ public class AuditSourceDAO extends AbstractDAO {
             logger.trace("AS Prepared Statement For: " + as.getUniqueID());
             if (action == DAO_ACTION_INSERT) {
                 pstmt.setString(1, as.getUniqueID());
-                pstmt.setString(2, getParentId());
+                pstmt.setString(2, getParentId(as));
                 pstmt.setString(3, as.getId());
                 pstmt.setString(4, as.getEnterpriseSiteID());
 
@@ -106,19 +109,31 @@ public class AuditSourceDAO extends AbstractDAO {
         return parentId;
     }
 
+    @Override
+    protected String getParentId(Object object) {
+        ATNAAuditSource as = (ATNAAuditSource) object;
+        return as.getParent() != null ? as.getParent() : getParentId();
+    }
+
     /**
      * This method will insert all records that are directly dependent on the
-     * AuditSource by invoking the insert method of each sub DAO.
-     * @param object
+     * AuditSources by invoking the insert method of each sub DAO.
+     * @param objects
      * @throws AuditException
      */
     @Override
-    protected void insertComposedObjects(Object object) throws AuditException {
-        ATNAAuditSource as = (ATNAAuditSource) object;
-
+    protected void insertComposedObjects(List<?> objects) throws AuditException {
         // Add the Audit Source Type Codes
+        List<ATNACodedValue> typeCodes = new ArrayList<ATNACodedValue>();
+        for (Object object : objects) {
+            ATNAAuditSource as = (ATNAAuditSource) object;
+            if (as.getTypeCodes() != null) {
+                typeCodes.addAll(as.getTypeCodes());
+            }
+        }
         CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
+        codeValueDAO.setPartition(partition);
         codeValueDAO.setTableName(CodeValueDAO.ASCODEVALUE);
-        codeValueDAO.insert(as.getTypeCodes());
+        codeValueDAO.insert(typeCodes);
     }
 }
@@ -0,0 +1,254 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.storage;
+
+import com.vangent.hieos.services.atna.arr.support.ATNARecord;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchCriteria;
+import com.vangent.hieos.services.atna.arr.support.AuditException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads and writes the (denormalized) audit summary, one row per audit log.
+ */
+public class AuditSummaryDAO extends AbstractDAO {
+
+    private static final Logger logger = Logger.getLogger(AuditSummaryDAO.class);
+    private static final int MAX_ID_LENGTH = 200;
+    private static final String SELECT_COLUMNS =
+            "uniqueid, eventdatetime, receiveddatetime, clientipaddress, protocol, eventtypecode, "
+            + "eventtypename, eventactioncode, eventoutcomeindicator, userid, patientid, status";
+
+    public AuditSummaryDAO(Connection conn) {
+        super(conn);
+    }
+
+    /**
+     * Retrieves the database table name
+     *
+     */
+    public static String getTableNameStatic() {
+        return "auditsummary";
+    }
+
+    public String getTableName() {
+        return partition.getTableName(getTableNameStatic());
+    }
+
+    @Override
+    protected void loadObject(Object obj, ResultSet rs) throws AuditException {
+        try {
+            ATNARecord record = (ATNARecord) obj;
+            record.setUniqueID(rs.getString(1));
+            record.setEventDateTime(new java.util.Date(rs.getTimestamp(2).getTime()));
+            record.setReceivedDateTime(new java.util.Date(rs.getTimestamp(3).getTime()));
+            record.setClientIPAddress(rs.getString(4));
+            record.setProtocol(rs.getString(5));
+            record.setTransactionShortName(rs.getString(6));
+            record.setTransactionLongName(rs.getString(7));
+            record.setEventActionCode(rs.getString(8));
+            int eventOutcomeIndicator = rs.getInt(9);
+            record.setEventOutcomeIndicator(rs.wasNull() ? null : eventOutcomeIndicator);
+            record.setUserID(rs.getString(10));
+            record.setPatientID(rs.getString(11));
+            record.setStatus(rs.getString(12));
+        } catch (SQLException ex) {
+            logger.error(ex);
+            throw new AuditException(ex);
+        }
+    }
+
+    @Override
+    protected Object createObject() throws AuditException {
+        return new ATNARecord();
+    }
+
+    /**
+     * Create the prepared statement with the SQL code
+     *
+     */
+    @Override
+    protected PreparedStatement createPreparedStatement() throws AuditException {
+        String stmtFragment = null;
+        if (action == DAO_ACTION_INSERT) {
+            stmtFragment = "INSERT INTO " + getTableName() + " (" + SELECT_COLUMNS + ")"
+                    + " values(?,?,?,?,?,?,?,?,?,?,?,?)";
+        } else if (action == DAO_ACTION_DELETE) {
+            stmtFragment = "DELETE FROM " + getTableName()
+                    + " where uniqueid = ?";
+        }
+
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(stmtFragment);
+            return pstmt;
+        } catch (SQLException ex) {
+            logger.error(ex);
+            throw new AuditException(ex);
+        }
+    }
+
+    /**
+     * Returns the prepared statement with bind variables populated
+     *
+     */
+    @Override
+    protected PreparedStatement setPreparedStatement(PreparedStatement pstmt, Object object) throws AuditException {
+        try {
+            ATNARecord record = (ATNARecord) object;
+            if (action == DAO_ACTION_INSERT) {
+                pstmt.setString(1, record.getUniqueID());
+                pstmt.setTimestamp(2, new Timestamp(record.getEventDateTime().getTime()));
+                pstmt.setTimestamp(3, new Timestamp(record.getReceivedDateTime().getTime()));
+                pstmt.setString(4, record.getClientIPAddress());
+                pstmt.setString(5, record.getProtocol());
+                pstmt.setString(6, record.getTransactionShortName());
+                pstmt.setString(7, record.getTransactionLongName());
+                pstmt.setString(8, record.getEventActionCode());
+                if (record.getEventOutcomeIndicator() == null) {
+                    pstmt.setNull(9, Types.INTEGER);
+                } else {
+                    pstmt.setInt(9, record.getEventOutcomeIndicator());
+                }
+                pstmt.setString(10, truncate(record.getUserID()));
+                pstmt.setString(11, truncate(record.getPatientID()));
+                pstmt.setString(12, record.getStatus() != null ? record.getStatus() : "E");
+            } else if (action == DAO_ACTION_DELETE) {
+                pstmt.setString(1, record.getUniqueID());
+            }
+            return pstmt;
+        } catch (SQLException ex) {
+            logger.error(ex);
+            throw new AuditException(ex);
+        }
+    }
+
+    /**
+     * Retrieve the summary of an audit record based on unique id
+     *
+     * @param uniqueId
+     * @return null if not found
+     * @throws AuditException
+     */
+    public ATNARecord queryObject(String uniqueId) throws AuditException {
+        PreparedStatement stmt = null;
+        try {
+            String sql = "SELECT " + SELECT_COLUMNS + " FROM " + getTableName() + " WHERE uniqueid = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, uniqueId);
+            List<?> records = getObjects(stmt.executeQuery(), 0, 1);
+            return records.isEmpty() ? null : (ATNARecord) records.get(0);
+        } catch (SQLException e) {
+            logger.error(e);
+            throw new AuditException(e);
+        } finally {
+            closeStatement(stmt);
+        }
+    }
+
+    /**
+     * Returns the audit summaries matching the search criteria, newest first.
+     *
+     * @param searchCriteria
+     * @param maxRows maximum number of records to return (0 = no limit)
+     * @return
+     * @throws AuditException
+     */
+    public List<ATNARecord> search(ATNASearchCriteria searchCriteria, int maxRows) throws AuditException {
+        List<Object> params = new ArrayList<Object>();
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ").append(SELECT_COLUMNS).append(" FROM ").append(getTableName()).append(" WHERE 1 = 1");
+        if (searchCriteria.getStartDateTime() != null) {
+            sql.append(" AND eventdatetime >= ?");
+            params.add(new Timestamp(searchCriteria.getStartDateTime().getTime()));
+        }
+        if (searchCriteria.getEndDateTime() != null) {
+            sql.append(" AND eventdatetime < ?");
+            params.add(new Timestamp(searchCriteria.getEndDateTime().getTime()));
+        }
+        addEqualsCondition(sql, params, "clientipaddress", searchCriteria.getClientIPAddress());
+        addEqualsCondition(sql, params, "patientid", searchCriteria.getPatientID());
+        addEqualsCondition(sql, params, "userid", searchCriteria.getUserID());
+        addEqualsCondition(sql, params, "eventtypecode", searchCriteria.getEventTypeCode());
+        addEqualsCondition(sql, params, "eventoutcomeindicator", searchCriteria.getEventOutcomeIndicator());
+        if (searchCriteria.getAfterEventDateTime() != null && searchCriteria.getAfterUniqueID() != null) {
+            // Keyset paging: continue after the last record of the previous page.
+            Timestamp after = new Timestamp(searchCriteria.getAfterEventDateTime().getTime());
+            sql.append(" AND (eventdatetime < ? OR (eventdatetime = ? AND uniqueid < ?))");
+            params.add(after);
+            params.add(after);
+            params.add(searchCriteria.getAfterUniqueID());
+        }
+        sql.append(" ORDER BY eventdatetime DESC, uniqueid DESC");
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            if (maxRows > 0) {
+                stmt.setMaxRows(maxRows);
+                stmt.setFetchSize(maxRows);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("SQL = " + sql);
+            }
+            List<ATNARecord> records = new ArrayList<ATNARecord>();
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                ATNARecord record = new ATNARecord();
+                loadObject(record, rs);
+                records.add(record);
+            }
+            return records;
+        } catch (SQLException e) {
+            logger.error(e);
+            throw new AuditException(e);
+        } finally {
+            closeStatement(stmt);
+        }
+    }
+
+    /**
+     *
+     * @param sql
+     * @param params
+     * @param column
+     * @param value
+     */
+    private static void addEqualsCondition(StringBuilder sql, List<Object> params, String column, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" = ?");
+            params.add(value);
+        }
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static String truncate(String value) {
+        if (value != null && value.length() > MAX_ID_LENGTH) {
+            return value.substring(0, MAX_ID_LENGTH);
+        }
+        return value;
+    }
+}
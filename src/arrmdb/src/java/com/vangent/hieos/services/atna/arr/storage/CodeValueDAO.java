@@ -55,7 +55,7 @@ public class CodeValueDAO extends AbstractDAO {
      * @return
      */
     public String getTableName() {
-        return tableName;
+        return partition.getTableName(tableName);
     }
 
     @Override
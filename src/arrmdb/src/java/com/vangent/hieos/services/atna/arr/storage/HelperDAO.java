@@ -26,6 +26,18 @@ public class HelperDAO {
 
     private static final Logger logger = Logger.getLogger(HelperDAO.class);
     static final public String arrJNDIResourceName = "jdbc/hieos-arr";
+    private static boolean directConnection = false;
+
+    /**
+     * Use connections obtained directly from the JDBC driver (configured in
+     * atnaserver.properties) instead of the container's connection pool.  Only
+     * intended for use outside of the application server (e.g. benchmarks).
+     *
+     * @param useDirectConnection
+     */
+    public static void setDirectConnection(boolean useDirectConnection) {
+        directConnection = useDirectConnection;
+    }
 
     /**
      * Get the ATNA repository JDBC connection instance from connection pool.
@@ -34,6 +46,9 @@ public class HelperDAO {
      * @throws java.util.Exception
      */
     public static Connection getConnection() throws Exception{
+        if (directConnection) {
+            return getConnectionDirect();
+        }
         //TODO - Should get JNDI name from XConfig property instead of static variable
         return new SQLConnectionWrapper().getConnection(arrJNDIResourceName);
     }
@@ -57,14 +72,18 @@ public class HelperDAO {
             ServerProperties props = new ServerProperties("atnaserver.properties");
             String driver = props.getProperty("jdbc_driver");
             Class.forName(driver);
-            logger.info("Loaded jdbc driver: " + driver);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Loaded jdbc driver: " + driver);
+            }
                         
             String url = props.getProperty("jdbc_url");
             String user = props.getProperty("jdbc_user");
             String password = props.getProperty("jdbc_password");
 
             Connection conn = java.sql.DriverManager.getConnection(url, user, password);
-            logger.info("Connected to database: " + url);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Connected to database: " + url);
+            }
             return conn;
 
         } catch (ClassNotFoundException e) {
@@ -15,6 +15,7 @@ package com.vangent.hieos.services.atna.arr.storage;
 import com.vangent.hieos.services.atna.arr.support.ATNACodedValue;
 import com.vangent.hieos.services.atna.arr.support.ATNAMessage;
 import com.vangent.hieos.services.atna.arr.support.ATNAParticipantObject;
+import com.vangent.hieos.services.atna.arr.support.ATNATypeValue;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import java.io.ByteArrayInputStream;
 import java.sql.Connection;
@@ -42,35 +43,40 @@ public class ParticipantObjectDAO extends AbstractDAO {
     }
 
     public String getTableName() {
-        return getTableNameStatic();
+        return partition.getTableName(getTableNameStatic());
     }
 
     /**
      * This method will insert all records that are directly dependent on the
-     * Participant Object by invoking the insert method of each sub DAO.
-     * @param object
-     * @throws loadObject
+     * Participant Objects by invoking the insert method of each sub DAO.
+     * @param objects
+     * @throws AuditException
      */
     @Override
-    protected void insertComposedObjects(Object object) throws AuditException {
-        ATNAParticipantObject po = (ATNAParticipantObject) object;
-
-        // Add Participant Object ID Type Code if it exists. There maybe zero or
-        // one instance of idTypeCode so add it to a list for the insert method if it exists
-        if (po.getIdTypeCode() != null) {
-            CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
-            codeValueDAO.setTableName(CodeValueDAO.POCODEVALUE);
-            List<ATNACodedValue> typeCodes = new ArrayList<ATNACodedValue>();
-            typeCodes.add(po.getIdTypeCode());
-            codeValueDAO.insert(typeCodes);
+    protected void insertComposedObjects(List<?> objects) throws AuditException {
+        List<ATNACodedValue> typeCodes = new ArrayList<ATNACodedValue>();
+        List<ATNATypeValue> details = new ArrayList<ATNATypeValue>();
+        for (Object object : objects) {
+            ATNAParticipantObject po = (ATNAParticipantObject) object;
+            // There maybe zero or one instance of idTypeCode
+            if (po.getIdTypeCode() != null) {
+                typeCodes.add(po.getIdTypeCode());
+            }
+            // There can be zero or more Detail records
+            if (po.getDetails() != null) {
+                details.addAll(po.getDetails());
+            }
         }
 
-        // Add the Participant Object Details, there can be zero or more Detail records
-        if (po.getDetails() != null) {
-            TypeValueDAO typeValueDAO = new TypeValueDAO(conn);
-            typeValueDAO.setTableName(TypeValueDAO.POTYPEVALUE);
-            typeValueDAO.insert(po.getDetails());
-        }
+        CodeValueDAO codeValueDAO = new CodeValueDAO(conn);
+        codeValueDAO.setPartition(partition);
+        codeValueDAO.setTableName(CodeValueDAO.POCODEVALUE);
+        codeValueDAO.insert(typeCodes);
+
+        TypeValueDAO typeValueDAO = new TypeValueDAO(conn);
+        typeValueDAO.setPartition(partition);
+        typeValueDAO.setTableName(TypeValueDAO.POTYPEVALUE);
+        typeValueDAO.insert(details);
     }
 
     @Override
@@ -117,7 +123,7 @@ public class ParticipantObjectDAO extends AbstractDAO {
             logger.trace("PO Prepared Statement For: " + po.getUniqueID());
             if (action == DAO_ACTION_INSERT) {
                 pstmt.setString(1, po.getUniqueID());
-                pstmt.setString(2, getParentId());
+                pstmt.setString(2, getParentId(po));
                 pstmt.setInt(3, po.getTypeCode());
                 pstmt.setInt(4, po.getTypeCodeRole());
                 pstmt.setInt(5, po.getDataLifeCycle());
@@ -149,4 +155,10 @@ public class ParticipantObjectDAO extends AbstractDAO {
         String parentId = am.getUniqueID();
         return parentId;
     }
+
+    @Override
+    protected String getParentId(Object object) {
+        ATNAParticipantObject po = (ATNAParticipantObject) object;
+        return po.getParent() != null ? po.getParent() : getParentId();
+    }
 }
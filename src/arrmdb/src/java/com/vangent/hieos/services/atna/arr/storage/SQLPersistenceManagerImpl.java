@@ -15,11 +15,21 @@ package com.vangent.hieos.services.atna.arr.storage;
 import com.vangent.hieos.services.atna.arr.support.ATNACodedValue;
 import com.vangent.hieos.services.atna.arr.support.ATNALog;
 import com.vangent.hieos.services.atna.arr.support.ATNAMessage;
+import com.vangent.hieos.services.atna.arr.support.ATNARecord;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchCriteria;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.log4j.Logger;
 
 /**
@@ -29,6 +39,20 @@ import org.apache.log4j.Logger;
 public class SQLPersistenceManagerImpl {
 
     private static final Logger log = Logger.getLogger(SQLPersistenceManagerImpl.class);
+    /** The search order (eventdatetime DESC, uniqueid DESC) of AuditSummaryDAO.search. */
+    private static final Comparator<ATNARecord> NEWEST_FIRST = new Comparator<ATNARecord>() {
+
+        public int compare(ATNARecord r1, ATNARecord r2) {
+            Date d1 = r1.getEventDateTime();
+            Date d2 = r2.getEventDateTime();
+            if (d1 == null || d2 == null) {
+                // Records without an event date time are never matched by a page token - keep them last.
+                return d1 == d2 ? r2.getUniqueID().compareTo(r1.getUniqueID()) : (d1 == null ? 1 : -1);
+            }
+            int result = d2.compareTo(d1);
+            return result != 0 ? result : r2.getUniqueID().compareTo(r1.getUniqueID());
+        }
+    };
 
     public SQLPersistenceManagerImpl() {
     }
@@ -96,6 +120,82 @@ public class SQLPersistenceManagerImpl {
         }
     }
 
+    /**
+     * Creates a batch of (complete) Audit Messages, Audit Logs and their Audit
+     * Summaries using one batch per table (and partition) and a single commit.
+     * Nothing is saved if any record fails.
+     *
+     * @param auditMessages
+     * @param auditLogs
+     * @param auditSummaries (one per audit log)
+     * @throws AuditException
+     */
+    public void createAuditRecords(List<ATNAMessage> auditMessages, List<ATNALog> auditLogs,
+            List<ATNARecord> auditSummaries) throws AuditException {
+        // Group the records by the partition for their event date time.  Partitions
+        // are created (DDL) before the transaction starts.
+        AuditPartitionManager partitionManager = AuditPartitionManager.getInstance();
+        Map<String, AuditPartition> partitionsByUniqueId = new HashMap<String, AuditPartition>();
+        Map<AuditPartition, PartitionRecords> recordsByPartition = new LinkedHashMap<AuditPartition, PartitionRecords>();
+        for (ATNARecord auditSummary : auditSummaries) {
+            AuditPartition partition = partitionManager.getWritePartition(auditSummary.getEventDateTime());
+            partitionsByUniqueId.put(auditSummary.getUniqueID(), partition);
+            getPartitionRecords(recordsByPartition, partition).auditSummaries.add(auditSummary);
+        }
+        for (ATNAMessage auditMessage : auditMessages) {
+            getPartitionRecords(recordsByPartition, getPartition(partitionsByUniqueId, auditMessage.getUniqueID())).auditMessages.add(auditMessage);
+        }
+        for (ATNALog auditLog : auditLogs) {
+            getPartitionRecords(recordsByPartition, getPartition(partitionsByUniqueId, auditLog.getUniqueID())).auditLogs.add(auditLog);
+        }
+
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = HelperDAO.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            for (Map.Entry<AuditPartition, PartitionRecords> entry : recordsByPartition.entrySet()) {
+                AuditPartition partition = entry.getKey();
+                PartitionRecords records = entry.getValue();
+                AuditMessageDAO auditMessageDAO = new AuditMessageDAO(conn);
+                auditMessageDAO.setPartition(partition);
+                auditMessageDAO.insert(records.auditMessages);
+                AuditLogDAO auditLogDAO = new AuditLogDAO(conn);
+                auditLogDAO.setPartition(partition);
+                auditLogDAO.insert(records.auditLogs);
+                AuditSummaryDAO auditSummaryDAO = new AuditSummaryDAO(conn);
+                auditSummaryDAO.setPartition(partition);
+                auditSummaryDAO.insert(records.auditSummaries);
+            }
+            conn.commit();
+            if (log.isDebugEnabled()) {
+                log.debug("AUDIT RECORDS SAVED IN DB: " + auditMessages.size() + " messages, "
+                        + auditLogs.size() + " logs, partitions " + recordsByPartition.keySet());
+            }
+        } catch (Exception ex) {
+            log.error(ex);
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rex) {
+                    log.error("Error rolling back audit records: ", rex);
+                }
+            }
+            throw new AuditException(ex);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                    conn.close();
+                } catch (SQLException ex) {
+                    throw new AuditException("Error closing db connection: ", ex);
+                }
+            }
+        }
+    }
+
     /**
      * Updates the Audit Message record if the AuditMessage XML was parsed successfully
      *
@@ -213,6 +313,7 @@ public class SQLPersistenceManagerImpl {
             //log.info("RETRIVE AUDIT LOG: " + uniqueId);
             conn = HelperDAO.getConnection();
             AuditLogDAO dao = new AuditLogDAO(conn);
+            dao.setPartition(findPartition(conn, uniqueId));
             ATNALog log = dao.queryObject(uniqueId);
             return log;
         } catch (Exception ex) {
@@ -245,7 +346,10 @@ public class SQLPersistenceManagerImpl {
             List<ATNALog> logs = new ArrayList<ATNALog>();
             conn = HelperDAO.getConnection();
             AuditLogDAO dao = new AuditLogDAO(conn);
-            logs = dao.getATNALogs(seachCriteria);
+            for (AuditPartition partition : AuditPartitionManager.getInstance().getReadPartitions(null, null)) {
+                dao.setPartition(partition);
+                logs.addAll(dao.getATNALogs(seachCriteria));
+            }
             log.info("NUMBER OF AUDIT LOGS FOR : " + seachCriteria.getClientIPAddress() +
                     " is: " + logs.size());
 
@@ -265,6 +369,105 @@ public class SQLPersistenceManagerImpl {
         }
     }
 
+    /**
+     * Retrieves the Audit Summary of an audit record
+     *
+     * @param uniqueId
+     * @return null if not found
+     * @throws AuditException
+     */
+    public ATNARecord retrieveAuditSummary(String uniqueId)
+        throws AuditException {
+        Connection conn = null;
+        try {
+            conn = HelperDAO.getConnection();
+            AuditSummaryDAO dao = new AuditSummaryDAO(conn);
+            for (AuditPartition partition : AuditPartitionManager.getInstance().getReadPartitions(null, null)) {
+                dao.setPartition(partition);
+                ATNARecord record = dao.queryObject(uniqueId);
+                if (record != null) {
+                    return record;
+                }
+            }
+            return null;
+        } catch (Exception ex) {
+            log.error(ex);
+            throw new AuditException(ex);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ex) {
+                    throw new AuditException("Error closing db connection: ", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the Audit Summaries, newest first (by event date time, then
+     * unique id).  Only the partitions that overlap the requested time range
+     * (and follow the page token) are read.  The time partitions are disjoint,
+     * so their results are read newest partition first; the legacy partition
+     * may hold records from any time, so its results are merged in by event
+     * date time.  If maxResults is set, at most maxResults + 1 records are
+     * returned so the caller can tell whether there is another page.
+     *
+     * @param searchCriteria
+     * @return
+     * @throws AuditException
+     */
+    public List<ATNARecord> searchAuditSummaries(ATNASearchCriteria searchCriteria)
+        throws AuditException {
+        Connection conn = null;
+        try {
+            Date end = searchCriteria.getEndDateTime();
+            if (searchCriteria.getAfterEventDateTime() != null) {
+                Date afterEnd = new Date(searchCriteria.getAfterEventDateTime().getTime() + 1);
+                if (end == null || afterEnd.before(end)) {
+                    end = afterEnd;
+                }
+            }
+            List<AuditPartition> partitions =
+                    AuditPartitionManager.getInstance().getReadPartitions(searchCriteria.getStartDateTime(), end);
+            int maxRows = searchCriteria.getMaxResults() > 0 ? searchCriteria.getMaxResults() + 1 : 0;
+            List<ATNARecord> records = new ArrayList<ATNARecord>();
+            List<ATNARecord> legacyRecords = new ArrayList<ATNARecord>();
+            conn = HelperDAO.getConnection();
+            AuditSummaryDAO dao = new AuditSummaryDAO(conn);
+            for (AuditPartition partition : partitions) {
+                dao.setPartition(partition);
+                if (partition.isLegacy()) {
+                    legacyRecords = dao.search(searchCriteria, maxRows);
+                } else if (maxRows == 0 || records.size() < maxRows) {
+                    records.addAll(dao.search(searchCriteria, maxRows > 0 ? maxRows - records.size() : 0));
+                }
+            }
+            if (!legacyRecords.isEmpty()) {
+                records.addAll(legacyRecords);
+                Collections.sort(records, NEWEST_FIRST);
+                if (maxRows > 0 && records.size() > maxRows) {
+                    records = new ArrayList<ATNARecord>(records.subList(0, maxRows));
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Audit search read " + partitions.size() + " partition(s), found " + records.size());
+            }
+            return records;
+        } catch (Exception ex) {
+            log.error(ex);
+            throw new AuditException(ex);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ex) {
+                    throw new AuditException("Error closing db connection: ", ex);
+                }
+            }
+        }
+    }
+
     /**
      * Retrieves a list of IP Addresses that have messages in the Repository
      *
@@ -276,12 +479,14 @@ public class SQLPersistenceManagerImpl {
                 Connection conn = null;
         try {
             log.info("RETRIVE IP Addresses in ATNA Repository ");
-            List<String> ipAddresses = new ArrayList<String>();
+            Set<String> ipAddresses = new LinkedHashSet<String>();
             conn = HelperDAO.getConnection();
             AuditLogDAO dao = new AuditLogDAO(conn);
-            ipAddresses = dao.getIPAddresses();
-
-            return ipAddresses;
+            for (AuditPartition partition : AuditPartitionManager.getInstance().getReadPartitions(null, null)) {
+                dao.setPartition(partition);
+                ipAddresses.addAll(dao.getIPAddresses());
+            }
+            return new ArrayList<String>(ipAddresses);
         } catch (Exception ex) {
             log.error(ex);
             ex.printStackTrace();
@@ -328,4 +533,66 @@ public class SQLPersistenceManagerImpl {
             }
         }
     }
+
+    /**
+     * Finds the partition holding the audit record with the given unique id
+     * (the legacy partition if not found).
+     *
+     * @param conn
+     * @param uniqueId
+     * @return
+     * @throws AuditException
+     */
+    private static AuditPartition findPartition(Connection conn, String uniqueId) throws AuditException {
+        AuditSummaryDAO dao = new AuditSummaryDAO(conn);
+        for (AuditPartition partition : AuditPartitionManager.getInstance().getReadPartitions(null, null)) {
+            dao.setPartition(partition);
+            if (dao.queryObject(uniqueId) != null) {
+                return partition;
+            }
+        }
+        return AuditPartition.LEGACY;
+    }
+
+    /**
+     *
+     * @param partitionsByUniqueId
+     * @param uniqueId
+     * @return
+     * @throws AuditException
+     */
+    private static AuditPartition getPartition(Map<String, AuditPartition> partitionsByUniqueId, String uniqueId)
+            throws AuditException {
+        AuditPartition partition = partitionsByUniqueId.get(uniqueId);
+        if (partition == null) {
+            throw new AuditException("No audit summary for audit record " + uniqueId);
+        }
+        return partition;
+    }
+
+    /**
+     *
+     * @param recordsByPartition
+     * @param partition
+     * @return
+     */
+    private static PartitionRecords getPartitionRecords(Map<AuditPartition, PartitionRecords> recordsByPartition,
+            AuditPartition partition) {
+        PartitionRecords records = recordsByPartition.get(partition);
+        if (records == null) {
+            records = new PartitionRecords();
+            recordsByPartition.put(partition, records);
+        }
+        return records;
+    }
+
+    /**
+     * The audit records of a batch to be written to one partition.
+     */
+    private static class PartitionRecords {
+
+        private final List<ATNAMessage> auditMessages = new ArrayList<ATNAMessage>();
+        private final List<ATNALog> auditLogs = new ArrayList<ATNALog>();
+        private final List<ATNARecord> auditSummaries = new ArrayList<ATNARecord>();
+    }
 }
@@ -54,7 +54,7 @@ public class TypeValueDAO extends AbstractDAO {
      * @return
      */
     public String getTableName() {
-        return tableName;
+        return partition.getTableName(tableName);
     }
 
     @Override
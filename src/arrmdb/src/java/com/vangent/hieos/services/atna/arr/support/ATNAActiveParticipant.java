@@ -21,6 +21,7 @@ import java.util.List;
  */
 public class ATNAActiveParticipant {
     private String uniqueID;
+    private String parent;
     private String userID;
     private String alternativeUserID;
     private String userName;
@@ -140,4 +141,18 @@ public class ATNAActiveParticipant {
     public void setUniqueID(String uniqueID) {
         this.uniqueID = uniqueID;
     }
+
+    /**
+     * @return the parent (audit message unique id)
+     */
+    public String getParent() {
+        return parent;
+    }
+
+    /**
+     * @param parent the parent to set
+     */
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
 }
@@ -22,6 +22,7 @@ import java.util.List;
 public class ATNAAuditSource {
 
     private String uniqueID;
+    private String parent;
     private String id;
     private String enterpriseSiteID;
     private List<ATNACodedValue> typeCodes;
@@ -82,4 +83,17 @@ public class ATNAAuditSource {
         this.uniqueID = uniqueID;
     }
 
-}
\ No newline at end of file
+    /**
+     * @return the parent (audit message unique id)
+     */
+    public String getParent() {
+        return parent;
+    }
+
+    /**
+     * @param parent the parent to set
+     */
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+}
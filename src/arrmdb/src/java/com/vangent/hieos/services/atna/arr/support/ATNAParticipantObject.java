@@ -22,6 +22,7 @@ import java.util.List;
  */
 public class ATNAParticipantObject {
     private String uniqueID;
+    private String parent;
     private Integer typeCode;
     private Integer typeCodeRole;
     private Integer dataLifeCycle;
@@ -194,4 +195,17 @@ public class ATNAParticipantObject {
         this.uniqueID = uniqueID;
     }
 
+    /**
+     * @return the parent (audit message unique id)
+     */
+    public String getParent() {
+        return parent;
+    }
+
+    /**
+     * @param parent the parent to set
+     */
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
 }
@@ -29,6 +29,10 @@ public class ATNARecord {
     private String transactionShortName;
     private String transactionLongName;
     private String status;
+    private String eventActionCode;
+    private Integer eventOutcomeIndicator;
+    private String userID;
+    private String patientID;
     private String xml;
     private String errorMessage;
 
@@ -186,4 +190,60 @@ public class ATNARecord {
         this.eventDateTime = eventDateTime;
     }
 
+    /**
+     * @return the eventActionCode
+     */
+    public String getEventActionCode() {
+        return eventActionCode;
+    }
+
+    /**
+     * @param eventActionCode the eventActionCode to set
+     */
+    public void setEventActionCode(String eventActionCode) {
+        this.eventActionCode = eventActionCode;
+    }
+
+    /**
+     * @return the eventOutcomeIndicator
+     */
+    public Integer getEventOutcomeIndicator() {
+        return eventOutcomeIndicator;
+    }
+
+    /**
+     * @param eventOutcomeIndicator the eventOutcomeIndicator to set
+     */
+    public void setEventOutcomeIndicator(Integer eventOutcomeIndicator) {
+        this.eventOutcomeIndicator = eventOutcomeIndicator;
+    }
+
+    /**
+     * @return the userID (of the requesting active participant)
+     */
+    public String getUserID() {
+        return userID;
+    }
+
+    /**
+     * @param userID the userID to set
+     */
+    public void setUserID(String userID) {
+        this.userID = userID;
+    }
+
+    /**
+     * @return the patientID (of the patient participant object)
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * @param patientID the patientID to set
+     */
+    public void setPatientID(String patientID) {
+        this.patientID = patientID;
+    }
+
 }
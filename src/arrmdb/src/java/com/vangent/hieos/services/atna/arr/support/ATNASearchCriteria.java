@@ -0,0 +1,201 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.support;
+
+import java.util.Date;
+
+/**
+ * Search criteria for the audit summary.  All criteria are optional and are
+ * combined with AND.  Results are returned newest first, one page at a time;
+ * a page continues from the (event date time, unique id) of the last record of
+ * the previous page (keyset paging), carried between requests as a page token.
+ */
+public class ATNASearchCriteria {
+
+    private Date startDateTime;     // Inclusive.
+    private Date endDateTime;       // Exclusive.
+    private String clientIPAddress;
+    private String patientID;
+    private String userID;
+    private String eventTypeCode;
+    private Integer eventOutcomeIndicator;
+    private int maxResults = 0;     // 0 = no limit.
+    private Date afterEventDateTime;
+    private String afterUniqueID;
+
+    /**
+     * @return the startDateTime
+     */
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    /**
+     * @param startDateTime the startDateTime (inclusive) to set
+     */
+    public void setStartDateTime(Date startDateTime) {
+        this.startDateTime = startDateTime;
+    }
+
+    /**
+     * @return the endDateTime
+     */
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+
+    /**
+     * @param endDateTime the endDateTime (exclusive) to set
+     */
+    public void setEndDateTime(Date endDateTime) {
+        this.endDateTime = endDateTime;
+    }
+
+    /**
+     * @return the clientIPAddress
+     */
+    public String getClientIPAddress() {
+        return clientIPAddress;
+    }
+
+    /**
+     * @param clientIPAddress the clientIPAddress to set
+     */
+    public void setClientIPAddress(String clientIPAddress) {
+        this.clientIPAddress = clientIPAddress;
+    }
+
+    /**
+     * @return the patientID
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * @param patientID the patientID to set
+     */
+    public void setPatientID(String patientID) {
+        this.patientID = patientID;
+    }
+
+    /**
+     * @return the userID
+     */
+    public String getUserID() {
+        return userID;
+    }
+
+    /**
+     * @param userID the userID to set
+     */
+    public void setUserID(String userID) {
+        this.userID = userID;
+    }
+
+    /**
+     * @return the eventTypeCode
+     */
+    public String getEventTypeCode() {
+        return eventTypeCode;
+    }
+
+    /**
+     * @param eventTypeCode the eventTypeCode (transaction short name) to set
+     */
+    public void setEventTypeCode(String eventTypeCode) {
+        this.eventTypeCode = eventTypeCode;
+    }
+
+    /**
+     * @return the eventOutcomeIndicator
+     */
+    public Integer getEventOutcomeIndicator() {
+        return eventOutcomeIndicator;
+    }
+
+    /**
+     * @param eventOutcomeIndicator the eventOutcomeIndicator to set
+     */
+    public void setEventOutcomeIndicator(Integer eventOutcomeIndicator) {
+        this.eventOutcomeIndicator = eventOutcomeIndicator;
+    }
+
+    /**
+     * @return the maximum number of records in a page (0 = no limit)
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * @param maxResults the maximum number of records in a page (0 = no limit)
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @return the event date time of the last record of the previous page
+     */
+    public Date getAfterEventDateTime() {
+        return afterEventDateTime;
+    }
+
+    /**
+     * @return the unique id of the last record of the previous page
+     */
+    public String getAfterUniqueID() {
+        return afterUniqueID;
+    }
+
+    /**
+     * Continue after the given record (the last record of the previous page).
+     *
+     * @param atnaRecord
+     */
+    public void setAfter(ATNARecord atnaRecord) {
+        this.afterEventDateTime = atnaRecord.getEventDateTime();
+        this.afterUniqueID = atnaRecord.getUniqueID();
+    }
+
+    /**
+     * Continue after the record identified by a page token returned by
+     * getPageToken().
+     *
+     * @param pageToken
+     * @throws AuditException if the page token is not valid.
+     */
+    public void setPageToken(String pageToken) throws AuditException {
+        int sep = pageToken.indexOf(':');
+        if (sep <= 0 || sep == pageToken.length() - 1) {
+            throw new AuditException("Invalid page token: " + pageToken);
+        }
+        try {
+            this.afterEventDateTime = new Date(Long.parseLong(pageToken.substring(0, sep)));
+        } catch (NumberFormatException ex) {
+            throw new AuditException("Invalid page token: " + pageToken);
+        }
+        this.afterUniqueID = pageToken.substring(sep + 1);
+    }
+
+    /**
+     * Returns the page token to continue a search after the given record.
+     *
+     * @param atnaRecord
+     * @return
+     */
+    public static String getPageToken(ATNARecord atnaRecord) {
+        return atnaRecord.getEventDateTime().getTime() + ":" + atnaRecord.getUniqueID();
+    }
+}
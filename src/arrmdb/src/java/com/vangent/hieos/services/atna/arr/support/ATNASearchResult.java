@@ -0,0 +1,53 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of audit summary search results.
+ */
+public class ATNASearchResult {
+
+    private List<ATNARecord> atnaRecords = new ArrayList<ATNARecord>();
+    private String nextPageToken;
+
+    /**
+     * @return the atnaRecords (without XML)
+     */
+    public List<ATNARecord> getATNARecords() {
+        return atnaRecords;
+    }
+
+    /**
+     * @param atnaRecords the atnaRecords to set
+     */
+    public void setATNARecords(List<ATNARecord> atnaRecords) {
+        this.atnaRecords = atnaRecords;
+    }
+
+    /**
+     * @return the token for the next page or null if this is the last page
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    /**
+     * @param nextPageToken the nextPageToken to set
+     */
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+}
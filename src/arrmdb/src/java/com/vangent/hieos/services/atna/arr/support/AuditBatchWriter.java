@@ -0,0 +1,240 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.support;
+
+import com.vangent.hieos.services.atna.arr.storage.SQLPersistenceManagerImpl;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Group commit for the ATNA repository.  Message bean instances queue their
+ * parsed audit message and log and wait.  No threads are started: one of the
+ * waiting callers at a time (on its own, container managed, thread) takes
+ * whatever has accumulated (up to MAX_BATCH_SIZE records) and saves it with one
+ * batch per table and a single commit, while the others queue up behind it for
+ * the next batch.  A caller only returns (and its JMS message is acknowledged)
+ * once its records are committed.
+ *
+ * If a batch fails, its records are saved one at a time so that a single bad
+ * audit message does not cause the others to be lost.
+ */
+public class AuditBatchWriter {
+
+    private static final Logger log = Logger.getLogger(AuditBatchWriter.class);
+    // Upper bound on the records saved with a single commit.
+    private static final int MAX_BATCH_SIZE = 200;
+    private static AuditBatchWriter _instance = null;
+    private final LinkedList<AuditRecord> queue = new LinkedList<AuditRecord>();  // Guarded by "this".
+    private boolean writing = false;  // Guarded by "this".
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong recordCount = new AtomicLong(0);
+    private final AtomicLong failedBatchCount = new AtomicLong(0);
+
+    /**
+     *
+     */
+    private AuditBatchWriter() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static synchronized AuditBatchWriter getInstance() {
+        if (_instance == null) {
+            _instance = new AuditBatchWriter();
+        }
+        return _instance;
+    }
+
+    /**
+     * Saves the audit message (null if it could not be parsed) and its audit
+     * log, returning once they have been committed.
+     *
+     * @param atnaMessage
+     * @param atnaLog
+     * @throws AuditException if the records could not be saved.
+     */
+    public void write(ATNAMessage atnaMessage, ATNALog atnaLog) throws AuditException {
+        AuditRecord record = new AuditRecord(atnaMessage, atnaLog);
+        synchronized (this) {
+            queue.add(record);
+        }
+        boolean interrupted = false;
+        while (!record.done) {
+            List<AuditRecord> batch;
+            synchronized (this) {
+                // Wait for the current batch (which may include this record).
+                while (writing && !record.done) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                        if (queue.remove(record)) {
+                            Thread.currentThread().interrupt();
+                            throw new AuditException("Interrupted waiting for audit record to be saved");
+                        }
+                        // Already being saved; wait for the outcome.
+                    }
+                }
+                if (record.done) {
+                    break;
+                }
+                // Save the next batch on this thread.
+                writing = true;
+                batch = new ArrayList<AuditRecord>(Math.min(queue.size(), MAX_BATCH_SIZE));
+                while (!queue.isEmpty() && batch.size() < MAX_BATCH_SIZE) {
+                    batch.add(queue.removeFirst());
+                }
+            }
+            try {
+                this.persist(batch);
+            } catch (RuntimeException ex) {
+                log.error("Unexpected error saving audit records", ex);
+                for (AuditRecord batchRecord : batch) {
+                    batchRecord.complete(new AuditException(ex));
+                }
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    this.notifyAll();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (record.error != null) {
+            throw record.error;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String getStatistics() {
+        return "AuditBatchWriter (batches = " + batchCount.get()
+                + ", records = " + recordCount.get()
+                + ", failed batches = " + failedBatchCount.get()
+                + ", queued = " + queue.size() + ")";
+    }
+
+    /**
+     *
+     * @param batch
+     */
+    private void persist(List<AuditRecord> batch) {
+        SQLPersistenceManagerImpl sql = new SQLPersistenceManagerImpl();
+        List<ATNAMessage> atnaMessages = new ArrayList<ATNAMessage>();
+        List<ATNALog> atnaLogs = new ArrayList<ATNALog>();
+        List<ATNARecord> atnaSummaries = new ArrayList<ATNARecord>();
+        for (AuditRecord record : batch) {
+            if (record.atnaMessage != null) {
+                // Saved atomically, so the record is complete once committed.
+                record.atnaMessage.setStatus("C");
+                atnaMessages.add(record.atnaMessage);
+            }
+            atnaLogs.add(record.atnaLog);
+            atnaSummaries.add(AuditMessageHandler.createATNASummary(record.atnaMessage, record.atnaLog));
+        }
+        try {
+            sql.createAuditRecords(atnaMessages, atnaLogs, atnaSummaries);
+            batchCount.incrementAndGet();
+            recordCount.addAndGet(batch.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Saved batch of " + batch.size() + " audit records (" + getStatistics() + ")");
+            }
+            for (AuditRecord record : batch) {
+                record.complete(null);
+            }
+        } catch (AuditException ex) {
+            failedBatchCount.incrementAndGet();
+            log.error("Error saving batch of " + batch.size() + " audit records - saving individually");
+            for (AuditRecord record : batch) {
+                record.complete(this.persistSingle(sql, record));
+            }
+        }
+    }
+
+    /**
+     *
+     * @param sql
+     * @param record
+     * @return null if saved, otherwise the error.
+     */
+    private AuditException persistSingle(SQLPersistenceManagerImpl sql, AuditRecord record) {
+        List<ATNALog> atnaLogs = new ArrayList<ATNALog>();
+        atnaLogs.add(record.atnaLog);
+        if (record.atnaMessage != null) {
+            List<ATNAMessage> atnaMessages = new ArrayList<ATNAMessage>();
+            atnaMessages.add(record.atnaMessage);
+            List<ATNARecord> atnaSummaries = new ArrayList<ATNARecord>();
+            atnaSummaries.add(AuditMessageHandler.createATNASummary(record.atnaMessage, record.atnaLog));
+            try {
+                sql.createAuditRecords(atnaMessages, atnaLogs, atnaSummaries);
+                recordCount.incrementAndGet();
+                return null;
+            } catch (AuditException ex) {
+                // Always save the raw XML that was transmitted with the error message.
+                log.error("Error saving audit message " + record.atnaMessage.getUniqueID() + ": " + ex);
+                if (record.atnaLog.getErrorMessage() == null) {
+                    record.atnaLog.setErrorMessage(ex.toString());
+                }
+            }
+        }
+        List<ATNARecord> atnaSummaries = new ArrayList<ATNARecord>();
+        atnaSummaries.add(AuditMessageHandler.createATNASummary(null, record.atnaLog));
+        try {
+            sql.createAuditRecords(new ArrayList<ATNAMessage>(), atnaLogs, atnaSummaries);
+            recordCount.incrementAndGet();
+            return null;
+        } catch (AuditException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * A pending unit of work (and its outcome).
+     */
+    private static class AuditRecord {
+
+        private final ATNAMessage atnaMessage;
+        private final ATNALog atnaLog;
+        private volatile boolean done = false;
+        private volatile AuditException error;
+
+        /**
+         *
+         * @param atnaMessage
+         * @param atnaLog
+         */
+        AuditRecord(ATNAMessage atnaMessage, ATNALog atnaLog) {
+            this.atnaMessage = atnaMessage;
+            this.atnaLog = atnaLog;
+        }
+
+        /**
+         *
+         * @param error
+         */
+        void complete(AuditException error) {
+            this.error = error;
+            this.done = true;
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.apache.log4j.Logger;
 public class AuditMessageHandler {
 
     private static final Logger log = Logger.getLogger(AuditMessageHandler.class);
+    private static JAXBContext jaxbContext = null;  // Thread-safe; expensive to create.
     private ATNAMessage atnaMessage;
     private ATNALog atnaLog;
     private String uniqueID;
@@ -116,6 +117,17 @@ public class AuditMessageHandler {
         sql.updateAuditMessage(atnaMessage);
     }
 
+    /**
+     * Save the ATNA Message (if it was created) and ATNA Log in the database
+     * as part of a batch shared with other concurrent callers.  Returns once
+     * the records are committed.
+     *
+     * @throws AuditException
+     */
+    public void persistMessageAndLog() throws AuditException {
+        AuditBatchWriter.getInstance().write(atnaMessage, atnaLog);
+    }
+
     /**
      * Save the ATNA Log in the database - This is always created
      *
@@ -142,76 +154,128 @@ public class AuditMessageHandler {
     }
 
     /**
-     * Retrieves a List of ATNA Records for an IP Address
+     * Retrieves a List of ATNA Records (without XML) for an IP Address
      *
      * @param searchCriteria
      * @return
      * @throws AuditException
      */
     public List<ATNARecord> retrieveATNARecords(ATNARecord searchCriteria) throws AuditException {
-        //log.info("AuditMessageHandler - retrieveATNARecords");
-        List<ATNARecord> records = new ArrayList<ATNARecord>();
+        ATNASearchCriteria atnaSearchCriteria = new ATNASearchCriteria();
+        atnaSearchCriteria.setClientIPAddress(searchCriteria.getClientIPAddress());
         SQLPersistenceManagerImpl sql = new SQLPersistenceManagerImpl();
+        return sql.searchAuditSummaries(atnaSearchCriteria);
+    }
 
-        // Search for ATNA Logs
-        ATNALog atnaLogSearchCriteria = new ATNALog();
-        atnaLogSearchCriteria.setClientIPAddress(searchCriteria.getClientIPAddress());
-        List<ATNALog> logs = sql.retrieveATNALogs(atnaLogSearchCriteria);
-
-        // Populate the ATNA Record and Get Transaction Name for each ATNA Log
-        for (ATNALog log : logs) {
-            ATNARecord atnaRecord = new ATNARecord();
-            atnaRecord.setClientIPAddress(log.getClientIPAddress());
-            atnaRecord.setReceivedDateTime(log.getReceivedDateTime());
-            atnaRecord.setUniqueID(log.getUniqueID());
-            atnaRecord.setProtocol(log.getProtocol());
-
-            // TODO - delete XML & ErrorMessage from the auditLog List
-            // TODO - only retrieve from the detail record
-            atnaRecord.setXml(log.getXml());
-            atnaRecord.setErrorMessage(log.getErrorMessage());
-
-            // Get data from AuditMessage
-            ATNAMessage message = sql.retrieveATNAMessage(log.getUniqueID());
-            ATNACodedValue codedValue = sql.retrieveATNACodedValue(log.getUniqueID(), "T");
-            atnaRecord.setTransactionShortName(codedValue.getCode());
-            atnaRecord.setTransactionLongName(codedValue.getDisplayName());
-            atnaRecord.setStatus(message.getStatus());
-
-            records.add(atnaRecord);
+    /**
+     * Retrieves a page of ATNA Records (without XML) matching the search criteria,
+     * newest first.
+     *
+     * @param searchCriteria
+     * @return
+     * @throws AuditException
+     */
+    public ATNASearchResult searchATNARecords(ATNASearchCriteria searchCriteria) throws AuditException {
+        SQLPersistenceManagerImpl sql = new SQLPersistenceManagerImpl();
+        List<ATNARecord> records = sql.searchAuditSummaries(searchCriteria);
+        ATNASearchResult result = new ATNASearchResult();
+        int maxResults = searchCriteria.getMaxResults();
+        if (maxResults > 0 && records.size() > maxResults) {
+            // One more record than requested was read - so there is another page.
+            records = new ArrayList<ATNARecord>(records.subList(0, maxResults));
+            result.setNextPageToken(ATNASearchCriteria.getPageToken(records.get(maxResults - 1)));
         }
-        return records;
+        result.setATNARecords(records);
+        return result;
     }
 
     /**
-     * Retrieve a single ATNA Record
+     * Retrieve a single ATNA Record (including the XML received)
      *
      * @param uniqueID
      * @return
      * @throws AuditException
      */
     public ATNARecord retrieveATNARecord(String uniqueID) throws AuditException {
-        //log.info("AuditMessageHandler - retrieveATNARecord");
-        ATNARecord atnaRecord = new ATNARecord();
-
         SQLPersistenceManagerImpl sql = new SQLPersistenceManagerImpl();
         ATNALog log = sql.retrieveATNALog(uniqueID);
-        ATNAMessage message = sql.retrieveATNAMessage(uniqueID);
-        ATNACodedValue codedValue = sql.retrieveATNACodedValue(uniqueID, "T");
-
-        atnaRecord.setClientIPAddress(log.getClientIPAddress());
+        ATNARecord atnaRecord = sql.retrieveAuditSummary(uniqueID);
+        if (atnaRecord == null) {
+            // Audit record stored without a summary.
+            atnaRecord = new ATNARecord();
+            ATNAMessage message = sql.retrieveATNAMessage(uniqueID);
+            ATNACodedValue codedValue = sql.retrieveATNACodedValue(uniqueID, "T");
+            atnaRecord.setUniqueID(log.getUniqueID());
+            atnaRecord.setClientIPAddress(log.getClientIPAddress());
+            atnaRecord.setReceivedDateTime(log.getReceivedDateTime());
+            atnaRecord.setProtocol(log.getProtocol());
+            atnaRecord.setEventDateTime(message.getEventDateTime());
+            atnaRecord.setTransactionShortName(codedValue.getCode());
+            atnaRecord.setTransactionLongName(codedValue.getDisplayName());
+            atnaRecord.setStatus(message.getStatus());
+        }
         atnaRecord.setClientPort(log.getClientPort());
-        atnaRecord.setReceivedDateTime(log.getReceivedDateTime());
-        atnaRecord.setUniqueID(log.getUniqueID());
-        atnaRecord.setProtocol(log.getProtocol());
         atnaRecord.setXml(log.getXml());
         atnaRecord.setErrorMessage(log.getErrorMessage());
+        return atnaRecord;
+    }
 
-        atnaRecord.setTransactionShortName(codedValue.getCode());
-        atnaRecord.setTransactionLongName(codedValue.getDisplayName());
-        atnaRecord.setStatus(message.getStatus());
+    /**
+     * Creates the (denormalized) summary of an audit record used for searching.
+     *
+     * @param atnaMessage null if the audit message could not be parsed
+     * @param atnaLog
+     * @return
+     */
+    public static ATNARecord createATNASummary(ATNAMessage atnaMessage, ATNALog atnaLog) {
+        ATNARecord summary = new ATNARecord();
+        summary.setUniqueID(atnaLog.getUniqueID());
+        summary.setClientIPAddress(atnaLog.getClientIPAddress());
+        summary.setProtocol(atnaLog.getProtocol());
+        summary.setReceivedDateTime(atnaLog.getReceivedDateTime());
+        summary.setEventDateTime(atnaLog.getReceivedDateTime());
+        summary.setStatus("E");
+        if (atnaMessage == null) {
+            return summary;
+        }
+        if (atnaMessage.getEventDateTime() != null) {
+            summary.setEventDateTime(atnaMessage.getEventDateTime());
+        }
+        summary.setStatus(atnaMessage.getStatus());
+        summary.setEventActionCode(atnaMessage.getEventActionCode());
+        summary.setEventOutcomeIndicator(atnaMessage.getEventOutcomeIndicator());
+        List<ATNACodedValue> eventTypeCodes = atnaMessage.getEventTypeCodes();
+        if (eventTypeCodes != null && !eventTypeCodes.isEmpty()) {
+            summary.setTransactionShortName(eventTypeCodes.get(0).getCode());
+            summary.setTransactionLongName(eventTypeCodes.get(0).getDisplayName());
+        }
 
-        return atnaRecord;
+        // User = the (first) requestor, otherwise the first active participant.
+        List<ATNAActiveParticipant> activeParticipants = atnaMessage.getActiveParticipants();
+        if (activeParticipants != null) {
+            for (ATNAActiveParticipant activeParticipant : activeParticipants) {
+                if (Boolean.TRUE.equals(activeParticipant.getUserIsRequestor())) {
+                    summary.setUserID(activeParticipant.getUserID());
+                    break;
+                }
+            }
+            if (summary.getUserID() == null && !activeParticipants.isEmpty()) {
+                summary.setUserID(activeParticipants.get(0).getUserID());
+            }
+        }
+
+        // Patient = participant object of type "Person" (1) in role "Patient" (1).
+        List<ATNAParticipantObject> participantObjects = atnaMessage.getParticipantObjects();
+        if (participantObjects != null) {
+            for (ATNAParticipantObject participantObject : participantObjects) {
+                if (Integer.valueOf(1).equals(participantObject.getTypeCode())
+                        && Integer.valueOf(1).equals(participantObject.getTypeCodeRole())) {
+                    summary.setPatientID(participantObject.getId());
+                    break;
+                }
+            }
+        }
+        return summary;
     }
 
     /**
@@ -262,8 +326,7 @@ public class AuditMessageHandler {
             Schema schema = sf.newSchema(sources); */
 
             // Create JAXB UnMarshaller
-            JAXBContext jc = JAXBContext.newInstance(packageName);
-            Unmarshaller um = jc.createUnmarshaller();
+            Unmarshaller um = getJAXBContext(packageName).createUnmarshaller();
             //um.setSchema(schema);
 
             // Unmarshall the XML Message to the AuditMessage Java Object
@@ -288,6 +351,19 @@ public class AuditMessageHandler {
         }
     }
 
+    /**
+     *
+     * @param packageName
+     * @return
+     * @throws JAXBException
+     */
+    private static synchronized JAXBContext getJAXBContext(String packageName) throws JAXBException {
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(packageName);
+        }
+        return jaxbContext;
+    }
+
     /**
      *  This method parses the JAXB objects and writes the data into Java Objects used by the
      *  DAO and other classes.
@@ -319,6 +395,7 @@ public class AuditMessageHandler {
             for (AuditSourceIdentificationType jbAuditSource : jbAuditMessage.getAuditSourceIdentification()) {
                 ATNAAuditSource auditSource = new ATNAAuditSource();
                 auditSource.setUniqueID(getUniqueId());
+                auditSource.setParent(message.getUniqueID());
                 auditSource.setId(jbAuditSource.getAuditSourceID());
                 auditSource.setEnterpriseSiteID(jbAuditSource.getAuditEnterpriseSiteID());
                 auditSource.setTypeCodes(createCodedValueList(auditSource.getUniqueID(), "T", jbAuditSource.getAuditSourceTypeCode()));
@@ -333,6 +410,7 @@ public class AuditMessageHandler {
             for (ActiveParticipant jbActiveParticipant : jbAuditMessage.getActiveParticipant()) {
                 ATNAActiveParticipant activeParticipant = new ATNAActiveParticipant();
                 activeParticipant.setUniqueID(getUniqueId());
+                activeParticipant.setParent(message.getUniqueID());
                 activeParticipant.setUserID(jbActiveParticipant.getUserID());
                 activeParticipant.setAlternativeUserID(jbActiveParticipant.getAlternativeUserID());
                 activeParticipant.setUserName(jbActiveParticipant.getUserName());
@@ -351,6 +429,7 @@ public class AuditMessageHandler {
             for (ParticipantObjectIdentificationType jbParticipantObject : jbAuditMessage.getParticipantObjectIdentification()) {
                 ATNAParticipantObject participantObject = new ATNAParticipantObject();
                 participantObject.setUniqueID(getUniqueId());
+                participantObject.setParent(message.getUniqueID());
                 participantObject.setId(jbParticipantObject.getParticipantObjectID());
                 participantObject.setIdTypeCode(createCodedValueObj(participantObject.getUniqueID(), "T", jbParticipantObject.getParticipantObjectIDTypeCode()));
                 participantObject.setName(jbParticipantObject.getParticipantObjectName());
@@ -0,0 +1,144 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.atna.arr.support;
+
+import com.vangent.hieos.services.atna.arr.storage.HelperDAO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures sustained audit ingest throughput (messages/second) through the
+ * same path used by ATNAMessageBean.  Not a unit test; run directly:
+ *
+ * AuditIngestBenchmark [parse|persist] [consumers] [messages per consumer]
+ *
+ * "parse" only unmarshals the audit messages; "persist" also saves them using
+ * the AuditBatchWriter against the database configured in
+ * atnaserver.properties (jdbc_driver, jdbc_url, jdbc_user, jdbc_password) in
+ * the current directory.
+ */
+public class AuditIngestBenchmark {
+
+    private static final String AUDIT_MESSAGE =
+            "<AuditMessage>"
+            + "<EventIdentification EventActionCode=\"E\" EventDateTime=\"2013-01-01T12:00:00.000Z\" EventOutcomeIndicator=\"0\">"
+            + "<EventID code=\"110112\" codeSystemName=\"DCM\" displayName=\"Query\"/>"
+            + "<EventTypeCode code=\"ITI-18\" codeSystemName=\"IHE Transactions\" displayName=\"Registry Stored Query\"/>"
+            + "</EventIdentification>"
+            + "<ActiveParticipant UserID=\"http://localhost:8080/axis2/services/xdsregistryb\" UserIsRequestor=\"false\" NetworkAccessPointID=\"127.0.0.1\" NetworkAccessPointTypeCode=\"2\">"
+            + "<RoleIDCode code=\"110152\" codeSystemName=\"DCM\" displayName=\"Destination\"/>"
+            + "</ActiveParticipant>"
+            + "<ActiveParticipant UserID=\"urn:oid:1.3.6.1.4.1.21367.13.40.200\" UserIsRequestor=\"true\" NetworkAccessPointID=\"127.0.0.1\" NetworkAccessPointTypeCode=\"2\">"
+            + "<RoleIDCode code=\"110153\" codeSystemName=\"DCM\" displayName=\"Source\"/>"
+            + "</ActiveParticipant>"
+            + "<AuditSourceIdentification AuditSourceID=\"HIEOS\"/>"
+            + "<ParticipantObjectIdentification ParticipantObjectID=\"1234567^^^&amp;1.3.6.1.4.1.21367.2005.3.7&amp;ISO\" ParticipantObjectTypeCode=\"1\" ParticipantObjectTypeCodeRole=\"1\">"
+            + "<ParticipantObjectIDTypeCode code=\"2\"/>"
+            + "</ParticipantObjectIdentification>"
+            + "<ParticipantObjectIdentification ParticipantObjectID=\"urn:uuid:14d4debf-8f97-4251-9a74-a90016b0af0d\" ParticipantObjectTypeCode=\"2\" ParticipantObjectTypeCodeRole=\"24\">"
+            + "<ParticipantObjectIDTypeCode code=\"ITI-18\" codeSystemName=\"IHE Transactions\" displayName=\"Registry Stored Query\"/>"
+            + "<ParticipantObjectQuery>PEFkaG9jUXVlcnkvPg==</ParticipantObjectQuery>"
+            + "<ParticipantObjectDetail type=\"QueryEncoding\" value=\"VVRGLTg=\"/>"
+            + "</ParticipantObjectIdentification>"
+            + "</AuditMessage>";
+    private final boolean persist;
+    private final int consumers;
+    private final int messagesPerConsumer;
+
+    /**
+     *
+     * @param persist
+     * @param consumers
+     * @param messagesPerConsumer
+     */
+    public AuditIngestBenchmark(boolean persist, int consumers, int messagesPerConsumer) {
+        this.persist = persist;
+        this.consumers = consumers;
+        this.messagesPerConsumer = messagesPerConsumer;
+    }
+
+    /**
+     *
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        boolean persist = args.length > 0 ? args[0].equalsIgnoreCase("persist") : false;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int messagesPerConsumer = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        if (persist) {
+            HelperDAO.setDirectConnection(true);
+        }
+        AuditIngestBenchmark benchmark = new AuditIngestBenchmark(persist, consumers, messagesPerConsumer);
+
+        // Warm up, then measure.
+        benchmark.run();
+        System.out.println((persist ? "persist" : "parse") + " (" + consumers + " consumers): "
+                + benchmark.run() + " msgs/sec");
+        if (persist) {
+            System.out.println(AuditBatchWriter.getInstance().getStatistics());
+        }
+        System.exit(0);
+    }
+
+    /**
+     *
+     * @return Messages per second.
+     * @throws Exception
+     */
+    public long run() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(consumers);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < consumers; i++) {
+                results.add(executor.submit(new Consumer()));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            return (total * 1000L) / elapsed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Simulates one message bean instance.
+     */
+    private class Consumer implements Callable<Integer> {
+
+        /**
+         *
+         * @return
+         * @throws Exception
+         */
+        public Integer call() throws Exception {
+            for (int i = 0; i < messagesPerConsumer; i++) {
+                AuditMessageHandler handler = new AuditMessageHandler();
+                handler.createATNAMessage(AUDIT_MESSAGE);
+                if (persist) {
+                    handler.createATNALog("127.0.0.1", 3100, "TCP", AUDIT_MESSAGE, null);
+                    handler.persistMessageAndLog();
+                }
+            }
+            return messagesPerConsumer;
+        }
+    }
+}
@@ -13,8 +13,14 @@
 package com.vangent.hieos.services.atna.arr.serviceimpl;
 
 import com.vangent.hieos.services.atna.arr.support.ATNARecord;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchCriteria;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchResult;
+import com.vangent.hieos.services.atna.arr.support.AuditException;
 import com.vangent.hieos.services.atna.arr.transactions.QueryAuditData;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
@@ -33,6 +39,12 @@ import org.apache.log4j.Logger;
 public class ATNARepository {
 
     private static final Logger logger = Logger.getLogger(ATNARepository.class);
+    private static final String DATE_FORMAT = "yyyy-MM-dd.HH:mm:ss.SSS";
+    private static final String DATE_ONLY_FORMAT = "yyyy-MM-dd";
+    // Page size used when the search request does not give maxResults.
+    private static final int DEFAULT_MAX_RESULTS = 100;
+    // Largest page size a search request may ask for.
+    private static final int MAX_RESULTS_LIMIT = 1000;
 
     /**
      * Retrieves a list of IP Addressses that have sent audit logs
@@ -57,7 +69,7 @@ public class ATNARepository {
     }
 
     /**
-     * Retrieves a list of audit records for an IP Address
+     * Retrieves a list of audit records (without XML) for an IP Address
      *
      * @param  request - ipAddress
      * @return OMElement - List<ATNARecord>
@@ -73,39 +85,50 @@ public class ATNARepository {
         List<ATNARecord> atnaRecords = query.retrieveAuditList(ipAddress);
         OMElement atnaRecordsNode = omfactory.createOMElement("atnaRecords", ns);
         for (ATNARecord atnaRecord : atnaRecords) {
-            OMElement atnaRecordNode = omfactory.createOMElement("atnaRecord", ns);
-
-            atnaRecordNode.addChild(createChildNode("uniqueId", ns, atnaRecord.getUniqueID()));
-            atnaRecordNode.addChild(createChildNode("clientIPAddress", ns, atnaRecord.getClientIPAddress()));
-            atnaRecordNode.addChild(createChildNode("protocol", ns, atnaRecord.getProtocol()));
-            atnaRecordNode.addChild(createChildNode("status", ns, atnaRecord.getStatus()));
-
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd.HH:mm:ss.SSS");
-            //String receivedDateTimeStr = "2011-02-19T16:35:15.828";
-            String receivedDateTimeStr = sdf.format(atnaRecord.getReceivedDateTime());
-            atnaRecordNode.addChild(createChildNode("receivedDateTime", ns, receivedDateTimeStr));
-            //TODO - Retrieve Event Date Time from the database
-            atnaRecord.setEventDateTime(atnaRecord.getReceivedDateTime());
-            String eventDateTimeStr = sdf.format(atnaRecord.getEventDateTime());
-            atnaRecordNode.addChild(createChildNode("eventDateTime", ns, eventDateTimeStr));
-
-            atnaRecordNode.addChild(createChildNode("transactionShortName", ns, atnaRecord.getTransactionShortName()));
-            atnaRecordNode.addChild(createChildNode("transactionLongName", ns, atnaRecord.getTransactionLongName()));
-
-            System.out.println("XML log entry = " + atnaRecord.getXml());
-            byte[] syslogBase64Bytes = Base64.encodeBase64(atnaRecord.getXml().getBytes());
-            System.out.println("XML log entry (base64) = " + new String(syslogBase64Bytes));
-            atnaRecordNode.addChild(createChildNode("syslog", ns, new String(syslogBase64Bytes)));
+            atnaRecordsNode.addChild(createATNARecordNode(atnaRecord, ns));
+        }
+        return atnaRecordsNode;
+    }
 
-            atnaRecordNode.addChild(createChildNode("errorMessage", ns, atnaRecord.getErrorMessage()));
+    /**
+     * Searches audit records by event time range, patient id, user id, event
+     * type and outcome (all optional), newest first.  Returns one page of
+     * records (without XML) and, if there are more, the token for the next page.
+     *
+     * Request: searchAudits with optional children startDateTime (inclusive),
+     * endDateTime (exclusive), clientIPAddress, patientId, userId,
+     * transactionShortName, eventOutcomeIndicator, maxResults and pageToken.
+     *
+     * @param  request
+     * @return OMElement - atnaRecords (and nextPageToken)
+     */
+    public OMElement searchAudits(OMElement request) {
+        OMFactory omfactory = OMAbstractFactory.getOMFactory();
+        OMNamespace ns = omfactory.createOMNamespace("urn:hieos:atna", "atna");
+        OMElement atnaRecordsNode = omfactory.createOMElement("atnaRecords", ns);
+        ATNASearchCriteria searchCriteria;
+        try {
+            searchCriteria = getSearchCriteria(request);
+        } catch (Exception ex) {
+            logger.error("ARRRepository - invalid searchAudits request: " + ex.getMessage());
+            atnaRecordsNode.addChild(createChildNode("errorMessage", ns, "Invalid request: " + ex.getMessage()));
+            return atnaRecordsNode;
+        }
 
-            atnaRecordsNode.addChild(atnaRecordNode);
+        QueryAuditData query = new QueryAuditData();
+        ATNASearchResult result = query.searchAuditList(searchCriteria);
+        for (ATNARecord atnaRecord : result.getATNARecords()) {
+            atnaRecordsNode.addChild(createATNARecordNode(atnaRecord, ns));
+        }
+        if (result.getNextPageToken() != null) {
+            atnaRecordsNode.addChild(createChildNode("nextPageToken", ns, result.getNextPageToken()));
         }
         return atnaRecordsNode;
     }
 
     /**
-     * Retrieves the Audit Data for a specified audit record
+     * Retrieves the Audit Data (including the XML received) for a specified
+     * audit record
      *
      * @param  request
      * @return OMElement
@@ -114,17 +137,126 @@ public class ATNARepository {
         logger.info("ARRRepository - retrieveAuditDetails");
         OMFactory omfactory = OMAbstractFactory.getOMFactory();
         OMNamespace ns = omfactory.createOMNamespace("urn:hieos:atna", "atna");
-        String auditUniqueId = request.getText();
+        String auditUniqueId = request.getFirstElement() != null
+                ? request.getFirstElement().getText() : request.getText();
 
         QueryAuditData query = new QueryAuditData();
         ATNARecord atnaRecord = query.retrieveAuditDetail(auditUniqueId);
 
-        OMElement atnaRecordNode = omfactory.createOMElement("atnaRecord", ns);
-        // populate node with atnaRecord data
+        OMElement atnaRecordNode = createATNARecordNode(atnaRecord, ns);
+        atnaRecordNode.addChild(createChildNode("clientPort", ns, atnaRecord.getClientPort()));
+        if (atnaRecord.getXml() != null) {
+            byte[] syslogBase64Bytes = Base64.encodeBase64(atnaRecord.getXml().getBytes());
+            atnaRecordNode.addChild(createChildNode("syslog", ns, new String(syslogBase64Bytes)));
+        }
+        atnaRecordNode.addChild(createChildNode("errorMessage", ns, atnaRecord.getErrorMessage()));
+        return atnaRecordNode;
+    }
 
+    /**
+     *
+     * @param atnaRecord
+     * @param ns
+     * @return
+     */
+    private OMElement createATNARecordNode(ATNARecord atnaRecord, OMNamespace ns) {
+        OMFactory omfactory = OMAbstractFactory.getOMFactory();
+        OMElement atnaRecordNode = omfactory.createOMElement("atnaRecord", ns);
+        SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
+        atnaRecordNode.addChild(createChildNode("uniqueId", ns, atnaRecord.getUniqueID()));
+        atnaRecordNode.addChild(createChildNode("clientIPAddress", ns, atnaRecord.getClientIPAddress()));
+        atnaRecordNode.addChild(createChildNode("protocol", ns, atnaRecord.getProtocol()));
+        atnaRecordNode.addChild(createChildNode("status", ns, atnaRecord.getStatus()));
+        if (atnaRecord.getReceivedDateTime() != null) {
+            atnaRecordNode.addChild(createChildNode("receivedDateTime", ns, sdf.format(atnaRecord.getReceivedDateTime())));
+        }
+        if (atnaRecord.getEventDateTime() != null) {
+            atnaRecordNode.addChild(createChildNode("eventDateTime", ns, sdf.format(atnaRecord.getEventDateTime())));
+        }
+        atnaRecordNode.addChild(createChildNode("transactionShortName", ns, atnaRecord.getTransactionShortName()));
+        atnaRecordNode.addChild(createChildNode("transactionLongName", ns, atnaRecord.getTransactionLongName()));
+        atnaRecordNode.addChild(createChildNode("eventActionCode", ns, atnaRecord.getEventActionCode()));
+        if (atnaRecord.getEventOutcomeIndicator() != null) {
+            atnaRecordNode.addChild(createChildNode("eventOutcomeIndicator", ns, atnaRecord.getEventOutcomeIndicator().toString()));
+        }
+        atnaRecordNode.addChild(createChildNode("userId", ns, atnaRecord.getUserID()));
+        atnaRecordNode.addChild(createChildNode("patientId", ns, atnaRecord.getPatientID()));
         return atnaRecordNode;
     }
 
+    /**
+     *
+     * @param request
+     * @return
+     * @throws AuditException
+     * @throws ParseException
+     */
+    private ATNASearchCriteria getSearchCriteria(OMElement request) throws AuditException, ParseException {
+        ATNASearchCriteria searchCriteria = new ATNASearchCriteria();
+        searchCriteria.setMaxResults(DEFAULT_MAX_RESULTS);
+        for (Iterator<?> it = request.getChildElements(); it.hasNext();) {
+            OMElement child = (OMElement) it.next();
+            String name = child.getLocalName();
+            String value = child.getText().trim();
+            if (value.length() == 0) {
+                continue;
+            }
+            if (name.equals("startDateTime")) {
+                searchCriteria.setStartDateTime(parseDate(value));
+            } else if (name.equals("endDateTime")) {
+                searchCriteria.setEndDateTime(parseDate(value));
+            } else if (name.equals("clientIPAddress")) {
+                searchCriteria.setClientIPAddress(value);
+            } else if (name.equals("patientId")) {
+                searchCriteria.setPatientID(value);
+            } else if (name.equals("userId")) {
+                searchCriteria.setUserID(value);
+            } else if (name.equals("transactionShortName")) {
+                searchCriteria.setEventTypeCode(value);
+            } else if (name.equals("eventOutcomeIndicator")) {
+                searchCriteria.setEventOutcomeIndicator(parseInt(name, value));
+            } else if (name.equals("maxResults")) {
+                int maxResults = parseInt(name, value);
+                if (maxResults < 1) {
+                    throw new AuditException("maxResults must be positive");
+                }
+                searchCriteria.setMaxResults(Math.min(maxResults, MAX_RESULTS_LIMIT));
+            } else if (name.equals("pageToken")) {
+                searchCriteria.setPageToken(value);
+            }
+        }
+        return searchCriteria;
+    }
+
+    /**
+     * Accepts the format used in responses or a date alone.
+     *
+     * @param value
+     * @return
+     * @throws ParseException
+     */
+    private static Date parseDate(String value) throws ParseException {
+        String format = value.length() == DATE_ONLY_FORMAT.length() ? DATE_ONLY_FORMAT : DATE_FORMAT;
+        SimpleDateFormat sdf = new SimpleDateFormat(format);
+        sdf.setLenient(false);
+        return sdf.parse(value);
+    }
+
+    /**
+     *
+     * @param name
+     * @param value
+     * @return
+     * @throws AuditException
+     */
+    private static int parseInt(String name, String value) throws AuditException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new AuditException(name + " is not a number: " + value);
+        }
+    }
+
     /**
      *
      * @param nodeName
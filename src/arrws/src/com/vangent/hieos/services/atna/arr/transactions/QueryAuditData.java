@@ -13,6 +13,8 @@
 package com.vangent.hieos.services.atna.arr.transactions;
 
 import com.vangent.hieos.services.atna.arr.support.ATNARecord;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchCriteria;
+import com.vangent.hieos.services.atna.arr.support.ATNASearchResult;
 import com.vangent.hieos.services.atna.arr.support.AuditException;
 import com.vangent.hieos.services.atna.arr.support.AuditMessageHandler;
 import java.util.ArrayList;
@@ -68,6 +70,22 @@ public class QueryAuditData {
         }
     }
 
+    /**
+     * Retrieves a page of audit records (without XML) matching the search criteria
+     *
+     * @param  searchCriteria
+     * @return ATNASearchResult
+     */
+    public ATNASearchResult searchAuditList(ATNASearchCriteria searchCriteria) {
+        try {
+            AuditMessageHandler handler = new AuditMessageHandler();
+            return handler.searchATNARecords(searchCriteria);
+        } catch (AuditException ex) {
+            logger.error(ex);
+            return new ATNASearchResult();
+        }
+    }
+
     /**
      * Retrieves the Audit Data for a specified audit record
      *
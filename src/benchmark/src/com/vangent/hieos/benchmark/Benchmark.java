@@ -0,0 +1,47 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark;
+
+/**
+ * A repeatable unit of work measured by the BenchmarkRunner.
+ */
+public interface Benchmark {
+
+    /**
+     *
+     * @return Name used in benchmark results (e.g. "Metadata.reindex").
+     */
+    public String getName();
+
+    /**
+     * Prepares (un-timed) state for the benchmark.
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception;
+
+    /**
+     * Runs one (timed) operation.
+     *
+     * @return Result of the operation (consumed by the runner so the work can not be optimized away).
+     * @throws Exception
+     */
+    public Object run() throws Exception;
+
+    /**
+     * Releases any state held by the benchmark.
+     *
+     * @throws Exception
+     */
+    public void tearDown() throws Exception;
+}
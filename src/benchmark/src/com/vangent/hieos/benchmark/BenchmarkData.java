@@ -0,0 +1,195 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark;
+
+import com.vangent.hieos.xutil.iosupport.Io;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generates the (synthetic) messages used by the benchmarks.
+ */
+public class BenchmarkData {
+
+    /**
+     * System property holding the benchmark data directory (default "data").
+     */
+    public static final String SYSPROP_DATA_DIR = "com.vangent.hieos.benchmark.datadir";
+    private static final String PRPA_IN201301UV02_TEMPLATE = "PRPA_IN201301UV02.xml";
+    private static final String[] GIVEN_NAMES = {"JOHN", "JON", "JOHNNY", "JANE", "JANET", "ROBERT", "ROBBIE", "MARY", "MARIE", "WILLIAM"};
+    private static final String[] FAMILY_NAMES = {"SMITH", "SMYTHE", "JOHNSON", "JONSON", "WILLIAMS", "WILLIAMSON", "BROWN", "BRAUN", "JONES", "MILLER"};
+    private static final String[] CITIES = {"METROPOLIS", "SMALLVILLE", "GOTHAM", "SPRINGFIELD", "SHELBYVILLE"};
+    private static String prpaTemplate = null;
+
+    /**
+     * Returns an ebXML v3 SubmitObjectsRequest holding a submission set with the
+     * given number of documents (each with its own classifications, external
+     * identifiers and HasMember association).
+     *
+     * @param documentCount
+     * @return
+     */
+    public static String getSubmitObjectsRequest(int documentCount) {
+        String pid = "1809083c2bef47b^^^&amp;1.3.6.1.4.1.21367.2005.3.7&amp;ISO";
+        StringBuilder sb = new StringBuilder();
+        sb.append("<lcm:SubmitObjectsRequest xmlns:lcm=\"urn:oasis:names:tc:ebxml-regrep:xsd:lcm:3.0\"");
+        sb.append(" xmlns:rim=\"urn:oasis:names:tc:ebxml-regrep:xsd:rim:3.0\">");
+        sb.append("<rim:RegistryObjectList>");
+        for (int i = 1; i <= documentCount; i++) {
+            String docId = "Document" + i;
+            sb.append("<rim:ExtrinsicObject id=\"").append(docId).append("\" mimeType=\"text/xml\"");
+            sb.append(" objectType=\"urn:uuid:7edca82f-054d-47f2-a032-9b2a5b5186c1\">");
+            appendSlot(sb, "creationTime", "20060105");
+            appendSlot(sb, "languageCode", "en-us");
+            appendSlot(sb, "serviceStartTime", "200601040830");
+            appendSlot(sb, "serviceStopTime", "200601041400");
+            appendSlot(sb, "sourcePatientId", pid);
+            appendName(sb, "Document " + i);
+            appendClassification(sb, uuid(i, 1), "urn:uuid:41a5887f-8865-4c09-adf7-e362475b143a", docId, "Operative", "Connect-a-thon classCodes");
+            appendClassification(sb, uuid(i, 2), "urn:uuid:f4f85eac-e6cb-4883-b524-f2705394840f", docId, "1.3.6.1.4.1.21367.2006.7.104", "Connect-a-thon confidentialityCodes");
+            appendClassification(sb, uuid(i, 3), "urn:uuid:a09d5840-386c-46f2-b5ad-9c3699a4309d", docId, "CDAR2/IHE 1.0", "Connect-a-thon formatCodes");
+            appendClassification(sb, uuid(i, 4), "urn:uuid:f33fb8ac-18af-42cc-ae0e-ed0b0bdb91e1", docId, "Hospital Setting", "Connect-a-thon healthcareFacilityTypeCodes");
+            appendClassification(sb, uuid(i, 5), "urn:uuid:cccf5598-8b07-4b77-a05e-ae952c785ead", docId, "Laboratory", "Connect-a-thon practiceSettingCodes");
+            appendClassification(sb, uuid(i, 6), "urn:uuid:f0306f51-975f-434e-a61c-c59651d33983", docId, "Laboratory Report", "Connect-a-thon TypeCode");
+            appendExternalIdentifier(sb, uuid(i, 7), docId, "urn:uuid:58a6f841-87b3-4a3e-92fd-a8ffeff98427", pid, "XDSDocumentEntry.patientId");
+            appendExternalIdentifier(sb, uuid(i, 8), docId, "urn:uuid:2e82c1f6-a085-4c72-9da3-8640a32e42ab", "1.3.6.1.4.1.21367.2006.7.104." + i, "XDSDocumentEntry.uniqueId");
+            sb.append("</rim:ExtrinsicObject>");
+        }
+        sb.append("<rim:RegistryPackage id=\"SubmissionSet01\">");
+        appendSlot(sb, "submissionTime", "20060105");
+        appendName(sb, "Benchmark Submission Set");
+        appendClassification(sb, uuid(0, 1), "urn:uuid:aa543740-bdda-424e-8c96-df4873be8500", "SubmissionSet01", "Discharge summarization", "Connect-a-thon contentTypeCodes");
+        appendExternalIdentifier(sb, uuid(0, 2), "SubmissionSet01", "urn:uuid:96fdda7c-d067-4183-912e-bf5ee74998a8", "1.3.6.1.4.1.21367.2006.7.104.33343443", "XDSSubmissionSet.uniqueId");
+        appendExternalIdentifier(sb, uuid(0, 3), "SubmissionSet01", "urn:uuid:554ac39e-e3fe-47fe-b233-965d2a147832", "1.3.6.1.4.1.21367.2005.3.999.900", "XDSSubmissionSet.sourceId");
+        appendExternalIdentifier(sb, uuid(0, 4), "SubmissionSet01", "urn:uuid:6b5aea1a-874d-4603-a4bc-96a0a7b38446", pid, "XDSSubmissionSet.patientId");
+        sb.append("</rim:RegistryPackage>");
+        sb.append("<rim:Classification id=\"").append(uuid(0, 5)).append("\" classifiedObject=\"SubmissionSet01\"");
+        sb.append(" classificationNode=\"urn:uuid:a54d6aa5-d40d-43f9-88c5-b4633d873bdd\"/>");
+        for (int i = 1; i <= documentCount; i++) {
+            sb.append("<rim:Association id=\"").append(uuid(i, 9)).append("\"");
+            sb.append(" associationType=\"urn:oasis:names:tc:ebxml-regrep:AssociationType:HasMember\"");
+            sb.append(" sourceObject=\"SubmissionSet01\" targetObject=\"Document").append(i).append("\">");
+            appendSlot(sb, "SubmissionSetStatus", "Original");
+            sb.append("</rim:Association>");
+        }
+        sb.append("</rim:RegistryObjectList>");
+        sb.append("</lcm:SubmitObjectsRequest>");
+        return sb.toString();
+    }
+
+    /**
+     * Returns a PRPA_IN201301UV02 (patient registry record added) message for a
+     * synthetic patient.  Patients with nearby sequence numbers have similar
+     * (but not identical) demographics.
+     *
+     * @param sequence
+     * @return
+     * @throws IOException
+     */
+    public static String getPRPA_IN201301UV02(int sequence) throws IOException {
+        String message = getPRPATemplate();
+        message = message.replace("{PATIENT_ID}", "BENCH" + sequence);
+        message = message.replace("{ASSIGNING_AUTHORITY}", "1.3.6.1.4.1.21367.2005.3.7");
+        message = message.replace("{LOCAL_PATIENT_ID}", "LOCAL" + sequence);
+        message = message.replace("{LOCAL_ASSIGNING_AUTHORITY}", "1.3.6.1.4.1.21367.2009.1.2.300");
+        message = message.replace("{GIVEN_NAME}", GIVEN_NAMES[sequence % GIVEN_NAMES.length]);
+        message = message.replace("{FAMILY_NAME}", FAMILY_NAMES[(sequence / GIVEN_NAMES.length) % FAMILY_NAMES.length]);
+        message = message.replace("{GENDER_CODE}", (sequence % 2 == 0) ? "M" : "F");
+        message = message.replace("{BIRTH_TIME}", String.format("19%02d%02d%02d", 40 + (sequence % 60), 1 + (sequence % 12), 1 + (sequence % 28)));
+        message = message.replace("{STREET_ADDRESS_LINE}", (100 + sequence) + " MAIN ST");
+        message = message.replace("{CITY}", CITIES[sequence % CITIES.length]);
+        message = message.replace("{STATE}", "IL");
+        message = message.replace("{POSTAL_CODE}", String.format("%05d", 44000 + (sequence % 1000)));
+        message = message.replace("{RACE_CODE}", "2106-3");
+        message = message.replace("{SSN}", String.format("%09d", 123450000 + sequence));
+        return message;
+    }
+
+    /**
+     *
+     * @return
+     * @throws IOException
+     */
+    private static synchronized String getPRPATemplate() throws IOException {
+        if (prpaTemplate == null) {
+            String dataDir = System.getProperty(SYSPROP_DATA_DIR, "data");
+            prpaTemplate = Io.stringFromFile(new File(dataDir, PRPA_IN201301UV02_TEMPLATE));
+        }
+        return prpaTemplate;
+    }
+
+    /**
+     *
+     * @param sb
+     * @param name
+     * @param value
+     */
+    private static void appendSlot(StringBuilder sb, String name, String value) {
+        sb.append("<rim:Slot name=\"").append(name).append("\"><rim:ValueList><rim:Value>");
+        sb.append(value).append("</rim:Value></rim:ValueList></rim:Slot>");
+    }
+
+    /**
+     *
+     * @param sb
+     * @param value
+     */
+    private static void appendName(StringBuilder sb, String value) {
+        sb.append("<rim:Name><rim:LocalizedString value=\"").append(value).append("\"/></rim:Name>");
+    }
+
+    /**
+     *
+     * @param sb
+     * @param id
+     * @param scheme
+     * @param classifiedObject
+     * @param code
+     * @param codingScheme
+     */
+    private static void appendClassification(StringBuilder sb, String id, String scheme,
+            String classifiedObject, String code, String codingScheme) {
+        sb.append("<rim:Classification id=\"").append(id).append("\" classificationScheme=\"").append(scheme);
+        sb.append("\" classifiedObject=\"").append(classifiedObject).append("\" nodeRepresentation=\"").append(code).append("\">");
+        appendSlot(sb, "codingScheme", codingScheme);
+        appendName(sb, code);
+        sb.append("</rim:Classification>");
+    }
+
+    /**
+     *
+     * @param sb
+     * @param id
+     * @param registryObject
+     * @param scheme
+     * @param value
+     * @param name
+     */
+    private static void appendExternalIdentifier(StringBuilder sb, String id, String registryObject,
+            String scheme, String value, String name) {
+        sb.append("<rim:ExternalIdentifier id=\"").append(id).append("\" registryObject=\"").append(registryObject);
+        sb.append("\" identificationScheme=\"").append(scheme).append("\" value=\"").append(value).append("\">");
+        appendName(sb, name);
+        sb.append("</rim:ExternalIdentifier>");
+    }
+
+    /**
+     *
+     * @param document
+     * @param item
+     * @return
+     */
+    private static String uuid(int document, int item) {
+        return String.format("urn:uuid:%08x-0000-4000-8000-%012x", document, item);
+    }
+}
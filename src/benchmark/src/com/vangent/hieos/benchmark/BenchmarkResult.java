@@ -0,0 +1,165 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latency and throughput for one benchmark run.
+ */
+public class BenchmarkResult {
+
+    private final String name;
+    private final long[] latencies;  // Nanoseconds per operation (sorted).
+    private final long elapsedNanos;
+    private String error = null;
+
+    /**
+     *
+     * @param name
+     * @param latencies
+     * @param elapsedNanos
+     */
+    public BenchmarkResult(String name, long[] latencies, long elapsedNanos) {
+        this.name = name;
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+        this.elapsedNanos = Math.max(1, elapsedNanos);
+    }
+
+    /**
+     *
+     * @param name
+     * @param error
+     */
+    public BenchmarkResult(String name, String error) {
+        this(name, new long[0], 0);
+        this.error = error;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getOperations() {
+        return latencies.length;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getOpsPerSecond() {
+        return (latencies.length * 1000000000.0) / elapsedNanos;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMeanMicros() {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        return (total / (double) latencies.length) / 1000.0;
+    }
+
+    /**
+     * Returns the latency (nearest rank) at the given percentile.
+     *
+     * @param percentile 0-100.
+     * @return
+     */
+    public double getPercentileMicros(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil((percentile / 100.0) * latencies.length);
+        return latencies[Math.min(latencies.length, Math.max(1, rank)) - 1] / 1000.0;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String toXML() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("  <benchmark name=\"").append(name).append("\"");
+        if (error != null) {
+            sb.append(" error=\"").append(escape(error)).append("\"/>");
+        } else {
+            sb.append(" operations=\"").append(this.getOperations()).append("\"");
+            sb.append(" opsPerSecond=\"").append(format(this.getOpsPerSecond())).append("\"");
+            sb.append(" meanMicros=\"").append(format(this.getMeanMicros())).append("\"");
+            sb.append(" p50Micros=\"").append(format(this.getPercentileMicros(50))).append("\"");
+            sb.append(" p90Micros=\"").append(format(this.getPercentileMicros(90))).append("\"");
+            sb.append(" p99Micros=\"").append(format(this.getPercentileMicros(99))).append("\"");
+            sb.append(" maxMicros=\"").append(format(this.getPercentileMicros(100))).append("\"/>");
+        }
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        if (error != null) {
+            return String.format("%-40s FAILED: %s", name, error);
+        }
+        return String.format("%-40s %8d ops %12.1f ops/sec  mean %10.1f  p50 %10.1f  p90 %10.1f  p99 %10.1f  max %10.1f (us)",
+                name, this.getOperations(), this.getOpsPerSecond(), this.getMeanMicros(),
+                this.getPercentileMicros(50), this.getPercentileMicros(90),
+                this.getPercentileMicros(99), this.getPercentileMicros(100));
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
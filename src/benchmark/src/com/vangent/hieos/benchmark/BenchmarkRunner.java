@@ -0,0 +1,223 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark;
+
+import com.vangent.hieos.benchmark.atna.AuditMessageBenchmark;
+import com.vangent.hieos.benchmark.empi.FRILMatchBenchmark;
+import com.vangent.hieos.benchmark.hl7v2.HL7v2AcceptorBenchmark;
+import com.vangent.hieos.benchmark.hl7v3.SubjectBuilderBenchmark;
+import com.vangent.hieos.benchmark.metadata.MetadataParseBenchmark;
+import com.vangent.hieos.benchmark.metadata.MetadataReindexBenchmark;
+import com.vangent.hieos.benchmark.policy.PDPEvaluateBenchmark;
+import com.vangent.hieos.benchmark.xml.XMLSchemaValidatorBenchmark;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs the benchmark suite and writes the results (XML) so that they can be
+ * compared between builds.  Run from ant ("ant benchmark") or directly:
+ *
+ * BenchmarkRunner [-warmup <ops>] [-iterations <ops>] [-only <name prefix>] [-output <file>]
+ *
+ * Configuration (EMPI, policy, schema) is read from the usual HIEOS locations
+ * (e.g. -Dcom.vangent.hieos.configdir=...).  No external services are used.
+ */
+public class BenchmarkRunner {
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final String only;
+    private static volatile int sink = 0;  // Consumes benchmark results.
+
+    /**
+     *
+     * @param warmupIterations
+     * @param measuredIterations
+     * @param only
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations, String only) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.only = only;
+    }
+
+    /**
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int warmup = 200;
+        int iterations = 1000;
+        String only = null;
+        String output = "benchmark-results.xml";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-warmup") && i + 1 < args.length) {
+                    warmup = Integer.parseInt(args[++i]);
+                } else if (arg.equals("-iterations") && i + 1 < args.length) {
+                    iterations = Integer.parseInt(args[++i]);
+                } else if (arg.equals("-only") && i + 1 < args.length) {
+                    only = args[++i];
+                } else if (arg.equals("-output") && i + 1 < args.length) {
+                    output = args[++i];
+                } else {
+                    usage();
+                    System.exit(-1);
+                }
+            }
+        } catch (NumberFormatException ex) {
+            usage();
+            System.exit(-1);
+        }
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, only);
+        List<BenchmarkResult> results = runner.run(getBenchmarks());
+        boolean failed = false;
+        for (BenchmarkResult result : results) {
+            failed |= (result.getError() != null);
+        }
+        try {
+            runner.writeResults(results, new File(output));
+            System.out.println("Benchmark results written to " + new File(output).getAbsolutePath());
+        } catch (IOException ex) {
+            System.err.println("Unable to write benchmark results: " + ex.getMessage());
+            failed = true;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new FRILMatchBenchmark());
+        benchmarks.add(new MetadataParseBenchmark());
+        benchmarks.add(new MetadataReindexBenchmark());
+        benchmarks.add(new SubjectBuilderBenchmark());
+        benchmarks.add(new XMLSchemaValidatorBenchmark());
+        benchmarks.add(new PDPEvaluateBenchmark());
+        benchmarks.add(new AuditMessageBenchmark());
+        benchmarks.add(new HL7v2AcceptorBenchmark(false, false));
+        benchmarks.add(new HL7v2AcceptorBenchmark(true, false));
+        benchmarks.add(new HL7v2AcceptorBenchmark(true, true));
+        return benchmarks;
+    }
+
+    /**
+     *
+     * @param benchmarks
+     * @return
+     */
+    public List<BenchmarkResult> run(List<Benchmark> benchmarks) {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        for (Benchmark benchmark : benchmarks) {
+            if (only != null && !benchmark.getName().startsWith(only)) {
+                continue;
+            }
+            BenchmarkResult result = this.run(benchmark);
+            System.out.println(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     *
+     * @param benchmark
+     * @return
+     */
+    public BenchmarkResult run(Benchmark benchmark) {
+        try {
+            benchmark.setUp();
+            try {
+                for (int i = 0; i < warmupIterations; i++) {
+                    consume(benchmark.run());
+                }
+                long[] latencies = new long[measuredIterations];
+                long start = System.nanoTime();
+                for (int i = 0; i < measuredIterations; i++) {
+                    long opStart = System.nanoTime();
+                    consume(benchmark.run());
+                    latencies[i] = System.nanoTime() - opStart;
+                }
+                long elapsedNanos = System.nanoTime() - start;
+                return new BenchmarkResult(benchmark.getName(), latencies, elapsedNanos);
+            } finally {
+                benchmark.tearDown();
+            }
+        } catch (Exception ex) {
+            return new BenchmarkResult(benchmark.getName(), ex.getClass().getName() + ": " + ex.getMessage());
+        } catch (LinkageError ex) {
+            // E.g. static initialization failures; report and continue with the next benchmark.
+            return new BenchmarkResult(benchmark.getName(), ex.getClass().getName() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     *
+     * @param results
+     * @param file
+     * @throws IOException
+     */
+    public void writeResults(List<BenchmarkResult> results, File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date());
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<benchmarks timestamp=\"" + timestamp + "\""
+                    + " javaVersion=\"" + System.getProperty("java.version") + "\""
+                    + " warmupIterations=\"" + warmupIterations + "\""
+                    + " iterations=\"" + measuredIterations + "\">\n");
+            for (BenchmarkResult result : results) {
+                writer.write(result.toXML());
+                writer.write("\n");
+            }
+            writer.write("</benchmarks>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     *
+     * @param result
+     */
+    private static void consume(Object result) {
+        if (result != null) {
+            sink += result.hashCode();
+        }
+    }
+
+    /**
+     *
+     */
+    private static void usage() {
+        System.out.println(
+                "\n"
+                + "Usage: BenchmarkRunner [options]\n"
+                + "     where options are:\n"
+                + "   -warmup <ops> : Un-timed operations per benchmark (default 200)\n"
+                + "   -iterations <ops> : Timed operations per benchmark (default 1000)\n"
+                + "   -only <name prefix> : Only run benchmarks whose name starts with prefix\n"
+                + "   -output <file> : Results file (default benchmark-results.xml)\n");
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.atna;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.xutil.atna.AuditMessageBuilder;
+import com.vangent.hieos.xutil.atna.CodedValueType;
+
+/**
+ * Builds and serializes a registry stored query audit message (the message is
+ * not sent to the ARR).
+ */
+public class AuditMessageBenchmark implements Benchmark {
+
+    private static final String DCM = "DCM";
+    private static final byte[] QUERY = "<query:AdhocQueryRequest/>".getBytes();
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "AuditMessageBuilder.buildMessage";
+    }
+
+    /**
+     *
+     */
+    public void setUp() {
+        // Nothing to do.
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        AuditMessageBuilder amb = new AuditMessageBuilder(null, null,
+                getCodedValueType("110112", DCM, "Query"),
+                getCodedValueType("ITI-18", "IHE Transactions", "Registry Stored Query"), "E", "0");
+        amb.setAuditSource("HIEOS", null, null);
+        amb.setActiveParticipant("http://localhost:8080/axis2/services/xdsregistryb", "1234", null, "true",
+                getCodedValueType("110153", DCM, "Source"), "2", "127.0.0.1");
+        amb.setActiveParticipant("http://localhost:8080/axis2/services/xdsregistryb", null, null, "false",
+                getCodedValueType("110152", DCM, "Destination"), "2", "127.0.0.1");
+        amb.setParticipantObject("1", "1", null, getCodedValueType("2", "RFC-3881", "Patient Number"), null,
+                "1809083c2bef47b^^^&1.3.6.1.4.1.21367.2005.3.7&ISO", null, null);
+        amb.setParticipantObject("2", "24", null, getCodedValueType("ITI-18", "IHE Transactions", "Registry Stored Query"), null,
+                "urn:uuid:14d4debf-8f97-4251-9a74-a90016b0af0d", null, QUERY, "QueryEncoding", "UTF-8".getBytes());
+        return amb.buildMessage();
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        // Nothing to do.
+    }
+
+    /**
+     *
+     * @param code
+     * @param codeSystem
+     * @param displayName
+     * @return
+     */
+    private static CodedValueType getCodedValueType(String code, String codeSystem, String displayName) {
+        CodedValueType codedValueType = new CodedValueType();
+        codedValueType.setCode(code);
+        codedValueType.setCodeSystem(codeSystem);
+        codedValueType.setCodeSystemName(codeSystem);
+        codedValueType.setDisplayName(displayName);
+        return codedValueType;
+    }
+}
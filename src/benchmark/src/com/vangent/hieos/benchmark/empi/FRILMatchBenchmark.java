@@ -0,0 +1,88 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.empi;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.benchmark.BenchmarkData;
+import com.vangent.hieos.empi.match.FRILMatchAlgorithm;
+import com.vangent.hieos.empi.match.MatchAlgorithm.MatchType;
+import com.vangent.hieos.empi.match.Record;
+import com.vangent.hieos.empi.match.RecordBuilder;
+import com.vangent.hieos.hl7v3util.model.message.PRPA_IN201301UV02_Message;
+import com.vangent.hieos.hl7v3util.model.subject.SubjectBuilder;
+import com.vangent.hieos.subjectmodel.Subject;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FRIL scoring of a search record against a block of candidate records
+ * (candidate lookup is not included).
+ */
+public class FRILMatchBenchmark implements Benchmark {
+
+    private static final int CANDIDATE_COUNT = 100;
+    private final FRILMatchAlgorithm matchAlgorithm = new FRILMatchAlgorithm();
+    private Record searchRecord;
+    private List<Record> candidateRecords;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "FRILMatchAlgorithm.findMatches";
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        RecordBuilder recordBuilder = new RecordBuilder();
+        searchRecord = recordBuilder.build(buildSubject(0));
+        candidateRecords = new ArrayList<Record>();
+        for (int i = 1; i <= CANDIDATE_COUNT; i++) {
+            candidateRecords.add(recordBuilder.build(buildSubject(i)));
+        }
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        return matchAlgorithm.findMatches(searchRecord, candidateRecords, MatchType.SUBJECT_FEED);
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        searchRecord = null;
+        candidateRecords = null;
+    }
+
+    /**
+     *
+     * @param sequence
+     * @return
+     * @throws Exception
+     */
+    private Subject buildSubject(int sequence) throws Exception {
+        PRPA_IN201301UV02_Message message = new PRPA_IN201301UV02_Message(
+                XMLParser.stringToOM(BenchmarkData.getPRPA_IN201301UV02(sequence)));
+        return new SubjectBuilder().buildSubject(message);
+    }
+}
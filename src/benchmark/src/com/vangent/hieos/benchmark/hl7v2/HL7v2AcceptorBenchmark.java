@@ -0,0 +1,176 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.hl7v2;
+
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.app.DefaultApplication;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Segment;
+import ca.uhn.hl7v2.parser.PipeParser;
+import ca.uhn.hl7v2.util.Terser;
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.hl7v2util.acceptor.config.ListenerConfig;
+import com.vangent.hieos.hl7v2util.acceptor.impl.Connection;
+import com.vangent.hieos.hl7v2util.acceptor.impl.HL7v2Listener;
+import com.vangent.hieos.hl7v2util.acceptor.impl.Listener;
+import com.vangent.hieos.hl7v2util.acceptor.impl.MessageHandler;
+import com.vangent.hieos.hl7v2util.acceptor.impl.MessageRouter;
+import com.vangent.hieos.hl7v2util.acceptor.impl.NIOHL7v2Listener;
+import com.vangent.hieos.hl7v2util.client.HL7v2Client;
+import com.vangent.hieos.hl7v2util.client.HL7v2ConnectionPool;
+import com.vangent.hieos.hl7v2util.trace.MessageTracer;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+
+/**
+ * Sends an ADT^A01 over a loopback MLLP connection to an HL7v2 listener (with
+ * a handler that only builds the ACK) so that the acceptor's own overhead is
+ * measured.  Variants cover the blocking and NIO listeners and message tracing.
+ */
+public class HL7v2AcceptorBenchmark implements Benchmark {
+
+    private static final int PORT = 5099;
+    private static final String ADT_A01 =
+            "MSH|^~\\&|BENCH|BENCHFAC|HIEOS|HIEOS|20130101120000||ADT^A01|MSG00001|P|2.3.1\r"
+            + "EVN|A01|20130101120000\r"
+            + "PID|||1234567^^^&1.3.6.1.4.1.21367.2005.3.7&ISO||DOE^JOHN||19700101|M\r"
+            + "PV1||O\r";
+    private final boolean nio;
+    private final boolean traceEnabled;
+    private Listener listener;
+    private HL7v2Client client;
+    private Message message;
+
+    /**
+     *
+     * @param nio
+     * @param traceEnabled
+     */
+    public HL7v2AcceptorBenchmark(boolean nio, boolean traceEnabled) {
+        this.nio = nio;
+        this.traceEnabled = traceEnabled;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "HL7v2Acceptor." + (nio ? "nio" : "blocking") + (traceEnabled ? ".trace" : "");
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        MessageTracer.getInstance().configure(traceEnabled, 1, MessageTracer.DEFAULT_MAX_TRACE_SIZE);
+        MessageRouter messageRouter = new MessageRouter();
+        messageRouter.registerMessageHandler("*", "*", new AckMessageHandler());
+        ListenerConfig listenerConfig = this.getListenerConfig();
+        listener = nio
+                ? new NIOHL7v2Listener(listenerConfig, messageRouter)
+                : new HL7v2Listener(listenerConfig, messageRouter);
+        listener.startup();
+        HL7v2ConnectionPool.getInstance().register();
+        client = new HL7v2Client("mllp://localhost:" + PORT, true);
+        message = new PipeParser().parse(ADT_A01);
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        Message response = client.sendMessage(message);
+        String ackCode = new Terser(response).get("/MSA-1");
+        if (!"AA".equals(ackCode)) {
+            throw new Exception("Unexpected acknowledgement code: " + ackCode);
+        }
+        return response;
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        MessageTracer.getInstance().configure(false, 1, MessageTracer.DEFAULT_MAX_TRACE_SIZE);
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+        // Close any other pooled connections so the listener can shut down.
+        HL7v2ConnectionPool.getInstance().unregister();
+        if (listener != null) {
+            listener.shutdownAndAwaitTermination();
+            listener = null;
+        }
+        message = null;
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    private ListenerConfig getListenerConfig() throws Exception {
+        HierarchicalConfiguration hc = new HierarchicalConfiguration();
+        hc.addProperty("enabled", "true");
+        hc.addProperty("tls-enabled", "false");
+        hc.addProperty("port", Integer.toString(PORT));
+        hc.addProperty("thread-pool-size", "4");
+        hc.addProperty("nio-enabled", Boolean.toString(nio));
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.load(hc, null);
+        return listenerConfig;
+    }
+
+    /**
+     * Minimal handler so the benchmark measures the acceptor, not the application.
+     */
+    private static class AckMessageHandler implements MessageHandler {
+
+        /**
+         *
+         * @param connection
+         * @param in
+         * @return
+         * @throws HL7Exception
+         */
+        public Message processMessage(Connection connection, Message in) throws HL7Exception {
+            try {
+                return DefaultApplication.makeACK((Segment) in.get("MSH"));
+            } catch (Exception ex) {
+                throw new HL7Exception(ex);
+            }
+        }
+
+        /**
+         *
+         * @param connection
+         * @param in
+         * @return
+         */
+        public boolean canProcess(Connection connection, Message in) {
+            return true;
+        }
+
+        /**
+         *
+         * @throws HL7Exception
+         */
+        public void init() throws HL7Exception {
+            // Do nothing.
+        }
+    }
+}
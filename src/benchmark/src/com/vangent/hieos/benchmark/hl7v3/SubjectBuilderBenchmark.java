@@ -0,0 +1,59 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.hl7v3;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.benchmark.BenchmarkData;
+import com.vangent.hieos.hl7v3util.model.message.PRPA_IN201301UV02_Message;
+import com.vangent.hieos.hl7v3util.model.subject.SubjectBuilder;
+import com.vangent.hieos.xutil.xml.XMLParser;
+
+/**
+ * Builds a Subject from a (pre-parsed) PRPA_IN201301UV02 patient feed.
+ */
+public class SubjectBuilderBenchmark implements Benchmark {
+
+    private PRPA_IN201301UV02_Message message;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "SubjectBuilder.buildSubject";
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        message = new PRPA_IN201301UV02_Message(XMLParser.stringToOM(BenchmarkData.getPRPA_IN201301UV02(1)));
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        return new SubjectBuilder().buildSubject(message);
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        message = null;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.metadata;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.benchmark.BenchmarkData;
+import com.vangent.hieos.xutil.metadata.structure.Metadata;
+import com.vangent.hieos.xutil.xml.XMLParser;
+
+/**
+ * Parses a SubmitObjectsRequest (from its serialized form) into Metadata.
+ */
+public class MetadataParseBenchmark implements Benchmark {
+
+    private static final int DOCUMENT_COUNT = 20;
+    private String submitObjectsRequest;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "Metadata.parse";
+    }
+
+    /**
+     *
+     */
+    public void setUp() {
+        submitObjectsRequest = BenchmarkData.getSubmitObjectsRequest(DOCUMENT_COUNT);
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        return new Metadata(XMLParser.stringToOM(submitObjectsRequest));
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        submitObjectsRequest = null;
+    }
+}
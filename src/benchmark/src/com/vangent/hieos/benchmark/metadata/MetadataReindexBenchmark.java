@@ -0,0 +1,61 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.metadata;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.benchmark.BenchmarkData;
+import com.vangent.hieos.xutil.metadata.structure.Metadata;
+import com.vangent.hieos.xutil.xml.XMLParser;
+
+/**
+ * Rebuilds the Metadata id index (reindex is lazy, so the first lookup after
+ * reindex is included).
+ */
+public class MetadataReindexBenchmark implements Benchmark {
+
+    private static final int DOCUMENT_COUNT = 20;
+    private Metadata metadata;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "Metadata.reindex";
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        metadata = new Metadata(XMLParser.stringToOM(BenchmarkData.getSubmitObjectsRequest(DOCUMENT_COUNT)));
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        metadata.reindex();
+        return metadata.getNameValue("Document" + DOCUMENT_COUNT);
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        metadata = null;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.policy;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.policyutil.pdp.impl.PDPImpl;
+import com.vangent.hieos.policyutil.pdp.model.PDPRequest;
+import com.vangent.hieos.policyutil.util.AttributeConfig.AttributeClassType;
+import com.vangent.hieos.policyutil.util.PolicyConfig;
+
+/**
+ * Evaluates a registry stored query authorization request against the
+ * configured policy set.
+ */
+public class PDPEvaluateBenchmark implements Benchmark {
+
+    private PDPImpl pdp;
+    private PDPRequest request;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "PDPImpl.evaluate";
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        pdp = new PDPImpl(PolicyConfig.getInstance().getPolicyFiles());
+        request = new PDPRequest();
+        request.setIssuer("HIEOS BENCHMARK");
+        request.setAction("urn:ihe:iti:2007:RegistryStoredQuery");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", "SUBJECT_ID");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xspa:1.0:subject:organization", "ORG");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xspa:1.0:subject:organization-id", "1.1");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xacml:2.0:subject:role", "DOCTOR");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xspa:1.0:subject:purposeofuse", "TREATMENT");
+        request.addAttribute(AttributeClassType.SUBJECT_ID, "urn:oasis:names:tc:xspa:2.0:subject:npi", "NPI");
+        request.addAttribute(AttributeClassType.RESOURCE_ID, "urn:oasis:names:tc:xacml:1.0:resource:resource-id",
+                "123456^^^&1.3.6.1.4.1.21367.2010.1.2.300&ISO");
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Object run() {
+        return pdp.evaluate(request.getRequestType());
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        pdp = null;
+        request = null;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.benchmark.xml;
+
+import com.vangent.hieos.benchmark.Benchmark;
+import com.vangent.hieos.benchmark.BenchmarkData;
+import com.vangent.hieos.xutil.xconfig.XConfig;
+import com.vangent.hieos.xutil.xml.XMLSchemaValidator;
+
+/**
+ * Validates a SubmitObjectsRequest against the ebXML v3 lcm schema (as done by
+ * SchemaValidation for register transactions).
+ */
+public class XMLSchemaValidatorBenchmark implements Benchmark {
+
+    private static final int DOCUMENT_COUNT = 20;
+    private XMLSchemaValidator validator;
+    private String submitObjectsRequest;
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return "XMLSchemaValidator.validate";
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        String localSchema = XConfig.getConfigLocation(XConfig.ConfigItem.SCHEMA_DIR);
+        validator = new XMLSchemaValidator("urn:oasis:names:tc:ebxml-regrep:xsd:lcm:3.0 " + localSchema + "/v3/lcm.xsd");
+        submitObjectsRequest = BenchmarkData.getSubmitObjectsRequest(DOCUMENT_COUNT).replaceAll("urn:uuid:", "urn_uuid_");
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public Object run() throws Exception {
+        validator.validate(submitObjectsRequest);
+        return submitObjectsRequest;
+    }
+
+    /**
+     *
+     */
+    public void tearDown() {
+        validator = null;
+        submitObjectsRequest = null;
+    }
+}
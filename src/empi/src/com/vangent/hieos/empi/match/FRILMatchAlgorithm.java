@@ -18,6 +18,7 @@ import com.vangent.hieos.empi.config.MatchConfig;
 import com.vangent.hieos.empi.config.MatchFieldConfig;
 import com.vangent.hieos.empi.distance.DistanceFunction;
 import com.vangent.hieos.empi.exception.EMPIException;
+import com.vangent.hieos.xutil.metrics.MetricsRegistry;
 import java.util.Collections;
 import java.util.List;
 import org.apache.log4j.Logger;
@@ -53,7 +54,16 @@ public class FRILMatchAlgorithm extends MatchAlgorithm {
         long start = System.currentTimeMillis();
 
         // First, get list of candidate records.
-        List<Record> candidateRecords = this.findCandidates(searchRecord, matchType);
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        List<Record> candidateRecords;
+        try {
+            candidateRecords = this.findCandidates(searchRecord, matchType);
+            success = true;
+        } finally {
+            MetricsRegistry.getInstance().record(MetricsRegistry.EMPI, "findCandidates " + matchType,
+                    System.nanoTime() - startNanos, success);
+        }
 
         if (logger.isDebugEnabled()) {
             logger.debug("FRIL findCandidates TOTAL TIME - " + (System.currentTimeMillis() - start) + "ms.");
@@ -88,6 +98,27 @@ public class FRILMatchAlgorithm extends MatchAlgorithm {
      */
     @Override
     public MatchResults findMatches(Record searchRecord, List<Record> candidateRecords, MatchType matchType) throws EMPIException {
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            MatchResults matchResults = this.scoreCandidates(searchRecord, candidateRecords, matchType);
+            success = true;
+            return matchResults;
+        } finally {
+            MetricsRegistry.getInstance().record(MetricsRegistry.EMPI, "match " + matchType,
+                    System.nanoTime() - startNanos, success);
+        }
+    }
+
+    /**
+     *
+     * @param searchRecord
+     * @param candidateRecords
+     * @param matchType
+     * @return
+     * @throws EMPIException
+     */
+    private MatchResults scoreCandidates(Record searchRecord, List<Record> candidateRecords, MatchType matchType) throws EMPIException {
         EMPIConfig empiConfig = EMPIConfig.getInstance();
         MatchConfig matchConfig = empiConfig.getMatchConfig(matchType);
         double recordAcceptThreshold = matchConfig.getAcceptThreshold();
@@ -172,9 +172,11 @@ public class HL7ADTPatientIdentityFeedMessageHandler extends HL7Application {
                 terser.set("/.ERR-1-4-2", "Application Internal Error");
                 terser.set("/.ERR-1-4-3", "HL70357");
             }
-            DefaultXMLParser xmlParser = new DefaultXMLParser();
-            String xmlEncodedMessage = xmlParser.encode(retVal);
-            log.info("XML Encoded Response Message:\n" + xmlEncodedMessage);
+            if (log.isDebugEnabled()) {
+                DefaultXMLParser xmlParser = new DefaultXMLParser();
+                String xmlEncodedMessage = xmlParser.encode(retVal);
+                log.debug("XML Encoded Response Message:\n" + xmlEncodedMessage);
+            }
         } catch (IOException e) {
             throw new HL7Exception(e);
         }
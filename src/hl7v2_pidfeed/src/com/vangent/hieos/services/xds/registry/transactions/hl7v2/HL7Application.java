@@ -71,11 +71,13 @@ public abstract class HL7Application implements Application {
         log.info("++++++++++++++++++++++ Inbound HL7 Message ++++++++++++++++++++++");
         log.info("Sender IP = " + this.getRemoteIPAddress(socket));
         log.info("HL7 Version = " + inMessage.getVersion());
-        DefaultXMLParser xmlParser = new DefaultXMLParser();
-        String xmlEncodedMessage = xmlParser.encode(inMessage);
-        String encodedMessage = new PipeParser().encode(inMessage);
-        log.info("Raw HL7 Message:\n" + encodedMessage);
-        log.info("XML Encoded Message:\n" + xmlEncodedMessage);
+        if (log.isDebugEnabled()) {
+            DefaultXMLParser xmlParser = new DefaultXMLParser();
+            String xmlEncodedMessage = xmlParser.encode(inMessage);
+            String encodedMessage = new PipeParser().encode(inMessage);
+            log.debug("Raw HL7 Message:\n" + encodedMessage);
+            log.debug("XML Encoded Message:\n" + xmlEncodedMessage);
+        }
         return this.handleMessage(inMessage, socket);
     }
 
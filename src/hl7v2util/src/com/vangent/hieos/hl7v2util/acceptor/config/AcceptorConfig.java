@@ -30,8 +30,10 @@ public class AcceptorConfig {
     private final static Logger logger = Logger.getLogger(AcceptorConfig.class);
     private static String MESSAGE_HANDLERS = "message-handlers.message-handler";
     private static String LISTENERS = "listeners.listener";
+    private static String MESSAGE_TRACE = "message-trace";
     private List<MessageHandlerConfig> messageHandlerConfigs = new ArrayList<MessageHandlerConfig>();
     private List<ListenerConfig> listenerConfigs = new ArrayList<ListenerConfig>();
+    private MessageTraceConfig messageTraceConfig = new MessageTraceConfig();
 
     /**
      *
@@ -58,6 +60,14 @@ public class AcceptorConfig {
         return listenerConfigs;
     }
 
+    /**
+     *
+     * @return
+     */
+    public MessageTraceConfig getMessageTraceConfig() {
+        return messageTraceConfig;
+    }
+
     /**
      * 
      * @param configLocation
@@ -70,6 +80,7 @@ public class AcceptorConfig {
 
             this.loadMessageHandlerConfigs(xmlConfig);
             this.loadListenerConfigs(xmlConfig);
+            this.loadMessageTraceConfig(xmlConfig);
         } catch (ConfigurationException ex) {
             throw new HL7v2UtilException(
                     "HL7v2AcceptorConfig: Could not load configuration from "
@@ -110,4 +121,16 @@ public class AcceptorConfig {
             listenerConfigs.add(listenerConfig);
         }
     }
+
+    /**
+     *
+     * @param hc
+     * @throws HL7v2UtilException
+     */
+    private void loadMessageTraceConfig(HierarchicalConfiguration hc) throws HL7v2UtilException {
+        List<?> messageTraceConfigs = hc.configurationsAt(MESSAGE_TRACE);
+        if (!messageTraceConfigs.isEmpty()) {
+            messageTraceConfig.load((HierarchicalConfiguration) messageTraceConfigs.get(0), this);
+        }
+    }
 }
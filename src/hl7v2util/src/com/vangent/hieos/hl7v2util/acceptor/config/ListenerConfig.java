@@ -26,6 +26,8 @@ public class ListenerConfig implements ConfigItem {
     //    <port>5051</port>
     //    <thread-pool-size>20</thread-pool-size>
     //    <cipher-suites>SSL_RSA_WITH_3DES_EDE_CBC_SHA,TLS_RSA_WITH_AES_128_CBC_SHA</cipher-suites>
+    //    <nio-enabled>false</nio-enabled>
+    //    <max-message-size>1048576</max-message-size>
     //</listener>
 
     private static String ENABLED = "enabled";
@@ -33,11 +35,16 @@ public class ListenerConfig implements ConfigItem {
     private static String PORT = "port";
     private static String THREAD_POOL_SIZE = "thread-pool-size";
     private static String CIPHER_SUITES = "cipher-suites";
+    private static String NIO_ENABLED = "nio-enabled";
+    private static String MAX_MESSAGE_SIZE = "max-message-size";
+    private static int DEFAULT_MAX_MESSAGE_SIZE = 1024 * 1024;
     private boolean enabled = false;
     private int port = -1;
     private int threadPoolSize = -1;
     private boolean tlsEnabled = false;
     private String[] cipherSuites = null;
+    private boolean nioEnabled = false;
+    private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
 
     /**
      * 
@@ -79,6 +86,24 @@ public class ListenerConfig implements ConfigItem {
         return threadPoolSize;
     }
 
+    /**
+     * If true, connections are serviced by a selector (no thread per connection)
+     * and the thread pool is only used to process messages.
+     *
+     * @return
+     */
+    public boolean isNIOEnabled() {
+        return nioEnabled;
+    }
+
+    /**
+     * 
+     * @return
+     */
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
     /**
      * 
      * @param hc
@@ -90,6 +115,8 @@ public class ListenerConfig implements ConfigItem {
         tlsEnabled = hc.getBoolean(TLS_ENABLED, false);
         port = hc.getInt(PORT, -1);
         threadPoolSize = hc.getInt(THREAD_POOL_SIZE, -1);
+        nioEnabled = hc.getBoolean(NIO_ENABLED, false);
+        maxMessageSize = hc.getInt(MAX_MESSAGE_SIZE, DEFAULT_MAX_MESSAGE_SIZE);
         if (tlsEnabled) {
             this.loadCipherSuites(hc);
         }
@@ -0,0 +1,73 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.acceptor.config;
+
+import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
+import com.vangent.hieos.hl7v2util.trace.MessageTracer;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+
+/**
+ *
+ */
+public class MessageTraceConfig implements ConfigItem {
+
+    //<message-trace>
+    //    <enabled>true</enabled>
+    //    <sample-rate>1</sample-rate>
+    //    <max-trace-size>4096</max-trace-size>
+    //</message-trace>
+    private static String ENABLED = "enabled";
+    private static String SAMPLE_RATE = "sample-rate";
+    private static String MAX_TRACE_SIZE = "max-trace-size";
+    private boolean enabled = true;
+    private int sampleRate = MessageTracer.DEFAULT_SAMPLE_RATE;
+    private int maxTraceSize = MessageTracer.DEFAULT_MAX_TRACE_SIZE;
+
+    /**
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Trace 1 in N message exchanges.
+     *
+     * @return
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Maximum number of characters traced per message (0 = unlimited).
+     *
+     * @return
+     */
+    public int getMaxTraceSize() {
+        return maxTraceSize;
+    }
+
+    /**
+     *
+     * @param hc
+     * @param acceptorConfig
+     * @throws HL7v2UtilException
+     */
+    public void load(HierarchicalConfiguration hc, AcceptorConfig acceptorConfig) throws HL7v2UtilException {
+        enabled = hc.getBoolean(ENABLED, true);
+        sampleRate = hc.getInt(SAMPLE_RATE, MessageTracer.DEFAULT_SAMPLE_RATE);
+        maxTraceSize = hc.getInt(MAX_TRACE_SIZE, MessageTracer.DEFAULT_MAX_TRACE_SIZE);
+    }
+}
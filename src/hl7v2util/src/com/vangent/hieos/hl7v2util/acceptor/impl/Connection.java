@@ -18,6 +18,7 @@ import ca.uhn.hl7v2.parser.Parser;
 import ca.uhn.hl7v2.app.Responder;
 import ca.uhn.hl7v2.llp.HL7Reader;
 import ca.uhn.hl7v2.llp.HL7Writer;
+import com.vangent.hieos.xutil.socket.NIOConnection;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -38,6 +39,7 @@ public class Connection {
     private MessageRouter messageRouter;
     private HL7Writer hl7Writer;
     private HL7Reader hl7Reader;
+    private NIOConnection nioConnection;
 
     /**
      *
@@ -58,12 +60,26 @@ public class Connection {
         this.responder = new Responder(parser);
     }
 
+    /**
+     * Connection accepted by the NIO listener (no blocking reader/writer).
+     *
+     * @param parser
+     * @param messageRouter
+     * @param nioConnection
+     */
+    public Connection(Parser parser, MessageRouter messageRouter, NIOConnection nioConnection) {
+        this.parser = parser;
+        this.messageRouter = messageRouter;
+        this.nioConnection = nioConnection;
+        this.socket = nioConnection.getChannel().socket();
+    }
+
     /**
      * 
      * @return
      */
     public InetAddress getRemoteAddress() {
-        return socket.getInetAddress();
+        return (nioConnection != null) ? nioConnection.getRemoteAddress() : socket.getInetAddress();
     }
 
     /**
@@ -71,7 +87,7 @@ public class Connection {
      * @return
      */
     public int getRemotePort() {
-        return socket.getPort();
+        return (nioConnection != null) ? nioConnection.getRemotePort() : socket.getPort();
     }
 
     /**
@@ -87,7 +103,7 @@ public class Connection {
      * @return
      */
     public boolean isSecure() {
-        return (socket instanceof SSLSocket);
+        return (nioConnection != null) ? nioConnection.isSecure() : (socket instanceof SSLSocket);
     }
 
     /**
@@ -100,7 +116,7 @@ public class Connection {
 
     /**
      *
-     * @return
+     * @return (null for NIO connections).
      */
     public HL7Reader getHl7Reader() {
         return hl7Reader;
@@ -108,7 +124,7 @@ public class Connection {
 
     /**
      *
-     * @return
+     * @return (null for NIO connections).
      */
     public HL7Writer getHl7Writer() {
         return hl7Writer;
@@ -134,6 +150,10 @@ public class Connection {
      * 
      */
     public void close() {
+        if (nioConnection != null) {
+            nioConnection.close();
+            return;
+        }
         try {
             if (!socket.isClosed()) {
                 hl7Reader.close();
@@ -18,10 +18,10 @@ import ca.uhn.hl7v2.llp.HL7Reader;
 import ca.uhn.hl7v2.llp.HL7Writer;
 import ca.uhn.hl7v2.model.Message;
 import ca.uhn.hl7v2.model.Segment;
-import ca.uhn.hl7v2.parser.DefaultXMLParser;
 import ca.uhn.hl7v2.parser.Parser;
 import ca.uhn.hl7v2.util.MessageIDGenerator;
 import ca.uhn.hl7v2.util.Terser;
+import com.vangent.hieos.hl7v2util.trace.MessageTracer;
 import java.io.IOException;
 import java.net.Socket;
 import org.apache.log4j.Logger;
@@ -116,22 +116,14 @@ public class ConnectionHandler implements Runnable {
         Message incomingMessageObject = null;
         String outgoingMessageString = null;
         Parser parser = connection.getParser();
+        MessageTracer messageTracer = MessageTracer.getInstance();
+        boolean traced = messageTracer.sample();
+        if (traced) {
+            messageTracer.trace(MessageTracer.Direction.INBOUND, this.getPeer(), incomingMessageString);
+        }
         try {
-            // FIXME: Change to DEBUG
-            if (logger.isInfoEnabled()) {
-                logger.info("[inbound] RAW HL7v2 Message:\n" + incomingMessageString);
-            }
-
             // Parse inbound message into HAPI HL7v2 message instance.
             incomingMessageObject = parser.parse(incomingMessageString);
-
-            // FIXME: Change to DEBUG
-            if (logger.isInfoEnabled()) {
-                Parser xmlParser = new DefaultXMLParser();
-                String xmlEncodedMessage = xmlParser.encode(incomingMessageObject);
-                logger.info("[inbound] XML Encoded Message:\n" + xmlEncodedMessage);
-            }
-
         } catch (HL7Exception e) {
             // TODO this may also throw an Exception, which hides the
             // previous one.
@@ -184,18 +176,20 @@ public class ConnectionHandler implements Runnable {
             }
         }
 
-        // FIXME: Change to DEBUG
-        if ((outgoingMessageString != null) && logger.isInfoEnabled()) {
-            logger.info("[inbound response] RAW HL7v2 Message:\n"
-                    + outgoingMessageString);
-            Message outgoingMessageObject = parser.parse(outgoingMessageString);
-            Parser xmlParser = new DefaultXMLParser();
-            logger.info("[inbound response] XML Encoded Message:\n"
-                    + xmlParser.encode(outgoingMessageObject));
+        if (traced) {
+            messageTracer.trace(MessageTracer.Direction.INBOUND_RESPONSE, this.getPeer(), outgoingMessageString);
         }
         return outgoingMessageString;
     }
 
+    /**
+     *
+     * @return
+     */
+    private String getPeer() {
+        return connection.getRemoteAddress().getHostAddress() + ":" + connection.getRemotePort();
+    }
+
     /**
      * Logs the given exception and creates an error message to send to the
      * remote system.
@@ -14,7 +14,9 @@ package com.vangent.hieos.hl7v2util.acceptor.impl;
 
 import com.vangent.hieos.hl7v2util.acceptor.config.AcceptorConfig;
 import com.vangent.hieos.hl7v2util.acceptor.config.ListenerConfig;
+import com.vangent.hieos.hl7v2util.acceptor.config.MessageTraceConfig;
 import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
+import com.vangent.hieos.hl7v2util.trace.MessageTracer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.log4j.Logger;
@@ -27,7 +29,7 @@ public class HL7v2Acceptor {
 
     private static final Logger logger = Logger.getLogger(HL7v2Acceptor.class);
     private final AcceptorConfig acceptorConfig;
-    private List<HL7v2Listener> listeners = new ArrayList<HL7v2Listener>();
+    private List<Listener> listeners = new ArrayList<Listener>();
 
     /**
      * 
@@ -51,6 +53,11 @@ public class HL7v2Acceptor {
      */
     public void startup() {
 
+        // Configure message trace.
+        MessageTraceConfig messageTraceConfig = acceptorConfig.getMessageTraceConfig();
+        MessageTracer.getInstance().configure(messageTraceConfig.isEnabled(),
+                messageTraceConfig.getSampleRate(), messageTraceConfig.getMaxTraceSize());
+
         // Only need one of these.
         MessageRouter messageRouter = new MessageRouter(acceptorConfig);
 
@@ -62,8 +69,12 @@ public class HL7v2Acceptor {
             if (listenerConfig.isEnabled()) {
                 try {
                     // Get listener and then start it up.
-                    HL7v2Listener listener;
-                    listener = new HL7v2Listener(listenerConfig, messageRouter);
+                    Listener listener;
+                    if (listenerConfig.isNIOEnabled()) {
+                        listener = new NIOHL7v2Listener(listenerConfig, messageRouter);
+                    } else {
+                        listener = new HL7v2Listener(listenerConfig, messageRouter);
+                    }
                     listener.startup();
                     // Keep track of listeners (for later shutdown).
                     listeners.add(listener);
@@ -79,7 +90,7 @@ public class HL7v2Acceptor {
      */
     public void shutdown() {
         // Shutdown listeners (try gracefully).
-        for (HL7v2Listener listener : listeners) {
+        for (Listener listener : listeners) {
             listener.shutdownAndAwaitTermination();
         }
     }
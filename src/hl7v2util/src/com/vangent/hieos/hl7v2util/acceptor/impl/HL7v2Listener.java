@@ -31,7 +31,7 @@ import org.apache.log4j.Logger;
  *
  * @author Bernie Thuman
  */
-public class HL7v2Listener implements Runnable {
+public class HL7v2Listener implements Listener, Runnable {
 
     private static final Logger logger = Logger.getLogger(HL7v2Listener.class);
     private static final int SO_BACKLOG = 20;
@@ -0,0 +1,132 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.acceptor.impl;
+
+import com.vangent.hieos.xutil.socket.NIOFrameDecoder;
+import com.vangent.hieos.xutil.socket.NIOFrameProtocol;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Minimal Lower Layer Protocol (MLLP) framing: <VT> message <FS><CR>.
+ */
+public class MLLPFrameProtocol implements NIOFrameProtocol {
+
+    /**
+     * Same system property used by HAPI's MinLowerLayerProtocol.
+     */
+    public static final String CHARSET_KEY = "ca.uhn.hl7v2.llp.charset";
+    private static final String DEFAULT_CHARSET = "US-ASCII";
+    private static final byte START_BLOCK = 0x0b;
+    private static final byte END_BLOCK = 0x1c;
+    private static final byte CARRIAGE_RETURN = 0x0d;
+    private final int maxMessageSize;
+    private final Charset charset;
+
+    /**
+     *
+     * @param maxMessageSize Largest message (in bytes) accepted.
+     */
+    public MLLPFrameProtocol(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+        String charsetName = System.getProperty(CHARSET_KEY, DEFAULT_CHARSET);
+        this.charset = charsetName.equals("default") ? Charset.defaultCharset() : Charset.forName(charsetName);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public NIOFrameDecoder createDecoder() {
+        return new MLLPFrameDecoder();
+    }
+
+    /**
+     *
+     * @param payload
+     * @return
+     */
+    public ByteBuffer encode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 3);
+        buffer.put(START_BLOCK);
+        buffer.put(payload);
+        buffer.put(END_BLOCK);
+        buffer.put(CARRIAGE_RETURN);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Keeps track of how far the current (partial) frame has been scanned so
+     * that large messages arriving in many reads are not rescanned.
+     */
+    private class MLLPFrameDecoder implements NIOFrameDecoder {
+
+        private int scanned = 0;  // Bytes of the current frame already scanned (after the start block).
+
+        /**
+         * 
+         * @param buffer
+         * @return
+         * @throws IOException
+         */
+        public byte[] decode(ByteBuffer buffer) throws IOException {
+            // Skip anything before the start block (e.g. stray CR/LF between frames).
+            // (A partial frame is never consumed, so it always begins at the buffer position.)
+            while (buffer.hasRemaining() && buffer.get(buffer.position()) != START_BLOCK) {
+                buffer.get();
+            }
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            int start = buffer.position() + 1;  // First byte after the start block.
+            int limit = buffer.limit();
+            for (int i = start + scanned; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == END_BLOCK) {
+                    if (i + 1 >= limit) {
+                        scanned = i - start;  // Wait for the trailing CR.
+                        return null;
+                    }
+                    if (buffer.get(i + 1) != CARRIAGE_RETURN) {
+                        throw new IOException("Message violates the minimal lower layer protocol: "
+                                + "message terminator not followed by a return character");
+                    }
+                    byte[] frame = new byte[i - start];
+                    buffer.position(start);
+                    buffer.get(frame);
+                    buffer.position(i + 2);
+                    scanned = 0;
+                    return frame;
+                } else if (b == START_BLOCK) {
+                    throw new IOException("Message violates the minimal lower layer protocol: "
+                            + "start of message indicator received before message terminator");
+                }
+            }
+            scanned = limit - start;
+            if (scanned > maxMessageSize) {
+                throw new IOException("Message exceeds maximum size of " + maxMessageSize + " bytes");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.acceptor.impl;
+
+import ca.uhn.hl7v2.parser.Parser;
+import ca.uhn.hl7v2.parser.PipeParser;
+import com.vangent.hieos.hl7v2util.acceptor.config.ListenerConfig;
+import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
+import com.vangent.hieos.xutil.socket.NIOConnection;
+import com.vangent.hieos.xutil.socket.NIOFrameHandler;
+import com.vangent.hieos.xutil.socket.NIOServer;
+import com.vangent.hieos.xutil.socket.TLSSocketSupport;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * HL7v2 (MLLP) listener backed by a single selector thread.  Idle connections
+ * do not hold a thread; the thread pool is only used to process messages.
+ */
+public class NIOHL7v2Listener implements Listener, NIOFrameHandler {
+
+    private static final Logger logger = Logger.getLogger(NIOHL7v2Listener.class);
+    private static final int SO_BACKLOG = 20;
+    // Time allowed (per stage) for in-flight messages to finish at shutdown.
+    private static final int SHUTDOWN_TIMEOUT_MSEC = 500;
+    private final ListenerConfig listenerConfig;
+    private final MessageRouter messageRouter;
+    private final Parser parser;
+    private final MLLPFrameProtocol protocol;
+    private final ExecutorService workerPool;
+    private final NIOServer server;
+
+    /**
+     *
+     * @param listenerConfig
+     * @param messageRouter
+     */
+    public NIOHL7v2Listener(ListenerConfig listenerConfig, MessageRouter messageRouter) {
+        this.messageRouter = messageRouter;
+        this.listenerConfig = listenerConfig;
+        this.parser = new PipeParser(); // The message parser
+        this.protocol = new MLLPFrameProtocol(listenerConfig.getMaxMessageSize());
+
+        // Create thread pool.
+        this.workerPool = Executors.newFixedThreadPool(listenerConfig.getThreadPoolSize());
+        this.server = new NIOServer("HL7v2", listenerConfig.getPort(), SO_BACKLOG, protocol, this, workerPool);
+    }
+
+    /**
+     *
+     * @throws HL7v2UtilException
+     */
+    public void startup() throws HL7v2UtilException {
+        logger.info(getVitals() + "starting ("
+                + "TLS=" + listenerConfig.isTLSEnabled()
+                + ", thread pool size = " + listenerConfig.getThreadPoolSize()
+                + ", max message size = " + listenerConfig.getMaxMessageSize()
+                + ")");
+        if (listenerConfig.isTLSEnabled()) {
+            TLSSocketSupport socketSupport = new TLSSocketSupport();
+            try {
+                server.setTLS(socketSupport.getServerSSLContext(), listenerConfig.getCipherSuites(), true);
+            } catch (Exception ex) {
+                logger.fatal(getVitals() + "could not create TLS context", ex);
+                throw new HL7v2UtilException(getVitals() + "could not create TLS context", ex);
+            }
+        }
+        try {
+            server.startup();
+        } catch (Exception ex) {
+            logger.fatal(getVitals() + "could not open socket", ex);
+            throw new HL7v2UtilException(getVitals() + "could not open socket", ex);
+        }
+    }
+
+    /**
+     *
+     */
+    public void shutdownAndAwaitTermination() {
+        server.shutdownAndAwaitTermination();
+
+        logger.info(getVitals() + "shutting down thread pool ...");
+        workerPool.shutdown(); // Disable new tasks from being submitted
+        try {
+            // Wait a while for existing tasks to terminate
+            if (!workerPool.awaitTermination(SHUTDOWN_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                workerPool.shutdownNow(); // Cancel currently executing tasks
+                // Wait a while for tasks to respond to being cancelled
+                if (!workerPool.awaitTermination(SHUTDOWN_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                    logger.error(getVitals() + "thread pool did not terminate");
+                } else {
+                    logger.warn(getVitals() + "thread pool terminated after forced shutdown!");
+                }
+            } else {
+                logger.info(getVitals() + "thread pool terminated gracefully!");
+            }
+        } catch (InterruptedException ex) {
+            // (Re-)Cancel if current thread also interrupted
+            workerPool.shutdownNow();
+            logger.warn(getVitals() + "thread pool terminated after forced shutdown!", ex);
+        }
+        logger.info(getVitals() + server.getStatistics());
+    }
+
+    /**
+     *
+     * @return
+     */
+    public NIOServer getServer() {
+        return server;
+    }
+
+    /**
+     *
+     * @param nioConnection
+     */
+    public void connectionOpened(NIOConnection nioConnection) {
+        Connection connection = new Connection(parser, messageRouter, nioConnection);
+        nioConnection.setAttachment(new ConnectionHandler(null, connection));
+        logger.info(getVitals() + "accepted connection (remote ip = " + connection.getRemoteAddress()
+                + ", remote port = " + connection.getRemotePort()
+                + ", open connections = " + server.getOpenConnectionCount()
+                + ")");
+    }
+
+    /**
+     * Processes the message and returns the encoded response.  If processing
+     * fails outright an error (AE) acknowledgement is returned instead; if even
+     * that cannot be built the exception is thrown and the server closes the
+     * connection (as the blocking listener does).
+     *
+     * @param nioConnection
+     * @param frame
+     * @return
+     * @throws Exception
+     */
+    public byte[] handleFrame(NIOConnection nioConnection, byte[] frame) throws Exception {
+        ConnectionHandler connectionHandler = (ConnectionHandler) nioConnection.getAttachment();
+        String incomingMessageString = new String(frame, protocol.getCharset());
+        String outgoingMessageString;
+        try {
+            outgoingMessageString = connectionHandler.processMessage(incomingMessageString);
+        } catch (Exception ex) {
+            logger.error(getVitals() + "exception processing message -- sending error acknowledgement", ex);
+            outgoingMessageString = ConnectionHandler.logAndMakeErrorMessage(ex,
+                    parser.getCriticalResponseData(incomingMessageString), parser, null);
+        }
+        if (outgoingMessageString == null) {
+            return null;
+        }
+        return outgoingMessageString.getBytes(protocol.getCharset());
+    }
+
+    /**
+     *
+     * @param nioConnection
+     */
+    public void connectionClosed(NIOConnection nioConnection) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getVitals() + "connection closed (remote ip = " + nioConnection.getRemoteAddress()
+                    + ", remote port = " + nioConnection.getRemotePort()
+                    + ", " + server.getStatistics() + ")");
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private String getVitals() {
+        return "NIOHL7v2Listener (port = " + listenerConfig.getPort() + "): ";
+    }
+}
@@ -13,18 +13,19 @@
 package com.vangent.hieos.hl7v2util.client;
 
 import ca.uhn.hl7v2.HL7Exception;
-import ca.uhn.hl7v2.app.Connection;
-import ca.uhn.hl7v2.app.Initiator;
 import ca.uhn.hl7v2.llp.LLPException;
-import ca.uhn.hl7v2.llp.LowerLayerProtocol;
 import ca.uhn.hl7v2.model.Message;
-import ca.uhn.hl7v2.parser.DefaultXMLParser;
-import ca.uhn.hl7v2.parser.Parser;
-import ca.uhn.hl7v2.parser.PipeParser;
+import ca.uhn.hl7v2.util.Terser;
 import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
-import com.vangent.hieos.xutil.socket.TLSSocketSupport;
+import com.vangent.hieos.hl7v2util.trace.MessageTracer;
 import java.io.IOException;
-import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.apache.log4j.Logger;
 
 /**
@@ -34,7 +35,17 @@ import org.apache.log4j.Logger;
 public class HL7v2Client {
 
     private static final Logger logger = Logger.getLogger(HL7v2Client.class);
+    public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 10000;
     private HL7v2Endpoint endpoint;
+    private boolean keepAlive = false;
+    private boolean pipelined = false;
+    private long ackTimeoutMillis = DEFAULT_ACK_TIMEOUT_MILLIS;
+    // Connection last returned to the HL7v2ConnectionPool (when keepAlive).
+    private HL7v2Connection pooledConnection = null;
+    // Messages written (on the current connection) whose response has not been
+    // received; a failed send is only retried when this is zero so that no
+    // message is delivered twice.
+    private int unansweredMessages = 0;
 
     /**
      *
@@ -45,6 +56,54 @@ public class HL7v2Client {
         this.endpoint = new HL7v2Endpoint(endpoint);
     }
 
+    /**
+     * When keepAlive is true, MLLP connections are taken from (and returned
+     * to) the shared HL7v2ConnectionPool so they can be reused by later calls.
+     *
+     * @param endpoint
+     * @param keepAlive
+     * @throws HL7v2UtilException
+     */
+    public HL7v2Client(String endpoint, boolean keepAlive) throws HL7v2UtilException {
+        this(endpoint);
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * When pipelined is true, sendMessages() writes all messages before
+     * waiting for their ACKs (messages must have unique MSH-10 values).
+     *
+     * @param pipelined
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Time to wait for each ACK.
+     *
+     * @param ackTimeoutMillis
+     */
+    public void setAckTimeoutMillis(long ackTimeoutMillis) {
+        this.ackTimeoutMillis = ackTimeoutMillis;
+    }
+
     /**
      * 
      * @param outMessage
@@ -52,43 +111,72 @@ public class HL7v2Client {
      * @throws HL7v2UtilException
      */
     // FIXME: Create wrapper for "Message" result.
-    public Message sendMessage(Message outMessage) throws HL7v2UtilException {
-        Socket clientSocket = null;
-        Connection connection = null;
+    public synchronized Message sendMessage(Message outMessage) throws HL7v2UtilException {
+        return this.sendMessages(Collections.singletonList(outMessage)).get(0);
+    }
+
+    /**
+     * Sends the messages (in order) over a single connection and returns
+     * their responses (in the same order).  A failure on a reused (pooled)
+     * connection is retried once on a new connection, but only if no written
+     * message is still awaiting its response.
+     *
+     * @param outMessages
+     * @return
+     * @throws HL7v2UtilException
+     */
+    public synchronized List<Message> sendMessages(List<Message> outMessages) throws HL7v2UtilException {
+        List<Message> responses = new ArrayList<Message>();
+        HL7v2Connection connection = this.getConnection(keepAlive);
+        boolean reusingConnection = connection.isReused();
         try {
-            // Create a socket (using endpoint provided in constructor).
-            clientSocket = this.getClientSocket();
-
-            LowerLayerProtocol llp = LowerLayerProtocol.makeLLP(); // The transport protocol
-            PipeParser parser = new PipeParser(); // The message parser
-            connection = new Connection(parser, llp, clientSocket);
-
-            // The initiator is used to transmit unsolicited messages
-            Initiator initiator = connection.getInitiator();
-            connection.activate();
-            
-            // FIXME: Change to DEBUG
-            if (logger.isInfoEnabled()) {
-                Parser xmlParser = new DefaultXMLParser();
-                logger.info("[outbound] RAW HL7v2 Message:\n" + outMessage);
-                logger.info("[outbound] XML Encoded Message:\n" + xmlParser.encode(outMessage));
+            this.sendAndReceive(connection, outMessages, responses);
+        } catch (LLPException ex) {
+            if (!reusingConnection || unansweredMessages > 0) {
+                logger.error("LLPException: ", ex);
+                throw new HL7v2UtilException("Exception sending HL7v2 outbound message", ex);
             }
-
-            // Send and receive response.
-            Message response = initiator.sendAndReceive(outMessage);
-
-            // FIXME: Change to DEBUG
-            if (logger.isInfoEnabled()) {
-                Parser xmlParser = new DefaultXMLParser();
-                logger.info("[outbound response] RAW HL7v2 Message:\n" + response);
-                logger.info("[outbound response] XML Encoded Message:\n" + xmlParser.encode(response));
+            // Peer may have dropped the idle connection before anything was
+            // written -- try once more on a new one.
+            logger.warn("HL7v2 connection to " + endpoint.getEndpoint() + " failed on reuse; reconnecting");
+            this.retrySendAndReceive(outMessages, responses);
+        } catch (IOException ex) {
+            if (!reusingConnection || unansweredMessages > 0) {
+                logger.error("IOException: ", ex);
+                throw new HL7v2UtilException("Exception sending HL7v2 outbound message", ex);
             }
+            // Peer may have dropped the idle connection before anything was
+            // written -- try once more on a new one.
+            logger.warn("HL7v2 connection to " + endpoint.getEndpoint() + " failed on reuse; reconnecting");
+            this.retrySendAndReceive(outMessages, responses);
+        } catch (HL7Exception ex) {
+            logger.error("HL7Exception: ", ex);
+            throw new HL7v2UtilException("Exception sending HL7v2 outbound message", ex);
+        }
+        return responses;
+    }
 
-            // Close connection.
-            connection.close();
+    /**
+     * Closes the connection this client last returned to the
+     * HL7v2ConnectionPool (unless another client has since checked it out).
+     */
+    public synchronized void close() {
+        if (pooledConnection != null) {
+            HL7v2ConnectionPool.getInstance().closeConnection(endpoint, pooledConnection);
+            pooledConnection = null;
+        }
+    }
 
-            // Return response.
-            return response;
+    /**
+     *
+     * @param outMessages
+     * @param responses
+     * @throws HL7v2UtilException
+     */
+    private void retrySendAndReceive(List<Message> outMessages, List<Message> responses) throws HL7v2UtilException {
+        try {
+            // Always use a new connection here (idle pooled ones are likely stale too).
+            this.sendAndReceive(this.getConnection(false), outMessages, responses);
         } catch (LLPException ex) {
             logger.error("LLPException: ", ex);
             throw new HL7v2UtilException("Exception sending HL7v2 outbound message", ex);
@@ -98,41 +186,179 @@ public class HL7v2Client {
         } catch (HL7Exception ex) {
             logger.error("HL7Exception: ", ex);
             throw new HL7v2UtilException("Exception sending HL7v2 outbound message", ex);
+        }
+    }
+
+    /**
+     * Sends the messages not yet answered (i.e. from responses.size() on) and
+     * adds their responses.  The connection is returned to the pool (when
+     * keepAlive) on success and closed otherwise.
+     *
+     * @param connection
+     * @param outMessages
+     * @param responses
+     * @throws HL7v2UtilException
+     * @throws LLPException
+     * @throws IOException
+     * @throws HL7Exception
+     */
+    private void sendAndReceive(HL7v2Connection connection, List<Message> outMessages, List<Message> responses) throws HL7v2UtilException, LLPException, IOException, HL7Exception {
+        boolean completed = false;
+        unansweredMessages = 0;
+        try {
+            List<Message> remainingMessages = outMessages.subList(responses.size(), outMessages.size());
+            if (pipelined && remainingMessages.size() > 1) {
+                this.sendAndReceivePipelined(connection, remainingMessages, responses);
+            } else {
+                MessageTracer messageTracer = MessageTracer.getInstance();
+                for (Message outMessage : remainingMessages) {
+                    responses.add(this.sendAndReceiveMessage(connection, outMessage, messageTracer.sample()));
+                }
+            }
+            completed = true;
         } finally {
-            if (connection != null && connection.isOpen()) {
-                connection.close();
+            // Keep the connection for the next message (or close it).
+            HL7v2ConnectionPool connectionPool = HL7v2ConnectionPool.getInstance();
+            if (keepAlive && completed) {
+                connectionPool.releaseConnection(endpoint, connection);
+                pooledConnection = connection;
+            } else {
+                connectionPool.discardConnection(connection);
             }
         }
     }
 
     /**
+     * Sends a message and waits for its response.  When traced, the encoded
+     * message and response are traced without encoding either one again.
      *
+     * @param connection
+     * @param outMessage
+     * @param traced
      * @return
      * @throws HL7v2UtilException
+     * @throws LLPException
+     * @throws IOException
+     * @throws HL7Exception
      */
-    private Socket getClientSocket() throws HL7v2UtilException {
-        Socket socket;
-
-        // See if TLS is enabled.
-        if (endpoint.isTlsEnabled()) {
-            // Create listener socket (TLS).
-            TLSSocketSupport socketSupport = new TLSSocketSupport();
+    private Message sendAndReceiveMessage(HL7v2Connection connection, Message outMessage, boolean traced) throws HL7v2UtilException, LLPException, IOException, HL7Exception {
+        MessageTracer messageTracer = MessageTracer.getInstance();
+        String messageControlId = new Terser(outMessage).get("/MSH-10");
+        if (messageControlId == null || messageControlId.length() == 0) {
+            throw new HL7Exception("MSH segment missing required field Control ID (MSH-10)", HL7Exception.REQUIRED_FIELD_MISSING);
+        }
+        String encodedMessage = connection.getParser().encode(outMessage);
+        if (traced) {
+            messageTracer.trace(MessageTracer.Direction.OUTBOUND, endpoint.getEndpoint(), encodedMessage);
+        }
+        String encodedResponse;
+        try {
+            Future<String> pendingResponse = connection.send(encodedMessage, messageControlId, ackTimeoutMillis);
+            unansweredMessages++;
             try {
-                socket = socketSupport.getSecureClientSocket(
-                        endpoint.getIpAddressOrHostName(), endpoint.getPort());
-            } catch (Exception ex) {
-                logger.error("Could not open TLS socket for HL7v2 outbound connection", ex);
-                throw new HL7v2UtilException("Could not open TLS socket for HL7v2 outbound connection", ex);
+                encodedResponse = pendingResponse.get();
+            } finally {
+                pendingResponse.cancel(true);  // No-op once done.
             }
-        } else {
-            try {
-                // Create listener socket (no TLS).
-                socket = new Socket(endpoint.getIpAddressOrHostName(), endpoint.getPort());
-            } catch (IOException ex) {
-                logger.error("Could not open socket for HL7v2 outbound connection", ex);
-                throw new HL7v2UtilException("Could not open socket for HL7v2 outbound connection", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new HL7v2UtilException("Interrupted waiting for HL7v2 response", ex);
+        } catch (ExecutionException ex) {
+            throw new HL7v2UtilException("Exception waiting for HL7v2 response", ex);
+        }
+        if (encodedResponse == null) {
+            throw new HL7Exception("Timeout waiting for response to message with control ID '"
+                    + messageControlId + "'");
+        }
+        unansweredMessages--;
+        if (traced) {
+            messageTracer.trace(MessageTracer.Direction.OUTBOUND_RESPONSE, endpoint.getEndpoint(), encodedResponse);
+        }
+        return connection.getParser().parse(encodedResponse);
+    }
+
+    /**
+     * Writes all messages before waiting for any ACK; ACKs are matched to
+     * their messages by message control id (MSH-10).
+     *
+     * @param connection
+     * @param outMessages
+     * @param responses
+     * @throws HL7v2UtilException
+     * @throws LLPException
+     * @throws IOException
+     * @throws HL7Exception
+     */
+    private void sendAndReceivePipelined(HL7v2Connection connection, List<Message> outMessages, List<Message> responses) throws HL7v2UtilException, LLPException, IOException, HL7Exception {
+        MessageTracer messageTracer = MessageTracer.getInstance();
+        List<String> messageControlIds = new ArrayList<String>();
+        Set<String> uniqueMessageControlIds = new HashSet<String>();
+        for (Message outMessage : outMessages) {
+            String messageControlId = new Terser(outMessage).get("/MSH-10");
+            if (messageControlId == null || messageControlId.length() == 0) {
+                throw new HL7Exception("MSH segment missing required field Control ID (MSH-10)", HL7Exception.REQUIRED_FIELD_MISSING);
+            }
+            if (!uniqueMessageControlIds.add(messageControlId)) {
+                throw new HL7Exception("Duplicate Control ID (MSH-10) in pipelined batch: " + messageControlId);
+            }
+            messageControlIds.add(messageControlId);
+        }
+        List<Future<String>> pendingResponses = new ArrayList<Future<String>>();
+        boolean[] traced = new boolean[outMessages.size()];
+        try {
+            // Write all messages.
+            for (Message outMessage : outMessages) {
+                String encodedMessage = connection.getParser().encode(outMessage);
+                traced[pendingResponses.size()] = messageTracer.sample();
+                if (traced[pendingResponses.size()]) {
+                    messageTracer.trace(MessageTracer.Direction.OUTBOUND, endpoint.getEndpoint(), encodedMessage);
+                }
+                pendingResponses.add(connection.send(encodedMessage,
+                        messageControlIds.get(pendingResponses.size()), ackTimeoutMillis));
+                unansweredMessages++;
+            }
+            // Collect responses (in order).
+            for (int i = 0; i < pendingResponses.size(); i++) {
+                String encodedResponse = pendingResponses.get(i).get();
+                if (encodedResponse == null) {
+                    throw new HL7Exception("Timeout waiting for response to message with control ID '"
+                            + messageControlIds.get(i) + "'");
+                }
+                unansweredMessages--;
+                if (traced[i]) {
+                    messageTracer.trace(MessageTracer.Direction.OUTBOUND_RESPONSE, endpoint.getEndpoint(), encodedResponse);
+                }
+                responses.add(connection.getParser().parse(encodedResponse));
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new HL7v2UtilException("Interrupted waiting for HL7v2 response", ex);
+        } catch (ExecutionException ex) {
+            throw new HL7v2UtilException("Exception waiting for HL7v2 response", ex);
+        } finally {
+            // Stop waiting for any responses not collected.
+            for (int i = responses.size(); i < pendingResponses.size(); i++) {
+                pendingResponses.get(i).cancel(true);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param pooled
+     * @return
+     * @throws HL7v2UtilException
+     */
+    private HL7v2Connection getConnection(boolean pooled) throws HL7v2UtilException {
+        HL7v2ConnectionPool connectionPool = HL7v2ConnectionPool.getInstance();
+        try {
+            return pooled ? connectionPool.getConnection(endpoint) : connectionPool.openConnection(endpoint);
+        } catch (LLPException ex) {
+            logger.error("LLPException: ", ex);
+            throw new HL7v2UtilException("Could not open HL7v2 outbound connection", ex);
+        } catch (IOException ex) {
+            logger.error("IOException: ", ex);
+            throw new HL7v2UtilException("Could not open HL7v2 outbound connection", ex);
         }
-        return socket;
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.client;
+
+import ca.uhn.hl7v2.app.Connection;
+import ca.uhn.hl7v2.llp.LLPException;
+import ca.uhn.hl7v2.llp.LowerLayerProtocol;
+import ca.uhn.hl7v2.parser.Parser;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Future;
+
+/**
+ * Outbound MLLP connection that may be kept in the HL7v2ConnectionPool and
+ * that can write messages without waiting for the previous ACK (pipelining).
+ */
+class HL7v2Connection extends Connection {
+
+    private final Socket socket;
+    private long releasedTime = 0;
+
+    /**
+     *
+     * @param parser
+     * @param llp
+     * @param socket
+     * @throws LLPException
+     * @throws IOException
+     */
+    HL7v2Connection(Parser parser, LowerLayerProtocol llp, Socket socket) throws LLPException, IOException {
+        super(parser, llp, socket);
+        this.socket = socket;
+    }
+
+    /**
+     * Writes the (encoded) message and returns immediately.  The returned
+     * future yields the encoded response (or null on timeout) once the ACK for
+     * the given message control id arrives.
+     *
+     * @param outMessage
+     * @param messageControlId
+     * @param timeoutMillis
+     * @return
+     * @throws LLPException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    Future<String> send(String outMessage, String messageControlId, long timeoutMillis) throws LLPException, IOException, InterruptedException {
+        // Register for the response before writing so a fast ACK is not missed.
+        Future<String> response = this.waitForResponse(messageControlId, timeoutMillis);
+        this.getSendWriter().writeMessage(outMessage);
+        return response;
+    }
+
+    /**
+     * Returns true if the connection (and its socket) are still usable.  The
+     * HAPI receiver thread closes the connection when the peer hangs up.
+     *
+     * @return
+     */
+    boolean isHealthy() {
+        return this.isOpen() && socket.isConnected() && !socket.isClosed()
+                && !socket.isInputShutdown() && !socket.isOutputShutdown();
+    }
+
+    /**
+     * Returns true if the connection has been used (and released) before.
+     *
+     * @return
+     */
+    boolean isReused() {
+        return releasedTime != 0;
+    }
+
+    /**
+     *
+     * @return
+     */
+    long getReleasedTime() {
+        return releasedTime;
+    }
+
+    /**
+     *
+     * @param releasedTime
+     */
+    void setReleasedTime(long releasedTime) {
+        this.releasedTime = releasedTime;
+    }
+}
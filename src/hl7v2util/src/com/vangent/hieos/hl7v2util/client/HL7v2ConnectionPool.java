@@ -0,0 +1,331 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.client;
+
+import ca.uhn.hl7v2.llp.LLPException;
+import ca.uhn.hl7v2.llp.LowerLayerProtocol;
+import ca.uhn.hl7v2.parser.PipeParser;
+import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
+import com.vangent.hieos.xutil.socket.TLSSocketSupport;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Per-endpoint pool of idle (persistent) outbound MLLP connections.  A
+ * connection is checked out for the duration of a message exchange and
+ * returned afterwards; connections that have been idle too long or that the
+ * peer has closed are discarded (and replaced) on the next checkout.
+ *
+ * Connections are only kept while the pool has a registered owner (e.g. the
+ * PIX notification dispatcher); the idle connections are closed when the last
+ * owner unregisters.
+ */
+public class HL7v2ConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(HL7v2ConnectionPool.class);
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 4;
+    private static HL7v2ConnectionPool _instance = null;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_SECONDS * 1000L;
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    // Most recently released connection first.
+    private final Map<String, LinkedList<HL7v2Connection>> idleConnections = new HashMap<String, LinkedList<HL7v2Connection>>();
+    private long openedCount = 0;
+    private long reusedCount = 0;
+    private long discardedCount = 0;
+    private int ownerCount = 0;
+
+    /**
+     *
+     */
+    private HL7v2ConnectionPool() {
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static synchronized HL7v2ConnectionPool getInstance() {
+        if (_instance == null) {
+            _instance = new HL7v2ConnectionPool();
+        }
+        return _instance;
+    }
+
+    /**
+     *
+     * @param idleTimeoutSeconds Idle connections older than this are closed.
+     * @param maxIdleConnections Maximum idle connections kept per endpoint (0 disables pooling).
+     */
+    public synchronized void configure(long idleTimeoutSeconds, int maxIdleConnections) {
+        this.idleTimeoutMillis = idleTimeoutSeconds * 1000L;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Registers an owner of the pool; connections are kept (pooled) only while
+     * at least one owner is registered.
+     */
+    public synchronized void register() {
+        ++ownerCount;
+    }
+
+    /**
+     * Unregisters an owner of the pool; idle connections are closed once the
+     * last one is gone.
+     */
+    public void unregister() {
+        boolean lastOwner;
+        synchronized (this) {
+            lastOwner = ownerCount > 0 && --ownerCount == 0;
+        }
+        if (lastOwner) {
+            this.closeIdleConnections();
+        }
+    }
+
+    /**
+     * Returns a healthy idle connection to the endpoint (or a new one if none
+     * is available).
+     *
+     * @param endpoint
+     * @return
+     * @throws HL7v2UtilException
+     * @throws LLPException
+     * @throws IOException
+     */
+    HL7v2Connection getConnection(HL7v2Endpoint endpoint) throws HL7v2UtilException, LLPException, IOException {
+        HL7v2Connection connection = null;
+        List<HL7v2Connection> staleConnections = new ArrayList<HL7v2Connection>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            LinkedList<HL7v2Connection> idle = idleConnections.get(endpoint.getEndpoint());
+            while (connection == null && idle != null && !idle.isEmpty()) {
+                HL7v2Connection candidate = idle.removeFirst();
+                if (this.isUsable(candidate, now)) {
+                    connection = candidate;
+                    ++reusedCount;
+                } else {
+                    staleConnections.add(candidate);
+                    ++discardedCount;
+                }
+            }
+            staleConnections.addAll(this.removeExpiredConnections(now));
+        }
+        for (HL7v2Connection staleConnection : staleConnections) {
+            this.close(staleConnection);
+        }
+        if (connection == null) {
+            connection = this.openConnection(endpoint);
+        }
+        return connection;
+    }
+
+    /**
+     * Opens a new (unpooled) connection to the endpoint.
+     *
+     * @param endpoint
+     * @return
+     * @throws HL7v2UtilException
+     * @throws LLPException
+     * @throws IOException
+     */
+    HL7v2Connection openConnection(HL7v2Endpoint endpoint) throws HL7v2UtilException, LLPException, IOException {
+        // Create a socket (using endpoint provided).
+        Socket clientSocket = this.getClientSocket(endpoint);
+
+        LowerLayerProtocol llp = LowerLayerProtocol.makeLLP(); // The transport protocol
+        PipeParser parser = new PipeParser(); // The message parser
+        HL7v2Connection connection;
+        try {
+            connection = new HL7v2Connection(parser, llp, clientSocket);
+        } catch (LLPException ex) {
+            clientSocket.close();
+            throw ex;
+        } catch (IOException ex) {
+            clientSocket.close();
+            throw ex;
+        }
+        connection.activate();
+        synchronized (this) {
+            ++openedCount;
+        }
+        return connection;
+    }
+
+    /**
+     * Returns a connection to the pool after a successful exchange.  The
+     * connection is closed if it is no longer usable, the pool is full or the
+     * pool has no owner.
+     *
+     * @param endpoint
+     * @param connection
+     */
+    void releaseConnection(HL7v2Endpoint endpoint, HL7v2Connection connection) {
+        synchronized (this) {
+            LinkedList<HL7v2Connection> idle = idleConnections.get(endpoint.getEndpoint());
+            if (idle == null) {
+                idle = new LinkedList<HL7v2Connection>();
+                idleConnections.put(endpoint.getEndpoint(), idle);
+            }
+            if (ownerCount > 0 && connection.isHealthy() && idle.size() < maxIdleConnections) {
+                connection.setReleasedTime(System.currentTimeMillis());
+                idle.addFirst(connection);
+                return;  // Pooled.
+            }
+        }
+        this.discardConnection(connection);
+    }
+
+    /**
+     * Closes a connection that failed (or should not be reused).
+     *
+     * @param connection
+     */
+    void discardConnection(HL7v2Connection connection) {
+        synchronized (this) {
+            ++discardedCount;
+        }
+        this.close(connection);
+    }
+
+    /**
+     * Closes the connection if it is (still) idle in the pool.  A connection
+     * that has since been checked out is left alone.
+     *
+     * @param endpoint
+     * @param connection
+     */
+    void closeConnection(HL7v2Endpoint endpoint, HL7v2Connection connection) {
+        synchronized (this) {
+            LinkedList<HL7v2Connection> idle = idleConnections.get(endpoint.getEndpoint());
+            if (idle == null || !idle.remove(connection)) {
+                return;  // In use (or already closed).
+            }
+            ++discardedCount;
+        }
+        this.close(connection);
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public void closeIdleConnections() {
+        List<HL7v2Connection> connections = new ArrayList<HL7v2Connection>();
+        synchronized (this) {
+            for (LinkedList<HL7v2Connection> idle : idleConnections.values()) {
+                connections.addAll(idle);
+                discardedCount += idle.size();
+            }
+            idleConnections.clear();
+        }
+        for (HL7v2Connection connection : connections) {
+            this.close(connection);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String getStatistics() {
+        int idleCount = 0;
+        for (LinkedList<HL7v2Connection> idle : idleConnections.values()) {
+            idleCount += idle.size();
+        }
+        return "HL7v2ConnectionPool (idle = " + idleCount
+                + ", opened = " + openedCount
+                + ", reused = " + reusedCount
+                + ", discarded = " + discardedCount + ")";
+    }
+
+    /**
+     *
+     * @param connection
+     * @param now
+     * @return
+     */
+    private boolean isUsable(HL7v2Connection connection, long now) {
+        return (now - connection.getReleasedTime()) < idleTimeoutMillis && connection.isHealthy();
+    }
+
+    /**
+     * Removes (but does not close) idle connections that are no longer usable.
+     *
+     * @param now
+     * @return
+     */
+    private List<HL7v2Connection> removeExpiredConnections(long now) {
+        List<HL7v2Connection> expiredConnections = new ArrayList<HL7v2Connection>();
+        for (LinkedList<HL7v2Connection> idle : idleConnections.values()) {
+            for (Iterator<HL7v2Connection> it = idle.iterator(); it.hasNext();) {
+                HL7v2Connection connection = it.next();
+                if (!this.isUsable(connection, now)) {
+                    it.remove();
+                    expiredConnections.add(connection);
+                    ++discardedCount;
+                }
+            }
+        }
+        return expiredConnections;
+    }
+
+    /**
+     *
+     * @param connection
+     */
+    private void close(HL7v2Connection connection) {
+        if (connection.isOpen()) {
+            connection.close();
+        }
+    }
+
+    /**
+     *
+     * @param endpoint
+     * @return
+     * @throws HL7v2UtilException
+     */
+    private Socket getClientSocket(HL7v2Endpoint endpoint) throws HL7v2UtilException {
+        Socket socket;
+
+        // See if TLS is enabled.
+        if (endpoint.isTlsEnabled()) {
+            // Create listener socket (TLS).
+            TLSSocketSupport socketSupport = new TLSSocketSupport();
+            try {
+                socket = socketSupport.getSecureClientSocket(
+                        endpoint.getIpAddressOrHostName(), endpoint.getPort());
+            } catch (Exception ex) {
+                logger.error("Could not open TLS socket for HL7v2 outbound connection", ex);
+                throw new HL7v2UtilException("Could not open TLS socket for HL7v2 outbound connection", ex);
+            }
+        } else {
+            try {
+                // Create listener socket (no TLS).
+                socket = new Socket(endpoint.getIpAddressOrHostName(), endpoint.getPort());
+            } catch (IOException ex) {
+                logger.error("Could not open socket for HL7v2 outbound connection", ex);
+                throw new HL7v2UtilException("Could not open socket for HL7v2 outbound connection", ex);
+            }
+        }
+        return socket;
+    }
+}
@@ -29,6 +29,8 @@ public class PIXConsumerClient {
 
     private static final Logger logger = Logger.getLogger(PIXConsumerClient.class);
     private XConfigActor pixConsumerActorConfig;
+    private boolean keepAlive = false;
+    private HL7v2Client hl7v2Client = null;
 
     /**
      *
@@ -38,6 +40,18 @@ public class PIXConsumerClient {
         this.pixConsumerActorConfig = pixConsumerActorConfig;
     }
 
+    /**
+     * When keepAlive is true, MLLP connections to the PIX Consumer are kept
+     * open (in the HL7v2ConnectionPool) and reused across notifications.
+     *
+     * @param pixConsumerActorConfig
+     * @param keepAlive
+     */
+    public PIXConsumerClient(XConfigActor pixConsumerActorConfig, boolean keepAlive) {
+        this(pixConsumerActorConfig);
+        this.keepAlive = keepAlive;
+    }
+
     /**
      * 
      * @param senderDeviceInfo
@@ -55,9 +69,7 @@ public class PIXConsumerClient {
             Message outMessage = pixUpdateNotificationMessageBuilder.buildPIXUpdateNotificationMessage(subject);
 
             // Get HL7v2Client and send out message.
-            String endpoint = pixConsumerActorConfig.getTransaction("PatientRegistryRecordRevised").getEndpointURL();
-            HL7v2Client hl7v2Client = new HL7v2Client(endpoint);
-            Message responseMessage = hl7v2Client.sendMessage(outMessage);
+            Message responseMessage = this.getHL7v2Client().sendMessage(outMessage);
 
             // Return response.
             return responseMessage;
@@ -66,6 +78,32 @@ public class PIXConsumerClient {
             logger.error("HL7Exception: ", ex);
             throw new HL7v2UtilException("Exception sending PIX Update Notification", ex);
         } finally {
+            if (!keepAlive) {
+                this.close();
+            }
+        }
+    }
+
+    /**
+     * Closes any open connection to the PIX Consumer.
+     */
+    public void close() {
+        if (hl7v2Client != null) {
+            hl7v2Client.close();
+            hl7v2Client = null;
+        }
+    }
+
+    /**
+     *
+     * @return
+     * @throws HL7v2UtilException
+     */
+    private HL7v2Client getHL7v2Client() throws HL7v2UtilException {
+        if (hl7v2Client == null) {
+            String endpoint = pixConsumerActorConfig.getTransaction("PatientRegistryRecordRevised").getEndpointURL();
+            hl7v2Client = new HL7v2Client(endpoint, keepAlive);
         }
+        return hl7v2Client;
     }
 }
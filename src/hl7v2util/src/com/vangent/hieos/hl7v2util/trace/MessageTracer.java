@@ -0,0 +1,155 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.hl7v2util.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Traces raw (ER7) HL7v2 messages as they cross the wire.  Only the message
+ * string already at hand is written (no parse/encode passes).  Tracing can be
+ * sampled (1 in N exchanges) and each traced message is truncated to a
+ * maximum size.  Output goes to this class' log4j category at INFO.
+ */
+public class MessageTracer {
+
+    private static final Logger logger = Logger.getLogger(MessageTracer.class);
+    private static final MessageTracer _instance = new MessageTracer();
+    public static final int DEFAULT_SAMPLE_RATE = 1;
+    public static final int DEFAULT_MAX_TRACE_SIZE = 4096;
+    private volatile boolean enabled = true;
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+    private volatile int maxTraceSize = DEFAULT_MAX_TRACE_SIZE;
+    private final AtomicLong exchangeCount = new AtomicLong(0);
+    private final AtomicLong tracedCount = new AtomicLong(0);
+
+    /**
+     *
+     */
+    public enum Direction {
+
+        INBOUND("inbound"),
+        INBOUND_RESPONSE("inbound response"),
+        OUTBOUND("outbound"),
+        OUTBOUND_RESPONSE("outbound response");
+        private final String label;
+
+        /**
+         *
+         * @param label
+         */
+        Direction(String label) {
+            this.label = label;
+        }
+
+        /**
+         *
+         * @return
+         */
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     *
+     */
+    private MessageTracer() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static MessageTracer getInstance() {
+        return _instance;
+    }
+
+    /**
+     *
+     * @param enabled
+     * @param sampleRate Trace 1 in sampleRate exchanges (<= 1 traces all).
+     * @param maxTraceSize Maximum number of characters traced per message (<= 0 is unlimited).
+     */
+    public void configure(boolean enabled, int sampleRate, int maxTraceSize) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxTraceSize = maxTraceSize;
+        logger.info("HL7v2 message trace (enabled = " + enabled
+                + ", sample rate = " + sampleRate
+                + ", max trace size = " + maxTraceSize + ")");
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled && logger.isInfoEnabled();
+    }
+
+    /**
+     * Call once per exchange (message and its response) to decide whether the
+     * exchange is traced.
+     *
+     * @return
+     */
+    public boolean sample() {
+        if (!this.isEnabled()) {
+            return false;
+        }
+        int rate = sampleRate;
+        if (rate > 1 && (exchangeCount.getAndIncrement() % rate) != 0) {
+            return false;
+        }
+        tracedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getTracedCount() {
+        return tracedCount.get();
+    }
+
+    /**
+     *
+     * @param direction
+     * @param peer
+     * @param message
+     */
+    public void trace(Direction direction, String peer, String message) {
+        if (message == null) {
+            return;
+        }
+        int length = message.length();
+        int limit = maxTraceSize;
+        int traceLength = (limit > 0) ? Math.min(limit, length) : length;
+        StringBuilder sb = new StringBuilder(traceLength + 128);
+        sb.append("[").append(direction).append("] peer=").append(peer);
+        sb.append(", length=").append(length).append(":\n");
+        // Segments are separated by CR; show one per line.
+        for (int i = 0; i < traceLength; i++) {
+            char c = message.charAt(i);
+            sb.append(c == '\r' ? '\n' : c);
+        }
+        if (traceLength < length) {
+            sb.append("\n... [truncated ").append(length - traceLength).append(" chars]");
+        }
+        logger.info(sb.toString());
+    }
+}
@@ -55,6 +55,7 @@ public class PIXConsumerClient extends WebServiceClient {
     public HL7V3ClientResponse patientRegistryRecordRevised(PRPA_IN201302UV02_Message request) throws SOAPFaultException {
         // TBD: Validate against schema.
         Soap soap = new Soap();
+        soap.setHttpConnectionManager(this.getHttpConnectionManager());
         XConfigActor config = this.getConfig();
         XConfigTransaction txn = config.getTransaction("PatientRegistryRecordRevised");
         soap.setAsync(txn.isAsyncTransaction());
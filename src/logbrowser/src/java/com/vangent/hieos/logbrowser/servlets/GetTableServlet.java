@@ -16,15 +16,16 @@ import com.vangent.hieos.logbrowser.log.db.Log;
 import com.vangent.hieos.logbrowser.log.db.LoggerException;
 
 import com.vangent.hieos.logbrowser.util.TableModel;
-import com.vangent.hieos.logbrowser.util.TableSorter;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.text.Format;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -69,13 +70,21 @@ public class GetTableServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
     private final static Logger logger = Logger.getLogger(GetTableServlet.class);
     private final int MAX_RESULTS_BY_PAGE = 50;
+    private final static int DESCENDING = -1;
+    private final static int NOT_SORTED = 0;
+    private final static int ASCENDING = 1;
+    private final static String MESSAGE_ID_COLUMN = "messageid";
+    private final static String TIMESTAMP_COLUMN = "Timestamp";
+    // Keyset predicates for the default ordering (main.timereceived desc, main.messageid asc).
+    private final static String KEYSET_NEXT_PAGE =
+            "(main.timereceived < ? OR (main.timereceived = ? AND main.messageid > ?))";
+    private final static String KEYSET_PREVIOUS_PAGE =
+            "(main.timereceived > ? OR (main.timereceived = ? AND main.messageid < ?))";
+    private final static String REVERSE_ORDER_BY = "main.timereceived asc, main.messageid desc";
+    private final static String DEFAULT_ORDER_BY_TIEBREAK = ", " + TableModel.DEFAULT_ORDER_BY;
 
-    private TableModel tableModel;
-    private TableSorter sorter;
     private ServletConfig currentConfig;
-    private HashMap<String, String> map;
-    private boolean isAdmin;
-    private String currentIP;
+    private String[] sortColumns = new String[0];
 
     /**
      *
@@ -84,6 +93,14 @@ public class GetTableServlet extends HttpServlet {
      */
     public void init(ServletConfig config) throws ServletException {
         currentConfig = config;
+
+        // ORDER BY expressions, in the same order as the columns selected by "sqlCommand".
+        String sortColumnsParam = config.getInitParameter("sortColumns");
+        if (sortColumnsParam != null) {
+            sortColumns = sortColumnsParam.trim().split("\\s*,\\s*");
+        } else {
+            logger.warn("GetTableServlet: sortColumns not configured, column sorting is disabled");
+        }
     }
 
     /**
@@ -98,12 +115,13 @@ public class GetTableServlet extends HttpServlet {
             session.setAttribute("systemType", "new");
             Boolean isAdmin_ = (Boolean) session.getAttribute("isAdmin");
 
+            boolean isAdmin;
             if (isAdmin_ == null) {
                 isAdmin = false;
             } else {
                 isAdmin = isAdmin_.booleanValue();
             }
-            currentIP = req.getRemoteAddr();
+            String currentIP = req.getRemoteAddr();
             String sort = req.getParameter("sort");
             String option = req.getParameter("option");
             String page = req.getParameter("page");
@@ -112,8 +130,6 @@ public class GetTableServlet extends HttpServlet {
             }
             String numberResultsByPage = req.getParameter("nbResByPage");
 
-            String currentSqlCommand;
-            Vector<HashMap> currentSqlParams = new Vector<HashMap>();
             Integer numberOfResults = (Integer) session.getAttribute("numberOfResults");
             if (logger.isDebugEnabled()){
                 logger.debug("Option/Page/TotRows: " + option + "/" + page + "/" + numberOfResults);
@@ -131,7 +147,7 @@ public class GetTableServlet extends HttpServlet {
                         logger.info("New TotRows: " + numberOfResults);
                     }
                 }
-                
+
                 numberResultsByPage = (String) session.getAttribute("numberResultsByPage");
                 page = (String) session.getAttribute("page");
                 StringBuffer buffer = new StringBuffer();
@@ -141,43 +157,46 @@ public class GetTableServlet extends HttpServlet {
                 if (logger.isDebugEnabled()){
                     logger.debug("PAGE HEADER:" + buffer.toString());
                 }
- 
+
                 res.getWriter().println(buffer.toString());
-            } else if (sort == null) {
+            } else {
 
-                // Get search criteria and database type from session
-                getOptions(req, session);
+                // Get database type from session
                 String databaseType = (String)session.getAttribute("databaseType");
                 if (databaseType == null){
                     databaseType = log.getDatabaseType();
                     session.setAttribute("databaseType", databaseType);
                 }
 
-                // Build the SQL Query based on search criteria
-                sqlCommandProcessing(session, (Integer) session.getAttribute("optionNumber"), 
-                        page, numberResultsByPage, databaseType);
-                currentSqlCommand = (String) (session.getAttribute("currentSqlCommand"));
-                currentSqlParams = (Vector) (session.getAttribute("currentSqlParams"));
- 
-                session.setAttribute("page", page);
-                session.setAttribute("numberResultsByPage", numberResultsByPage);
+                if (sort == null) {
+                    // Build the SQL Query based on search criteria
+                    HashMap<String, String> map = getOptions(req, session, isAdmin, currentIP);
+                    sqlCommandProcessing(session, map, (Integer) session.getAttribute("optionNumber"));
+                    session.setAttribute("page", page);
+                    session.setAttribute("numberResultsByPage", numberResultsByPage);
+                } else {
+                    // Re-run the current search (same page) with the new ordering
+                    updateSortingStatus(session, Integer.parseInt(sort));
+                    page = (String) session.getAttribute("page");
+                    numberResultsByPage = (String) session.getAttribute("numberResultsByPage");
+                }
+                if (session.getAttribute("filterSqlCommand") == null) {
+                    throw new Exception("No search has been performed for this session");
+                }
 
-                Map fieldsAndFormats = new HashMap();
+                Map<String, Format> fieldsAndFormats = new HashMap<String, Format>();
                 Format fmt = new SimpleDateFormat("EEE d MMM - HH:mm:ss.SSS");
                 fieldsAndFormats.put("Timestamp", fmt);
 
-                // Execute the SQL Query and Retrieve the log data
+                // Execute the SQL Query and Retrieve the log data (one page only)
                 Connection con = log.getConnection();
-                executeCurrentSqlCommand(con, currentSqlCommand, currentSqlParams, fieldsAndFormats);
+                TableModel tableModel = executePageQuery(session, con, databaseType,
+                        page, numberResultsByPage, fieldsAndFormats);
 
                 // Format Output
-                res.getWriter().write(toJSon(-1, -2));
-
-            } else if (sort != null) {
-                res.getWriter().write(sortColomn(sort));
-            } else {
-                throw new Exception(
-                        "Error case unknown not sort either display table");
+                res.getWriter().write(toJSon(tableModel, isAdmin,
+                        getSessionInt(session, "sortColumn", -1),
+                        getSessionInt(session, "sortingStatus", NOT_SORTED)));
             }
         } catch (SQLException e) {
             getError(e, res);
@@ -206,15 +225,14 @@ public class GetTableServlet extends HttpServlet {
     /**
      * <b>sqlCommandProcessing</b><br/>
      * Create the sql command beginning with the sql command specified in the web.xml file and applying all the options <br/>
-     * specified by the user. This command also apply a limit in the results to avoid to overload the server
+     * specified by the user. The result (without ordering or paging) is kept in the session and is used for both <br/>
+     * the page queries and the count.
      *
      */
-    private void sqlCommandProcessing(HttpSession session, int optionNumberInt,
-            String page, String numberResultsByPage, String databaseType) throws LoggerException{
+    private void sqlCommandProcessing(HttpSession session, HashMap<String, String> map, int optionNumberInt) {
         int parameterNumber = 1;
-        reInitSqlCommand(session);
-        String currentSqlCommand = (String) session.getAttribute("currentSqlCommand");
-        Vector currentSqlParams = new Vector();
+        String currentSqlCommand = currentConfig.getInitParameter("sqlCommand");
+        Vector<HashMap<String, Object>> currentSqlParams = new Vector<HashMap<String, Object>>();
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         if (logger.isDebugEnabled()){
             logger.debug("SQL-BASE: " + currentSqlCommand);
@@ -225,9 +243,9 @@ public class GetTableServlet extends HttpServlet {
         if (map != null && optionNumberInt > 0) {
             String commandTemp = currentSqlCommand;
             if (currentSqlCommand.toLowerCase().indexOf("where") > -1) {
-                commandTemp += " AND ";
+                commandTemp += " AND (";
             } else {
-                commandTemp += " WHERE ";
+                commandTemp += " WHERE (";
             }
 
             while (parameterNumber <= optionNumberInt) {
@@ -338,6 +356,7 @@ public class GetTableServlet extends HttpServlet {
                 }
                 parameterNumber++;
             }
+            commandTemp += ")";
             if (logger.isDebugEnabled()){
                 logger.debug("SQL-WITH-FILTERS: " + commandTemp);
             }
@@ -345,56 +364,186 @@ public class GetTableServlet extends HttpServlet {
         }
 
 
-        // Save SQL for count(*) command
-        session.setAttribute("countSqlCommand", currentSqlCommand);
-        session.setAttribute("countSqlParams", currentSqlParams);
+        // Save SQL for the page and count(*) commands
+        session.setAttribute("filterSqlCommand", currentSqlCommand);
+        session.setAttribute("filterSqlParams", currentSqlParams);
+    }
+
+    /**
+     * Runs the search saved in the session for a single page. The database does the ordering
+     * and paging; when moving to an adjacent page under the default ordering the previous
+     * page's first/last (timereceived, messageid) keys are used instead of an offset.
+     *
+     * @param session
+     * @param con
+     * @param databaseType
+     * @param page
+     * @param numberResultsByPage
+     * @param fieldsAndFormats
+     * @return
+     * @throws SQLException
+     */
+    private TableModel executePageQuery(HttpSession session, Connection con, String databaseType,
+            String page, String numberResultsByPage, Map<String, Format> fieldsAndFormats) throws SQLException {
+        String filterSqlCommand = (String) session.getAttribute("filterSqlCommand");
+        Vector<HashMap<String, Object>> filterSqlParams = getFilterSqlParams(session);
 
-        // Add Paging logic to the SQL Statement
-        if (logger.isDebugEnabled()){
-            logger.debug("GetTableServlet: SQLRequest before paging: >" + currentSqlCommand);
-        }
-        
         int nbResByPage = MAX_RESULTS_BY_PAGE;
         if (numberResultsByPage != null) {
-                nbResByPage = new Integer(numberResultsByPage).intValue();
+                nbResByPage = Integer.parseInt(numberResultsByPage);
         }
         int pageNumber = 0;
         if (page != null) {
-            pageNumber = new Integer(page).intValue();
+            pageNumber = Integer.parseInt(page);
+        }
+        int sortingStatus = getSessionInt(session, "sortingStatus", NOT_SORTED);
+        String orderBy = getOrderBy(getSessionInt(session, "sortColumn", -1), sortingStatus);
+
+        String sqlCommand = filterSqlCommand;
+        Vector<HashMap<String, Object>> sqlParams = new Vector<HashMap<String, Object>>(filterSqlParams);
+        int pageOffset = pageNumber;
+        boolean reversed = false;
+        PageKeys pageKeys = (PageKeys) session.getAttribute("pageKeys");
+        if (sortingStatus == NOT_SORTED && pageKeys != null
+                && pageKeys.isSameSearch(filterSqlCommand, filterSqlParams, nbResByPage)) {
+            String keysetSqlCommand = filterSqlCommand
+                    + (filterSqlCommand.toLowerCase().indexOf("where") > -1 ? " AND " : " WHERE ");
+            if (pageNumber == pageKeys.pageNumber + 1) {
+                sqlCommand = keysetSqlCommand + KEYSET_NEXT_PAGE;
+                sqlParams.add(TableModel.setSqlParam(TableModel.TIMESTAMP, pageKeys.lastTimestamp));
+                sqlParams.add(TableModel.setSqlParam(TableModel.TIMESTAMP, pageKeys.lastTimestamp));
+                sqlParams.add(TableModel.setSqlParam(TableModel.STRING, pageKeys.lastMessageId));
+                pageOffset = 0;
+            } else if (pageNumber == pageKeys.pageNumber - 1) {
+                sqlCommand = keysetSqlCommand + KEYSET_PREVIOUS_PAGE;
+                sqlParams.add(TableModel.setSqlParam(TableModel.TIMESTAMP, pageKeys.firstTimestamp));
+                sqlParams.add(TableModel.setSqlParam(TableModel.TIMESTAMP, pageKeys.firstTimestamp));
+                sqlParams.add(TableModel.setSqlParam(TableModel.STRING, pageKeys.firstMessageId));
+                orderBy = REVERSE_ORDER_BY;
+                pageOffset = 0;
+                reversed = true;
+            }
         }
-        
-        // Add database specific paging logic to the SQL command
-        HashMap sqlMap = TableModel.getSQLWithPaging(databaseType, currentSqlCommand,
-                currentSqlParams, pageNumber, nbResByPage);
-        StringBuffer completeSQL = (StringBuffer) sqlMap.get("completeSQL");
-        Vector<HashMap> completeSqlParams = (Vector<HashMap>) sqlMap.get("completeSqlParams");
 
-        // Save the SQL Command
-        session.setAttribute("currentSqlCommand", completeSQL.toString());
-        session.setAttribute("currentSqlParams", completeSqlParams);
+        // Add database specific ordering and paging logic to the SQL command
+        HashMap<String, Object> sqlMap = TableModel.getSQLWithPaging(databaseType, sqlCommand,
+                sqlParams, orderBy, pageOffset, nbResByPage);
+        StringBuffer completeSQL = (StringBuffer) sqlMap.get("completeSQL");
+        @SuppressWarnings("unchecked")
+        Vector<HashMap<String, Object>> completeSqlParams = (Vector<HashMap<String, Object>>) sqlMap.get("completeSqlParams");
         if (logger.isInfoEnabled()){
             logger.debug("LogBrowser Page: " + page);
             logger.info("LogBrowser SQL (with paging): " + completeSQL);
         }
+
+        TableModel tableModel = new TableModel(completeSQL.toString(), completeSqlParams, fieldsAndFormats, con);
+        if (reversed) {
+            tableModel.reverseRows();
+        }
+
+        // Remember this page's boundary keys for the next request.
+        if (sortingStatus == NOT_SORTED) {
+            session.setAttribute("pageKeys", getPageKeys(tableModel,
+                    filterSqlCommand, filterSqlParams, nbResByPage, pageNumber));
+        } else {
+            session.removeAttribute("pageKeys");
+        }
+        return tableModel;
     }
 
     /**
-     * 
-     * @param sqlCommand
-     * @param fieldsAndFormats
-     * @throws com.vangent.hieos.logbrowser.log.db.LoggerException
+     *
+     * @param session
+     * @return the parameters of the current filter (saved by sqlCommandProcessing)
      */
-    private void executeCurrentSqlCommand(Connection con, String sqlCommand, Vector<HashMap> sqlParams, Map fieldsAndFormats) throws SQLException {
-        tableModel = new TableModel(sqlCommand, sqlParams, fieldsAndFormats, con);
-        sorter = new TableSorter(tableModel);
+    @SuppressWarnings("unchecked")
+    private static Vector<HashMap<String, Object>> getFilterSqlParams(HttpSession session) {
+        return (Vector<HashMap<String, Object>>) session.getAttribute("filterSqlParams");
     }
 
     /**
      *
-     * @param session
+     * @param tableModel
+     * @param filterSqlCommand
+     * @param filterSqlParams
+     * @param nbResByPage
+     * @param pageNumber
+     * @return PageKeys - or null if the page is empty or does not include the key columns
+     */
+    private PageKeys getPageKeys(TableModel tableModel, String filterSqlCommand,
+            Vector<HashMap<String, Object>> filterSqlParams, int nbResByPage, int pageNumber) {
+        int lastRow = tableModel.getRowCount() - 1;
+        int timestampColumn = findColumn(tableModel, TIMESTAMP_COLUMN);
+        int messageIdColumn = findColumn(tableModel, MESSAGE_ID_COLUMN);
+        if (lastRow < 0 || timestampColumn < 0 || messageIdColumn < 0) {
+            return null;
+        }
+        Object firstTimestamp = tableModel.getRawValueAt(0, timestampColumn);
+        Object lastTimestamp = tableModel.getRawValueAt(lastRow, timestampColumn);
+        if (!(firstTimestamp instanceof Timestamp) || !(lastTimestamp instanceof Timestamp)) {
+            return null;
+        }
+        PageKeys pageKeys = new PageKeys();
+        pageKeys.filterSqlCommand = filterSqlCommand;
+        pageKeys.filterSqlParams = getParamsSignature(filterSqlParams);
+        pageKeys.nbResByPage = nbResByPage;
+        pageKeys.pageNumber = pageNumber;
+        pageKeys.firstTimestamp = (Timestamp) firstTimestamp;
+        pageKeys.firstMessageId = String.valueOf(tableModel.getRawValueAt(0, messageIdColumn));
+        pageKeys.lastTimestamp = (Timestamp) lastTimestamp;
+        pageKeys.lastMessageId = String.valueOf(tableModel.getRawValueAt(lastRow, messageIdColumn));
+        return pageKeys;
+    }
+
+    /**
+     *
+     * @param tableModel
+     * @param columnLabel
+     * @return the column index or -1 if not found (labels are compared ignoring case).
+     */
+    private int findColumn(TableModel tableModel, String columnLabel) {
+        for (int i = 0; i < tableModel.getColumnCount(); i++) {
+            if (tableModel.getColumnName(i).equalsIgnoreCase(columnLabel)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the parameters as they are bound to the statement (DATE parameters are bound
+     * without a time of day), so that relative date filters compare equal within a day.
+     *
+     * @param params
+     * @return
+     */
+    private static String getParamsSignature(Vector<HashMap<String, Object>> params) {
+        StringBuffer signature = new StringBuffer();
+        for (HashMap<String, Object> param : params) {
+            if (param.containsKey(TableModel.DATE)) {
+                signature.append(new java.sql.Date(((java.util.Date) param.get(TableModel.DATE)).getTime()));
+            } else {
+                signature.append(param);
+            }
+            signature.append('|');
+        }
+        return signature.toString();
+    }
+
+    /**
+     *
+     * @param sortColumn
+     * @param sortingStatus
+     * @return the ORDER BY expression list for the requested column (the default ordering
+     * is always appended so that paging is deterministic).
      */
-    private void reInitSqlCommand(HttpSession session) {
-        session.setAttribute("currentSqlCommand", currentConfig.getInitParameter("sqlCommand"));
+    private String getOrderBy(int sortColumn, int sortingStatus) {
+        if (sortingStatus == NOT_SORTED || sortColumn < 0 || sortColumn >= sortColumns.length
+                || sortColumns[sortColumn].length() == 0) {
+            return TableModel.DEFAULT_ORDER_BY;
+        }
+        return sortColumns[sortColumn] + (sortingStatus == ASCENDING ? " asc" : " desc")
+                + DEFAULT_ORDER_BY_TIEBREAK;
     }
 
     /**
@@ -404,13 +553,15 @@ public class GetTableServlet extends HttpServlet {
      * @throws SQLException
      */
     private void countResults(HttpSession session, Connection con) throws SQLException {
-        String currentSqlCommand = (String) session.getAttribute("countSqlCommand");
-        Vector sqlParams = (Vector) session.getAttribute("countSqlParams");
-        int fromPosition = currentSqlCommand.toLowerCase().indexOf("from");
-        String secondPart = currentSqlCommand.substring(fromPosition);
+        String currentSqlCommand = (String) session.getAttribute("filterSqlCommand");
+        Vector<HashMap<String, Object>> sqlParams = getFilterSqlParams(session);
+        if (currentSqlCommand == null) {
+            session.setAttribute("numberOfResults", Integer.valueOf(0));
+            return;
+        }
 
         // AMS - MySQL does not like spaces between COUNT and (*)
-        String SQLCommandCountStar = "SELECT COUNT(*) " + secondPart;
+        String SQLCommandCountStar = TableModel.getCountSQL(currentSqlCommand);
         if (logger.isDebugEnabled()){
             logger.debug("GetTableServlet: SQLCommandCountStar: " + SQLCommandCountStar);
         }
@@ -420,11 +571,11 @@ public class GetTableServlet extends HttpServlet {
         try{
             pstmt = con.prepareStatement(SQLCommandCountStar);
             pstmt = TableModel.setPStmtParameters(pstmt, sqlParams);
-            
+
             resultSet = pstmt.executeQuery();
             resultSet.next();
             int numberOfResults = resultSet.getInt(1);
-            session.setAttribute("numberOfResults", new Integer(numberOfResults));
+            session.setAttribute("numberOfResults", Integer.valueOf(numberOfResults));
         }catch (SQLException ex) {
             throw ex;
         }finally {
@@ -443,59 +594,58 @@ public class GetTableServlet extends HttpServlet {
 
     /**
      *
-     * @param sort, the column number to sort
-     * @return the new xml string of the array sorted
-     * @throws NumberFormatException
+     * @param session
+     * @param sortingColumn, the column number to sort
      *
      * The sort of this array is cyclic : it begins by UNSORTED, then if the user click again the array will be <br />
-     * sorted ASCENDING, then DESCENDING, and finally UNSORTED.
+     * sorted ASCENDING, then DESCENDING, and finally UNSORTED. The state is kept in the session.
      */
-    private String sortColomn(String sort) throws NumberFormatException {
-        if (tableModel != null && sorter != null) {
-            int sortingColumn = new Integer(sort).intValue();
-            int sortingStatus = -2;
-
-            if (logger.isDebugEnabled()){
-                logger.debug("GetTableServlet: Sort column :" + sortingColumn);
-            }
-            if (sorter.getSortingStatus(sortingColumn) == TableSorter.ASCENDING) {
-                for (int i = 0; i < sorter.getColumnCount(); i++) {
-                    sorter.setSortingStatus(i, TableSorter.NOT_SORTED);
-                }
-                sorter.setSortingStatus(sortingColumn, TableSorter.DESCENDING);
-                sortingStatus = TableSorter.DESCENDING;
-            } else if (sorter.getSortingStatus(sortingColumn) == TableSorter.DESCENDING) {
-                for (int i = 0; i < sorter.getColumnCount(); i++) {
-                    sorter.setSortingStatus(i, TableSorter.NOT_SORTED);
-                }
-                sorter.setSortingStatus(sortingColumn, TableSorter.NOT_SORTED);
-                sortingStatus = TableSorter.NOT_SORTED;
-            } else if (sorter.getSortingStatus(sortingColumn) == TableSorter.NOT_SORTED) {
-                for (int i = 0; i < sorter.getColumnCount(); i++) {
-                    sorter.setSortingStatus(i, TableSorter.NOT_SORTED);
-                }
-                sorter.setSortingStatus(sortingColumn, TableSorter.ASCENDING);
-                sortingStatus = TableSorter.ASCENDING;
-            }
-            if (logger.isDebugEnabled()){
-                logger.debug("GetTableServlet: sorting status " + sortingStatus);
-            }
-
-            return toJSon(sortingColumn, sortingStatus);
+    private void updateSortingStatus(HttpSession session, int sortingColumn) {
+        int sortingStatus = NOT_SORTED;
+        if (getSessionInt(session, "sortColumn", -1) == sortingColumn) {
+            sortingStatus = getSessionInt(session, "sortingStatus", NOT_SORTED);
         }
-        return null;
+        if (logger.isDebugEnabled()){
+            logger.debug("GetTableServlet: Sort column :" + sortingColumn);
+        }
+        if (sortingStatus == ASCENDING) {
+            sortingStatus = DESCENDING;
+        } else if (sortingStatus == DESCENDING) {
+            sortingStatus = NOT_SORTED;
+        } else {
+            sortingStatus = ASCENDING;
+        }
+        if (logger.isDebugEnabled()){
+            logger.debug("GetTableServlet: sorting status " + sortingStatus);
+        }
+        session.setAttribute("sortColumn", Integer.valueOf(sortingColumn));
+        session.setAttribute("sortingStatus", Integer.valueOf(sortingStatus));
+    }
+
+    /**
+     *
+     * @param session
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    private int getSessionInt(HttpSession session, String name, int defaultValue) {
+        Integer value = (Integer) session.getAttribute(name);
+        return value != null ? value.intValue() : defaultValue;
     }
 
     /**
      * Allows to get all options given by the user and passed to the server with the post method
      * @param req
+     * @return the options for this request
      */
-    private void getOptions(HttpServletRequest req, HttpSession session) {
+    private HashMap<String, String> getOptions(HttpServletRequest req, HttpSession session,
+            boolean isAdmin, String currentIP) {
+        HashMap<String, String> map = new HashMap<String, String>();
         String optionNumber = req.getParameter("optionsNumber");
         int optionNumberInt = 0;
         if (optionNumber != null) {
-            map = new HashMap<String, String>();
-            optionNumberInt = new Integer(optionNumber).intValue();
+            optionNumberInt = Integer.parseInt(optionNumber);
             for (int i = 1; i < optionNumberInt + 1; i++) {
                 if (req.getParameter("option" + i) != null) {
                     map.put("option" + i, req.getParameter("option" + i));
@@ -521,15 +671,18 @@ public class GetTableServlet extends HttpServlet {
             }
         }
         session.setAttribute("optionNumber", (Integer) optionNumberInt);
+        return map;
     }
 
     /**
      *
+     * @param tableModel
+     * @param isAdmin
      * @param column
      * @param sortingStatus
      * @return
      */
-    private String toJSon(int column, int sortingStatus) {
+    private String toJSon(TableModel tableModel, boolean isAdmin, int column, int sortingStatus) {
         try {
             JSONObject response = new JSONObject();
             JSONObject content = new JSONObject();
@@ -608,4 +761,32 @@ public class GetTableServlet extends HttpServlet {
             e2.printStackTrace();
         }
     }
+
+    /**
+     * Boundary keys of the last page served to a session, used for keyset paging.
+     */
+    private static class PageKeys implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private String filterSqlCommand;
+        private String filterSqlParams;
+        private int nbResByPage;
+        private int pageNumber;
+        private Timestamp firstTimestamp;
+        private String firstMessageId;
+        private Timestamp lastTimestamp;
+        private String lastMessageId;
+
+        /**
+         *
+         * @param sqlCommand
+         * @param sqlParams
+         * @param resultsByPage
+         * @return true if the keys were taken from the same search and page size.
+         */
+        private boolean isSameSearch(String sqlCommand, Vector<HashMap<String, Object>> sqlParams, int resultsByPage) {
+            return nbResByPage == resultsByPage && filterSqlCommand.equals(sqlCommand)
+                    && filterSqlParams.equals(getParamsSignature(sqlParams));
+        }
+    }
 }
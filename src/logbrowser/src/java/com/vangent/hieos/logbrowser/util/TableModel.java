@@ -20,6 +20,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.text.Format;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,9 +36,10 @@ public class TableModel extends AbstractTableModel
         implements TableModelListener {
 
     private Vector<Vector<Object>> dataVector = new Vector<Vector<Object>>();
+    private Vector<Vector<Object>> rawDataVector = new Vector<Vector<Object>>();
     private Vector<String> headerVector = new Vector<String>();
     private String xmlString;
-    private Map fieldsAndFormats = null;
+    private Map<String, Format> fieldsAndFormats = null;
     private final static Logger logger = Logger.getLogger(TableModel.class);
     private static final long serialVersionUID = 1L;
     public final static String STRING = "String";
@@ -48,9 +50,13 @@ public class TableModel extends AbstractTableModel
     private final static String ROW_NUM_RANGE = ")a where rownum <= ?) where rnum > ?";
     private final static String ROW_LIMIT_OFFSET = " limit ? offset ?";
     private final static String MS_ROW_NUM_SELECT_1 = "WITH datarows AS (";
-    private final static String MS_ROW_NUM_SELECT_2 = ", row_number() over (ORDER BY main.timereceived desc, main.messageid asc) AS rnum ";
-    private final static String MS_ROW_NUM_RANGE = ") SELECT * FROM datarows WHERE rnum > ? and rnum <= ?";
-    private final static String ORDER_BY_CLAUSE = " ORDER BY main.timereceived desc, main.messageid asc";
+    private final static String MS_ROW_NUM_SELECT_2 = ", row_number() over (ORDER BY ";
+    private final static String MS_ROW_NUM_SELECT_3 = ") AS rnum ";
+    private final static String MS_ROW_NUM_RANGE = ") SELECT * FROM datarows WHERE rnum > ? and rnum <= ? ORDER BY rnum";
+    private final static String ORDER_BY = " ORDER BY ";
+    private final static String COUNT_SELECT = "SELECT COUNT(*) FROM (";
+    private final static String COUNT_ALIAS = ") countrows";
+    public final static String DEFAULT_ORDER_BY = "main.timereceived desc, main.messageid asc";
     private final static String MSSQLSERVER = "microsoft sql server";
     private final static String ORACLE = "oracle";
 
@@ -64,7 +70,7 @@ public class TableModel extends AbstractTableModel
      * @param c - connection
      * @throws SQLException
      */
-    public TableModel(String sqlRequest, Vector<HashMap> sqlParams, Map fieldsAndFormats, Connection c) throws SQLException {
+    public TableModel(String sqlRequest, Vector<HashMap<String, Object>> sqlParams, Map<String, Format> fieldsAndFormats, Connection c) throws SQLException {
         this.fieldsAndFormats = fieldsAndFormats;
         ResultSet statementResult = null;
         PreparedStatement pstmt = null;
@@ -84,6 +90,7 @@ public class TableModel extends AbstractTableModel
             int columnCount = metaData.getColumnCount();
 
             dataVector = new Vector<Vector<Object>>();
+            rawDataVector = new Vector<Vector<Object>>();
             headerVector = new Vector<String>();
 
             if (logger.isDebugEnabled()) {
@@ -98,6 +105,7 @@ public class TableModel extends AbstractTableModel
 
             while (statementResult.next()) {
                 Vector<Object> tmp = new Vector<Object>(columnCount);
+                Vector<Object> raw = new Vector<Object>(columnCount);
                 for (int j = 0; j < columnCount; j++) {
                     String columnName = getColumnName(j);
                     Object columnData;
@@ -106,6 +114,7 @@ public class TableModel extends AbstractTableModel
                     } else {
                         columnData = statementResult.getObject(columnName);
                     }
+                    raw.add(columnData);
                     columnData = getFormattedData(columnName, columnData);
                     tmp.add(columnData);
                     if (logger.isTraceEnabled()) {
@@ -113,6 +122,7 @@ public class TableModel extends AbstractTableModel
                     }
                 }
                 dataVector.add(tmp);
+                rawDataVector.add(raw);
             }
             logger.info("TABLE_MODEL: Query executed: " + new GregorianCalendar().getTime() + ", Time (MS): " + (new GregorianCalendar().getTime().getTime() - startTime.getTime()));
         } catch (SQLException ex) {
@@ -175,6 +185,25 @@ public class TableModel extends AbstractTableModel
         return ((Vector) (dataVector.get(rowIndex))).get(columnIndex);
     }
 
+    /**
+     * Returns the column value as read from the database (before formatting).
+     *
+     * @param rowIndex
+     * @param columnIndex
+     * @return
+     */
+    public Object getRawValueAt(int rowIndex, int columnIndex) {
+        return rawDataVector.get(rowIndex).get(columnIndex);
+    }
+
+    /**
+     * Reverses the row order (used when a page was read in the reverse of its display order).
+     */
+    public void reverseRows() {
+        Collections.reverse(dataVector);
+        Collections.reverse(rawDataVector);
+    }
+
     /**
      *
      * @return
@@ -226,7 +255,7 @@ public class TableModel extends AbstractTableModel
      */
     private Object getFormattedData(String fieldName, Object fieldData) {
         Object formattedData = fieldData;
-        Format fmt = (Format) fieldsAndFormats.get(fieldName);
+        Format fmt = fieldsAndFormats.get(fieldName);
         if (fmt != null) {
             formattedData = fmt.format(fieldData);
         }
@@ -235,7 +264,7 @@ public class TableModel extends AbstractTableModel
 
     /**
      * Checks the database type and adds the database specific paging syntax
-     * to the current SQL statement
+     * to the current SQL statement (using the default ordering)
      *
      * @param databaseType
      * @param currentSqlCommand
@@ -244,12 +273,30 @@ public class TableModel extends AbstractTableModel
      * @param nbResByPage
      * @return HashMap - contains the prepared statement with paging and list of parameters
      */
-    public static HashMap getSQLWithPaging(String databaseType, String currentSqlCommand,
-            Vector<HashMap> currentSqlParams, int pageNumber, int nbResByPage) {
+    public static HashMap<String, Object> getSQLWithPaging(String databaseType, String currentSqlCommand,
+            Vector<HashMap<String, Object>> currentSqlParams, int pageNumber, int nbResByPage) {
+        return getSQLWithPaging(databaseType, currentSqlCommand, currentSqlParams,
+                DEFAULT_ORDER_BY, pageNumber, nbResByPage);
+    }
+
+    /**
+     * Checks the database type and adds the database specific ordering and paging
+     * syntax to the current SQL statement
+     *
+     * @param databaseType
+     * @param currentSqlCommand
+     * @param currentSqlParams
+     * @param orderBy - ORDER BY expression list (without the ORDER BY keywords)
+     * @param pageNumber
+     * @param nbResByPage
+     * @return HashMap - contains the prepared statement with paging and list of parameters
+     */
+    public static HashMap<String, Object> getSQLWithPaging(String databaseType, String currentSqlCommand,
+            Vector<HashMap<String, Object>> currentSqlParams, String orderBy, int pageNumber, int nbResByPage) {
 
         HashMap<String, Object> result = new HashMap<String, Object>();
         StringBuffer completeSQL = new StringBuffer();
-        Vector<HashMap> completeSqlParams = new Vector<HashMap>();
+        Vector<HashMap<String, Object>> completeSqlParams = new Vector<HashMap<String, Object>>();
         completeSqlParams.addAll(currentSqlParams);
 
         if (databaseType.toLowerCase().contains(ORACLE)) {
@@ -257,7 +304,7 @@ public class TableModel extends AbstractTableModel
             // specified range of records.
             completeSQL.append(ROW_NUM_SELECT);
             completeSQL.append(currentSqlCommand);
-            completeSQL.append(ORDER_BY_CLAUSE);
+            completeSQL.append(ORDER_BY).append(orderBy);
             completeSQL.append(ROW_NUM_RANGE);
             completeSqlParams.add(setSqlParam(INTEGER, (nbResByPage * pageNumber) + nbResByPage));
             completeSqlParams.add(setSqlParam(INTEGER, nbResByPage * pageNumber));
@@ -271,6 +318,8 @@ public class TableModel extends AbstractTableModel
             completeSQL.append(MS_ROW_NUM_SELECT_1);
             completeSQL.append(currentSqlSelect);
             completeSQL.append(MS_ROW_NUM_SELECT_2);
+            completeSQL.append(orderBy);
+            completeSQL.append(MS_ROW_NUM_SELECT_3);
             completeSQL.append(currentSqlFrom);
             completeSQL.append(MS_ROW_NUM_RANGE);
             completeSqlParams.add(setSqlParam(INTEGER, nbResByPage * pageNumber));
@@ -279,7 +328,7 @@ public class TableModel extends AbstractTableModel
             // Appends the Limit and Offset commands to a SQL statement to enable retrieval of a
             // specified range of records.
             completeSQL.append(currentSqlCommand);
-            completeSQL.append(ORDER_BY_CLAUSE);
+            completeSQL.append(ORDER_BY).append(orderBy);
             completeSQL.append(ROW_LIMIT_OFFSET);
             completeSqlParams.add(setSqlParam(INTEGER, nbResByPage));
             completeSqlParams.add(setSqlParam(INTEGER, nbResByPage * pageNumber));
@@ -292,6 +341,20 @@ public class TableModel extends AbstractTableModel
         return result;
     }
 
+    /**
+     * Wraps a SQL statement so that it returns the number of rows it would select
+     *
+     * @param currentSqlCommand
+     * @return String - the SELECT COUNT(*) statement
+     */
+    public static String getCountSQL(String currentSqlCommand) {
+        StringBuffer countSQL = new StringBuffer();
+        countSQL.append(COUNT_SELECT);
+        countSQL.append(currentSqlCommand);
+        countSQL.append(COUNT_ALIAS);
+        return countSQL.toString();
+    }
+
     /**
      * Sets the bindings for a prepared statement
      *
@@ -299,14 +362,17 @@ public class TableModel extends AbstractTableModel
      * @param params - List of parameters for prepared statement
      * @return PreparedStatement - with bindings set
      */
-    public static PreparedStatement setPStmtParameters(PreparedStatement pstmt, Vector<HashMap> params)
+    public static PreparedStatement setPStmtParameters(PreparedStatement pstmt, Vector<HashMap<String, Object>> params)
             throws SQLException {
         logger.info("Num of Params: " + params.size() + ", Params: " + params);
         int j = 0;
-        for (HashMap param : params) {
+        for (HashMap<String, Object> param : params) {
             j = j + 1;
             if (param.containsKey(INTEGER)) {
                 pstmt.setInt(j, (Integer) param.get(INTEGER));
+            } else if (param.containsKey(TIMESTAMP) && param.get(TIMESTAMP) instanceof java.sql.Timestamp) {
+                // Keep sub-millisecond precision (e.g. keys read back from the database).
+                pstmt.setTimestamp(j, (java.sql.Timestamp) param.get(TIMESTAMP));
             } else if (param.containsKey(TIMESTAMP)) {
                 //logger.debug("Param Timestamp: " + new java.sql.Timestamp(((java.util.Date) param.get(TIMESTAMP)).getTime()));
                 pstmt.setTimestamp(j, new java.sql.Timestamp(((java.util.Date) param.get(TIMESTAMP)).getTime()));
@@ -326,7 +392,7 @@ public class TableModel extends AbstractTableModel
      * @param param - parameter value
      * @return HashMap - contains the parameter value and it's data type
      */
-    public static HashMap setSqlParam(String type, Object param) {
+    public static HashMap<String, Object> setSqlParam(String type, Object param) {
         HashMap<String, Object> sqlParam = new HashMap<String, Object>();
         sqlParam.put(type, param);
         return sqlParam;
@@ -31,6 +31,7 @@ import com.vangent.hieos.policyutil.pdp.resource.PIPResourceContentFinder;
 import com.vangent.hieos.xutil.exception.SOAPFaultException;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
 import java.io.ByteArrayOutputStream;
+import java.util.List;
 import javax.xml.namespace.QName;
 
 import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
@@ -144,13 +145,16 @@ public class PDPRequestHandler extends XBaseTransaction {
     private SAMLResponseElement evaluate(RequestType requestType, boolean returnContext) throws PolicyException {
         try {
             PDPImpl pdp = this.getPDP();
-            ResponseCtx responseCtx = pdp.evaluate(requestType);
+            // One result per resource (multiple resource requests).
+            List<ResponseCtx> responseCtxs = pdp.evaluateEach(requestType);
             if (logger.isDebugEnabled()) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                responseCtx.encode(baos);
-                logger.debug("XACML Engine Response: " + baos.toString());
+                for (ResponseCtx responseCtx : responseCtxs) {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    responseCtx.encode(baos);
+                    logger.debug("XACML Engine Response: " + baos.toString());
+                }
             }
-            return this.createSAML2Response(returnContext ? requestType : null, responseCtx);
+            return this.createSAML2Response(returnContext ? requestType : null, responseCtxs);
         } catch (Exception ex) {
             ex.printStackTrace(System.out);
             throw new PolicyException("Exception creating PDP response: " + ex.getMessage());
@@ -170,14 +174,14 @@ public class PDPRequestHandler extends XBaseTransaction {
     /**
      *
      * @param requestType
-     * @param responseCtx
+     * @param responseCtxs
      * @return
      * @throws PolicyException
      */
-    private SAMLResponseElement createSAML2Response(RequestType requestType, ResponseCtx responseCtx) throws PolicyException {
+    private SAMLResponseElement createSAML2Response(RequestType requestType, List<ResponseCtx> responseCtxs) throws PolicyException {
         try {
             XACMLResponseBuilder builder = new XACMLResponseBuilder();
-            ResponseType responseType = builder.buildResponseType(responseCtx);
+            ResponseType responseType = builder.buildResponseType(responseCtxs);
             return builder.buildSAMLResponse(requestType, responseType);
         } catch (Exception ex) {
             throw new PolicyException("Exception creating PDP response: " + ex.getMessage());
@@ -0,0 +1,250 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vangent.hieos.services.pdp.policy;
+
+import com.sun.xacml.BasicEvaluationCtx;
+import com.sun.xacml.EvaluationCtx;
+import com.sun.xacml.cond.FunctionFactory;
+import com.sun.xacml.cond.FunctionFactoryProxy;
+import com.sun.xacml.cond.StandardFunctionFactory;
+import com.sun.xacml.finder.PolicyFinder;
+import com.sun.xacml.finder.PolicyFinderModule;
+import com.sun.xacml.finder.PolicyFinderResult;
+import com.sun.xacml.support.finder.FilePolicyModule;
+import com.vangent.hieos.policyutil.pdp.impl.IndexedPolicyFinderModule;
+import com.vangent.hieos.policyutil.pdp.impl.XPathNodeCountFunction;
+import com.vangent.hieos.policyutil.pdp.model.RequestTypeElement;
+import com.vangent.hieos.policyutil.pdp.model.XACMLRequestBuilder;
+import com.vangent.hieos.policyutil.util.PolicyConstants;
+import com.vangent.hieos.services.pdp.utils.JUnitHelper;
+import com.vangent.hieos.xutil.xml.XPathHelper;
+
+import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
+
+import org.apache.axiom.om.OMElement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that IndexedPolicyFinderModule selects the same top-level policy (or
+ * reports the same NotApplicable / Indeterminate result) as sunxacml's
+ * FilePolicyModule for the shipped and test policies.
+ */
+public class IndexedPolicyFinderModuleTest {
+
+    /** Shipped policies (relative to the pdp project directory). */
+    private static final String SHIPPED_POLICY_DIR = "../../config/policy/policies/";
+
+    /** Field description */
+    private static final String[] SHIPPED_POLICIES = {
+        "hie-document-policy.xml", "hie-document-upload-fine-grain-policy.xml",
+        "hie-document-upload-policy.xml", "hie-policy.xml",
+        "hie-simple-demo-doc-policy.xml", "hie-simple-demo-policy.xml" };
+
+    /** Field description */
+    private static final String[] TEST_POLICIES = {
+        "test/resources/policies/test-hie-policy.xml",
+        "test/resources/policies/test-hie-document-policy.xml" };
+
+    /** Field description */
+    private static final String[] REQUESTS = {
+        "resources/requests/request-default.xml",
+        "resources/requests/initial/request-denyBlockedIndividual.xml",
+        "resources/requests/initial/request-denyBlockedOrganization.xml",
+        "resources/requests/initial/request-denyEmptyPermit.xml",
+        "resources/requests/initial/request-denyInactivePatient.xml",
+        "resources/requests/initial/request-denyUnallowedIndividual.xml",
+        "resources/requests/initial/request-denyUnallowedOrganization.xml",
+        "resources/requests/initial/request-permitEmergency.xml",
+        "resources/requests/initial/request-permitNoDirectives.xml",
+        "resources/requests/document/request-denyConfidentialityCode.xml",
+        "resources/requests/document/request-denyExplicitAuthorization-NONE.xml",
+        "resources/requests/document/request-denyExplicitAuthorization-NORMAL.xml",
+        "resources/requests/document/request-denyHomeCommunity.xml",
+        "resources/requests/document/request-denyNoDirectives.xml",
+        "resources/requests/document/request-permitEmergency.xml",
+        "resources/requests/document/request-permitExplicitAuthorization-NORMAL.xml",
+        "resources/requests/document/request-permitExplicitAuthorization-RESTRICTED.xml",
+        "resources/requests/document/request-permitExplicitAuthorization-RESTRICTED2.xml" };
+
+    /**
+     * Registers the HIEOS functions used by the policies (as PDPImpl does).
+     */
+    @BeforeClass
+    public static void setUpClass() {
+
+        FunctionFactoryProxy proxy = StandardFunctionFactory.getNewFactoryProxy();
+        FunctionFactory factory = proxy.getConditionFactory();
+
+        factory.addFunction(new XPathNodeCountFunction());
+        FunctionFactory.setDefaultFactory(proxy);
+    }
+
+    /**
+     * Each shipped policy file on its own.
+     *
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shippedPoliciesTest() throws Exception {
+
+        for (String policy : SHIPPED_POLICIES) {
+            runTest(Arrays.asList(SHIPPED_POLICY_DIR + policy));
+        }
+    }
+
+    /**
+     * The shipped policy files as configured in policyConfig.xml.
+     *
+     *
+     * @throws Exception
+     */
+    @Test
+    public void configuredPoliciesTest() throws Exception {
+
+        runTest(Arrays.asList(SHIPPED_POLICY_DIR + "hie-simple-demo-policy.xml",
+                              SHIPPED_POLICY_DIR + "hie-simple-demo-doc-policy.xml"));
+    }
+
+    /**
+     * The policies used by PDPRequestHandlerTest.
+     *
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPoliciesTest() throws Exception {
+
+        runTest(Arrays.asList(TEST_POLICIES));
+    }
+
+    /**
+     * A policy whose target requires an attribute that is missing from every
+     * request must still be matched (Indeterminate), even though its target
+     * could otherwise be indexed on action-id.
+     *
+     *
+     * @throws Exception
+     */
+    @Test
+    public void mustBePresentPolicyTest() throws Exception {
+
+        runTest(Arrays.asList("test/resources/policies/test-mustbepresent-policy.xml"));
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param policyFiles
+     *
+     * @throws Exception
+     */
+    private void runTest(List<String> policyFiles) throws Exception {
+
+        IndexedPolicyFinderModule indexedModule =
+            new IndexedPolicyFinderModule(policyFiles);
+
+        initPolicyFinder(indexedModule);
+        assertEquals(policyFiles.toString(), policyFiles.size(),
+                     indexedModule.getPolicyCount());
+
+        FilePolicyModule fileModule =
+            new FilePolicyModule(new ArrayList<String>(policyFiles));
+
+        initPolicyFinder(fileModule);
+
+        for (String file : REQUESTS) {
+
+            EvaluationCtx context = new BasicEvaluationCtx(getRequestType(file));
+            String expected = describe(fileModule.findPolicy(context));
+            String actual = describe(indexedModule.findPolicy(context));
+
+            assertEquals(String.format("%s with %s", file, policyFiles), expected,
+                         actual);
+        }
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param module
+     */
+    private void initPolicyFinder(PolicyFinderModule module) {
+
+        PolicyFinder policyFinder = new PolicyFinder();
+        Set<PolicyFinderModule> modules = new HashSet<PolicyFinderModule>();
+
+        modules.add(module);
+        policyFinder.setModules(modules);
+        policyFinder.init();
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param file
+     *
+     * @return
+     *
+     * @throws Exception
+     */
+    private RequestType getRequestType(String file) throws Exception {
+
+        OMElement request = JUnitHelper.fileToOMElement(file);
+        OMElement requestTypeNode = XPathHelper.selectSingleNode(request,
+                                        "./ns:Request[1]",
+                                        PolicyConstants.XACML_CONTEXT_NS);
+
+        assertTrue(file, requestTypeNode != null);
+
+        XACMLRequestBuilder builder = new XACMLRequestBuilder();
+
+        return builder.buildRequestType(new RequestTypeElement(requestTypeNode));
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param result
+     *
+     * @return
+     */
+    private String describe(PolicyFinderResult result) {
+
+        if (result.notApplicable()) {
+            return "NotApplicable";
+        }
+
+        if (result.indeterminate()) {
+            return "Indeterminate: " + result.getStatus().getMessage();
+        }
+
+        return "Policy: " + result.getPolicy().getId();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.pip.transactions;
+
+import com.vangent.hieos.policyutil.util.PolicyConstants;
+import com.vangent.hieos.xutil.exception.XMLParserException;
+import com.vangent.hieos.xutil.xconfig.XConfig;
+import com.vangent.hieos.xutil.xconfig.XConfig.ConfigItem;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import javax.xml.namespace.QName;
+import org.apache.axiom.om.OMElement;
+import org.apache.log4j.Logger;
+
+/**
+ * PIP stub data (consent directives) held in memory keyed by patient id.  The
+ * stub data file is re-loaded when it changes on disk (so the server does not
+ * need to be restarted during testing).
+ */
+public class PIPConsentDirectivesStore {
+
+    private final static Logger logger = Logger.getLogger(PIPConsentDirectivesStore.class);
+    public final static String DEFAULT_PID = "DEFAULT";
+    private final static QName PIP_ENTRY_QNAME = new QName(PolicyConstants.HIEOS_PIP_NS, "PIPEntry");
+    private final static QName GET_CONSENT_DIRECTIVES_RESPONSE_QNAME = new QName(PolicyConstants.HIEOS_PIP_NS, "GetConsentDirectivesResponse");
+    private final static QName PID_QNAME = new QName("pid");
+    private static PIPConsentDirectivesStore _instance = null;
+    private final String pipStubDataFile;
+    private Map<String, OMElement> consentDirectivesByPid = null;
+    private long lastModified = 0;
+
+    /**
+     *
+     * @param pipStubDataFile
+     */
+    private PIPConsentDirectivesStore(String pipStubDataFile) {
+        this.pipStubDataFile = pipStubDataFile;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static synchronized PIPConsentDirectivesStore getInstance() {
+        if (_instance == null) {
+            String policyDir = XConfig.getConfigLocation(ConfigItem.POLICY_DIR);
+            _instance = new PIPConsentDirectivesStore(policyDir + "/pipstubdata/pip.xml");
+        }
+        return _instance;
+    }
+
+    /**
+     * Returns a copy of the GetConsentDirectivesResponse for the given patient
+     * id (or for the "DEFAULT" entry if the patient is not known).
+     *
+     * @param pid
+     * @return GetConsentDirectivesResponse (null if none).
+     * @throws XMLParserException
+     */
+    public OMElement getConsentDirectivesResponse(String pid) throws XMLParserException {
+        Map<String, OMElement> entries = this.getEntries();
+        OMElement pipResponse = entries.get(pid);
+        if (pipResponse == null) {
+            pipResponse = entries.get(DEFAULT_PID);
+        }
+        // Callers attach the response to a SOAP envelope, so hand out a copy.
+        return pipResponse != null ? pipResponse.cloneOMElement() : null;
+    }
+
+    /**
+     *
+     * @return
+     * @throws XMLParserException
+     */
+    private synchronized Map<String, OMElement> getEntries() throws XMLParserException {
+        long modified = new File(pipStubDataFile).lastModified();
+        if (consentDirectivesByPid == null || modified != lastModified) {
+            consentDirectivesByPid = this.load();
+            lastModified = modified;
+        }
+        return consentDirectivesByPid;
+    }
+
+    /**
+     *
+     * @return
+     * @throws XMLParserException
+     */
+    private Map<String, OMElement> load() throws XMLParserException {
+        OMElement pipStubData = XMLParser.fileToOM(pipStubDataFile);
+        Map<String, OMElement> entries = new HashMap<String, OMElement>();
+        for (Iterator<?> it = pipStubData.getChildrenWithName(PIP_ENTRY_QNAME); it.hasNext();) {
+            OMElement pipEntry = (OMElement) it.next();
+            String pid = pipEntry.getAttributeValue(PID_QNAME);
+            OMElement pipResponse = pipEntry.getFirstChildWithName(GET_CONSENT_DIRECTIVES_RESPONSE_QNAME);
+            if (pid == null || pipResponse == null || entries.containsKey(pid)) {
+                continue;  // First entry for a pid wins.
+            }
+            pipResponse.build();
+            entries.put(pid, pipResponse);
+        }
+        logger.info("Loaded " + entries.size() + " PIP entries from " + pipStubDataFile);
+        return entries;
+    }
+}
@@ -16,10 +16,7 @@ import com.vangent.hieos.policyutil.util.PolicyConstants;
 import com.vangent.hieos.xutil.exception.SOAPFaultException;
 import com.vangent.hieos.xutil.exception.XMLParserException;
 import com.vangent.hieos.xutil.services.framework.XBaseTransaction;
-import com.vangent.hieos.xutil.xconfig.XConfig;
-import com.vangent.hieos.xutil.xconfig.XConfig.ConfigItem;
 import com.vangent.hieos.xutil.xlog.client.XLogMessage;
-import com.vangent.hieos.xutil.xml.XMLParser;
 import com.vangent.hieos.xutil.xml.XPathHelper;
 import org.apache.axiom.om.OMElement;
 import org.apache.log4j.Logger;
@@ -68,23 +65,10 @@ public class PIPRequestHandler extends XBaseTransaction {
             log_message.setPass(true); // Hope for the best.
             // FIXME: Stub.
             try {
-                // Read everytime - so we don't have to restart server during testing.
-
-                // Load PIP stub data.
-                String policyDir = XConfig.getConfigLocation(ConfigItem.POLICY_DIR);
-                String pipStubDataFile = policyDir + "/pipstubdata/pip.xml";
-                OMElement pipStubData = XMLParser.fileToOM(pipStubDataFile);
                 OMElement requestedPidNode = XPathHelper.selectSingleNode(request, "./ns:PatientId", PolicyConstants.HIEOS_PIP_NS);
                 String pid = requestedPidNode.getText();
-                // Now lookup the patient id.
-                OMElement pipResponse =
-                        XPathHelper.selectSingleNode(pipStubData, "./ns:PIPEntry[@pid='" + pid + "']/ns:GetConsentDirectivesResponse[1]", PolicyConstants.HIEOS_PIP_NS);
-                if (pipResponse == null) {
-                    pid = "DEFAULT";
-                    pipResponse =
-                            XPathHelper.selectSingleNode(pipStubData, "./ns:PIPEntry[@pid='" + pid + "']/ns:GetConsentDirectivesResponse[1]", PolicyConstants.HIEOS_PIP_NS);
-
-                }
+                // Now lookup the patient id (falls back to the "DEFAULT" entry).
+                OMElement pipResponse = PIPConsentDirectivesStore.getInstance().getConsentDirectivesResponse(pid);
                 //OMElement pipResponse = XMLParser.stringToOM(content);
                 if (log_message.isLogEnabled()) {
                     log_message.addOtherParam("Response", pipResponse);
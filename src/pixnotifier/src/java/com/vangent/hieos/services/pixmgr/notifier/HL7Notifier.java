@@ -5,9 +5,9 @@
 package com.vangent.hieos.services.pixmgr.notifier;
 
 import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
 import com.vangent.hieos.subjectmodel.DeviceInfo;
 import com.vangent.hieos.subjectmodel.Subject;
-import com.vangent.hieos.xutil.exception.SOAPFaultException;
 
 /**
  *
@@ -46,6 +46,14 @@ abstract public class HL7Notifier {
     /**
      * 
      * @param notificationSubject
+     * @throws PIXNotifierUtilException
      */
-    abstract public void sendNotification(Subject notificationSubject);
+    abstract public void sendNotification(Subject notificationSubject) throws PIXNotifierUtilException;
+
+    /**
+     * Releases any connections held by the notifier.
+     */
+    public void close() {
+        // Default: nothing to release.
+    }
 }
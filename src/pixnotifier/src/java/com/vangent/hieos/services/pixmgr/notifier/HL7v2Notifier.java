@@ -16,6 +16,7 @@ import ca.uhn.hl7v2.model.Message;
 import com.vangent.hieos.hl7v2util.client.PIXConsumerClient;
 import com.vangent.hieos.hl7v2util.exception.HL7v2UtilException;
 import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
 import com.vangent.hieos.subjectmodel.DeviceInfo;
 import com.vangent.hieos.subjectmodel.Subject;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
@@ -28,6 +29,8 @@ import org.apache.log4j.Logger;
 public class HL7v2Notifier extends HL7Notifier {
 
     private final static Logger logger = Logger.getLogger(HL7v2Notifier.class);
+    private boolean keepConnectionOpen = false;
+    private PIXConsumerClient pixConsumerClient = null;
 
     /**
      *
@@ -38,12 +41,24 @@ public class HL7v2Notifier extends HL7Notifier {
         super(senderDeviceInfo, crossReferenceConsumerConfig);
     }
 
+    /**
+     *
+     * @param senderDeviceInfo
+     * @param crossReferenceConsumerConfig
+     * @param keepConnectionOpen
+     */
+    public HL7v2Notifier(DeviceInfo senderDeviceInfo, CrossReferenceConsumerConfig crossReferenceConsumerConfig, boolean keepConnectionOpen) {
+        this(senderDeviceInfo, crossReferenceConsumerConfig);
+        this.keepConnectionOpen = keepConnectionOpen;
+    }
+
     /**
      * 
      * @param notificationSubject
+     * @throws PIXNotifierUtilException
      */
     @Override
-    public void sendNotification(Subject notificationSubject) {
+    public void sendNotification(Subject notificationSubject) throws PIXNotifierUtilException {
         CrossReferenceConsumerConfig crossReferenceConsumerConfig = this.getCrossReferenceConsumerConfig();
         XConfigActor pixConsumerActorConfig = crossReferenceConsumerConfig.getHL7v2ConfigActor();
         if (pixConsumerActorConfig != null) {
@@ -51,14 +66,27 @@ public class HL7v2Notifier extends HL7Notifier {
             logger.info("Sending PIX Update Notification [device id = "
                     + receiverDeviceInfo.getId() + ", endpoint="
                     + pixConsumerActorConfig.getTransaction("PatientRegistryRecordRevised").getEndpointURL() + "]");
-            PIXConsumerClient pixConsumerClient = new PIXConsumerClient(pixConsumerActorConfig);
+            if (pixConsumerClient == null) {
+                pixConsumerClient = new PIXConsumerClient(pixConsumerActorConfig, keepConnectionOpen);
+            }
             try {
                 Message pixConsumerResponse = pixConsumerClient.patientRegistryRecordRevised(this.getSenderDeviceInfo(), receiverDeviceInfo, notificationSubject);
                 // TODO: Implement ATNA audit log.
             } catch (HL7v2UtilException ex) {
-                logger.error("Error sending PIX Update Notification to receiver [device id = "
+                throw new PIXNotifierUtilException("Error sending PIX Update Notification to receiver [device id = "
                         + receiverDeviceInfo.getId() + "]", ex);
             }
         }
     }
+
+    /**
+     *
+     */
+    @Override
+    public void close() {
+        if (pixConsumerClient != null) {
+            pixConsumerClient.close();
+            pixConsumerClient = null;
+        }
+    }
 }
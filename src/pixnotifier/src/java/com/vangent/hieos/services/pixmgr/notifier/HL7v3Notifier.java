@@ -16,13 +16,14 @@ import com.vangent.hieos.hl7v3util.atna.ATNAAuditEventHelper;
 import com.vangent.hieos.hl7v3util.client.HL7V3ClientResponse;
 import com.vangent.hieos.hl7v3util.client.PIXConsumerClient;
 import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
 import com.vangent.hieos.subjectmodel.DeviceInfo;
 import com.vangent.hieos.subjectmodel.Subject;
 import com.vangent.hieos.xutil.atna.ATNAAuditEvent;
 import com.vangent.hieos.xutil.atna.ATNAAuditEventPatientRecord;
 import com.vangent.hieos.xutil.atna.XATNALogger;
-import com.vangent.hieos.xutil.exception.SOAPFaultException;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
+import org.apache.commons.httpclient.HttpConnectionManager;
 import org.apache.log4j.Logger;
 
 /**
@@ -32,6 +33,7 @@ import org.apache.log4j.Logger;
 public class HL7v3Notifier extends HL7Notifier {
 
     private final static Logger logger = Logger.getLogger(HL7v3Notifier.class);
+    private HttpConnectionManager httpConnectionManager = null;
 
     /**
      *
@@ -42,29 +44,43 @@ public class HL7v3Notifier extends HL7Notifier {
         super(senderDeviceInfo, crossReferenceConsumerConfig);
     }
 
+    /**
+     *
+     * @param senderDeviceInfo
+     * @param crossReferenceConsumerConfig
+     * @param httpConnectionManager Pooled connection manager shared across notifications (may be null).
+     */
+    public HL7v3Notifier(DeviceInfo senderDeviceInfo, CrossReferenceConsumerConfig crossReferenceConsumerConfig, HttpConnectionManager httpConnectionManager) {
+        this(senderDeviceInfo, crossReferenceConsumerConfig);
+        this.httpConnectionManager = httpConnectionManager;
+    }
+
     /**
      * 
      * @param notificationSubject
-     * @throws SOAPFaultException
+     * @throws PIXNotifierUtilException
      */
     @Override
-    public void sendNotification(Subject notificationSubject) {
+    public void sendNotification(Subject notificationSubject) throws PIXNotifierUtilException {
         CrossReferenceConsumerConfig crossReferenceConsumerConfig = this.getCrossReferenceConsumerConfig();
         XConfigActor pixConsumerActorConfig = crossReferenceConsumerConfig.getHL7v3ConfigActor();
         if (pixConsumerActorConfig != null) {
             DeviceInfo receiverDeviceInfo = new DeviceInfo(pixConsumerActorConfig);
             PIXConsumerClient pixConsumerClient = new PIXConsumerClient(pixConsumerActorConfig, null /* XLogMessage */);
+            pixConsumerClient.setHttpConnectionManager(httpConnectionManager);
             logger.info("Sending PIX Update Notification [device id = "
                     + receiverDeviceInfo.getId() + ", endpoint="
                     + pixConsumerActorConfig.getTransaction("PatientRegistryRecordRevised").getEndpointURL() + "]");
             try {
                 HL7V3ClientResponse clientResponse;
                 clientResponse = pixConsumerClient.patientRegistryRecordRevised(this.getSenderDeviceInfo(), receiverDeviceInfo, notificationSubject);
-                logger.info("PIX Update Notification (Request) - " + clientResponse.getClientMessage().getMessageNode().toString());
-                logger.info("PIX Update Notification (Response) - " + clientResponse.getTargetResponse().getMessageNode().toString());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("PIX Update Notification (Request) - " + clientResponse.getClientMessage().getMessageNode().toString());
+                    logger.debug("PIX Update Notification (Response) - " + clientResponse.getTargetResponse().getMessageNode().toString());
+                }
                 this.performAuditPIXUpdateNotification(notificationSubject, clientResponse);
             } catch (Exception ex) {
-                logger.error("Error sending PIX Update Notification to receiver [device id = "
+                throw new PIXNotifierUtilException("Error sending PIX Update Notification to receiver [device id = "
                         + receiverDeviceInfo.getId() + "]", ex);
             }
         }
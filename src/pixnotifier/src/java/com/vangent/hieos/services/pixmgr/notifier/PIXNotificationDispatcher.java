@@ -0,0 +1,282 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.pixmgr.notifier;
+
+import com.vangent.hieos.hl7v2util.client.HL7v2ConnectionPool;
+import com.vangent.hieos.pixnotifierutil.client.PIXUpdateNotification;
+import com.vangent.hieos.pixnotifierutil.config.DispatcherConfig;
+import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
+import com.vangent.hieos.pixnotifierutil.config.PIXNotifierConfig;
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
+import com.vangent.hieos.subjectmodel.DeviceInfo;
+import com.vangent.hieos.subjectmodel.Subject;
+import com.vangent.hieos.subjectmodel.SubjectIdentifier;
+import com.vangent.hieos.subjectmodel.SubjectIdentifierDomain;
+import com.vangent.hieos.xutil.exception.XConfigException;
+import com.vangent.hieos.xutil.xconfig.XConfig;
+import com.vangent.hieos.xutil.xconfig.XConfigActor;
+import com.vangent.hieos.xutil.xconfig.XConfigObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * Fans PIX Update Notifications out to the enabled cross-reference consumers.
+ * Notifications are queued on a lane per consumer (and protocol) and delivered
+ * concurrently by the lane's workers; the returned tracker lets the caller wait
+ * for delivery before acknowledging the originating message.
+ */
+public class PIXNotificationDispatcher {
+
+    private final static Logger logger = Logger.getLogger(PIXNotificationDispatcher.class);
+    private static PIXNotificationDispatcher _instance = null;
+    private static int listenerCount = 0;
+    private final List<ConsumerLanes> consumerLanes = new ArrayList<ConsumerLanes>();
+
+    /**
+     *
+     */
+    private PIXNotificationDispatcher() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @return
+     * @throws PIXNotifierUtilException
+     */
+    static public synchronized PIXNotificationDispatcher getInstance() throws PIXNotifierUtilException {
+        if (_instance == null) {
+            PIXNotificationDispatcher dispatcher = new PIXNotificationDispatcher();
+            dispatcher.startup();
+            _instance = dispatcher;
+        }
+        return _instance;
+    }
+
+    /**
+     * Registers a (message bean) instance that uses the dispatcher.
+     */
+    static public synchronized void register() {
+        ++listenerCount;
+    }
+
+    /**
+     * Unregisters a (message bean) instance; the dispatcher is shut down once
+     * the last one is gone.
+     */
+    static public synchronized void unregister() {
+        if (listenerCount > 0 && --listenerCount == 0) {
+            shutdown();
+        }
+    }
+
+    /**
+     *
+     * @param pixUpdateNotification
+     * @return
+     * @throws InterruptedException
+     */
+    PIXNotificationTracker dispatch(PIXUpdateNotification pixUpdateNotification) throws InterruptedException {
+        PIXNotificationTracker tracker = new PIXNotificationTracker();
+        for (ConsumerLanes lanes : consumerLanes) {
+            CrossReferenceConsumerConfig crossReferenceConsumerConfig = lanes.getCrossReferenceConsumerConfig();
+
+            // Queue notifications for each individual subject on notification list.
+            for (Subject subject : pixUpdateNotification.getSubjects()) {
+                Subject notificationSubject = this.getNotificationSubject(subject, crossReferenceConsumerConfig);
+                if ((notificationSubject != null) && !notificationSubject.getSubjectIdentifiers().isEmpty()) {
+                    if (lanes.getHL7v3Lane() != null) {
+                        lanes.getHL7v3Lane().enqueue(notificationSubject, tracker);
+                    }
+                    if (lanes.getHL7v2Lane() != null) {
+                        lanes.getHL7v2Lane().enqueue(notificationSubject, tracker);
+                    }
+                }
+            }
+        }
+        return tracker;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<PIXNotificationLane> getLanes() {
+        List<PIXNotificationLane> lanes = new ArrayList<PIXNotificationLane>();
+        for (ConsumerLanes consumer : consumerLanes) {
+            if (consumer.getHL7v3Lane() != null) {
+                lanes.add(consumer.getHL7v3Lane());
+            }
+            if (consumer.getHL7v2Lane() != null) {
+                lanes.add(consumer.getHL7v2Lane());
+            }
+        }
+        return lanes;
+    }
+
+    /**
+     *
+     */
+    static public synchronized void shutdown() {
+        if (_instance != null) {
+            for (PIXNotificationLane lane : _instance.getLanes()) {
+                logger.info(lane.getStatistics());
+                lane.shutdownAndAwaitTermination();
+            }
+            HL7v2ConnectionPool connectionPool = HL7v2ConnectionPool.getInstance();
+            logger.info(connectionPool.getStatistics());
+            connectionPool.unregister();
+            _instance = null;
+        }
+    }
+
+    /**
+     *
+     * @throws PIXNotifierUtilException
+     */
+    private void startup() throws PIXNotifierUtilException {
+        // Get PIX Notifier configuration.
+        PIXNotifierConfig pixNotifierConfig = PIXNotifierConfig.getInstance();
+
+        // Get PIX Manager configuration (mainly for device id info)..
+        XConfigActor pixManagerConfig;
+        try {
+            pixManagerConfig = this.getPIXManagerConfig();
+        } catch (XConfigException ex) {
+            throw new PIXNotifierUtilException("Error getting PIX Manager configuration", ex);
+        }
+        DeviceInfo senderDeviceInfo = new DeviceInfo(pixManagerConfig);
+
+        // Size (and own, until shutdown) the shared pool of MLLP connections
+        // used by the HL7v2 lanes.
+        DispatcherConfig dispatcherConfig = pixNotifierConfig.getDispatcherConfig();
+        HL7v2ConnectionPool connectionPool = HL7v2ConnectionPool.getInstance();
+        connectionPool.configure(
+                dispatcherConfig.getConnectionIdleTimeoutSeconds(),
+                dispatcherConfig.getMaxIdleConnectionsPerEndpoint());
+        connectionPool.register();
+
+        // Create lanes for each enabled cross reference consumer.
+        for (CrossReferenceConsumerConfig crossReferenceConsumerConfig : pixNotifierConfig.getCrossReferenceConsumerConfigs()) {
+            if (crossReferenceConsumerConfig.isEnabled()) {
+                PIXNotificationLane hl7v3Lane = null;
+                PIXNotificationLane hl7v2Lane = null;
+                if (crossReferenceConsumerConfig.isHL7v3NotificationEnabled()) {
+                    hl7v3Lane = new PIXNotificationLane(PIXNotificationLane.Protocol.HL7v3,
+                            senderDeviceInfo, crossReferenceConsumerConfig, pixNotifierConfig.getDispatcherConfig());
+                }
+                if (crossReferenceConsumerConfig.isHL7v2NotificationEnabled()) {
+                    hl7v2Lane = new PIXNotificationLane(PIXNotificationLane.Protocol.HL7v2,
+                            senderDeviceInfo, crossReferenceConsumerConfig, pixNotifierConfig.getDispatcherConfig());
+                }
+                consumerLanes.add(new ConsumerLanes(crossReferenceConsumerConfig, hl7v3Lane, hl7v2Lane));
+            }
+        }
+    }
+
+    /**
+     *
+     * @param subject
+     * @param crossReferenceConsumerConfig
+     * @return
+     */
+    private Subject getNotificationSubject(Subject subject, CrossReferenceConsumerConfig crossReferenceConsumerConfig) {
+        Subject notificationSubject = null;
+        try {
+            notificationSubject = (Subject) subject.clone();
+            List<SubjectIdentifier> subjectIdentifiersToKeep = new ArrayList<SubjectIdentifier>();
+            // Get list of interested identifier domains.
+            List<SubjectIdentifierDomain> interestedIdentifierDomains = crossReferenceConsumerConfig.getIdentifierDomains();
+            List<SubjectIdentifier> subjectIdentifiers = subject.getSubjectIdentifiers();
+            for (SubjectIdentifier subjectIdentifier : subjectIdentifiers) {
+                // See if we should keep this identifier.
+                SubjectIdentifierDomain subjectIdentifierDomain = subjectIdentifier.getIdentifierDomain();
+                for (SubjectIdentifierDomain interestedIdentifierDomain : interestedIdentifierDomains) {
+                    if (subjectIdentifierDomain.equals(interestedIdentifierDomain)) {
+                        // Keep this identifier.
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("Found subject identifier of interest: " + subjectIdentifier.getCXFormatted());
+                        }
+                        subjectIdentifiersToKeep.add(subjectIdentifier);
+                        break;
+                    }
+                }
+            }
+            notificationSubject.setSubjectIdentifiers(subjectIdentifiersToKeep);
+        } catch (Exception ex) {
+            // FIXME: Do something.
+            logger.error("Error cloning Subject", ex);
+        }
+        return notificationSubject;
+    }
+
+    /**
+     *
+     * @return
+     * @throws XConfigException
+     */
+    private XConfigActor getPIXManagerConfig() throws XConfigException {
+        XConfig xconf;
+        xconf = XConfig.getInstance();
+        XConfigObject homeCommunity = xconf.getHomeCommunityConfig();
+        return (XConfigActor) homeCommunity.getXConfigObjectWithName("pix", XConfig.PIX_MANAGER_TYPE);
+    }
+
+    /**
+     *
+     */
+    private static class ConsumerLanes {
+
+        private final CrossReferenceConsumerConfig crossReferenceConsumerConfig;
+        private final PIXNotificationLane hl7v3Lane;
+        private final PIXNotificationLane hl7v2Lane;
+
+        /**
+         *
+         * @param crossReferenceConsumerConfig
+         * @param hl7v3Lane
+         * @param hl7v2Lane
+         */
+        ConsumerLanes(CrossReferenceConsumerConfig crossReferenceConsumerConfig,
+                PIXNotificationLane hl7v3Lane, PIXNotificationLane hl7v2Lane) {
+            this.crossReferenceConsumerConfig = crossReferenceConsumerConfig;
+            this.hl7v3Lane = hl7v3Lane;
+            this.hl7v2Lane = hl7v2Lane;
+        }
+
+        /**
+         *
+         * @return
+         */
+        CrossReferenceConsumerConfig getCrossReferenceConsumerConfig() {
+            return crossReferenceConsumerConfig;
+        }
+
+        /**
+         *
+         * @return
+         */
+        PIXNotificationLane getHL7v3Lane() {
+            return hl7v3Lane;
+        }
+
+        /**
+         *
+         * @return
+         */
+        PIXNotificationLane getHL7v2Lane() {
+            return hl7v2Lane;
+        }
+    }
+}
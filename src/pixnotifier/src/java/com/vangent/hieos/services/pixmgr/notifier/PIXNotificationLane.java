@@ -0,0 +1,470 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.pixmgr.notifier;
+
+import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
+import com.vangent.hieos.pixnotifierutil.config.DispatcherConfig;
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
+import com.vangent.hieos.subjectmodel.DeviceInfo;
+import com.vangent.hieos.subjectmodel.Subject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.log4j.Logger;
+
+/**
+ * Delivers PIX Update Notifications to a single cross-reference consumer using
+ * a single protocol (HL7v2 or HL7v3).  Each lane has its own queue and worker
+ * threads so that a slow or unavailable consumer does not delay others.
+ */
+public class PIXNotificationLane {
+
+    private static final Logger logger = Logger.getLogger(PIXNotificationLane.class);
+    private static final int SHUTDOWN_TIMEOUT_MSEC = 500;
+    // Time allowed at shutdown for queued notifications to be delivered.
+    private static final int SHUTDOWN_DRAIN_TIMEOUT_MSEC = 10000;
+    private static final int POLL_INTERVAL_MSEC = 1000;
+
+    /**
+     *
+     */
+    public enum Protocol {
+
+        HL7v2, HL7v3
+    };
+    private final String name;
+    private final Protocol protocol;
+    private final DeviceInfo senderDeviceInfo;
+    private final CrossReferenceConsumerConfig crossReferenceConsumerConfig;
+    private final DispatcherConfig dispatcherConfig;
+    private final BlockingQueue<PendingNotification> queue;
+    private final ExecutorService workerPool;
+    private MultiThreadedHttpConnectionManager httpConnectionManager = null;
+    private volatile boolean shuttingDown = false;
+    // Statistics.
+    private final AtomicLong enqueuedCount = new AtomicLong(0);
+    private final AtomicLong sentCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+    private final AtomicLong retryCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong lastLagMillis = new AtomicLong(0);
+    private final AtomicLong maxLagMillis = new AtomicLong(0);
+    private final AtomicLong lastSendMillis = new AtomicLong(0);
+
+    /**
+     *
+     * @param protocol
+     * @param senderDeviceInfo
+     * @param crossReferenceConsumerConfig
+     * @param dispatcherConfig
+     */
+    public PIXNotificationLane(Protocol protocol, DeviceInfo senderDeviceInfo,
+            CrossReferenceConsumerConfig crossReferenceConsumerConfig, DispatcherConfig dispatcherConfig) {
+        this.protocol = protocol;
+        this.senderDeviceInfo = senderDeviceInfo;
+        this.crossReferenceConsumerConfig = crossReferenceConsumerConfig;
+        this.dispatcherConfig = dispatcherConfig;
+        this.name = crossReferenceConsumerConfig.getName() + " (" + protocol + ")";
+        this.queue = new LinkedBlockingQueue<PendingNotification>(dispatcherConfig.getQueueCapacity());
+        int laneCount = dispatcherConfig.getLanesPerConsumer();
+        if (protocol == Protocol.HL7v3 && dispatcherConfig.isKeepConnectionsOpen()) {
+            httpConnectionManager = new MultiThreadedHttpConnectionManager();
+            HttpConnectionManagerParams params = httpConnectionManager.getParams();
+            params.setDefaultMaxConnectionsPerHost(laneCount);
+            params.setMaxTotalConnections(laneCount);
+            params.setStaleCheckingEnabled(true);
+        }
+        this.workerPool = Executors.newFixedThreadPool(laneCount, new LaneThreadFactory());
+        for (int i = 0; i < laneCount; i++) {
+            workerPool.execute(new Worker());
+        }
+        logger.info(getVitals() + "started (lanes = " + laneCount
+                + ", queue capacity = " + dispatcherConfig.getQueueCapacity() + ")");
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Queue a notification for delivery, waiting for space if the lane's queue
+     * is full.  The tracker is completed once the notification has been
+     * delivered (or given up on).  Returns false if the lane is shutting down
+     * (the notification is not queued).
+     *
+     * @param notificationSubject
+     * @param tracker
+     * @return
+     * @throws InterruptedException
+     */
+    boolean enqueue(Subject notificationSubject, PIXNotificationTracker tracker) throws InterruptedException {
+        PendingNotification pendingNotification = new PendingNotification(notificationSubject, tracker);
+        tracker.add();
+        boolean queued = false;
+        while (!shuttingDown && !queued) {
+            queued = queue.offer(pendingNotification, POLL_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+            if (!queued) {
+                logger.warn(getVitals() + "queue full (capacity = " + dispatcherConfig.getQueueCapacity()
+                        + ") -- waiting to queue PIX Update Notification");
+            }
+        }
+        // Take it back if shutdown began (unless a worker or the drain already has it).
+        if (!queued || (shuttingDown && queue.remove(pendingNotification))) {
+            droppedCount.incrementAndGet();
+            tracker.complete(false);
+            return false;
+        }
+        enqueuedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Age (in milliseconds) of the oldest notification still waiting in the queue.
+     *
+     * @return
+     */
+    public long getOldestPendingAgeMillis() {
+        PendingNotification oldest = queue.peek();
+        return (oldest == null) ? 0 : System.currentTimeMillis() - oldest.getEnqueueTime();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Time (in milliseconds) between enqueue and completion of the last delivered notification.
+     *
+     * @return
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    /**
+     * Duration (in milliseconds) of the last send to the consumer.
+     *
+     * @return
+     */
+    public long getLastSendMillis() {
+        return lastSendMillis.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getStatistics() {
+        return getVitals() + "queue depth = " + getQueueDepth()
+                + ", oldest pending = " + getOldestPendingAgeMillis() + " ms"
+                + ", enqueued = " + getEnqueuedCount()
+                + ", sent = " + getSentCount()
+                + ", failed = " + getFailedCount()
+                + ", retries = " + getRetryCount()
+                + ", dropped = " + getDroppedCount()
+                + ", last lag = " + getLastLagMillis() + " ms"
+                + ", max lag = " + getMaxLagMillis() + " ms"
+                + ", last send = " + getLastSendMillis() + " ms";
+    }
+
+    /**
+     * Stops accepting notifications and lets the workers drain the queue.
+     * Notifications still queued after SHUTDOWN_DRAIN_TIMEOUT_MSEC are
+     * discarded (their trackers report them as not attempted).
+     */
+    public void shutdownAndAwaitTermination() {
+        shuttingDown = true;
+        logger.info(getVitals() + "shutting down (" + queue.size() + " pending notifications to drain)");
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(SHUTDOWN_DRAIN_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                logger.warn(getVitals() + "queue not drained -- interrupting worker lanes");
+                workerPool.shutdownNow();
+                if (!workerPool.awaitTermination(SHUTDOWN_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                    logger.error(getVitals() + "worker lanes did not terminate");
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn(getVitals() + "interrupted while waiting for worker lanes to terminate", ex);
+            workerPool.shutdownNow();
+        }
+        List<PendingNotification> discarded = new ArrayList<PendingNotification>();
+        queue.drainTo(discarded);
+        if (!discarded.isEmpty()) {
+            logger.error(getVitals() + discarded.size() + " pending notifications discarded");
+        }
+        for (PendingNotification pendingNotification : discarded) {
+            droppedCount.incrementAndGet();
+            pendingNotification.getTracker().complete(false);
+        }
+        if (httpConnectionManager != null) {
+            httpConnectionManager.shutdown();
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private String getVitals() {
+        return "PIXNotificationLane [" + name + "]: ";
+    }
+
+    /**
+     *
+     * @return
+     */
+    private HL7Notifier createNotifier() {
+        if (protocol == Protocol.HL7v3) {
+            return new HL7v3Notifier(senderDeviceInfo, crossReferenceConsumerConfig, httpConnectionManager);
+        } else {
+            return new HL7v2Notifier(senderDeviceInfo, crossReferenceConsumerConfig,
+                    dispatcherConfig.isKeepConnectionsOpen());
+        }
+    }
+
+    /**
+     *
+     * @param attempt
+     * @return
+     */
+    private long getBackoffMillis(int attempt) {
+        long backoff = dispatcherConfig.getRetryInitialBackoffMillis();
+        for (int i = 1; i < attempt && backoff < dispatcherConfig.getRetryMaxBackoffMillis(); i++) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, dispatcherConfig.getRetryMaxBackoffMillis());
+    }
+
+    /**
+     *
+     * @param lagMillis
+     */
+    private void recordLag(long lagMillis) {
+        lastLagMillis.set(lagMillis);
+        long currentMax;
+        do {
+            currentMax = maxLagMillis.get();
+        } while (lagMillis > currentMax && !maxLagMillis.compareAndSet(currentMax, lagMillis));
+    }
+
+    /**
+     * Takes notifications off of the lane's queue and delivers them (retrying
+     * with exponential backoff on failure).  Each worker holds its own notifier
+     * so that connections are reused across notifications.
+     */
+    private class Worker implements Runnable {
+
+        /**
+         *
+         */
+        public void run() {
+            HL7Notifier notifier = createNotifier();
+            try {
+                while (true) {
+                    PendingNotification pendingNotification = queue.poll(POLL_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+                    if (pendingNotification != null) {
+                        this.deliver(notifier, pendingNotification);
+                    } else if (shuttingDown) {
+                        break;  // Drained.
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // Shutting down.
+            } finally {
+                notifier.close();
+            }
+        }
+
+        /**
+         *
+         * @param notifier
+         * @param pendingNotification
+         * @throws InterruptedException
+         */
+        private void deliver(HL7Notifier notifier, PendingNotification pendingNotification) throws InterruptedException {
+            try {
+                this.send(notifier, pendingNotification);
+            } finally {
+                pendingNotification.getTracker().complete(true);
+            }
+        }
+
+        /**
+         *
+         * @param notifier
+         * @param pendingNotification
+         * @throws InterruptedException
+         */
+        private void send(HL7Notifier notifier, PendingNotification pendingNotification) throws InterruptedException {
+            int maxAttempts = dispatcherConfig.getMaxRetries() + 1;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                long startTime = System.currentTimeMillis();
+                try {
+                    notifier.sendNotification(pendingNotification.getSubject());
+                    long endTime = System.currentTimeMillis();
+                    lastSendMillis.set(endTime - startTime);
+                    sentCount.incrementAndGet();
+                    recordLag(endTime - pendingNotification.getEnqueueTime());
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(getStatistics());
+                    }
+                    return;  // Done.
+                } catch (PIXNotifierUtilException ex) {
+                    // Start over on a fresh connection.
+                    notifier.close();
+                    if (attempt < maxAttempts) {
+                        long backoffMillis = getBackoffMillis(attempt);
+                        retryCount.incrementAndGet();
+                        logger.warn(getVitals() + "attempt " + attempt + " of " + maxAttempts
+                                + " failed (retrying in " + backoffMillis + " ms): " + ex.getMessage());
+                        Thread.sleep(backoffMillis);
+                    } else {
+                        failedCount.incrementAndGet();
+                        recordLag(System.currentTimeMillis() - pendingNotification.getEnqueueTime());
+                        logger.error(getVitals() + "giving up after " + maxAttempts + " attempts", ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    private class LaneThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        /**
+         *
+         * @param runnable
+         * @return
+         */
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PIXNotifier-" + name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     *
+     */
+    private static class PendingNotification {
+
+        private final Subject subject;
+        private final PIXNotificationTracker tracker;
+        private final long enqueueTime;
+
+        /**
+         *
+         * @param subject
+         * @param tracker
+         */
+        PendingNotification(Subject subject, PIXNotificationTracker tracker) {
+            this.subject = subject;
+            this.tracker = tracker;
+            this.enqueueTime = System.currentTimeMillis();
+        }
+
+        /**
+         *
+         * @return
+         */
+        Subject getSubject() {
+            return subject;
+        }
+
+        /**
+         *
+         * @return
+         */
+        long getEnqueueTime() {
+            return enqueueTime;
+        }
+
+        /**
+         *
+         * @return
+         */
+        PIXNotificationTracker getTracker() {
+            return tracker;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.pixmgr.notifier;
+
+/**
+ * Tracks the notifications queued (across lanes) for a single PIX Update
+ * Notification so that the caller can wait until each one has been delivered
+ * (or given up on) before the originating JMS message is acknowledged.
+ */
+class PIXNotificationTracker {
+
+    private int pendingCount = 0;
+    private int discardedCount = 0;
+
+    /**
+     * Registers a notification that has been queued for delivery.
+     */
+    synchronized void add() {
+        ++pendingCount;
+    }
+
+    /**
+     * Marks a queued notification as complete.
+     *
+     * @param attempted False if the notification was discarded (e.g. at
+     * shutdown) without any delivery attempt.
+     */
+    synchronized void complete(boolean attempted) {
+        --pendingCount;
+        if (!attempted) {
+            ++discardedCount;
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * Waits until all queued notifications are complete.
+     *
+     * @return True if every notification was attempted; false if any were discarded.
+     * @throws InterruptedException
+     */
+    synchronized boolean awaitCompletion() throws InterruptedException {
+        while (pendingCount > 0) {
+            this.wait();
+        }
+        return discardedCount == 0;
+    }
+}
@@ -13,20 +13,11 @@
 package com.vangent.hieos.services.pixmgr.notifier;
 
 import com.vangent.hieos.pixnotifierutil.client.PIXUpdateNotification;
-import com.vangent.hieos.pixnotifierutil.config.CrossReferenceConsumerConfig;
-import com.vangent.hieos.pixnotifierutil.config.PIXNotifierConfig;
 import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
-import com.vangent.hieos.subjectmodel.DeviceInfo;
-import com.vangent.hieos.subjectmodel.Subject;
-import com.vangent.hieos.subjectmodel.SubjectIdentifier;
-import com.vangent.hieos.subjectmodel.SubjectIdentifierDomain;
-import com.vangent.hieos.xutil.exception.XConfigException;
-import com.vangent.hieos.xutil.xconfig.XConfig;
-import com.vangent.hieos.xutil.xconfig.XConfigActor;
-import com.vangent.hieos.xutil.xconfig.XConfigObject;
-import java.util.ArrayList;
-import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJBException;
 import javax.ejb.MessageDriven;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -52,6 +43,23 @@ public class PIXNotifierMessageBean implements MessageListener {
     public PIXNotifierMessageBean() {
     }
 
+    /**
+     *
+     */
+    @PostConstruct
+    public void initialize() {
+        PIXNotificationDispatcher.register();
+    }
+
+    /**
+     * Shuts down the dispatcher (draining its lanes) once the last bean
+     * instance is removed (e.g. on undeploy).
+     */
+    @PreDestroy
+    public void destroy() {
+        PIXNotificationDispatcher.unregister();
+    }
+
     /**
      *
      * @param message
@@ -74,6 +82,9 @@ public class PIXNotifierMessageBean implements MessageListener {
             } else {
                 logger.info("Received message of type " + message.getClass().getName());
             }
+        } catch (EJBException e) {
+            // Do not acknowledge (the message will be redelivered).
+            throw e;
         } catch (Exception e) {
             logger.error(e.toString());
             e.printStackTrace(System.err);
@@ -82,100 +93,29 @@ public class PIXNotifierMessageBean implements MessageListener {
     }
 
     /**
-     * 
+     * Hands the notifications to the dispatcher (consumers are notified
+     * concurrently) and waits for delivery so that the message is only
+     * acknowledged once every consumer has been notified (or given up on).
+     *
      * @param pixUpdateNotification
      */
     public void sendNotifications(PIXUpdateNotification pixUpdateNotification) {
-
-        // Get EMPI configuration.
-        PIXNotifierConfig pixNotifierConfig;
+        PIXNotificationDispatcher dispatcher;
         try {
-            pixNotifierConfig = PIXNotifierConfig.getInstance();
+            dispatcher = PIXNotificationDispatcher.getInstance();
         } catch (PIXNotifierUtilException ex) {
             logger.error("Error getting PIX Notifier configuration when trying to send PIX Update Notifications", ex);
             return;
         }
-
-        // Get PIX Manager configuration (mainly for device id info)..
-        XConfigActor pixManagerConfig;
+        boolean attempted;
         try {
-            pixManagerConfig = this.getPIXManagerConfig();
-        } catch (XConfigException ex) {
-            logger.error("Error getting PIX Manager configuration when trying to send PIX Update Notifications", ex);
-            return;
+            attempted = dispatcher.dispatch(pixUpdateNotification).awaitCompletion();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new EJBException("Interrupted while sending PIX Update Notifications", ex);
         }
-        DeviceInfo senderDeviceInfo = new DeviceInfo(pixManagerConfig);
-
-        // Go through each cross reference consumer configuration.
-        for (CrossReferenceConsumerConfig crossReferenceConsumerConfig : pixNotifierConfig.getCrossReferenceConsumerConfigs()) {
-
-            // Only send notifications if enabled for the consumer.
-            if (crossReferenceConsumerConfig.isEnabled()) {
-
-                // Now send notifications for each individual subject on notification list.
-                for (Subject subject : pixUpdateNotification.getSubjects()) {
-                    Subject notificationSubject = this.getNotificationSubject(subject, crossReferenceConsumerConfig);
-                    if ((notificationSubject != null) && !notificationSubject.getSubjectIdentifiers().isEmpty()) {
-                        // FIXME: Maybe cleanup logic. This works, but ugly implementation.
-                        if (crossReferenceConsumerConfig.isHL7v3NotificationEnabled()) {
-                            HL7v3Notifier notifier = new HL7v3Notifier(senderDeviceInfo, crossReferenceConsumerConfig);
-                            notifier.sendNotification(notificationSubject);
-                        }
-                        if (crossReferenceConsumerConfig.isHL7v2NotificationEnabled()) {
-                            HL7v2Notifier notifier = new HL7v2Notifier(senderDeviceInfo, crossReferenceConsumerConfig);
-                            notifier.sendNotification(notificationSubject);
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     *
-     * @param subject
-     * @param crossReferenceConsumerConfig
-     * @return
-     */
-    private Subject getNotificationSubject(Subject subject, CrossReferenceConsumerConfig crossReferenceConsumerConfig) {
-        Subject notificationSubject = null;
-        try {
-            notificationSubject = (Subject) subject.clone();
-            List<SubjectIdentifier> subjectIdentifiersToKeep = new ArrayList<SubjectIdentifier>();
-            // Get list of interested identifier domains.
-            List<SubjectIdentifierDomain> interestedIdentifierDomains = crossReferenceConsumerConfig.getIdentifierDomains();
-            List<SubjectIdentifier> subjectIdentifiers = subject.getSubjectIdentifiers();
-            for (SubjectIdentifier subjectIdentifier : subjectIdentifiers) {
-                // See if we should keep this identifier.
-                SubjectIdentifierDomain subjectIdentifierDomain = subjectIdentifier.getIdentifierDomain();
-                for (SubjectIdentifierDomain interestedIdentifierDomain : interestedIdentifierDomains) {
-                    if (subjectIdentifierDomain.equals(interestedIdentifierDomain)) {
-                        // Keep this identifier.
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("Found subject identifier of interest: " + subjectIdentifier.getCXFormatted());
-                        }
-                        subjectIdentifiersToKeep.add(subjectIdentifier);
-                        break;
-                    }
-                }
-            }
-            notificationSubject.setSubjectIdentifiers(subjectIdentifiersToKeep);
-        } catch (Exception ex) {
-            // FIXME: Do something.
-            logger.error("Error cloning Subject", ex);
+        if (!attempted) {
+            throw new EJBException("PIX Update Notifications discarded during shutdown");
         }
-        return notificationSubject;
-    }
-
-    /**
-     * 
-     * @return
-     * @throws XConfigException
-     */
-    private XConfigActor getPIXManagerConfig() throws XConfigException {
-        XConfig xconf;
-        xconf = XConfig.getInstance();
-        XConfigObject homeCommunity = xconf.getHomeCommunityConfig();
-        return (XConfigActor) homeCommunity.getXConfigObjectWithName("pix", XConfig.PIX_MANAGER_TYPE);
     }
 }
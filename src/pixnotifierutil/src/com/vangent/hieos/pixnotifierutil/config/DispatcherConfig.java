@@ -0,0 +1,126 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.pixnotifierutil.config;
+
+import com.vangent.hieos.pixnotifierutil.exception.PIXNotifierUtilException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+
+/**
+ * Controls how PIX Update Notifications are queued and delivered to
+ * cross-reference consumers.
+ */
+public class DispatcherConfig implements ConfigItem {
+
+    private static String LANES_PER_CONSUMER = "lanes-per-consumer";
+    private static String QUEUE_CAPACITY = "queue-capacity";
+    private static String MAX_RETRIES = "max-retries";
+    private static String RETRY_INITIAL_BACKOFF_MILLIS = "retry-initial-backoff-millis";
+    private static String RETRY_MAX_BACKOFF_MILLIS = "retry-max-backoff-millis";
+    private static String KEEP_CONNECTIONS_OPEN = "keep-connections-open";
+    private static String CONNECTION_IDLE_TIMEOUT_SECONDS = "connection-idle-timeout-seconds";
+    private static String MAX_IDLE_CONNECTIONS_PER_ENDPOINT = "max-idle-connections-per-endpoint";
+    private int lanesPerConsumer = 1;
+    private int queueCapacity = 10000;
+    private int maxRetries = 3;
+    private long retryInitialBackoffMillis = 1000;
+    private long retryMaxBackoffMillis = 60000;
+    private boolean keepConnectionsOpen = true;
+    private long connectionIdleTimeoutSeconds = 60;
+    private int maxIdleConnectionsPerEndpoint = 4;
+
+    /**
+     * Number of worker lanes (threads) per consumer and protocol.  Keep at 1
+     * to preserve notification ordering for a consumer.
+     *
+     * @return
+     */
+    public int getLanesPerConsumer() {
+        return lanesPerConsumer;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getRetryInitialBackoffMillis() {
+        return retryInitialBackoffMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getRetryMaxBackoffMillis() {
+        return retryMaxBackoffMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isKeepConnectionsOpen() {
+        return keepConnectionsOpen;
+    }
+
+    /**
+     * Idle (kept open) MLLP connections older than this are closed.
+     *
+     * @return
+     */
+    public long getConnectionIdleTimeoutSeconds() {
+        return connectionIdleTimeoutSeconds;
+    }
+
+    /**
+     * Maximum number of idle MLLP connections kept open per consumer endpoint.
+     *
+     * @return
+     */
+    public int getMaxIdleConnectionsPerEndpoint() {
+        return maxIdleConnectionsPerEndpoint;
+    }
+
+    /**
+     *
+     * @param hc
+     * @param pixNotifierConfig
+     * @throws PIXNotifierUtilException
+     */
+    @Override
+    public void load(HierarchicalConfiguration hc, PIXNotifierConfig pixNotifierConfig) throws PIXNotifierUtilException {
+        this.lanesPerConsumer = Math.max(1, hc.getInt(LANES_PER_CONSUMER, this.lanesPerConsumer));
+        this.queueCapacity = Math.max(1, hc.getInt(QUEUE_CAPACITY, this.queueCapacity));
+        this.maxRetries = Math.max(0, hc.getInt(MAX_RETRIES, this.maxRetries));
+        this.retryInitialBackoffMillis = hc.getLong(RETRY_INITIAL_BACKOFF_MILLIS, this.retryInitialBackoffMillis);
+        this.retryMaxBackoffMillis = hc.getLong(RETRY_MAX_BACKOFF_MILLIS, this.retryMaxBackoffMillis);
+        this.keepConnectionsOpen = hc.getBoolean(KEEP_CONNECTIONS_OPEN, this.keepConnectionsOpen);
+        this.connectionIdleTimeoutSeconds = Math.max(1, hc.getLong(CONNECTION_IDLE_TIMEOUT_SECONDS, this.connectionIdleTimeoutSeconds));
+        this.maxIdleConnectionsPerEndpoint = Math.max(0, hc.getInt(MAX_IDLE_CONNECTIONS_PER_ENDPOINT, this.maxIdleConnectionsPerEndpoint));
+    }
+}
@@ -36,10 +36,12 @@ public class PIXNotifierConfig {
     private final static Logger logger = Logger.getLogger(PIXNotifierConfig.class);
     private static String CONFIG_FILE_NAME = "PIXNotifierConfig.xml";
     private static String CROSS_REFERENCE_CONSUMER_CONFIGS = "cross-reference-consumers.cross-reference-consumer";
+    private static String DISPATCHER_CONFIG = "dispatcher";
     private static PIXNotifierConfig _instance = null;
     private Map<String, XConfigActor> crossReferenceConsumerHL7v3ConfigActorMap = new HashMap<String, XConfigActor>();
     private Map<String, XConfigActor> crossReferenceConsumerHL7v2ConfigActorMap = new HashMap<String, XConfigActor>();
     private List<CrossReferenceConsumerConfig> crossReferenceConsumerConfigs = new ArrayList<CrossReferenceConsumerConfig>();
+    private DispatcherConfig dispatcherConfig = new DispatcherConfig();
 
     /**
      *
@@ -69,6 +71,14 @@ public class PIXNotifierConfig {
         return crossReferenceConsumerConfigs;
     }
 
+    /**
+     *
+     * @return
+     */
+    public DispatcherConfig getDispatcherConfig() {
+        return dispatcherConfig;
+    }
+
     /**
      *
      * @param deviceId
@@ -100,6 +110,9 @@ public class PIXNotifierConfig {
             // Load cross reference consumers.
             this.loadCrossReferenceConsumers(xmlConfig);
 
+            // Load dispatcher settings (defaults are used if not present).
+            this.loadDispatcherConfig(xmlConfig);
+
         } catch (ConfigurationException ex) {
             throw new PIXNotifierUtilException(
                     "PIXNotifierConfig: Could not load configuration from " + configLocation + " " + ex.getMessage());
@@ -125,6 +138,18 @@ public class PIXNotifierConfig {
         }
     }
 
+    /**
+     *
+     * @param hc
+     * @throws PIXNotifierUtilException
+     */
+    private void loadDispatcherConfig(HierarchicalConfiguration hc) throws PIXNotifierUtilException {
+        List<?> dispatcherConfigs = hc.configurationsAt(DISPATCHER_CONFIG);
+        if (!dispatcherConfigs.isEmpty()) {
+            dispatcherConfig.load((HierarchicalConfiguration) dispatcherConfigs.get(0), this);
+        }
+    }
+
     /**
      *
      * @throws PIXNotifierUtilException
@@ -27,6 +27,7 @@ import com.vangent.hieos.xutil.soap.WebServiceClient;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
 import com.vangent.hieos.xutil.xconfig.XConfigTransaction;
 import java.io.ByteArrayOutputStream;
+import java.util.List;
 import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
 import oasis.names.tc.xacml._2_0.context.schema.os.ResponseType;
 
@@ -99,17 +100,19 @@ public class PDPClient extends WebServiceClient {
         this.addResourceContent(pdpRequest);
         RequestType requestType = pdpRequest.getRequestType();
 
-        // Conduct policy evaluation.
-        ResponseCtx responseCtx = pdpImpl.evaluate(requestType);
+        // Conduct policy evaluation (one result per resource).
+        List<ResponseCtx> responseCtxs = pdpImpl.evaluateEach(requestType);
         if (logger.isDebugEnabled()) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            responseCtx.encode(baos);
-            logger.debug("XACML Engine Response: " + baos.toString());
+            for (ResponseCtx responseCtx : responseCtxs) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                responseCtx.encode(baos);
+                logger.debug("XACML Engine Response: " + baos.toString());
+            }
         }
 
         // Build PDPResponse.
         XACMLResponseBuilder builder = new XACMLResponseBuilder();
-        ResponseType responseType = builder.buildResponseType(responseCtx);
+        ResponseType responseType = builder.buildResponseType(responseCtxs);
         PDPResponse pdpResponse = new PDPResponse();
         pdpResponse.setRequestType(requestType);
         pdpResponse.setResponseType(responseType);
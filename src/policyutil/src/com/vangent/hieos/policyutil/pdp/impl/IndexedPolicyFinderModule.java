@@ -0,0 +1,511 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.policyutil.pdp.impl;
+
+import com.sun.xacml.AbstractPolicy;
+import com.sun.xacml.EvaluationCtx;
+import com.sun.xacml.MatchResult;
+import com.sun.xacml.TargetMatch;
+import com.sun.xacml.attr.AttributeValue;
+import com.sun.xacml.attr.BagAttribute;
+import com.sun.xacml.cond.EvaluationResult;
+import com.sun.xacml.ctx.Status;
+import com.sun.xacml.finder.PolicyFinder;
+import com.sun.xacml.finder.PolicyFinderModule;
+import com.sun.xacml.finder.PolicyFinderResult;
+import com.sun.xacml.support.finder.PolicyReader;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.apache.log4j.Logger;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Policy finder module (replaces sunxacml's FilePolicyModule) that indexes the
+ * top-level policies by the equality matches in their targets (e.g. action-id,
+ * resource type, purpose of use).  Only policies whose targets can match the
+ * request's attribute values are matched against the request; policies with
+ * targets that can not be indexed are always matched.  Policies with a
+ * MustBePresent designator (or selector) in their target are never indexed,
+ * since a missing attribute makes the match INDETERMINATE (which must be
+ * reported) rather than NO_MATCH.
+ *
+ * As with FilePolicyModule, at most one top-level policy may apply to a
+ * request.  The policy set can be reloaded (explicitly, or when a policy file
+ * changes) without restarting the service.
+ */
+public class IndexedPolicyFinderModule extends PolicyFinderModule {
+
+    private final static Logger logger = Logger.getLogger(IndexedPolicyFinderModule.class);
+    private final static String SUBJECT_CATEGORY_ACCESS_SUBJECT =
+            "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+    private final static Set<String> INDEXABLE_MATCH_IDS = new HashSet<String>();
+    // Target sections, in order of preference for indexing.
+    private final static String[] SECTION_NAMES = {"Action", "Resource", "Subject", "Environment"};
+    private final static int[] SECTION_TYPES = {TargetMatch.ACTION, TargetMatch.RESOURCE, TargetMatch.SUBJECT, TargetMatch.ENVIRONMENT};
+
+    static {
+        INDEXABLE_MATCH_IDS.add("urn:oasis:names:tc:xacml:1.0:function:string-equal");
+        INDEXABLE_MATCH_IDS.add("urn:oasis:names:tc:xacml:1.0:function:anyURI-equal");
+    }
+    private final List<String> policyFiles;
+    private PolicyFinder policyFinder = null;
+    private volatile PolicyIndex policyIndex = new PolicyIndex();
+    private boolean loaded = false;
+    private long reloadCheckIntervalMillis = 0;
+    private volatile long nextReloadCheckTime = 0;
+
+    /**
+     *
+     * @param policyFiles
+     */
+    public IndexedPolicyFinderModule(List<String> policyFiles) {
+        this.policyFiles = new ArrayList<String>(policyFiles);
+    }
+
+    /**
+     * Check policy files for changes at most once every reloadCheckIntervalSeconds
+     * (0 to disable).
+     *
+     * @param reloadCheckIntervalSeconds
+     */
+    public void setReloadCheckInterval(long reloadCheckIntervalSeconds) {
+        this.reloadCheckIntervalMillis = reloadCheckIntervalSeconds * 1000L;
+        this.nextReloadCheckTime = System.currentTimeMillis() + reloadCheckIntervalMillis;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public boolean isRequestSupported() {
+        return true;
+    }
+
+    /**
+     *
+     * @param policyFinder
+     */
+    @Override
+    public void init(PolicyFinder policyFinder) {
+        this.policyFinder = policyFinder;
+        this.reload();
+    }
+
+    /**
+     * Reload (and re-index) all policy files.  On a reload, the current policy
+     * set is kept if any policy file can not be read.
+     *
+     * @return true if the policy set was replaced.
+     */
+    public synchronized boolean reload() {
+        PolicyIndex newPolicyIndex = new PolicyIndex();
+        PolicyReader policyReader = new PolicyReader(policyFinder,
+                java.util.logging.Logger.getLogger(IndexedPolicyFinderModule.class.getName()),
+                this.getSchemaFile());
+        Set<URI> policyIds = new HashSet<URI>();
+        for (String policyFile : policyFiles) {
+            File file = new File(policyFile);
+            newPolicyIndex.lastModified.put(policyFile, file.lastModified());
+            AbstractPolicy policy;
+            Element policyElement;
+            try {
+                policy = policyReader.readPolicy(file);
+                policyElement = this.parse(file);
+            } catch (Exception ex) {
+                logger.error("Unable to load policy file " + policyFile + ": " + ex.getMessage());
+                if (loaded) {
+                    logger.error("Keeping current policies (" + policyIndex.policies.size() + " loaded)");
+                    return false;
+                }
+                continue;
+            }
+            if (!policyIds.add(policy.getId())) {
+                logger.warn("Ignoring duplicate policy " + policy.getId() + " in " + policyFile);
+                continue;
+            }
+            newPolicyIndex.add(policy, this.getIndexEntries(policyElement));
+        }
+        policyIndex = newPolicyIndex;
+        loaded = true;
+        logger.info("Loaded " + newPolicyIndex.policies.size() + " policies ("
+                + newPolicyIndex.unindexed.cardinality() + " not indexed)");
+        return true;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getPolicyCount() {
+        return policyIndex.policies.size();
+    }
+
+    /**
+     *
+     * @param context
+     * @return
+     */
+    @Override
+    public PolicyFinderResult findPolicy(EvaluationCtx context) {
+        this.checkForChanges();
+        PolicyIndex currentPolicyIndex = policyIndex;
+
+        // Find the policies whose targets can match.
+        BitSet candidates = (BitSet) currentPolicyIndex.unindexed.clone();
+        for (Map.Entry<AttributeKey, Map<String, BitSet>> entry : currentPolicyIndex.index.entrySet()) {
+            Map<String, BitSet> policiesByValue = entry.getValue();
+            EvaluationResult result = entry.getKey().getAttribute(context);
+            if (result.indeterminate()) {
+                // Let the policies sort it out.
+                for (BitSet policies : policiesByValue.values()) {
+                    candidates.or(policies);
+                }
+                continue;
+            }
+            BagAttribute bag = (BagAttribute) result.getAttributeValue();
+            for (Iterator<?> it = bag.iterator(); it.hasNext();) {
+                BitSet policies = policiesByValue.get(((AttributeValue) it.next()).encode());
+                if (policies != null) {
+                    candidates.or(policies);
+                }
+            }
+        }
+
+        // Now, fully match the candidates (same rules as FilePolicyModule).
+        AbstractPolicy selectedPolicy = null;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            AbstractPolicy policy = currentPolicyIndex.policies.get(i);
+            MatchResult match = policy.match(context);
+            int result = match.getResult();
+            if (result == MatchResult.INDETERMINATE) {
+                return new PolicyFinderResult(match.getStatus());
+            }
+            if (result == MatchResult.MATCH) {
+                if (selectedPolicy != null) {
+                    List<String> code = new ArrayList<String>();
+                    code.add(Status.STATUS_PROCESSING_ERROR);
+                    return new PolicyFinderResult(new Status(code, "too many applicable top-level policies"));
+                }
+                selectedPolicy = policy;
+            }
+        }
+        if (selectedPolicy == null) {
+            return new PolicyFinderResult();
+        }
+        return new PolicyFinderResult(selectedPolicy);
+    }
+
+    /**
+     *
+     */
+    private void checkForChanges() {
+        if (reloadCheckIntervalMillis <= 0 || System.currentTimeMillis() < nextReloadCheckTime) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now < nextReloadCheckTime) {
+                return;  // Another thread just checked.
+            }
+            nextReloadCheckTime = now + reloadCheckIntervalMillis;
+            for (String policyFile : policyFiles) {
+                Long lastModified = policyIndex.lastModified.get(policyFile);
+                if (lastModified == null || lastModified.longValue() != new File(policyFile).lastModified()) {
+                    logger.info("Policy file changed (" + policyFile + "), reloading policies");
+                    this.reload();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private File getSchemaFile() {
+        String schemaName = System.getProperty(PolicyReader.POLICY_SCHEMA_PROPERTY);
+        return schemaName != null ? new File(schemaName) : null;
+    }
+
+    /**
+     *
+     * @param file
+     * @return
+     * @throws Exception
+     */
+    private Element parse(File file) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        return builder.parse(file).getDocumentElement();
+    }
+
+    /**
+     * Returns the (attribute, value) pairs to index the policy under; null if
+     * the policy's target can not be indexed.  A target section is indexable if
+     * each of its alternatives (e.g. each Action) requires an equality match
+     * on a designated attribute.
+     *
+     * @param policyElement
+     * @return
+     */
+    private List<IndexEntry> getIndexEntries(Element policyElement) {
+        Element target = this.getFirstChildElement(policyElement, "Target");
+        if (target == null || this.hasMustBePresent(target)) {
+            return null;
+        }
+        for (int i = 0; i < SECTION_NAMES.length; i++) {
+            Element section = this.getFirstChildElement(target, SECTION_NAMES[i] + "s");
+            if (section == null) {
+                continue;  // Matches any.
+            }
+            List<Element> groups = this.getChildElements(section, SECTION_NAMES[i]);
+            if (groups.isEmpty()) {
+                continue;  // e.g. AnyAction (XACML 1.x).
+            }
+            List<IndexEntry> entries = new ArrayList<IndexEntry>();
+            for (Element group : groups) {
+                IndexEntry entry = this.getIndexEntry(group, SECTION_NAMES[i], SECTION_TYPES[i]);
+                if (entry == null) {
+                    entries = null;
+                    break;
+                }
+                entries.add(entry);
+            }
+            if (entries != null) {
+                return entries;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param group
+     * @param sectionName
+     * @param sectionType
+     * @return
+     */
+    private IndexEntry getIndexEntry(Element group, String sectionName, int sectionType) {
+        for (Element match : this.getChildElements(group, sectionName + "Match")) {
+            if (!INDEXABLE_MATCH_IDS.contains(match.getAttribute("MatchId"))) {
+                continue;
+            }
+            Element value = this.getFirstChildElement(match, "AttributeValue");
+            Element designator = this.getFirstChildElement(match, sectionName + "AttributeDesignator");
+            if (value == null || designator == null) {
+                continue;
+            }
+            String dataType = designator.getAttribute("DataType");
+            if (!dataType.equals(value.getAttribute("DataType"))) {
+                continue;
+            }
+            try {
+                URI subjectCategory = null;
+                if (sectionType == TargetMatch.SUBJECT) {
+                    String category = designator.getAttribute("SubjectCategory");
+                    subjectCategory = new URI(category.length() > 0 ? category : SUBJECT_CATEGORY_ACCESS_SUBJECT);
+                }
+                AttributeKey key = new AttributeKey(sectionType,
+                        new URI(designator.getAttribute("AttributeId")), new URI(dataType), subjectCategory);
+                return new IndexEntry(key, value.getTextContent());
+            } catch (Exception ex) {
+                // Fall through (not indexable).
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if any designator or selector in the target requires its
+     * attribute to be present.
+     *
+     * @param target
+     * @return
+     */
+    private boolean hasMustBePresent(Element target) {
+        NodeList elements = target.getElementsByTagNameNS("*", "*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            if ("true".equals(((Element) elements.item(i)).getAttribute("MustBePresent"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param parent
+     * @param localName
+     * @return
+     */
+    private Element getFirstChildElement(Element parent, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && localName.equals(node.getLocalName())) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param parent
+     * @param localName
+     * @return
+     */
+    private List<Element> getChildElements(Element parent, String localName) {
+        List<Element> elements = new ArrayList<Element>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && localName.equals(node.getLocalName())) {
+                elements.add((Element) node);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Immutable (once published) set of loaded policies and their index.
+     */
+    private static class PolicyIndex {
+
+        private final List<AbstractPolicy> policies = new ArrayList<AbstractPolicy>();
+        private final Map<AttributeKey, Map<String, BitSet>> index = new HashMap<AttributeKey, Map<String, BitSet>>();
+        private final BitSet unindexed = new BitSet();
+        private final Map<String, Long> lastModified = new HashMap<String, Long>();
+
+        /**
+         *
+         * @param policy
+         * @param entries
+         */
+        void add(AbstractPolicy policy, List<IndexEntry> entries) {
+            int position = policies.size();
+            policies.add(policy);
+            if (entries == null) {
+                unindexed.set(position);
+                return;
+            }
+            for (IndexEntry entry : entries) {
+                Map<String, BitSet> policiesByValue = index.get(entry.key);
+                if (policiesByValue == null) {
+                    policiesByValue = new HashMap<String, BitSet>();
+                    index.put(entry.key, policiesByValue);
+                }
+                BitSet positions = policiesByValue.get(entry.value);
+                if (positions == null) {
+                    positions = new BitSet();
+                    policiesByValue.put(entry.value, positions);
+                }
+                positions.set(position);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    private static class IndexEntry {
+
+        private final AttributeKey key;
+        private final String value;
+
+        /**
+         *
+         * @param key
+         * @param value
+         */
+        IndexEntry(AttributeKey key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Designated request attribute (section, id, data type and subject category).
+     */
+    private static class AttributeKey {
+
+        private final int type;
+        private final URI attributeId;
+        private final URI dataType;
+        private final URI subjectCategory;
+
+        /**
+         *
+         * @param type
+         * @param attributeId
+         * @param dataType
+         * @param subjectCategory
+         */
+        AttributeKey(int type, URI attributeId, URI dataType, URI subjectCategory) {
+            this.type = type;
+            this.attributeId = attributeId;
+            this.dataType = dataType;
+            this.subjectCategory = subjectCategory;
+        }
+
+        /**
+         *
+         * @param context
+         * @return
+         */
+        EvaluationResult getAttribute(EvaluationCtx context) {
+            switch (type) {
+                case TargetMatch.SUBJECT:
+                    return context.getSubjectAttribute(dataType, attributeId, subjectCategory);
+                case TargetMatch.RESOURCE:
+                    return context.getResourceAttribute(dataType, attributeId, null);
+                case TargetMatch.ACTION:
+                    return context.getActionAttribute(dataType, attributeId, null);
+                default:
+                    return context.getEnvironmentAttribute(dataType, attributeId, null);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AttributeKey)) {
+                return false;
+            }
+            AttributeKey other = (AttributeKey) obj;
+            return type == other.type
+                    && attributeId.equals(other.attributeId)
+                    && dataType.equals(other.dataType)
+                    && (subjectCategory == null ? other.subjectCategory == null : subjectCategory.equals(other.subjectCategory));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = type;
+            hash = 31 * hash + attributeId.hashCode();
+            hash = 31 * hash + dataType.hashCode();
+            hash = 31 * hash + (subjectCategory != null ? subjectCategory.hashCode() : 0);
+            return hash;
+        }
+    }
+}
@@ -67,10 +67,10 @@ import com.sun.xacml.ctx.ResponseCtx;
 
 import com.sun.xacml.finder.AttributeFinder;
 import com.sun.xacml.finder.PolicyFinder;
+import com.sun.xacml.finder.PolicyFinderModule;
 
 import com.sun.xacml.finder.impl.CurrentEnvModule;
 import com.sun.xacml.finder.impl.SelectorModule;
-import com.sun.xacml.support.finder.FilePolicyModule;
 import com.vangent.hieos.policyutil.exception.PolicyException;
 import com.vangent.hieos.policyutil.util.PolicyConfig;
 
@@ -82,6 +82,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
+import oasis.names.tc.xacml._2_0.context.schema.os.ResourceType;
 
 /**
  * This is a simple, command-line driven XACML PDP. It acts both as an example
@@ -96,6 +97,7 @@ public class PDPImpl {
 
     // this is the actual PDP object we'll use for evaluation
     private PDP pdp = null;
+    private IndexedPolicyFinderModule policyModule = null;
     private static PDPImpl _pdpSingleton;
 
     /**
@@ -129,6 +131,7 @@ public class PDPImpl {
                 List<String> policyFiles = pConfig.getPolicyFiles();
                 // Cache the PDP - confirmed ok through load testing.
                 _pdpSingleton = new PDPImpl(policyFiles);
+                _pdpSingleton.setPolicyReloadCheckInterval(pConfig.getPolicyReloadIntervalSeconds());
             } catch (Exception ex) {
                 throw new PolicyException("Unable to create PDPImpl: " + ex.getMessage());
             }
@@ -145,18 +148,15 @@ public class PDPImpl {
      * @param policyFiles an array of filenames that specify policies
      */
     public PDPImpl(List<String> policyFiles) throws Exception {
-        // Create a PolicyFinderModule and initialize it...in this case,
-        // we're using the sample FilePolicyModule that is pre-configured
-        // with a set of policies from the filesystem
-        FilePolicyModule filePolicyModule = new FilePolicyModule();
-        for (int i = 0; i < policyFiles.size(); i++) {
-            filePolicyModule.addPolicy(policyFiles.get(i));
-        }
+        // HIEOS (CHANGED): Create a PolicyFinderModule that indexes the policies
+        // (from the filesystem) by their targets (rather than FilePolicyModule,
+        // which matches the request against every policy).
+        policyModule = new IndexedPolicyFinderModule(policyFiles);
 
         // next, setup the PolicyFinder that this PDP will use
         PolicyFinder policyFinder = new PolicyFinder();
-        Set policyModules = new HashSet();
-        policyModules.add(filePolicyModule);
+        Set<PolicyFinderModule> policyModules = new HashSet<PolicyFinderModule>();
+        policyModules.add(policyModule);
         policyFinder.setModules(policyModules);
 
         // now setup attribute finder modules for the current date/time and
@@ -187,6 +187,33 @@ public class PDPImpl {
         pdp = new PDP(new PDPConfig(attributeFinder, policyFinder, null));
     }
 
+    // HIEOS (ADDED)
+    /**
+     * Reload the policy files (without restarting the service).
+     *
+     * @return true if the policies were reloaded.
+     * @throws PolicyException
+     */
+    public boolean reloadPolicies() throws PolicyException {
+        if (policyModule == null) {
+            throw new PolicyException("PDPImpl not configured with policy files");
+        }
+        return policyModule.reload();
+    }
+
+    // HIEOS (ADDED)
+    /**
+     * Reload the policy files automatically when changed (checked at most once
+     * every reloadCheckIntervalSeconds; 0 to disable).
+     *
+     * @param reloadCheckIntervalSeconds
+     */
+    public void setPolicyReloadCheckInterval(long reloadCheckIntervalSeconds) {
+        if (policyModule != null) {
+            policyModule.setReloadCheckInterval(reloadCheckIntervalSeconds);
+        }
+    }
+
     /**
      * Evaluates the given request and returns the Response that the PDP
      * will hand back to the PEP.
@@ -217,6 +244,32 @@ public class PDPImpl {
         return pdp.evaluate(request);
     }
 
+    // HIEOS (ADDED)
+    /**
+     * Evaluates each Resource of a (multiple resource) request as its own
+     * request.  Subject, Action and Environment are shared.
+     *
+     * @param request
+     * @return One response per Resource (in Resource order).
+     */
+    public List<ResponseCtx> evaluateEach(RequestType request) {
+        List<ResponseCtx> responses = new ArrayList<ResponseCtx>();
+        List<ResourceType> resources = request.getResource();
+        if (resources.size() <= 1) {
+            responses.add(pdp.evaluate(request));
+            return responses;
+        }
+        for (ResourceType resource : resources) {
+            RequestType singleRequest = new RequestType();
+            singleRequest.getSubject().addAll(request.getSubject());
+            singleRequest.getResource().add(resource);
+            singleRequest.setAction(request.getAction());
+            singleRequest.setEnvironment(request.getEnvironment());
+            responses.add(pdp.evaluate(singleRequest));
+        }
+        return responses;
+    }
+
     /**
      * Main-line driver for this sample code. This method lets you invoke
      * the PDP directly from the command-line.
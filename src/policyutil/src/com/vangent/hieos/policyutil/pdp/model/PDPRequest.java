@@ -161,6 +161,23 @@ public class PDPRequest {
         return resourceTypes.isEmpty() ? null : resourceTypes.get(0);
     }
 
+    /**
+     * All resources (more than one for a multiple resource request).
+     *
+     * @return
+     */
+    public List<ResourceType> getResourceTypes() {
+        return requestType.getResource();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isMultiResourceRequest() {
+        return requestType.getResource().size() > 1;
+    }
+
     /**
      *
      * @return
@@ -72,6 +72,16 @@ public class PDPResponse {
         return resultTypes.get(0);
     }
 
+    /**
+     * For a multiple resource request, results are in the same order as the
+     * request's resources.
+     *
+     * @return
+     */
+    public List<ResultType> getResults() {
+        return responseType.getResult();
+    }
+
     /**
      *
      * @return
@@ -284,6 +284,63 @@ public class XACMLRequestBuilder {
         return request;
     }
 
+    /**
+     * Builds a multiple resource PDPRequest (one Resource per resource content
+     * element) from an evaluated request.  Each Resource carries the original
+     * resource attributes and the original first resource content (i.e. the
+     * consent directives) ahead of its own content.
+     *
+     * @param action
+     * @param requestType
+     * @param resourceContents
+     * @return
+     * @throws PolicyException
+     */
+    public PDPRequest buildMultiResourcePDPRequest(String action, RequestType requestType, List<OMElement> resourceContents) throws PolicyException {
+        PDPRequest pdpRequest = new PDPRequest();
+        pdpRequest.setReturnContext(false);  // Save some processing time here.
+        RequestType multiRequestType = pdpRequest.getRequestType();
+        multiRequestType.getSubject().clear();
+        multiRequestType.getSubject().addAll(requestType.getSubject());
+        if (requestType.getEnvironment() != null) {
+            multiRequestType.setEnvironment(requestType.getEnvironment());
+        }
+        pdpRequest.setAction(action);
+
+        // Shared resource attributes and content.
+        List<AttributeType> resourceAttributeTypes = new ArrayList<AttributeType>();
+        Object sharedContent = null;
+        if (!requestType.getResource().isEmpty()) {
+            ResourceType resourceType = requestType.getResource().get(0);
+            resourceAttributeTypes.addAll(resourceType.getAttribute());
+            ResourceContentType resourceContentType = resourceType.getResourceContent();
+            if (resourceContentType != null && !resourceContentType.getContent().isEmpty()) {
+                sharedContent = resourceContentType.getContent().get(0);
+            }
+        }
+
+        // Resource(s)
+        multiRequestType.getResource().clear();
+        for (OMElement resourceContent : resourceContents) {
+            Element resourceContentElement;
+            try {
+                resourceContentElement = XMLParser.convertOMToDOM(resourceContent);
+            } catch (XMLParserException ex) {
+                throw new PolicyException("Unable to convert OM to DOM: " + ex.getMessage());
+            }
+            ResourceContentType resourceContentType = new ResourceContentType();
+            if (sharedContent != null) {
+                resourceContentType.getContent().add(sharedContent);
+            }
+            resourceContentType.getContent().add(resourceContentElement);
+            ResourceType resourceType = new ResourceType();
+            resourceType.getAttribute().addAll(resourceAttributeTypes);
+            resourceType.setResourceContent(resourceContentType);
+            multiRequestType.getResource().add(resourceType);
+        }
+        return pdpRequest;
+    }
+
     /**
      *
      * @param pdpRequest
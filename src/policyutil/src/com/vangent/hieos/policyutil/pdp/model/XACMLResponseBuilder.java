@@ -213,6 +213,21 @@ public class XACMLResponseBuilder {
         return responseType;
     }
 
+    /**
+     * Builds an OASIS ResponseType from sunxacml ResponseCtx instances (one per
+     * Resource of a multiple resource request); results are kept in order.
+     *
+     * @param responseCtxs
+     * @return
+     */
+    public ResponseType buildResponseType(List<ResponseCtx> responseCtxs) {
+        ResponseType responseType = new ResponseType();
+        for (ResponseCtx responseCtx : responseCtxs) {
+            responseType.getResult().addAll(this.buildResponseType(responseCtx).getResult());
+        }
+        return responseType;
+    }
+
     /**
      * Builds a PDPResponse from a SAMLResponseElement / OMElement(XML).
      *
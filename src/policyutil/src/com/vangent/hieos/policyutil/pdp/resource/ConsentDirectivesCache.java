@@ -0,0 +1,128 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.policyutil.pdp.resource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.axiom.om.OMElement;
+
+/**
+ * Short-lived, bounded (LRU) cache of patient consent directives retrieved
+ * from the PIP, keyed by patient id (CX formatted).  Cached elements are
+ * detached copies and must be treated as read-only.
+ *
+ * Entries are not invalidated when consent directives change at the PIP, so
+ * a client may see stale directives for up to the TTL.  The cache is off by
+ * default; callers that learn of a change should use remove() (or clear()).
+ */
+public class ConsentDirectivesCache {
+
+    public static final long DEFAULT_TTL_SECONDS = 0;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    private final long ttlMillis;
+    private final Map<String, CacheEntry> entries;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     *
+     * @param ttlSeconds
+     * @param maxEntries
+     */
+    public ConsentDirectivesCache(long ttlSeconds, final int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param patientId
+     * @return Cached consent directives or null.
+     */
+    public synchronized OMElement get(String patientId) {
+        CacheEntry entry = entries.get(patientId);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            ++hitCount;
+            return entry.consentDirectives;
+        }
+        if (entry != null) {
+            entries.remove(patientId);
+        }
+        ++missCount;
+        return null;
+    }
+
+    /**
+     *
+     * @param patientId
+     * @param consentDirectives
+     */
+    public void put(String patientId, OMElement consentDirectives) {
+        // Copy outside of the lock; the original stays part of the PIP response.
+        OMElement copy = consentDirectives.cloneOMElement();
+        synchronized (this) {
+            entries.put(patientId, new CacheEntry(copy, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * Evicts the cached consent directives for the patient.
+     *
+     * @param patientId
+     */
+    public synchronized void remove(String patientId) {
+        entries.remove(patientId);
+    }
+
+    /**
+     * Evicts all cached consent directives.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String getStatistics() {
+        return "ConsentDirectivesCache (entries = " + entries.size()
+                + ", hits = " + hitCount
+                + ", misses = " + missCount + ")";
+    }
+
+    /**
+     *
+     */
+    private static class CacheEntry {
+
+        private final OMElement consentDirectives;
+        private final long expiresAt;
+
+        /**
+         *
+         * @param consentDirectives
+         * @param expiresAt
+         */
+        CacheEntry(OMElement consentDirectives, long expiresAt) {
+            this.consentDirectives = consentDirectives;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -32,6 +32,8 @@ import org.apache.log4j.Logger;
 public class PIPResourceContentFinder {
 
     private final static Logger logger = Logger.getLogger(PIPResourceContentFinder.class);
+    private static ConsentDirectivesCache _consentCache = null;
+    private static boolean _consentCacheInitialized = false;
     private XConfigActor pipConfig;
 
     /**
@@ -64,17 +66,61 @@ public class PIPResourceContentFinder {
         }
         SubjectIdentifier patientId = new SubjectIdentifier(resourceId);
 
-        // Go to the PIP and get the ConsentDirectives
-        PIPResponse pipResponse = this.getPatientConsentDirectives(patientId);
+        // Use cached ConsentDirectives if available.
+        ConsentDirectivesCache consentCache = this.getConsentCache();
+        OMElement resourceContent = null;
+        if (consentCache != null) {
+            resourceContent = consentCache.get(resourceId);
+        }
+        if (resourceContent == null) {
+            // Go to the PIP and get the ConsentDirectives
+            PIPResponse pipResponse = this.getPatientConsentDirectives(patientId);
 
-        // Get the String (ConsentDirectives) to add as ResourceContent.
-        PatientConsentDirectives consentDirectives = pipResponse.getPatientConsentDirectives();
-        OMElement resourceContent = consentDirectives.getContent();
+            // Get the String (ConsentDirectives) to add as ResourceContent.
+            PatientConsentDirectives consentDirectives = pipResponse.getPatientConsentDirectives();
+            resourceContent = consentDirectives.getContent();
+            if (resourceContent != null && consentCache != null) {
+                consentCache.put(resourceId, resourceContent);
+            }
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Using cached consent directives for " + resourceId);
+        }
         if (resourceContent != null) {
             pdpRequest.addResourceContent(resourceContent, false);
         }
     }
 
+    /**
+     * Returns the consent directives cache (null if disabled).  Configured on the PIP
+     * actor with "ConsentCacheTTLSeconds" (default 0, disabled) and "ConsentCacheMaxEntries".
+     * Cached directives are not invalidated on change (see ConsentDirectivesCache).
+     *
+     * @return
+     */
+    public ConsentDirectivesCache getConsentCache() {
+        synchronized (PIPResourceContentFinder.class) {
+            if (!_consentCacheInitialized) {
+                long ttlSeconds = ConsentDirectivesCache.DEFAULT_TTL_SECONDS;
+                int maxEntries = ConsentDirectivesCache.DEFAULT_MAX_ENTRIES;
+                String ttlSecondsText = pipConfig.getProperty("ConsentCacheTTLSeconds");
+                if (ttlSecondsText != null) {
+                    ttlSeconds = Long.parseLong(ttlSecondsText.trim());
+                }
+                String maxEntriesText = pipConfig.getProperty("ConsentCacheMaxEntries");
+                if (maxEntriesText != null) {
+                    maxEntries = Integer.parseInt(maxEntriesText.trim());
+                }
+                if (ttlSeconds > 0 && maxEntries > 0) {
+                    _consentCache = new ConsentDirectivesCache(ttlSeconds, maxEntries);
+                }
+                logger.info("PIP consent directives cache (TTL seconds = " + ttlSeconds
+                        + ", max entries = " + maxEntries + ", enabled = " + (_consentCache != null) + ")");
+                _consentCacheInitialized = true;
+            }
+            return _consentCache;
+        }
+    }
+
     /**
      *
      * @param patientId
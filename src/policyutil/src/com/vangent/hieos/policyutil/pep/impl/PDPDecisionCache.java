@@ -0,0 +1,241 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.policyutil.pep.impl;
+
+import com.vangent.hieos.policyutil.exception.PolicyException;
+import com.vangent.hieos.xutil.exception.XMLParserException;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import oasis.names.tc.xacml._2_0.context.schema.os.AttributeType;
+import oasis.names.tc.xacml._2_0.context.schema.os.AttributeValueType;
+import oasis.names.tc.xacml._2_0.context.schema.os.DecisionType;
+import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
+import oasis.names.tc.xacml._2_0.context.schema.os.ResourceContentType;
+import oasis.names.tc.xacml._2_0.context.schema.os.ResourceType;
+import oasis.names.tc.xacml._2_0.context.schema.os.SubjectType;
+import org.apache.axiom.om.OMElement;
+import org.w3c.dom.Element;
+
+/**
+ * Short-lived cache of PDP decisions (PERMIT/DENY only).  Entries are keyed by
+ * a digest of the request (action, subject, resource and environment
+ * attributes and the consent directives supplied as resource content) plus a
+ * caller supplied resource key.  A change in consent directives yields a new
+ * request key, so stale decisions are never returned after a consent change.
+ */
+public class PDPDecisionCache {
+
+    public static final long DEFAULT_TTL_SECONDS = 60;
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    private final long ttlMillis;
+    private final Map<String, CacheEntry> entries;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     *
+     * @param ttlSeconds
+     * @param maxEntries
+     */
+    public PDPDecisionCache(long ttlSeconds, final int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param requestKey
+     * @param resourceKey
+     * @return Cached decision or null.
+     */
+    public synchronized DecisionType get(String requestKey, String resourceKey) {
+        String key = requestKey + "|" + resourceKey;
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            ++hitCount;
+            return entry.decision;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        ++missCount;
+        return null;
+    }
+
+    /**
+     *
+     * @param requestKey
+     * @param resourceKey
+     * @param decision
+     */
+    public synchronized void put(String requestKey, String resourceKey, DecisionType decision) {
+        if (decision != DecisionType.PERMIT && decision != DecisionType.DENY) {
+            return;  // Do not cache NOT_APPLICABLE/INDETERMINATE.
+        }
+        entries.put(requestKey + "|" + resourceKey, new CacheEntry(decision, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     *
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized String getStatistics() {
+        return "PDPDecisionCache (entries = " + entries.size()
+                + ", hits = " + hitCount
+                + ", misses = " + missCount + ")";
+    }
+
+    /**
+     * Computes the request portion of the cache key.
+     *
+     * @param action
+     * @param requestType
+     * @return
+     * @throws PolicyException
+     */
+    public String getRequestKey(String action, RequestType requestType) throws PolicyException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("A:").append(action).append('\n');
+        for (SubjectType subjectType : requestType.getSubject()) {
+            sb.append("S:").append(subjectType.getSubjectCategory()).append('\n');
+            this.appendAttributes(sb, subjectType.getAttribute());
+        }
+        if (!requestType.getResource().isEmpty()) {
+            ResourceType resourceType = requestType.getResource().get(0);
+            sb.append("R:\n");
+            this.appendAttributes(sb, resourceType.getAttribute());
+            ResourceContentType resourceContentType = resourceType.getResourceContent();
+            if (resourceContentType != null && !resourceContentType.getContent().isEmpty()) {
+                // Consent directives.
+                sb.append("C:");
+                this.appendValue(sb, resourceContentType.getContent().get(0));
+                sb.append('\n');
+            }
+        }
+        if (requestType.getEnvironment() != null) {
+            sb.append("E:\n");
+            this.appendAttributes(sb, requestType.getEnvironment().getAttribute());
+        }
+        return digest(sb.toString());
+    }
+
+    /**
+     * Computes the resource portion of the cache key from the complete
+     * resource content given to the PDP (so that every attribute a policy may
+     * read is part of the key).
+     *
+     * @param resourceContent
+     * @return
+     * @throws PolicyException
+     */
+    public static String getResourceKey(OMElement resourceContent) throws PolicyException {
+        return digest(resourceContent.toString());
+    }
+
+    /**
+     *
+     * @param sb
+     * @param attributeTypes
+     * @throws PolicyException
+     */
+    private void appendAttributes(StringBuilder sb, List<AttributeType> attributeTypes) throws PolicyException {
+        for (AttributeType attributeType : attributeTypes) {
+            sb.append(attributeType.getAttributeId()).append('=');
+            for (AttributeValueType attributeValueType : attributeType.getAttributeValue()) {
+                for (Object content : attributeValueType.getContent()) {
+                    this.appendValue(sb, content);
+                }
+                sb.append(',');
+            }
+            sb.append('\n');
+        }
+    }
+
+    /**
+     *
+     * @param sb
+     * @param value
+     * @throws PolicyException
+     */
+    private void appendValue(StringBuilder sb, Object value) throws PolicyException {
+        if (value instanceof Element) {
+            try {
+                sb.append(XMLParser.convertDOMtoOM((Element) value).toString());
+            } catch (XMLParserException ex) {
+                throw new PolicyException("Unable to convert DOM to OM: " + ex.getMessage());
+            }
+        } else if (value != null) {
+            sb.append(value.toString());
+        }
+    }
+
+    /**
+     *
+     * @param text
+     * @return
+     * @throws PolicyException
+     */
+    private static String digest(String text) throws PolicyException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(text.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new PolicyException("Unable to compute decision cache key: " + ex.getMessage());
+        } catch (UnsupportedEncodingException ex) {
+            throw new PolicyException("Unable to compute decision cache key: " + ex.getMessage());
+        }
+    }
+
+    /**
+     *
+     */
+    private static class CacheEntry {
+
+        private final DecisionType decision;
+        private final long expiresAt;
+
+        /**
+         *
+         * @param decision
+         * @param expiresAt
+         */
+        CacheEntry(DecisionType decision, long expiresAt) {
+            this.decision = decision;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -22,6 +22,12 @@ import com.vangent.hieos.xutil.exception.XConfigException;
 import com.vangent.hieos.xutil.services.framework.XAbstractService;
 import com.vangent.hieos.xutil.xconfig.XConfig;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import oasis.names.tc.xacml._2_0.context.schema.os.DecisionType;
+import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
+import oasis.names.tc.xacml._2_0.context.schema.os.ResultType;
 import org.apache.axiom.om.OMElement;
 import org.apache.axis2.context.MessageContext;
 import org.apache.log4j.Logger;
@@ -35,6 +41,8 @@ public class PEP {
     private final static Logger logger = Logger.getLogger(PEP.class);
     // Singletons.
     private static XConfigActor _pdpConfig = null;
+    private static PDPDecisionCache _decisionCache = null;
+    private static boolean _decisionCacheInitialized = false;
     private XConfigActor configActor;
 
     /**
@@ -133,6 +141,97 @@ public class PEP {
         return pdpClient.authorize(pdpRequest);
     }
 
+    /**
+     * Evaluates one decision per resource content element (e.g. document
+     * metadata) using a single multiple resource PDP request.  Decisions
+     * available in the decision cache are not sent to the PDP.
+     *
+     * @param action
+     * @param requestType Previously evaluated request (subject/resource attributes and consent).
+     * @param resourceContents One content element per resource.
+     * @param resourceKeys Cache key per resource (or null to bypass the decision cache).
+     * @return Decisions in resourceContents order.
+     * @throws PolicyException
+     */
+    public List<DecisionType> evaluate(String action, RequestType requestType,
+            List<OMElement> resourceContents, List<String> resourceKeys) throws PolicyException {
+        DecisionType[] decisions = new DecisionType[resourceContents.size()];
+        PDPDecisionCache decisionCache = (resourceKeys != null) ? this.getDecisionCache() : null;
+        String requestKey = null;
+        if (decisionCache != null) {
+            requestKey = decisionCache.getRequestKey(action, requestType);
+        }
+
+        // Find decisions that are not cached.
+        List<OMElement> pendingResourceContents = new ArrayList<OMElement>();
+        List<Integer> pendingIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < decisions.length; i++) {
+            if (requestKey != null) {
+                decisions[i] = decisionCache.get(requestKey, resourceKeys.get(i));
+            }
+            if (decisions[i] == null) {
+                pendingResourceContents.add(resourceContents.get(i));
+                pendingIndexes.add(i);
+            }
+        }
+        if (!pendingResourceContents.isEmpty()) {
+            // One PDP round trip for all remaining resources.
+            XACMLRequestBuilder builder = new XACMLRequestBuilder();
+            PDPRequest pdpRequest = builder.buildMultiResourcePDPRequest(action, requestType, pendingResourceContents);
+            PDPResponse pdpResponse = this.evaluate(pdpRequest);
+            List<ResultType> results = pdpResponse.getResults();
+            if (results.size() != pendingResourceContents.size()) {
+                throw new PolicyException("PDP returned " + results.size()
+                        + " results for " + pendingResourceContents.size() + " resources");
+            }
+            for (int i = 0; i < results.size(); i++) {
+                int index = pendingIndexes.get(i);
+                DecisionType decision = results.get(i).getDecision();
+                decisions[index] = decision;
+                if (requestKey != null) {
+                    decisionCache.put(requestKey, resourceKeys.get(index), decision);
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("PEP evaluated " + decisions.length + " resources ("
+                    + pendingResourceContents.size() + " sent to PDP)");
+        }
+        return Arrays.asList(decisions);
+    }
+
+    /**
+     * Returns the decision cache (null if disabled).  Configured on the PDP
+     * actor with "DecisionCacheTTLSeconds" (0 to disable) and
+     * "DecisionCacheMaxEntries".
+     *
+     * @return
+     */
+    public PDPDecisionCache getDecisionCache() {
+        synchronized (PEP.class) {
+            if (!_decisionCacheInitialized) {
+                XConfigActor pdpConfig = this.getPDPConfig();
+                long ttlSeconds = PDPDecisionCache.DEFAULT_TTL_SECONDS;
+                int maxEntries = PDPDecisionCache.DEFAULT_MAX_ENTRIES;
+                String ttlSecondsText = pdpConfig.getProperty("DecisionCacheTTLSeconds");
+                if (ttlSecondsText != null) {
+                    ttlSeconds = Long.parseLong(ttlSecondsText.trim());
+                }
+                String maxEntriesText = pdpConfig.getProperty("DecisionCacheMaxEntries");
+                if (maxEntriesText != null) {
+                    maxEntries = Integer.parseInt(maxEntriesText.trim());
+                }
+                if (ttlSeconds > 0 && maxEntries > 0) {
+                    _decisionCache = new PDPDecisionCache(ttlSeconds, maxEntries);
+                }
+                logger.info("PDP decision cache (TTL seconds = " + ttlSeconds
+                        + ", max entries = " + maxEntries + ", enabled = " + (_decisionCache != null) + ")");
+                _decisionCacheInitialized = true;
+            }
+            return _decisionCache;
+        }
+    }
+
     /**
      * 
      * @return
@@ -39,6 +39,7 @@ public class PolicyConfig {
     static private PolicyConfig _instance = null;
     // Configuration.
     private List<String> policyFiles = new ArrayList<String>();
+    private long policyReloadIntervalSeconds = 0;
     private Map<String, AttributeConfig> attributeConfigs = new HashMap<String, AttributeConfig>();
     // Attribute class types.
     private static final String ATTRIBUTE_CLASS_TYPE_SUBJECT = "subject";
@@ -83,6 +84,15 @@ public class PolicyConfig {
         return policyFiles;
     }
 
+    /**
+     * Interval (in seconds) at which policy files are checked for changes (0 = never).
+     *
+     * @return
+     */
+    public long getPolicyReloadIntervalSeconds() {
+        return policyReloadIntervalSeconds;
+    }
+
     /**
      * 
      * @throws PolicyException
@@ -145,6 +155,10 @@ public class PolicyConfig {
      */
     private void parsePolicyFiles(OMElement rootNode) {
         OMElement policyFilesNode = rootNode.getFirstChildWithName(new QName("PolicyFiles"));
+        String reloadIntervalSeconds = policyFilesNode.getAttributeValue(new QName("reloadIntervalSeconds"));
+        if (reloadIntervalSeconds != null) {
+            this.policyReloadIntervalSeconds = Long.parseLong(reloadIntervalSeconds.trim());
+        }
         List<OMElement> policyFileNodes = XConfig.parseLevelOneNode(policyFilesNode, "PolicyFile");
         for (OMElement policyFileNode : policyFileNodes) {
             String policyFileName = policyFileNode.getAttributeValue(new QName("name"));
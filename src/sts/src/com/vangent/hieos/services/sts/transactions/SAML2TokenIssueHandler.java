@@ -20,9 +20,6 @@ import com.vangent.hieos.services.sts.util.STSUtil;
 import com.vangent.hieos.xutil.xlog.client.XLogMessage;
 import com.vangent.hieos.xutil.xml.XMLParser;
 
-import java.security.KeyStore;
-import java.security.KeyStore.PrivateKeyEntry;
-import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 
 import java.util.List;
@@ -160,13 +157,11 @@ public class SAML2TokenIssueHandler extends SAML2TokenHandler {
             subjConf.setMethod(STSConstants.BEARER_SUBJECT_CONFIRMATION_METHOD);
         }
 
-        // Get issuer's "private key" from KeyStore (used to "sign" the Assertion).
-        KeyStore keyStore = STSUtil.getKeyStore(stsConfig);
-        PrivateKeyEntry pkEntry = STSUtil.getIssuerPrivateKeyEntry(stsConfig, keyStore);
-        PrivateKey pk = pkEntry.getPrivateKey();
+        // Get issuer's "private key" credential from KeyStore (used to "sign" the Assertion).
+        BasicX509Credential credential = STSUtil.getIssuerCredential(stsConfig);
 
         // Get issuer's X509Certificate and corresponding KeyInfo.
-        X509Certificate issuerCertificate = (X509Certificate) pkEntry.getCertificate();
+        X509Certificate issuerCertificate = credential.getEntityCertificate();
         KeyInfo issuerKeyInfo = STSUtil.getKeyInfo(issuerCertificate,
                 stsConfig.isEmitIssuerX509Data(), stsConfig.isEmitIssuerPublicKeyValue());
 
@@ -189,9 +184,6 @@ public class SAML2TokenIssueHandler extends SAML2TokenHandler {
         assertion.setIssuer(issuer);
 
         // Get ready to sign the Assertion using the issuer's private key.
-        BasicX509Credential credential = new BasicX509Credential();
-        credential.setEntityCertificate(issuerCertificate);
-        credential.setPrivateKey(pk);
         Signature signature = (Signature) STSUtil.createXMLObject(Signature.DEFAULT_ELEMENT_NAME);
         signature.setSigningCredential(credential);
         signature.setSignatureAlgorithm(SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA1);
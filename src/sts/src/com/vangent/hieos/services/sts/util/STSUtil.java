@@ -18,24 +18,22 @@ import com.vangent.hieos.services.sts.exception.STSException;
 import com.vangent.hieos.services.sts.model.STSConstants;
 import com.vangent.hieos.xutil.exception.XMLParserException;
 import com.vangent.hieos.xutil.xml.XMLParser;
+import com.vangent.hieos.xutil.xua.utils.KeyStoreCache;
 import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
 import java.security.KeyException;
 import java.security.KeyStore;
 import java.security.KeyStore.PrivateKeyEntry;
 import java.security.PublicKey;
-import java.security.cert.CertPath;
-import java.security.cert.CertPathValidator;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
-import java.security.cert.PKIXCertPathValidatorResult;
-import java.security.cert.PKIXParameters;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.xml.namespace.QName;
 import org.apache.axiom.om.OMElement;
 import org.apache.commons.codec.binary.Base64;
@@ -52,6 +50,7 @@ import org.opensaml.xml.io.Unmarshaller;
 import org.opensaml.xml.io.UnmarshallerFactory;
 import org.opensaml.xml.io.UnmarshallingException;
 import org.opensaml.xml.security.keyinfo.KeyInfoHelper;
+import org.opensaml.xml.security.x509.BasicX509Credential;
 import org.opensaml.xml.signature.KeyInfo;
 import org.w3c.dom.Element;
 
@@ -63,6 +62,9 @@ public class STSUtil {
 
     private final static Logger logger = Logger.getLogger(STSUtil.class);
     private static XMLObjectBuilderFactory _xmlObjectBuilderFactory = null;
+    // Issuer signing credentials (keyed by [cached] KeyStore and then issuer alias).
+    private static final Map<KeyStore, Map<String, BasicX509Credential>> _issuerCredentials =
+            new WeakHashMap<KeyStore, Map<String, BasicX509Credential>>();
 
     // Initialize OpenSAML library and other singletons.
     static {
@@ -257,20 +259,9 @@ public class STSUtil {
             throw new STSException("Certificate not yet valid: " + ex.getMessage());
         }
 
-        // Check the chain.
+        // Check the chain (results are cached per trust store).
         try {
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            List<X509Certificate> mylist = new ArrayList<X509Certificate>();
-            mylist.add(cert);
-            CertPath cp = cf.generateCertPath(mylist);
-            PKIXParameters params = new PKIXParameters(trustStore);
-            // FIXME: Add revocation checking.
-            params.setRevocationEnabled(false);
-            CertPathValidator cpv = CertPathValidator.getInstance(CertPathValidator.getDefaultType());
-            PKIXCertPathValidatorResult pkixCertPathValidatorResult = (PKIXCertPathValidatorResult) cpv.validate(cp, params);
-            if (logger.isDebugEnabled()) {
-                logger.debug(pkixCertPathValidatorResult);
-            }
+            KeyStoreCache.validateCertificatePath(cert, trustStore);
         } catch (Exception ex) {
             throw new STSException("Exception while validating Certificate: " + ex.getMessage());
         }
@@ -303,18 +294,11 @@ public class STSUtil {
      * @throws STSException
      */
     public static KeyStore getTrustStore(STSConfig stsConfig) throws STSException {
-        KeyStore ks;
         try {
-            ks = KeyStore.getInstance(KeyStore.getDefaultType());
-            String trustStorePassword = stsConfig.getTrustStorePassword();
-            char[] password = trustStorePassword.toCharArray();
-            FileInputStream fis = new FileInputStream(stsConfig.getTrustStoreFileName());
-            ks.load(fis, password);
-            fis.close();
+            return KeyStoreCache.getKeyStore(stsConfig.getTrustStoreFileName(), stsConfig.getTrustStorePassword());
         } catch (Exception ex) {
             throw new STSException("Problem loading truststore: " + ex.getMessage());
         }
-        return ks;
     }
 
     /**
@@ -324,18 +308,11 @@ public class STSUtil {
      * @throws STSException
      */
     public static KeyStore getKeyStore(STSConfig stsConfig) throws STSException {
-        KeyStore ks;
         try {
-            ks = KeyStore.getInstance(KeyStore.getDefaultType());
-            String keyStorePassword = stsConfig.getKeyStorePassword();
-            char[] password = keyStorePassword.toCharArray();
-            FileInputStream fis = new FileInputStream(stsConfig.getKeyStoreFileName());
-            ks.load(fis, password);
-            fis.close();
+            return KeyStoreCache.getKeyStore(stsConfig.getKeyStoreFileName(), stsConfig.getKeyStorePassword());
         } catch (Exception ex) {
             throw new STSException("Problem loading keystore: " + ex.getMessage());
         }
-        return ks;
     }
 
     /**
@@ -358,8 +335,39 @@ public class STSUtil {
         return certificate;
     }
 
-    // FIXME: Cache truststore/keystore usage!!!
-    // TBD: Move to xutil?
+    /**
+     * Return the issuer's signing credential (private key and certificate).  The
+     * credential is cached until the underlying key store is reloaded, so the
+     * private key is only recovered from the key store once.
+     *
+     * @param stsConfig
+     * @return
+     * @throws STSException
+     */
+    public static BasicX509Credential getIssuerCredential(STSConfig stsConfig) throws STSException {
+        KeyStore keyStore = STSUtil.getKeyStore(stsConfig);
+        String issuerAlias = stsConfig.getIssuerAlias();
+        synchronized (_issuerCredentials) {
+            Map<String, BasicX509Credential> credentials = _issuerCredentials.get(keyStore);
+            if (credentials != null && credentials.containsKey(issuerAlias)) {
+                return credentials.get(issuerAlias);
+            }
+        }
+        PrivateKeyEntry pkEntry = STSUtil.getIssuerPrivateKeyEntry(stsConfig, keyStore);
+        BasicX509Credential credential = new BasicX509Credential();
+        credential.setEntityCertificate((X509Certificate) pkEntry.getCertificate());
+        credential.setPrivateKey(pkEntry.getPrivateKey());
+        synchronized (_issuerCredentials) {
+            Map<String, BasicX509Credential> credentials = _issuerCredentials.get(keyStore);
+            if (credentials == null) {
+                credentials = new HashMap<String, BasicX509Credential>();
+                _issuerCredentials.put(keyStore, credentials);
+            }
+            credentials.put(issuerAlias, credential);
+        }
+        return credential;
+    }
+
     /**
      *
      * @param stsConfig
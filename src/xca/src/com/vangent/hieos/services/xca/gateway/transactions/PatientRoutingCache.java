@@ -0,0 +1,146 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.xca.gateway.transactions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of XCA Initiating Gateway routing decisions (which
+ * responding gateways to contact, and with which patient id) keyed by local
+ * patient id, so that repeat queries for a patient skip the XCPD/PIX
+ * discovery round trip.
+ */
+public class PatientRoutingCache {
+
+    public final static int DEFAULT_MAX_ENTRIES = 1000;
+    public final static int DEFAULT_TTL_SECONDS = 300;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, CacheEntry> cache;
+
+    /**
+     *
+     * @param maxEntries
+     * @param ttlSeconds
+     */
+    public PatientRoutingCache(final int maxEntries, int ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > PatientRoutingCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param mode
+     * @param localPatientId
+     * @return Copy of the cached routes (null if not cached or expired).
+     */
+    public synchronized List<XCAGatewayConfig> get(XCAIGAdhocQueryRequest.InitiatingGatewayMode mode, String localPatientId) {
+        String key = this.getKey(mode, localPatientId);
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            cache.remove(key);
+            return null;
+        }
+        return this.copy(entry.gatewayConfigs);
+    }
+
+    /**
+     *
+     * @param mode
+     * @param localPatientId
+     * @param gatewayConfigs
+     * @param expiresAt Time (millis) after which the routes are stale; the
+     * cache's own TTL is used if earlier (or if <= 0).
+     */
+    public synchronized void put(XCAIGAdhocQueryRequest.InitiatingGatewayMode mode, String localPatientId,
+            List<XCAGatewayConfig> gatewayConfigs, long expiresAt) {
+        long ttlExpiresAt = System.currentTimeMillis() + ttlMillis;
+        if (expiresAt <= 0 || expiresAt > ttlExpiresAt) {
+            expiresAt = ttlExpiresAt;
+        }
+        cache.put(this.getKey(mode, localPatientId), new CacheEntry(this.copy(gatewayConfigs), expiresAt));
+    }
+
+    /**
+     *
+     * @param mode
+     * @param localPatientId
+     */
+    public synchronized void remove(XCAIGAdhocQueryRequest.InitiatingGatewayMode mode, String localPatientId) {
+        cache.remove(this.getKey(mode, localPatientId));
+    }
+
+    /**
+     *
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     *
+     * @param mode
+     * @param localPatientId
+     * @return
+     */
+    private String getKey(XCAIGAdhocQueryRequest.InitiatingGatewayMode mode, String localPatientId) {
+        return mode.name() + "|" + localPatientId;
+    }
+
+    /**
+     *
+     * @param gatewayConfigs
+     * @return
+     */
+    private List<XCAGatewayConfig> copy(List<XCAGatewayConfig> gatewayConfigs) {
+        List<XCAGatewayConfig> result = new ArrayList<XCAGatewayConfig>(gatewayConfigs.size());
+        for (XCAGatewayConfig gatewayConfig : gatewayConfigs) {
+            XCAGatewayConfig copy = new XCAGatewayConfig(gatewayConfig.getConfig());
+            copy.setPatientId(gatewayConfig.getPatientId());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /**
+     *
+     */
+    private static class CacheEntry {
+
+        private final List<XCAGatewayConfig> gatewayConfigs;
+        private final long expiresAt;
+
+        /**
+         *
+         * @param gatewayConfigs
+         * @param expiresAt
+         */
+        CacheEntry(List<XCAGatewayConfig> gatewayConfigs, long expiresAt) {
+            this.gatewayConfigs = gatewayConfigs;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
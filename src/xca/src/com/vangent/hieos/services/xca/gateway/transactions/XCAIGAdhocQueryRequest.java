@@ -13,6 +13,8 @@
 package com.vangent.hieos.services.xca.gateway.transactions;
 
 import com.vangent.hieos.hl7v3util.client.PIXManagerClient;
+import com.vangent.hieos.services.xcpd.patientcorrelationcache.model.PatientCorrelationCacheEntry;
+import com.vangent.hieos.services.xcpd.patientcorrelationcache.service.PatientCorrelationCacheService;
 import com.vangent.hieos.subjectmodel.Custodian;
 import com.vangent.hieos.subjectmodel.DeviceInfo;
 import com.vangent.hieos.subjectmodel.Subject;
@@ -53,6 +55,9 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
     };
     private static XConfigActor _xcpdIGConfig = null;
     private static XConfigActor _pixManagerConfig = null;
+    private static List<XConfigActor> _xcpdRespondingGateways = null;
+    private static PatientRoutingCache _routingCache = null;
+    private static boolean _routingCacheConfigured = false;
 
     /**
      *
@@ -258,6 +263,40 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
      * @throws XdsInternalException
      */
     private List<XCAGatewayConfig> getRespondingGatewaysForPatientIdUsingXCPDMode(String pidCXFormatted) throws XdsInternalException {
+        PatientRoutingCache routingCache = this.getRoutingCache();
+        if (routingCache != null) {
+            List<XCAGatewayConfig> gatewayConfigs = routingCache.get(InitiatingGatewayMode.XCPD, pidCXFormatted);
+            if (gatewayConfigs != null) {
+                this.logInfo("Patient Routing", "Using cached routing for localPatientId=" + pidCXFormatted);
+                return gatewayConfigs;
+            }
+        }
+        try {
+            // See if the XCPD patient correlation cache already knows about all
+            // responding gateways (avoids the PIX query to the XCPD IG).
+            long[] expiresAt = new long[1];
+            List<XCAGatewayConfig> gatewayConfigs = this.getRespondingGatewaysForPatientIdFromCorrelationCache(pidCXFormatted, expiresAt);
+            if (gatewayConfigs == null) {
+                gatewayConfigs = this.queryRespondingGatewaysForPatientIdUsingXCPDMode(pidCXFormatted);
+                expiresAt[0] = 0;
+            }
+            if (routingCache != null) {
+                routingCache.put(InitiatingGatewayMode.XCPD, pidCXFormatted, gatewayConfigs, expiresAt[0]);
+            }
+            return gatewayConfigs;
+        } catch (Exception ex) {
+            this.logError("EXCEPTION: Unable to perform XCPD/PIX query: " + ex.getMessage());
+            return new ArrayList<XCAGatewayConfig>();
+        }
+    }
+
+    /**
+     *
+     * @param pidCXFormatted
+     * @return
+     * @throws Exception
+     */
+    private List<XCAGatewayConfig> queryRespondingGatewaysForPatientIdUsingXCPDMode(String pidCXFormatted) throws Exception {
         String localHomeCommunityId = this.getLocalHomeCommunityId();
         String localPatientId = pidCXFormatted;
 
@@ -268,48 +307,110 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
         SubjectSearchCriteria subjectSearchCriteria = this.buildSubjectSearchCriteria(localPatientId);
 
         HashSet<String> remoteHomeCommunityIds = new HashSet<String>();
-        try {
-            XConfigActor xcpdIGConfig = this.getXCPDInitiatingGatewayConfig();
+        XConfigActor xcpdIGConfig = this.getXCPDInitiatingGatewayConfig();
 
-            // Issue PIX Query.
-            SubjectSearchResponse subjectSearchResponse = this.getIdentifiersQuery(subjectSearchCriteria, xcpdIGConfig);
+        // Issue PIX Query.
+        SubjectSearchResponse subjectSearchResponse = this.getIdentifiersQuery(subjectSearchCriteria, xcpdIGConfig);
 
-            // Loop through matching subjects.
-            List<Subject> matchSubjects = subjectSearchResponse.getSubjects();
-            for (Subject matchSubject : matchSubjects) {
+        // Loop through matching subjects.
+        List<Subject> matchSubjects = subjectSearchResponse.getSubjects();
+        for (Subject matchSubject : matchSubjects) {
 
-                // Get remote home community id for subject.
-                Custodian custodian = matchSubject.getCustodian();
-                String remoteHomeCommunityId = "urn:oid:" + custodian.getCustodianId();
+            // Get remote home community id for subject.
+            Custodian custodian = matchSubject.getCustodian();
+            String remoteHomeCommunityId = "urn:oid:" + custodian.getCustodianId();
 
-                // Check to see if we already processed a patient id for this community.
-                if (remoteHomeCommunityIds.contains(remoteHomeCommunityId)) {
-                    continue;  // FIXME: Go to next matched subject.
-                } else {
-                    remoteHomeCommunityIds.add(remoteHomeCommunityId);
-                }
-                // Now get remote home patient ids (support > 1) and put into result list.
-                // See FIXME above and below.
-                for (SubjectIdentifier matchSubjectIdentifier : matchSubject.getSubjectIdentifiers()) {
-                    String remotePatientId = matchSubjectIdentifier.getCXFormatted();
-                    this.logInfo("Patient Correlation",
-                            "localHomeCommunityId=" + localHomeCommunityId
-                            + ", localPatientId=" + localPatientId
-                            + ", remoteHomeCommunityId=" + remoteHomeCommunityId
-                            + ", remotePatientId=" + remotePatientId);
+            // Check to see if we already processed a patient id for this community.
+            if (remoteHomeCommunityIds.contains(remoteHomeCommunityId)) {
+                continue;  // FIXME: Go to next matched subject.
+            } else {
+                remoteHomeCommunityIds.add(remoteHomeCommunityId);
+            }
+            // Now get remote home patient ids (support > 1) and put into result list.
+            // See FIXME above and below.
+            for (SubjectIdentifier matchSubjectIdentifier : matchSubject.getSubjectIdentifiers()) {
+                String remotePatientId = matchSubjectIdentifier.getCXFormatted();
+                this.logInfo("Patient Correlation",
+                        "localHomeCommunityId=" + localHomeCommunityId
+                        + ", localPatientId=" + localPatientId
+                        + ", remoteHomeCommunityId=" + remoteHomeCommunityId
+                        + ", remotePatientId=" + remotePatientId);
+
+                // Save the remote gateway configuration in result list.
+                XConfigActor config = xconf.getXConfigActorById(remoteHomeCommunityId, XConfig.XCA_RESPONDING_GATEWAY_TYPE);
+                XCAGatewayConfig gatewayConfig = new XCAGatewayConfig(config);
+                gatewayConfig.setPatientId(remotePatientId);
+                gatewayConfigs.add(gatewayConfig);
+
+                break;  // FIXME: Should we be able to deal with > 1 pid for remote community?
+            }
+        }
+        return gatewayConfigs;
+    }
 
-                    // Save the remote gateway configuration in result list.
+    /**
+     * Build the routing from the XCPD patient correlation cache.  Returns null
+     * unless every configured XCPD responding gateway has an unexpired entry
+     * (match or no match) for the patient.
+     *
+     * @param pidCXFormatted
+     * @param expiresAt Set to the earliest expiration time of the entries used.
+     * @return
+     * @throws XdsInternalException
+     */
+    private List<XCAGatewayConfig> getRespondingGatewaysForPatientIdFromCorrelationCache(String pidCXFormatted, long[] expiresAt) throws XdsInternalException {
+        XConfigActor xcpdIGConfig = this.getXCPDInitiatingGatewayConfig();
+        List<XConfigActor> respondingGateways = this.getXCPDRespondingGateways(xcpdIGConfig);
+        if (respondingGateways.isEmpty()) {
+            return null;
+        }
+        List<PatientCorrelationCacheEntry> cacheEntries;
+        try {
+            // Expiration days are not used for lookups.
+            PatientCorrelationCacheService cacheService = new PatientCorrelationCacheService(
+                    PatientCorrelationCacheService.DEFAULT_MATCH_EXPIRATION_DAYS,
+                    PatientCorrelationCacheService.DEFAULT_NO_MATCH_EXPIRATION_DAYS);
+            cacheEntries = cacheService.lookup(pidCXFormatted, xcpdIGConfig.getUniqueId());
+        } catch (Exception ex) {
+            logger.warn("Unable to read patient correlation cache: " + ex.getMessage());
+            return null;
+        }
+        XConfig xconf = XConfig.getInstance();
+        long now = System.currentTimeMillis();
+        long earliestExpiration = Long.MAX_VALUE;
+        List<XCAGatewayConfig> gatewayConfigs = new ArrayList<XCAGatewayConfig>();
+        for (XConfigActor respondingGateway : respondingGateways) {
+            String remoteHomeCommunityId = respondingGateway.getUniqueId();
+            boolean found = false;
+            for (PatientCorrelationCacheEntry cacheEntry : cacheEntries) {
+                if (!remoteHomeCommunityId.equals(cacheEntry.getRemoteHomeCommunityId())
+                        || cacheEntry.getExpirationTime() == null
+                        || cacheEntry.getExpirationTime().getTime() <= now) {
+                    continue;
+                }
+                found = true;
+                earliestExpiration = Math.min(earliestExpiration, cacheEntry.getExpirationTime().getTime());
+                if (cacheEntry.getStatus() == PatientCorrelationCacheEntry.STATUS_MATCH) {
                     XConfigActor config = xconf.getXConfigActorById(remoteHomeCommunityId, XConfig.XCA_RESPONDING_GATEWAY_TYPE);
-                    XCAGatewayConfig gatewayConfig = new XCAGatewayConfig(config);
-                    gatewayConfig.setPatientId(remotePatientId);
-                    gatewayConfigs.add(gatewayConfig);
-
-                    break;  // FIXME: Should we be able to deal with > 1 pid for remote community?
+                    if (config != null) {
+                        this.logInfo("Patient Correlation (cached)",
+                                "localHomeCommunityId=" + cacheEntry.getLocalHomeCommunityId()
+                                + ", localPatientId=" + pidCXFormatted
+                                + ", remoteHomeCommunityId=" + remoteHomeCommunityId
+                                + ", remotePatientId=" + cacheEntry.getRemotePatientId());
+                        XCAGatewayConfig gatewayConfig = new XCAGatewayConfig(config);
+                        gatewayConfig.setPatientId(cacheEntry.getRemotePatientId());
+                        gatewayConfigs.add(gatewayConfig);
+                    }
                 }
+                break;  // FIXME: Should we be able to deal with > 1 pid for remote community?
+            }
+            if (!found) {
+                // Discovery is required for this community.
+                return null;
             }
-        } catch (Exception ex) {
-            this.logError("EXCEPTION: Unable to perform XCPD/PIX query: " + ex.getMessage());
         }
+        expiresAt[0] = earliestExpiration;
         return gatewayConfigs;
     }
 
@@ -320,6 +421,33 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
      * @throws XdsInternalException
      */
     private List<XCAGatewayConfig> getRespondingGatewaysForPatientIdUsingPIXMode(String pidCXFormatted) throws XdsInternalException {
+        PatientRoutingCache routingCache = this.getRoutingCache();
+        if (routingCache != null) {
+            List<XCAGatewayConfig> gatewayConfigs = routingCache.get(InitiatingGatewayMode.PIX, pidCXFormatted);
+            if (gatewayConfigs != null) {
+                this.logInfo("Patient Routing", "Using cached routing for localPatientId=" + pidCXFormatted);
+                return gatewayConfigs;
+            }
+        }
+        try {
+            List<XCAGatewayConfig> gatewayConfigs = this.queryRespondingGatewaysForPatientIdUsingPIXMode(pidCXFormatted);
+            if (routingCache != null) {
+                routingCache.put(InitiatingGatewayMode.PIX, pidCXFormatted, gatewayConfigs, 0);
+            }
+            return gatewayConfigs;
+        } catch (Exception ex) {
+            this.logError("EXCEPTION: Unable to perform PIX query: " + ex.getMessage());
+            return new ArrayList<XCAGatewayConfig>();
+        }
+    }
+
+    /**
+     *
+     * @param pidCXFormatted
+     * @return
+     * @throws Exception
+     */
+    private List<XCAGatewayConfig> queryRespondingGatewaysForPatientIdUsingPIXMode(String pidCXFormatted) throws Exception {
         String localHomeCommunityId = this.getLocalHomeCommunityId();
         String localPatientId = pidCXFormatted;
 
@@ -328,39 +456,35 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
 
         // Build subject search criteria (for PIX query).
         SubjectSearchCriteria subjectSearchCriteria = this.buildSubjectSearchCriteria(localPatientId);
-        try {
-            XConfigActor pixManagerConfig = this.getPIXManagerConfig();
-            // Issue PIX Query.
-            SubjectSearchResponse subjectSearchResponse = this.getIdentifiersQuery(subjectSearchCriteria, pixManagerConfig);
-
-            // Loop through matching subjects.
-            List<Subject> matchSubjects = subjectSearchResponse.getSubjects();
-            for (Subject matchSubject : matchSubjects) {
-
-                // Now get remote home patient ids (support > 1) and put into result list.
-                for (SubjectIdentifier matchSubjectIdentifier : matchSubject.getSubjectIdentifiers()) {
-                    String remotePatientId = matchSubjectIdentifier.getCXFormatted();
-                    String remotePatientIdAssigningAuthority = this.getAssigningAuthority(remotePatientId);
-
-                    // Add all remote gateways that can resolve patients within the assigning authority.
-                    List<XConfigActor> gateways = xconf.getRespondingGatewayConfigsForAssigningAuthorityId(remotePatientIdAssigningAuthority);
-                    for (XConfigActor gateway : gateways) {
-                        String remoteHomeCommunityId = gateway.getUniqueId();
-                        this.logInfo("Patient Correlation",
-                                "localHomeCommunityId=" + localHomeCommunityId
-                                + ", localPatientId=" + localPatientId
-                                + ", remoteHomeCommunityId=" + remoteHomeCommunityId
-                                + ", remotePatientId=" + remotePatientId);
+        XConfigActor pixManagerConfig = this.getPIXManagerConfig();
+        // Issue PIX Query.
+        SubjectSearchResponse subjectSearchResponse = this.getIdentifiersQuery(subjectSearchCriteria, pixManagerConfig);
 
-                        // Save the remote gateway configuration in result list.
-                        XCAGatewayConfig gatewayConfig = new XCAGatewayConfig(gateway);
-                        gatewayConfig.setPatientId(remotePatientId);
-                        gatewayConfigs.add(gatewayConfig);
-                    }
+        // Loop through matching subjects.
+        List<Subject> matchSubjects = subjectSearchResponse.getSubjects();
+        for (Subject matchSubject : matchSubjects) {
+
+            // Now get remote home patient ids (support > 1) and put into result list.
+            for (SubjectIdentifier matchSubjectIdentifier : matchSubject.getSubjectIdentifiers()) {
+                String remotePatientId = matchSubjectIdentifier.getCXFormatted();
+                String remotePatientIdAssigningAuthority = this.getAssigningAuthority(remotePatientId);
+
+                // Add all remote gateways that can resolve patients within the assigning authority.
+                List<XConfigActor> gateways = xconf.getRespondingGatewayConfigsForAssigningAuthorityId(remotePatientIdAssigningAuthority);
+                for (XConfigActor gateway : gateways) {
+                    String remoteHomeCommunityId = gateway.getUniqueId();
+                    this.logInfo("Patient Correlation",
+                            "localHomeCommunityId=" + localHomeCommunityId
+                            + ", localPatientId=" + localPatientId
+                            + ", remoteHomeCommunityId=" + remoteHomeCommunityId
+                            + ", remotePatientId=" + remotePatientId);
+
+                    // Save the remote gateway configuration in result list.
+                    XCAGatewayConfig gatewayConfig = new XCAGatewayConfig(gateway);
+                    gatewayConfig.setPatientId(remotePatientId);
+                    gatewayConfigs.add(gatewayConfig);
                 }
             }
-        } catch (Exception ex) {
-            this.logError("EXCEPTION: Unable to perform PIX query: " + ex.getMessage());
         }
         return gatewayConfigs;
     }
@@ -548,6 +672,67 @@ public class XCAIGAdhocQueryRequest extends XCAAdhocQueryRequest {
         return _xcpdIGConfig;
     }
 
+    /**
+     *
+     * @param xcpdIGConfig
+     * @return
+     */
+    private synchronized List<XConfigActor> getXCPDRespondingGateways(XConfigActor xcpdIGConfig) {
+        if (_xcpdRespondingGateways != null) {
+            return _xcpdRespondingGateways;
+        }
+        _xcpdRespondingGateways = new ArrayList<XConfigActor>();
+        XConfigObject xcpdConfig = xcpdIGConfig.getXConfigObjectWithName("xcpd_rgs", "XCPDRespondingGatewaysType");
+        if (xcpdConfig != null) {
+            for (XConfigObject rgConfig : xcpdConfig.getXConfigObjectsWithType(XConfig.XCA_RESPONDING_GATEWAY_TYPE)) {
+                _xcpdRespondingGateways.add((XConfigActor) rgConfig);
+            }
+        }
+        return _xcpdRespondingGateways;
+    }
+
+    /**
+     *
+     * @return null if routing cache is disabled.
+     * @throws XdsInternalException
+     */
+    private PatientRoutingCache getRoutingCache() throws XdsInternalException {
+        synchronized (XCAIGAdhocQueryRequest.class) {
+            if (!_routingCacheConfigured) {
+                XConfigActor gateway = this.getGatewayConfig();
+                if (gateway.getPropertyAsBoolean("PatientRoutingCacheEnabled", true)) {
+                    int maxEntries = this.getIntProperty(gateway, "PatientRoutingCacheSize", PatientRoutingCache.DEFAULT_MAX_ENTRIES);
+                    int ttlSeconds = this.getIntProperty(gateway, "PatientRoutingCacheTTLSeconds", PatientRoutingCache.DEFAULT_TTL_SECONDS);
+                    if (maxEntries > 0 && ttlSeconds > 0) {
+                        _routingCache = new PatientRoutingCache(maxEntries, ttlSeconds);
+                    }
+                }
+                _routingCacheConfigured = true;
+            }
+            return _routingCache;
+        }
+    }
+
+    /**
+     *
+     * @param config
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    private int getIntProperty(XConfigActor config, String name, int defaultValue) {
+        String value = config.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            logger.warn("Invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
     /**
      *
      * @return
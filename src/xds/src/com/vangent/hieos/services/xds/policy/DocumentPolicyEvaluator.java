@@ -13,11 +13,12 @@
 package com.vangent.hieos.services.xds.policy;
 
 import com.vangent.hieos.policyutil.exception.PolicyException;
-import com.vangent.hieos.policyutil.pdp.model.PDPRequest;
-import com.vangent.hieos.policyutil.pdp.model.PDPResponse;
+import com.vangent.hieos.policyutil.pep.impl.PDPDecisionCache;
 import com.vangent.hieos.policyutil.pep.impl.PEP;
 import com.vangent.hieos.xutil.xlog.client.XLogMessage;
+import java.util.ArrayList;
 import java.util.List;
+import oasis.names.tc.xacml._2_0.context.schema.os.DecisionType;
 import oasis.names.tc.xacml._2_0.context.schema.os.RequestType;
 import org.apache.axiom.om.OMElement;
 
@@ -65,6 +66,8 @@ public class DocumentPolicyEvaluator {
     }
 
     /**
+     * Evaluates all documents with a single (multiple resource) PDP request;
+     * cached decisions are reused.
      *
      * @param action
      * @param requestType
@@ -79,39 +82,44 @@ public class DocumentPolicyEvaluator {
         DocumentMetadataBuilder documentMetadataBuilder = new DocumentMetadataBuilder();
 
         DocumentPolicyResult policyResult = new DocumentPolicyResult();
-        
-        // Now, filter results based upon "document-level" policy evaluation.
+
+        // We do not evaluate policy for anything other than ExtrinsicObjects.
+        List<DocumentMetadata> evaluatedDocuments = new ArrayList<DocumentMetadata>();
+        List<OMElement> resourceContents = new ArrayList<OMElement>();
+        List<String> resourceKeys = new ArrayList<String>();
         for (DocumentMetadata documentMetadata : documentMetadataList) {
             if (!documentMetadata.isExtrinsicObject()) {
-                // We do not evaluate policy for anything other than ExtrinsicObjects
                 policyResult.addPermittedDocument(documentMetadata);
             } else {
-                // Create PDP request.
-                PDPRequest pdpRequest = new PDPRequest();
-                pdpRequest.setReturnContext(false);  // Save some processing time here.
-                pdpRequest.setRequestType(requestType);
                 // Pass in document meta-data as resource content.
                 DocumentMetadataElement documentMetadataElement = documentMetadataBuilder.buildDocumentMetadataElement(documentMetadata);
-                pdpRequest.addResourceContent(documentMetadataElement.getElement(), true);
-                pdpRequest.setAction(action);
+                evaluatedDocuments.add(documentMetadata);
+                resourceContents.add(documentMetadataElement.getElement());
+                resourceKeys.add(PDPDecisionCache.getResourceKey(documentMetadataElement.getElement()));
+            }
+        }
+        if (evaluatedDocuments.isEmpty()) {
+            return policyResult;  // Early exit!
+        }
 
-                // Run the policy evaluation.
-                PEP pep = new PEP(null);  // Note: we don't need the configuration for the current actor.
-                PDPResponse pdpResponse = pep.evaluate(pdpRequest);
+        // Run the policy evaluation.
+        PEP pep = new PEP(null);  // Note: we don't need the configuration for the current actor.
+        List<DecisionType> decisions = pep.evaluate(action, requestType, resourceContents, resourceKeys);
 
-                // Evaluate results (Obligations are not used here).
-                boolean permittedAccessToDocument = pdpResponse.isPermitDecision();
+        // Evaluate results (Obligations are not used here).
+        for (int i = 0; i < evaluatedDocuments.size(); i++) {
+            DocumentMetadata documentMetadata = evaluatedDocuments.get(i);
+            boolean permittedAccessToDocument = decisions.get(i) == DecisionType.PERMIT;
+            if (permittedAccessToDocument) {
+                policyResult.addPermittedDocument(documentMetadata);
+            } else {
+                policyResult.addDeniedDocument(documentMetadata);
+            }
+            if (logMessage != null && logMessage.isLogEnabled()) {
                 if (permittedAccessToDocument) {
-                    policyResult.addPermittedDocument(documentMetadata);
+                    logsb.append("...PERMIT" + "[doc_id=").append(documentMetadata.getDocumentId()).append(", repo_id=").append(documentMetadata.getRepositoryId()).append("]");
                 } else {
-                    policyResult.addDeniedDocument(documentMetadata);
-                }
-                if (logMessage != null && logMessage.isLogEnabled()) {
-                    if (permittedAccessToDocument) {
-                        logsb.append("...PERMIT" + "[doc_id=").append(documentMetadata.getDocumentId()).append(", repo_id=").append(documentMetadata.getRepositoryId()).append("]");
-                    } else {
-                        logsb.append("...DENY" + "[doc_id=").append(documentMetadata.getDocumentId()).append(", repo_id=").append(documentMetadata.getRepositoryId()).append("]");
-                    }
+                    logsb.append("...DENY" + "[doc_id=").append(documentMetadata.getDocumentId()).append(", repo_id=").append(documentMetadata.getRepositoryId()).append("]");
                 }
             }
         }
@@ -255,14 +255,11 @@ public class UpdateStatusCommandValidator extends MetadataUpdateCommandValidator
         // Scan for existing non-deprecated HasMember associations (in approved status).
         Metadata assocMetadata = cmd.getApprovedHasMemberAssocs(targetObjectId, true /* leafClass */);
         String currentPatientId = currentMetadata.getPatientId(currentFolder);
-        for (OMElement assoc : assocMetadata.getAssociations()) {
-            String sourceId = assocMetadata.getSourceObject(assoc);
-            if (sourceId.equals(targetObjectId)) {
-                // Source is the folder; target should be a document.
-                // Now make sure that we do not violate patient id constraints.
-                String targetId = assocMetadata.getTargetObject(assoc);
-                this.validateDocumentPatientId(targetId, currentPatientId);
-            }
+        for (OMElement assoc : assocMetadata.getAssociationsWithSource(targetObjectId)) {
+            // Source is the folder; target should be a document.
+            // Now make sure that we do not violate patient id constraints.
+            String targetId = assocMetadata.getTargetObject(assoc);
+            this.validateDocumentPatientId(targetId, currentPatientId);
         }
     }
 
@@ -41,7 +41,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.apache.commons.codec.binary.Base64;
 
@@ -381,10 +383,13 @@ public class RegistryPatientIdentityFeed extends XBaseTransaction {
         }
 
         // Check that both the Surviving and to be Subsumed Patients both exist and are Active
-        if (!this.adtDoesActivePatientExist(survivingPatientId)) {
+        // (in a single lookup).
+        Set<String> activePatientIds = this.adtGetActivePatientIds(
+                Arrays.asList(survivingPatientId, priorRegistrationPatientId));
+        if (!activePatientIds.contains(survivingPatientId)) {
             throw this.logException("Surviving Patient ID " + survivingPatientId + " is not active or is not known to registry - skipping MERGE!");
         }
-        if (!this.adtDoesActivePatientExist(priorRegistrationPatientId)) {
+        if (!activePatientIds.contains(priorRegistrationPatientId)) {
             throw this.logException("Prior Registration (to be subsumed) Patient ID " + priorRegistrationPatientId + " is not active or is not known to registry - skipping MERGE!");
         }
 
@@ -1030,6 +1035,22 @@ public class RegistryPatientIdentityFeed extends XBaseTransaction {
         return patientActive;
     }
 
+    /**
+     *
+     * @param patientIds
+     * @return
+     * @throws com.vangent.hieos.xutil.exception.XdsInternalException
+     */
+    private Set<String> adtGetActivePatientIds(List<String> patientIds) throws XdsInternalException {
+        Set<String> activePatientIds = null;
+        try {
+            activePatientIds = _adtConn.getActiveIds(patientIds);
+        } catch (SQLException e) {
+            throw this.logInternalException(e, "ADT EXCEPTION: Problem checking if active patients exist = " + patientIds);
+        }
+        return activePatientIds;
+    }
+
     /**
      *
      * @param patientId
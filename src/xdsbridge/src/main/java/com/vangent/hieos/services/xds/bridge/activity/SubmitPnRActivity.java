@@ -26,6 +26,8 @@ import org.apache.axiom.om.OMElement;
 import org.apache.commons.lang.ClassUtils;
 import org.apache.log4j.Logger;
 
+import java.util.List;
+
 /**
  * Class description
  *
@@ -142,6 +144,61 @@ public class SubmitPnRActivity implements ISubmitDocumentRequestActivity {
         return result;
     }
 
+    /**
+     * Submit a single PnR carrying the documents of all the given contexts
+     * (see XDSPnRMessage.merge).  The submission succeeds or fails as a whole;
+     * on failure, each document's response records the error.
+     *
+     *
+     * @param pnr
+     * @param contexts
+     *
+     * @return
+     */
+    public boolean executeBatch(XDSPnRMessage pnr,
+                                List<SDRActivityContext> contexts) {
+
+        String errmsg = null;
+
+        try {
+
+            OMElement pnrResponse =
+                this.repositoryClient.submitProvideAndRegisterDocumentSet(pnr);
+
+            RegistryResponseParser parser =
+                new RegistryResponseParser(pnrResponse);
+
+            if (parser.is_error()) {
+
+                errmsg = parser.get_regrep_error_msg();
+            }
+
+        } catch (SOAPFaultException e) {
+
+            errmsg = e.getMessage();
+
+        } catch (XdsInternalException e) {
+
+            // log it
+            logger.error(e, e);
+
+            errmsg = String.format(
+                "Unable to parse repository response, exception follows. %s",
+                e.getMessage());
+        }
+
+        if (errmsg != null) {
+
+            for (SDRActivityContext context : contexts) {
+
+                context.getSubmitDocumentResponse().addResponse(
+                    context.getDocument(), ResponseTypeStatus.Failure, errmsg);
+            }
+        }
+
+        return (errmsg == null);
+    }
+
     /**
      * Method description
      *
@@ -170,8 +170,12 @@ public class CDAToXDSMapper implements IXDSMapper {
         remapForXON(result, ContentVariableName.AuthorPersonRoot,
                     ContentVariableName.AuthorPersonExtension);
 
-        // symbolic Document01
-        String symbolicId = createExtrinsicObjectId(1);
+        // symbolic Document01 (unless already assigned, e.g. batch submission)
+        String symbolicId = document.getSymbolicId();
+
+        if (StringUtils.isBlank(symbolicId)) {
+            symbolicId = createExtrinsicObjectId(1);
+        }
 
         result.put(ContentVariableName.DocumentSymbolicId.toString(),
                    symbolicId);
@@ -15,6 +15,8 @@ package com.vangent.hieos.services.xds.bridge.mapper;
 import com.vangent.hieos.services.xds.bridge.utils.ContentConverterUtils;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import javax.xml.stream.XMLStreamException;
 import com.vangent.hieos.xutil.exception.XMLParserException;
 import com.vangent.hieos.xutil.exception.XPathHelperException;
 import com.vangent.hieos.xutil.xml.XMLParser;
@@ -35,6 +37,10 @@ public class ContentParser {
     /** Field description */
     public static final Logger logger = Logger.getLogger(ContentParser.class);
 
+    /** Compiled extractors (by configuration) */
+    private final Map<ContentParserConfig, StreamingContentExtractor> extractors =
+        new WeakHashMap<ContentParserConfig, StreamingContentExtractor>();
+
     /**
      * Constructs ...
      *
@@ -64,18 +70,37 @@ public class ContentParser {
 
         Map<String, String> result = new HashMap<String, String>();
 
-        OMElement node = XMLParser.bytesToOM(input);
+        // Pull simple path values from the document in a single pass.
+        StreamingContentExtractor extractor = getExtractor(config);
+        Map<String, String> values;
+
+        try {
+            values = extractor.extract(input);
+        } catch (XMLStreamException e) {
+            throw new XMLParserException(e.getMessage());
+        }
+
+        // Anything else is evaluated using XPath against the full document.
+        Map<String, String> unsupported = extractor.getUnsupportedExpressions();
 
-        String[][] prefixUris = config.toPrefixURIArrays();
-        String[] prefixes = prefixUris[0];
-        String[] uris = prefixUris[1];
+        if (unsupported.isEmpty() == false) {
+
+            OMElement node = XMLParser.bytesToOM(input);
+
+            String[][] prefixUris = config.toPrefixURIArrays();
+            String[] prefixes = prefixUris[0];
+            String[] uris = prefixUris[1];
+
+            for (Map.Entry<String, String> entry : unsupported.entrySet()) {
+                values.put(entry.getKey(),
+                           parseText(node, entry.getValue(), prefixes, uris));
+            }
+        }
 
         Map<String, String> expressions = config.getExpressions();
         Map<String, String> contentConversions = config.getContentConversions();
-        for (Map.Entry<String, String> entry : expressions.entrySet()) {
-            String expression = entry.getValue();
-            String value = parseText(node, expression, prefixes, uris);
-            String variableKey = entry.getKey();
+        for (String variableKey : expressions.keySet()) {
+            String value = StringUtils.trimToEmpty(values.get(variableKey));
             // See if we need to run a converter.
             if (contentConversions != null) {
                 String contentConversion = contentConversions.get(variableKey);
@@ -89,6 +114,31 @@ public class ContentParser {
         return result;
     }
 
+    /**
+     * Method description
+     *
+     *
+     *
+     * @param config
+     *
+     * @return
+     */
+    private StreamingContentExtractor getExtractor(ContentParserConfig config) {
+
+        synchronized (this.extractors) {
+
+            StreamingContentExtractor result = this.extractors.get(config);
+
+            if (result == null) {
+                result = new StreamingContentExtractor(config.getExpressions(),
+                        config.getNamespaces());
+                this.extractors.put(config, result);
+            }
+
+            return result;
+        }
+    }
+
     /**
      * Method description
      *
@@ -0,0 +1,400 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.xds.bridge.mapper;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.axiom.om.util.StAXUtils;
+
+/**
+ * Extracts the values of simple, absolute location paths (for example
+ * "/hl7:ClinicalDocument/hl7:code/@code" or "/hl7:ClinicalDocument/hl7:title")
+ * from a document in a single StAX pass, stopping as soon as every value has
+ * been found.  The value of a path is the XPath string value of the first
+ * matching node in document order.  Expressions that are not simple location
+ * paths (predicates, functions, "//", etc.) are reported by
+ * {@link #getUnsupportedExpressions()} and left to the caller.
+ *
+ * @version        v1.0, 2013-01-15
+ * @author         Vangent
+ */
+public class StreamingContentExtractor {
+
+    /** Field description */
+    private static final Pattern STEP_PATTERN =
+        Pattern.compile("(?:([A-Za-z_][\\w.\\-]*):)?([A-Za-z_][\\w.\\-]*)");
+
+    /** Field description */
+    private final List<CompiledPath> paths = new ArrayList<CompiledPath>();
+
+    /** Field description */
+    private final Map<String, String> unsupportedExpressions =
+        new LinkedHashMap<String, String>();
+
+    /** Field description */
+    private int maxDepth = 0;
+
+    /**
+     * Constructs ...
+     *
+     *
+     * @param expressions variable name to expression
+     * @param namespaces prefix to namespace URI
+     */
+    public StreamingContentExtractor(Map<String, String> expressions,
+                                     Map<String, String> namespaces) {
+
+        super();
+
+        for (Map.Entry<String, String> entry : expressions.entrySet()) {
+
+            CompiledPath path = compile(entry.getKey(), entry.getValue(),
+                                        namespaces);
+
+            if (path == null) {
+                this.unsupportedExpressions.put(entry.getKey(),
+                                                entry.getValue());
+            } else {
+                this.paths.add(path);
+                this.maxDepth = Math.max(this.maxDepth, path.steps.length);
+            }
+        }
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @return variable name to expression for expressions that must be
+     * evaluated some other way.
+     */
+    public Map<String, String> getUnsupportedExpressions() {
+        return unsupportedExpressions;
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param input
+     *
+     * @return variable name to (untrimmed) value; "" when not found.
+     *
+     * @throws XMLStreamException
+     */
+    public Map<String, String> extract(byte[] input)
+            throws XMLStreamException {
+
+        Map<String, String> result = new HashMap<String, String>();
+        int remaining = this.paths.size();
+
+        if (remaining == 0) {
+            return result;
+        }
+
+        // Text being collected for element paths (until their end tag).
+        List<TextCapture> captures = new ArrayList<TextCapture>();
+        QName[] stack = new QName[this.maxDepth];
+        int depth = 0;
+        boolean[] found = new boolean[this.paths.size()];
+
+        XMLStreamReader reader =
+            StAXUtils.createXMLStreamReader(new ByteArrayInputStream(input));
+
+        try {
+
+            while ((remaining > 0) && reader.hasNext()) {
+
+                int event = reader.next();
+
+                switch (event) {
+
+                 case XMLStreamConstants.START_ELEMENT :
+                     ++depth;
+
+                     if (depth <= this.maxDepth) {
+
+                         stack[depth - 1] = reader.getName();
+
+                         for (int i = 0; i < this.paths.size(); ++i) {
+
+                             CompiledPath path = this.paths.get(i);
+
+                             if (found[i] || (path.steps.length != depth)
+                                     || !path.matches(stack)) {
+                                 continue;
+                             }
+
+                             if (path.attribute == null) {
+                                 captures.add(new TextCapture(i, depth));
+                                 found[i] = true;
+                             } else {
+                                 String value = getAttributeValue(reader,
+                                                    path.attribute);
+
+                                 if (value != null) {
+                                     result.put(path.variableName, value);
+                                     found[i] = true;
+                                     --remaining;
+                                 }
+                             }
+                         }
+                     }
+
+                     break;
+
+                 case XMLStreamConstants.CHARACTERS :
+                 case XMLStreamConstants.CDATA :
+                 case XMLStreamConstants.SPACE :
+                     if (!captures.isEmpty()) {
+
+                         String text = reader.getText();
+
+                         for (TextCapture capture : captures) {
+                             capture.text.append(text);
+                         }
+                     }
+
+                     break;
+
+                 case XMLStreamConstants.END_ELEMENT :
+                     for (int i = captures.size() - 1; i >= 0; --i) {
+
+                         TextCapture capture = captures.get(i);
+
+                         if (capture.depth == depth) {
+                             result.put(this.paths.get(capture.pathIndex).variableName,
+                                        capture.text.toString());
+                             captures.remove(i);
+                             --remaining;
+                         }
+                     }
+
+                     --depth;
+
+                     break;
+
+                 default :
+                     break;
+                }
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        // Not found (the XPath string value of an empty node-set is "").
+        for (CompiledPath path : this.paths) {
+            if (!result.containsKey(path.variableName)) {
+                result.put(path.variableName, "");
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param reader positioned on a start element
+     * @param name
+     *
+     * @return null if the element does not carry the attribute.
+     */
+    private static String getAttributeValue(XMLStreamReader reader,
+            QName name) {
+
+        for (int i = 0; i < reader.getAttributeCount(); ++i) {
+
+            String uri = reader.getAttributeNamespace(i);
+
+            if (name.getLocalPart().equals(reader.getAttributeLocalName(i))
+                    && name.getNamespaceURI().equals((uri == null)
+                    ? ""
+                    : uri)) {
+                return reader.getAttributeValue(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param variableName
+     * @param expression
+     * @param namespaces
+     *
+     * @return null if the expression is not a simple absolute location path.
+     */
+    private static CompiledPath compile(String variableName,
+                                        String expression,
+                                        Map<String, String> namespaces) {
+
+        String expr = expression.trim();
+
+        if (!expr.startsWith("/") || expr.startsWith("//")) {
+            return null;
+        }
+
+        String[] parts = expr.substring(1).split("/", -1);
+        List<QName> steps = new ArrayList<QName>();
+        QName attribute = null;
+
+        for (int i = 0; i < parts.length; ++i) {
+
+            String part = parts[i];
+            boolean isAttribute = part.startsWith("@");
+
+            if (isAttribute) {
+
+                if (i != parts.length - 1) {
+                    return null;
+                }
+
+                part = part.substring(1);
+            }
+
+            Matcher matcher = STEP_PATTERN.matcher(part);
+
+            if (!matcher.matches()) {
+                return null;
+            }
+
+            String prefix = matcher.group(1);
+            String uri = "";
+
+            if (prefix != null) {
+
+                uri = namespaces.get(prefix);
+
+                if (uri == null) {
+                    return null;
+                }
+            }
+
+            QName name = new QName(uri, matcher.group(2));
+
+            if (isAttribute) {
+                attribute = name;
+            } else {
+                steps.add(name);
+            }
+        }
+
+        if (steps.isEmpty()) {
+            return null;
+        }
+
+        return new CompiledPath(variableName,
+                                steps.toArray(new QName[steps.size()]),
+                                attribute);
+    }
+
+    /**
+     * Class description
+     *
+     */
+    private static class CompiledPath {
+
+        /** Field description */
+        private final String variableName;
+
+        /** Field description */
+        private final QName[] steps;
+
+        /** Field description */
+        private final QName attribute;
+
+        /**
+         * Constructs ...
+         *
+         *
+         * @param variableName
+         * @param steps
+         * @param attribute
+         */
+        CompiledPath(String variableName, QName[] steps, QName attribute) {
+            this.variableName = variableName;
+            this.steps = steps;
+            this.attribute = attribute;
+        }
+
+        /**
+         * Method description
+         *
+         *
+         * @param stack current element path (at least steps.length deep)
+         *
+         * @return
+         */
+        boolean matches(QName[] stack) {
+
+            // Compare innermost first (most likely to differ).
+            for (int i = this.steps.length - 1; i >= 0; --i) {
+
+                QName step = this.steps[i];
+                QName name = stack[i];
+
+                if (!step.getLocalPart().equals(name.getLocalPart())
+                        || !step.getNamespaceURI().equals(
+                            name.getNamespaceURI())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Class description
+     *
+     */
+    private static class TextCapture {
+
+        /** Field description */
+        private final int pathIndex;
+
+        /** Field description */
+        private final int depth;
+
+        /** Field description */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * Constructs ...
+         *
+         *
+         * @param pathIndex
+         * @param depth
+         */
+        TextCapture(int pathIndex, int depth) {
+            this.pathIndex = pathIndex;
+            this.depth = depth;
+        }
+    }
+}
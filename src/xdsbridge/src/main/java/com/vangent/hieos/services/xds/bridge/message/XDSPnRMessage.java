@@ -13,6 +13,9 @@
 
 package com.vangent.hieos.services.xds.bridge.message;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import javax.activation.DataHandler;
 import javax.xml.namespace.QName;
 import com.vangent.hieos.services.xds.bridge.model.Document;
@@ -20,9 +23,11 @@ import com.vangent.hieos.services.xds.bridge.support.URIConstants;
 import com.vangent.hieos.xutil.xml.OMElementNodeWrapper;
 import org.apache.axiom.attachments.ByteArrayDataSource;
 import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMFactory;
 import org.apache.axiom.om.OMText;
+import org.apache.commons.lang.StringUtils;
 
 /**
  * Class description
@@ -126,4 +131,138 @@ public class XDSPnRMessage extends OMElementNodeWrapper {
 
         firstChild.insertSiblingAfter(docelem);
     }
+
+    /**
+     * Method description
+     *
+     *
+     * @return
+     */
+    private OMElement getRegistryObjectList() {
+
+        return getElement().getFirstElement().getFirstElement();
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param registryObjectList
+     *
+     * @return the (symbolic) id of the submission set
+     */
+    private static String getSubmissionSetId(OMElement registryObjectList) {
+
+        QName pkgQName = new QName(URIConstants.RIM_URI, "RegistryPackage");
+        OMElement pkg = registryObjectList.getFirstChildWithName(pkgQName);
+
+        return (pkg == null)
+               ? null
+               : pkg.getAttributeValue(new QName("id"));
+    }
+
+    /**
+     * Merge the document(s) of another PnR (built from the same metadata
+     * template) into this one, so that a single submission set carries all
+     * of them.  The other PnR's submission set (and its classifications) are
+     * dropped, its HasMember associations are re-pointed at this submission
+     * set and its remaining symbolic ids are made unique using the given
+     * suffix.  The other PnR should not be used afterwards.
+     *
+     *
+     * @param other
+     * @param idSuffix unique per merged PnR (e.g. the document symbolic id)
+     */
+    public void merge(XDSPnRMessage other, String idSuffix) {
+
+        OMElement registryObjectList = getRegistryObjectList();
+        String submissionSetId = getSubmissionSetId(registryObjectList);
+
+        OMElement otherRegistryObjectList = other.getRegistryObjectList();
+        String otherSubmissionSetId =
+            getSubmissionSetId(otherRegistryObjectList);
+
+        QName idQName = new QName("id");
+        QName sourceQName = new QName("sourceObject");
+        QName classifiedQName = new QName("classifiedObject");
+
+        List<OMElement> registryObjects = new ArrayList<OMElement>();
+
+        for (Iterator<?> it = otherRegistryObjectList.getChildElements();
+                it.hasNext(); ) {
+
+            registryObjects.add((OMElement) it.next());
+        }
+
+        for (OMElement registryObject : registryObjects) {
+
+            String localName = registryObject.getLocalName();
+
+            if ("RegistryPackage".equals(localName)
+                    || StringUtils.equals(otherSubmissionSetId,
+                        registryObject.getAttributeValue(classifiedQName))) {
+
+                // belongs to the other submission set
+                continue;
+            }
+
+            if ("Association".equals(localName)
+                    && StringUtils.equals(otherSubmissionSetId,
+                        registryObject.getAttributeValue(sourceQName))) {
+
+                registryObject.getAttribute(sourceQName).setAttributeValue(
+                    submissionSetId);
+            }
+
+            makeIdsUnique(registryObject, idQName, idSuffix);
+
+            registryObject.detach();
+            registryObjectList.addChild(registryObject);
+        }
+
+        // move the document attachments
+        QName docQName = new QName(URIConstants.XDS_URI, "Document");
+        List<OMElement> documents = new ArrayList<OMElement>();
+
+        for (Iterator<?> it = other.getElement().getChildrenWithName(docQName);
+                it.hasNext(); ) {
+
+            documents.add((OMElement) it.next());
+        }
+
+        OMElement firstChild = getElement().getFirstElement();
+
+        for (OMElement docelem : documents) {
+
+            docelem.detach();
+            firstChild.insertSiblingAfter(docelem);
+        }
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param elem
+     * @param idQName
+     * @param idSuffix
+     */
+    private static void makeIdsUnique(OMElement elem, QName idQName,
+                                      String idSuffix) {
+
+        OMAttribute idAttr = elem.getAttribute(idQName);
+
+        // document symbolic ids are already unique (and referenced)
+        if ((idAttr != null) && !"ExtrinsicObject".equals(elem.getLocalName())
+                && !idAttr.getAttributeValue().startsWith("urn:uuid:")) {
+
+            idAttr.setAttributeValue(
+                String.format("%s_%s", idAttr.getAttributeValue(), idSuffix));
+        }
+
+        for (Iterator<?> it = elem.getChildElements(); it.hasNext(); ) {
+
+            makeIdsUnique((OMElement) it.next(), idQName, idSuffix);
+        }
+    }
 }
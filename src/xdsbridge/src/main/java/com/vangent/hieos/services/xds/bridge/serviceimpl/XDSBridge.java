@@ -112,6 +112,10 @@ public class XDSBridge extends XAbstractService {
 
         //super.shutDown(configctx, service);
 
+        if (XDSBridge.serviceContext != null) {
+            XDSBridge.serviceContext.shutdown();
+        }
+
         XDSBridge.serviceContext = null;
     }
 
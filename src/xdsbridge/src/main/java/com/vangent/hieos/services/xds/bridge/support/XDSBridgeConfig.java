@@ -20,6 +20,7 @@ import com.vangent.hieos.xutil.xconfig.XConfig;
 import com.vangent.hieos.xutil.xconfig.XConfig.ConfigItem;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -42,6 +43,16 @@ public class XDSBridgeConfig {
     public static final String TEMPLATE_METADATA_PROP =
             "ProvideAndRegisterMetadataTemplate";
     /** Field description */
+    public static final String BATCH_SUBMISSION_ENABLED_PROP =
+            "BatchSubmissionEnabled";
+    /** Field description */
+    public static final String BATCH_MAX_DOCUMENTS_PROP = "BatchMaxDocuments";
+    /** Field description */
+    public static final String BATCH_MAX_SIZE_PROP = "BatchMaxSizeInBytes";
+    /** Field description */
+    public static final String BATCH_THREAD_POOL_SIZE_PROP =
+            "BatchMappingThreadPoolSize";
+    /** Field description */
     private static final Logger logger =
             Logger.getLogger(XDSBridgeConfig.class);
     /** Field description */
@@ -192,4 +203,67 @@ public class XDSBridgeConfig {
     public XConfigActor getXdsBridgeActor() {
         return xdsBridgeActor;
     }
+
+    /**
+     * Method description
+     *
+     *
+     * @return true if the documents of a request are mapped in parallel and
+     * submitted in as few PnR transactions as possible.
+     */
+    public boolean isBatchSubmissionEnabled() {
+        return xdsBridgeActor.getPropertyAsBoolean(
+                BATCH_SUBMISSION_ENABLED_PROP, false);
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @return maximum number of documents in a single PnR.
+     */
+    public int getBatchMaxDocuments() {
+        return getIntProperty(BATCH_MAX_DOCUMENTS_PROP, 20);
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @return maximum total document size (in bytes) of a single PnR.
+     */
+    public long getBatchMaxSizeInBytes() {
+        String value = xdsBridgeActor.getProperty(BATCH_MAX_SIZE_PROP);
+
+        return StringUtils.isBlank(value)
+                ? 20L * 1024 * 1024
+                : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @return number of threads used to map documents.
+     */
+    public int getBatchThreadPoolSize() {
+        return getIntProperty(BATCH_THREAD_POOL_SIZE_PROP, 4);
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param name
+     * @param defaultValue
+     *
+     * @return
+     */
+    private int getIntProperty(String name, int defaultValue) {
+        String value = xdsBridgeActor.getProperty(name);
+
+        return StringUtils.isBlank(value)
+                ? defaultValue
+                : Integer.parseInt(value.trim());
+    }
 }
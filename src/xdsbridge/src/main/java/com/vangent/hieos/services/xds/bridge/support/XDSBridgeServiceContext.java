@@ -23,6 +23,11 @@ import com.vangent.hieos.services.xds.bridge.message
     .SubmitDocumentResponseBuilder;
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Class description
  *
@@ -35,6 +40,9 @@ public class XDSBridgeServiceContext {
     /** Field description */
     private final MapperFactory mapperFactory;
 
+    /** Maps documents in parallel (batch submission only) */
+    private final ExecutorService mappingExecutor;
+
     /** Field description */
     private final XDSDocumentRegistryClient registryClient;
 
@@ -77,6 +85,8 @@ public class XDSBridgeServiceContext {
 
         this.mapperFactory = new MapperFactory(bridgeConfig, conParser);
 
+        this.mappingExecutor = createMappingExecutor(bridgeConfig);
+
         this.repositoryClient =
             new XDSDocumentRepositoryClient(this.xdsBridgeConfig,
                 repositoryActor);
@@ -112,6 +122,8 @@ public class XDSBridgeServiceContext {
 
         this.mapperFactory = new MapperFactory(bridgeConfig, conParser);
 
+        this.mappingExecutor = createMappingExecutor(bridgeConfig);
+
         this.repositoryClient = repoClient;
 
         this.registryClient = regClient;
@@ -176,4 +188,61 @@ public class XDSBridgeServiceContext {
     public XDSBridgeConfig getXdsBridgeConfig() {
         return this.xdsBridgeConfig;
     }
+
+    /**
+     * Method description
+     *
+     *
+     * @param bridgeConfig
+     *
+     * @return null if batch submission is not enabled
+     */
+    private static ExecutorService createMappingExecutor(
+            XDSBridgeConfig bridgeConfig) {
+
+        ExecutorService result = null;
+
+        if (bridgeConfig.isBatchSubmissionEnabled()) {
+
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            result = Executors.newFixedThreadPool(
+                bridgeConfig.getBatchThreadPoolSize(), new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread t = new Thread(r,
+                                          "xdsbridge-mapper-"
+                                          + threadCount.incrementAndGet());
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @return null if batch submission is not enabled
+     */
+    public ExecutorService getMappingExecutor() {
+        return this.mappingExecutor;
+    }
+
+    /**
+     * Method description
+     *
+     */
+    public void shutdown() {
+
+        if (this.mappingExecutor != null) {
+            this.mappingExecutor.shutdown();
+        }
+    }
 }
@@ -30,6 +30,7 @@ import com.vangent.hieos.services.xds.bridge.message
     .SubmitDocumentResponseBuilder;
 import com.vangent.hieos.services.xds.bridge.message
     .SubmitDocumentResponseMessage;
+import com.vangent.hieos.services.xds.bridge.message.XDSPnRMessage;
 import com.vangent.hieos.services.xds.bridge.model.Document;
 import com.vangent.hieos.services.xds.bridge.model.ResponseType;
 import com.vangent.hieos.services.xds.bridge.model.ResponseType
@@ -38,6 +39,7 @@ import com.vangent.hieos.services.xds.bridge.model.SubmitDocumentRequest;
 import com.vangent.hieos.services.xds.bridge.model.SubmitDocumentResponse;
 import com.vangent.hieos.services.xds.bridge.model.SubmitDocumentResponse
     .Status;
+import com.vangent.hieos.services.xds.bridge.support.XDSBridgeConfig;
 import com.vangent.hieos.services.xds.bridge.support.XDSBridgeServiceContext;
 import com.vangent.hieos.xutil.services.framework.XBaseTransaction;
 import com.vangent.hieos.xutil.xlog.client.XLogMessage;
@@ -48,6 +50,10 @@ import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Class description
@@ -65,9 +71,21 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
     /** Field description */
     private final AddPatientIdActivity addPatientIdActivity;
 
+    /** Field description */
+    private final XDSBridgeConfig bridgeConfig;
+
+    /** Field description */
+    private final ExecutorService mappingExecutor;
+
+    /** Activities run per document ahead of the PnR submission */
+    private final List<ISubmitDocumentRequestActivity> prepareActivities;
+
     /** Field description */
     private final List<ISubmitDocumentRequestActivity> processActivities;
 
+    /** Field description */
+    private final SubmitPnRActivity submitPnRActivity;
+
     /** Field description */
     private final SubmitDocumentRequestBuilder requestBuilder;
 
@@ -95,17 +113,26 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
         this.addPatientIdActivity =
             new AddPatientIdActivity(context.getRegistryClient());
 
-        this.processActivities =
+        this.bridgeConfig = context.getXdsBridgeConfig();
+        this.mappingExecutor = context.getMappingExecutor();
+
+        this.prepareActivities =
             new ArrayList<ISubmitDocumentRequestActivity>();
-        this.processActivities.add(
+        this.prepareActivities.add(
             new CDAToXDSMapperActivity(context.getMapperFactory()));
-        this.processActivities.add(
+        this.prepareActivities.add(
             new DocumentIdValidationActivity(context.getRegistryClient()));
-        this.processActivities.add(
+        this.prepareActivities.add(
             new RetrieveReplaceExtrinsicIdActivity(
                 context.getRegistryClient()));
-        this.processActivities.add(
-            new SubmitPnRActivity(context.getRepositoryClient()));
+
+        this.submitPnRActivity =
+            new SubmitPnRActivity(context.getRepositoryClient());
+
+        this.processActivities =
+            new ArrayList<ISubmitDocumentRequestActivity>(
+                this.prepareActivities);
+        this.processActivities.add(this.submitPnRActivity);
     }
 
     /**
@@ -180,6 +207,21 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
         return result.getElement();
     }
 
+    /**
+     * Method description
+     *
+     *
+     * @param sdrRequest
+     *
+     * @return
+     */
+    private boolean isBatchSubmission(SubmitDocumentRequest sdrRequest) {
+
+        return (this.mappingExecutor != null)
+               && this.bridgeConfig.isBatchSubmissionEnabled()
+               && (sdrRequest.getDocuments().size() > 1);
+    }
+
     /**
      * Method description
      *
@@ -207,7 +249,14 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
 
             if (pidAdded) {
 
-                runActivities(sdrRequest, sdrResponse);
+                if (isBatchSubmission(sdrRequest)) {
+
+                    runBatchedActivities(sdrRequest, sdrResponse);
+
+                } else {
+
+                    runActivities(sdrRequest, sdrResponse);
+                }
             }
         }
 
@@ -308,6 +357,178 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
         }
     }
 
+    /**
+     * Maps (and validates) the documents in parallel and submits the
+     * successfully mapped documents in as few PnR transactions as the
+     * configured batch limits allow.  A combined PnR succeeds or fails as
+     * a whole; per document status is returned in request order as with
+     * runActivities.
+     *
+     *
+     * @param sdrRequest
+     * @param sdrResponse
+     */
+    private void runBatchedActivities(SubmitDocumentRequest sdrRequest,
+                                      SubmitDocumentResponse sdrResponse) {
+
+        List<Document> documents = sdrRequest.getDocuments();
+        List<Future<SDRActivityContext>> futures =
+            new ArrayList<Future<SDRActivityContext>>();
+
+        int documentCount = 0;
+
+        for (Document document : documents) {
+
+            ++documentCount;
+
+            // symbolic ids must be unique within the combined PnR
+            document.setSymbolicId(String.format("Document%02d",
+                    documentCount));
+
+            futures.add(this.mappingExecutor.submit(
+                new PrepareDocumentTask(sdrRequest, document)));
+        }
+
+        // collect the results in document order; each document's responses
+        // are kept apart until all batches have been submitted
+        int failureCount = 0;
+        List<SDRActivityContext> prepared =
+            new ArrayList<SDRActivityContext>();
+        List<SubmitDocumentResponse> documentResponses =
+            new ArrayList<SubmitDocumentResponse>();
+
+        for (int i = 0; i < documentCount; ++i) {
+
+            SDRActivityContext context = null;
+
+            try {
+
+                context = futures.get(i).get();
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+                logger.error(e, e);
+
+            } catch (ExecutionException e) {
+
+                logger.error(e, e);
+            }
+
+            if (context == null) {
+
+                SubmitDocumentResponse documentResponse =
+                    new SubmitDocumentResponse();
+
+                documentResponse.addResponse(documents.get(i),
+                                             ResponseTypeStatus.Failure,
+                                             "Unable to map document.");
+                documentResponses.add(documentResponse);
+                ++failureCount;
+
+                continue;
+            }
+
+            documentResponses.add(context.getSubmitDocumentResponse());
+
+            if (context.getXdspnr() == null) {
+
+                ++failureCount;
+
+            } else {
+
+                prepared.add(context);
+            }
+        }
+
+        // submit in batches
+        int maxDocuments = this.bridgeConfig.getBatchMaxDocuments();
+        long maxSize = this.bridgeConfig.getBatchMaxSizeInBytes();
+
+        List<SDRActivityContext> batch = new ArrayList<SDRActivityContext>();
+        long batchSize = 0;
+
+        for (SDRActivityContext context : prepared) {
+
+            long size = context.getDocument().getContent().length;
+
+            if ((batch.isEmpty() == false)
+                    && ((batch.size() >= maxDocuments)
+                        || (batchSize + size > maxSize))) {
+
+                failureCount += submitBatch(batch);
+                batch = new ArrayList<SDRActivityContext>();
+                batchSize = 0;
+            }
+
+            batch.add(context);
+            batchSize += size;
+        }
+
+        if (batch.isEmpty() == false) {
+
+            failureCount += submitBatch(batch);
+        }
+
+        // return the per document responses in request order
+        for (SubmitDocumentResponse documentResponse : documentResponses) {
+
+            for (ResponseType response : documentResponse.getResponses()) {
+
+                sdrResponse.addResponse(response);
+            }
+        }
+
+        // set the final status
+        if (failureCount == 0) {
+
+            sdrResponse.setStatus(Status.Success);
+
+        } else if (failureCount == documentCount) {
+
+            sdrResponse.setStatus(Status.Failure);
+        } else {
+
+            sdrResponse.setStatus(Status.PartialSuccess);
+        }
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param batch
+     *
+     * @return the number of documents that failed
+     */
+    private int submitBatch(List<SDRActivityContext> batch) {
+
+        XDSPnRMessage pnr = batch.get(0).getXdspnr();
+
+        for (SDRActivityContext context : batch.subList(1, batch.size())) {
+
+            pnr.merge(context.getXdspnr(),
+                      context.getDocument().getSymbolicId());
+        }
+
+        logger.debug(String.format("Executing %s (batch of %d)",
+                                   this.submitPnRActivity.getName(),
+                                   batch.size()));
+
+        boolean success = this.submitPnRActivity.executeBatch(pnr, batch);
+
+        if (success) {
+
+            for (SDRActivityContext context : batch) {
+
+                context.getSubmitDocumentResponse().addSuccess(
+                    context.getDocument());
+            }
+        }
+
+        return success ? 0 : batch.size();
+    }
+
     /**
      * Method description
      *
@@ -341,4 +562,63 @@ public class SubmitDocumentRequestHandler extends XBaseTransaction {
 
         return result;
     }
+
+    /**
+     * Runs the prepare activities for a single document, collecting its
+     * responses separately so they can be returned in document order.
+     *
+     */
+    private class PrepareDocumentTask implements Callable<SDRActivityContext> {
+
+        /** Field description */
+        private final Document document;
+
+        /** Field description */
+        private final SubmitDocumentRequest sdrRequest;
+
+        /**
+         * Constructs ...
+         *
+         *
+         * @param sdrRequest
+         * @param document
+         */
+        PrepareDocumentTask(SubmitDocumentRequest sdrRequest,
+                            Document document) {
+
+            this.sdrRequest = sdrRequest;
+            this.document = document;
+        }
+
+        /**
+         * Method description
+         *
+         *
+         * @return the context; its PnR is null if an activity failed
+         */
+        public SDRActivityContext call() {
+
+            SDRActivityContext context =
+                new SDRActivityContext(this.sdrRequest, this.document,
+                                       new SubmitDocumentResponse());
+
+            for (ISubmitDocumentRequestActivity activity :
+                    prepareActivities) {
+
+                logger.debug(String.format("Executing %s", activity.getName()));
+
+                if (activity.execute(context) == false) {
+
+                    logger.info(String.format("Activity %s failed.",
+                                              activity.getName()));
+
+                    context.setXdspnr(null);
+
+                    break;
+                }
+            }
+
+            return context;
+        }
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.services.xds.bridge.mapper;
+
+import com.vangent.hieos.services.xds.bridge.utils.JUnitHelper;
+import com.vangent.hieos.xutil.iosupport.Io;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import java.io.InputStream;
+import java.util.Map;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.xpath.AXIOMXPath;
+
+/**
+ * Compares CDA metadata extraction using per-expression XPath over a fully
+ * built Axiom tree (the previous approach) with ContentParser's single-pass
+ * StAX extraction, for CDA documents padded out to various sizes.  Not a unit
+ * test; run directly:
+ *
+ * ContentParserBenchmark [iterations] [sections...]
+ *
+ * @version        v1.0, 2013-01-15
+ * @author         Vangent
+ */
+public class ContentParserBenchmark {
+
+    /** Field description */
+    private static final String FILLER_SECTION =
+        "<component><section><code code=\"10160-0\" codeSystem=\"2.16.840.1.113883.6.1\"/>"
+        + "<title>Filler</title><text><table><tbody>"
+        + "<tr><td>Lorem ipsum dolor sit amet, consectetur adipiscing elit.</td><td>20130101</td></tr>"
+        + "<tr><td>Sed do eiusmod tempor incididunt ut labore et dolore magna.</td><td>20130102</td></tr>"
+        + "</tbody></table></text></section></component>";
+
+    /**
+     * Method description
+     *
+     *
+     * @param args
+     *
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int[] sectionCounts = new int[] { 0, 1000, 10000 };
+
+        if (args.length > 1) {
+
+            sectionCounts = new int[args.length - 1];
+
+            for (int i = 1; i < args.length; ++i) {
+                sectionCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ClassLoader cl = ContentParserBenchmark.class.getClassLoader();
+        InputStream xmlis = cl.getResourceAsStream(JUnitHelper.SALLY_GRANT);
+        String cda = new String(Io.getBytesFromInputStream(xmlis), "UTF-8");
+        ContentParserConfig config =
+            JUnitHelper.createCDAToXDSContentParserConfig();
+        ContentParser parser = new ContentParser();
+
+        for (int sections : sectionCounts) {
+
+            byte[] xml = pad(cda, sections).getBytes("UTF-8");
+
+            // Warm up.
+            for (int i = 0; i < 10; ++i) {
+                parseWithXPath(config, xml);
+                parser.parse(config, xml);
+            }
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < iterations; ++i) {
+                parseWithXPath(config, xml);
+            }
+
+            long xpathNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            for (int i = 0; i < iterations; ++i) {
+                parser.parse(config, xml);
+            }
+
+            long streamingNanos = System.nanoTime() - start;
+
+            System.out.println("size=" + xml.length + " bytes: xpath="
+                               + (xpathNanos / iterations / 1000)
+                               + " us/doc, streaming="
+                               + (streamingNanos / iterations / 1000)
+                               + " us/doc");
+        }
+    }
+
+    /**
+     * Method description
+     *
+     *
+     * @param cda
+     * @param sections
+     *
+     * @return
+     */
+    private static String pad(String cda, int sections) {
+
+        int index = cda.lastIndexOf("</structuredBody>");
+        StringBuilder sb = new StringBuilder(cda.length()
+                               + (sections * FILLER_SECTION.length()));
+
+        sb.append(cda, 0, index);
+
+        for (int i = 0; i < sections; ++i) {
+            sb.append(FILLER_SECTION);
+        }
+
+        sb.append(cda.substring(index));
+
+        return sb.toString();
+    }
+
+    /**
+     * The previous approach: build the full tree, compile and evaluate each
+     * expression separately.
+     *
+     *
+     * @param config
+     * @param xml
+     *
+     * @throws Exception
+     */
+    private static void parseWithXPath(ContentParserConfig config, byte[] xml)
+            throws Exception {
+
+        OMElement node = XMLParser.bytesToOM(xml);
+        node.build();
+
+        for (Map.Entry<String, String> entry :
+                config.getExpressions().entrySet()) {
+
+            AXIOMXPath xpath = new AXIOMXPath(entry.getValue());
+
+            for (Map.Entry<String, String> ns :
+                    config.getNamespaces().entrySet()) {
+                xpath.addNamespace(ns.getKey(), ns.getValue());
+            }
+
+            xpath.stringValueOf(node);
+        }
+    }
+}
@@ -17,6 +17,10 @@ import java.io.InputStream;
 import java.util.Map;
 import com.vangent.hieos.services.xds.bridge.utils.JUnitHelper;
 import com.vangent.hieos.xutil.iosupport.Io;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import com.vangent.hieos.xutil.xml.XPathHelper;
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.lang.StringUtils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -65,4 +69,44 @@ public class ContentParserTest {
             "1.2.36.1.2001.1003.0.8003621231167890",
             tvars.get(ContentVariableName.AuthorInstitutionRoot.toString()));
     }
+
+    /**
+     * Method description
+     *
+     *
+     * @throws Exception
+     */
+    @Test
+    public void streamingMatchesXPathTest() throws Exception {
+
+        ClassLoader cl = getClass().getClassLoader();
+        InputStream xmlis = cl.getResourceAsStream(JUnitHelper.SALLY_GRANT);
+        byte[] xml = Io.getBytesFromInputStream(xmlis);
+
+        ContentParserConfig config =
+            JUnitHelper.createCDAToXDSContentParserConfig();
+
+        StreamingContentExtractor extractor =
+            new StreamingContentExtractor(config.getExpressions(),
+                                          config.getNamespaces());
+
+        assertTrue(extractor.getUnsupportedExpressions().isEmpty());
+
+        Map<String, String> values = extractor.extract(xml);
+
+        // Compare with XPath evaluated against the full document.
+        OMElement node = XMLParser.bytesToOM(xml);
+        String[][] prefixUris = config.toPrefixURIArrays();
+
+        for (Map.Entry<String, String> entry :
+                config.getExpressions().entrySet()) {
+
+            String expected = XPathHelper.stringValueOf(node,
+                                  entry.getValue(), prefixUris[0],
+                                  prefixUris[1]);
+
+            assertEquals(entry.getKey(), StringUtils.trimToEmpty(expected),
+                         StringUtils.trimToEmpty(values.get(entry.getKey())));
+        }
+    }
 }
@@ -88,7 +88,7 @@ public class AssertionEngine {
                     file_root = XMLParser.fileToOM(ref.file);
                 } catch (Exception e) {
                     // hmmm, input may be in log directory, try that
-                    file_root = XMLParser.fileToOM(TestConfig.log_dir + "/" + ref.file);
+                    file_root = XMLParser.fileToOM(TestConfig.getLogDir() + "/" + ref.file);
                 }
             }
             OMElement wrapper = MetadataSupport.om_factory.createOMElement(new QName(ref.as));
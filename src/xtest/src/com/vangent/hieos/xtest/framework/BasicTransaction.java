@@ -573,7 +573,7 @@ public abstract class BasicTransaction extends OmLogger {
     public void parse_instruction(OMElement part) throws XdsException {
         String part_name = part.getLocalName();
         if (part_name.equals("MetadataFile")) {
-            metadata_filename = TestConfig.base_path + part.getText();
+            metadata_filename = TestConfig.getBasePath() + part.getText();
             this.s_ctx.add_name_value(this.instruction_output, "MetadataFile", metadata_filename);
         } else if (part_name.equals("AssignUuids")) {
             assign_uuids = true;
@@ -663,7 +663,7 @@ public abstract class BasicTransaction extends OmLogger {
         String transaction_type = uri_ref.getAttributeValue(new QName("trans_type"));
 
         Linkage l = new Linkage();
-        OMElement log = XMLParser.fileToOM(TestConfig.log_dir + File.separator + log_file);
+        OMElement log = XMLParser.fileToOM(TestConfig.getLogDir() + File.separator + log_file);
         OMElement res = null;
         try {
             res = l.find_instruction_output(log, step_id, transaction_type);
@@ -34,6 +34,8 @@ public abstract class IdAllocator {
     protected static final String uniqueid_base_file = mgmt_dir + "uniqueid_base.txt";
     protected static final String uniqueid_index_file = mgmt_dir + "uniqueid_index.txt";
     static final String sourceId_file = mgmt_dir + "sourceId.txt";
+    // Guards the id files above (load mode runs plans on many threads).
+    static final Object FILE_LOCK = new Object();
 
     abstract String allocate() throws XdsInternalException;
 
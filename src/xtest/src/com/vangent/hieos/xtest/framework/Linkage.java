@@ -261,7 +261,7 @@ public class Linkage {
      * @return
      */
     public String getLogFileName(String test_dir) {
-        return TestConfig.log_dir + test_dir + "/" + "log.xml";
+        return TestConfig.getLogDir() + test_dir + "/" + "log.xml";
     }
 
     /**
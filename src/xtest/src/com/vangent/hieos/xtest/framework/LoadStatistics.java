@@ -0,0 +1,192 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xtest.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects per-transaction latency and error counts while xtest runs in load
+ * mode (see TestConfig.loadStatistics).  Safe for use by concurrent virtual users.
+ */
+public class LoadStatistics {
+
+    private final Map<String, TransactionStatistics> transactionStatistics = new TreeMap<String, TransactionStatistics>();
+    private long startTime = System.currentTimeMillis();
+    private long stopTime = 0;
+
+    /**
+     *
+     */
+    public synchronized void start() {
+        this.startTime = System.currentTimeMillis();
+        this.stopTime = 0;
+    }
+
+    /**
+     *
+     */
+    public synchronized void stop() {
+        this.stopTime = System.currentTimeMillis();
+    }
+
+    /**
+     *
+     * @param transactionName
+     * @param elapsedMillis
+     * @param success
+     */
+    public void record(String transactionName, long elapsedMillis, boolean success) {
+        TransactionStatistics stats;
+        synchronized (this) {
+            stats = transactionStatistics.get(transactionName);
+            if (stats == null) {
+                stats = new TransactionStatistics(transactionName);
+                transactionStatistics.put(transactionName, stats);
+            }
+        }
+        stats.record(elapsedMillis, success);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized List<TransactionStatistics> getTransactionStatistics() {
+        return new ArrayList<TransactionStatistics>(transactionStatistics.values());
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized long getElapsedMillis() {
+        long end = (stopTime == 0) ? System.currentTimeMillis() : stopTime;
+        return Math.max(1, end - startTime);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getReport() {
+        long elapsedMillis = this.getElapsedMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("\t %-32s %8s %8s %10s %8s %8s %8s %8s %8s\n",
+                "Transaction", "Count", "Errors", "Tx/sec", "p50(ms)", "p90(ms)", "p95(ms)", "p99(ms)", "max(ms)"));
+        for (TransactionStatistics stats : this.getTransactionStatistics()) {
+            sb.append(stats.getReportLine(elapsedMillis));
+        }
+        return sb.toString();
+    }
+
+    /**
+     *
+     */
+    public static class TransactionStatistics {
+
+        private final String transactionName;
+        private long[] latencies = new long[256];
+        private int count = 0;
+        private int errorCount = 0;
+
+        /**
+         *
+         * @param transactionName
+         */
+        TransactionStatistics(String transactionName) {
+            this.transactionName = transactionName;
+        }
+
+        /**
+         *
+         * @param elapsedMillis
+         * @param success
+         */
+        synchronized void record(long elapsedMillis, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = elapsedMillis;
+            if (!success) {
+                ++errorCount;
+            }
+        }
+
+        /**
+         *
+         * @return
+         */
+        public String getTransactionName() {
+            return transactionName;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public synchronized int getCount() {
+            return count;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public synchronized int getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Returns the latency (nearest rank) at the given percentile.
+         *
+         * @param percentile 0-100.
+         * @return
+         */
+        public synchronized long getPercentile(double percentile) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return rank(sorted, percentile);
+        }
+
+        /**
+         *
+         * @param elapsedMillis
+         * @return
+         */
+        synchronized String getReportLine(long elapsedMillis) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return String.format("\t %-32s %8d %8d %10.2f %8d %8d %8d %8d %8d\n",
+                    transactionName, count, errorCount, (count * 1000.0) / elapsedMillis,
+                    rank(sorted, 50), rank(sorted, 90), rank(sorted, 95), rank(sorted, 99), rank(sorted, 100));
+        }
+
+        /**
+         *
+         * @param sorted
+         * @param percentile
+         * @return
+         */
+        private static long rank(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil((percentile / 100.0) * sorted.length);
+            return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+        }
+    }
+}
@@ -26,8 +26,16 @@ public class PatientIdAllocator extends IdAllocator {
     static String current_pid = null;
 
     public void loadCurrent() throws XdsInternalException {
+        // Prefer the id allocated on this thread (load mode virtual users).
+        String threadPid = TestConfig.getThreadPatientId();
+        if (threadPid != null) {
+            current_pid = threadPid;
+            return;
+        }
         try {
-            current_pid = getPatientIdBase() + "^^^" + getAssigningAuthority();
+            synchronized (FILE_LOCK) {
+                current_pid = getPatientIdBase() + "^^^" + getAssigningAuthority();
+            }
         } catch (Exception e) {
             throw new XdsInternalException(ExceptionUtil.exception_details(e));
         }
@@ -63,6 +71,10 @@ public class PatientIdAllocator extends IdAllocator {
     // new spec - always return id in configuration
     public String allocate() throws XdsInternalException {
         try {
+            String threadPid = TestConfig.getThreadPatientId();
+            if (threadPid != null) {
+                return threadPid;
+            }
             if (current_pid == null) {
                 loadCurrent();
             }
@@ -80,8 +92,10 @@ public class PatientIdAllocator extends IdAllocator {
     public String allocate_new() throws XdsInternalException {
         if (TestConfig.pid_allocate_endpoint != null && !TestConfig.pid_allocate_endpoint.equals("")) {
             try {
-                current_pid = this.allocate_new_pid();
-                TestConfig.rememberPatientId(current_pid);
+                String new_pid = this.allocate_new_pid();
+                current_pid = new_pid;
+                TestConfig.rememberPatientId(new_pid);
+                return new_pid;
             } catch (Exception e) {
                 throw new XdsInternalException(ExceptionUtil.exception_details(e));
             }
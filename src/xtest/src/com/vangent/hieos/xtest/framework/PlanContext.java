@@ -101,7 +101,7 @@ public class PlanContext extends BasicContext {
         this.phone_home_log_files = new ArrayList<String>();
         for (OMElement log_file_rel_path_ele : MetadataSupport.childrenWithLocalName(phonehome, "Log")) {
             String log_file_rel_path = log_file_rel_path_ele.getText();
-            String log_path = TestConfig.base_path + log_file_rel_path;
+            String log_path = TestConfig.getBasePath() + log_file_rel_path;
             this.phone_home_log_files.add(log_path);
         }
     }
@@ -237,9 +237,9 @@ public class PlanContext extends BasicContext {
 
 
         try {
-            String logDir = TestConfig.log_dir;
+            String logDir = TestConfig.getLogDir();
             if (logDir == null) {
-                logDir = TestConfig.base_path;
+                logDir = TestConfig.getBasePath();
             }
             FileOutputStream os = new FileOutputStream(new File(logDir + "log.xml"));
             //System.out.println(results_document.toString());
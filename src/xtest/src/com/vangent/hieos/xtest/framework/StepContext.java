@@ -249,12 +249,23 @@ public class StepContext extends BasicContext implements ErrorReportingInterface
                     throw new XdsInternalException(ins_context.error("StepContext: Don't understand instruction named " + instruction_name));
                 }
                 setTransaction(transaction);
-                transaction.run();
-                if (transaction != null) {
-                    OMElement assertion_output = add_simple_element(
-                            test_step_output,
-                            "Assertions");
-                    transaction.runAssertionEngine(instruction_output, this, assertion_output);
+                LoadStatistics loadStatistics = TestConfig.loadStatistics;
+                long startTime = System.currentTimeMillis();
+                boolean completed = false;
+                try {
+                    transaction.run();
+                    if (transaction != null) {
+                        OMElement assertion_output = add_simple_element(
+                                test_step_output,
+                                "Assertions");
+                        transaction.runAssertionEngine(instruction_output, this, assertion_output);
+                    }
+                    completed = true;
+                } finally {
+                    if (loadStatistics != null) {
+                        loadStatistics.record(instruction_name,
+                                System.currentTimeMillis() - startTime, completed && getStatus());
+                    }
                 }
                 dumpContextIntoOutput(test_step_output);
                 System.out.flush();
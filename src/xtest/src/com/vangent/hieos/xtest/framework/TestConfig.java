@@ -22,10 +22,22 @@ import org.apache.axiom.om.OMElement;
 
 public class TestConfig {
 	// Directory holding testplan.xml and its support files
-	static public String base_path = "./";
+	// (per thread, so that load mode virtual users can run plans concurrently)
+	static private final ThreadLocal<String> base_path = new ThreadLocal<String>() {
+		@Override
+		protected String initialValue() {
+			return "./";
+		}
+	};
 	
 	// Output directory for log.xml files (organized in same dir structure as testkit)
-	static public String log_dir = null;
+	static private final ThreadLocal<String> log_dir = new ThreadLocal<String>();
+
+	// Patient id last allocated on this thread (see rememberPatientId)
+	static private final ThreadLocal<String> thread_patient_id = new ThreadLocal<String>();
+	
+	// Per-transaction latency collector (only set when running in load mode)
+	static public LoadStatistics loadStatistics = null;
 	
 	// Full path to xtest/test directory
 	static public String testmgmt_dir = null;
@@ -53,15 +65,38 @@ public class TestConfig {
 	static public OMElement claims = null;
 	
 	
+	static public String getBasePath() {
+		return base_path.get();
+	}
+
+	static public void setBasePath(String basePath) {
+		base_path.set(basePath);
+	}
+
+	static public String getLogDir() {
+		return log_dir.get();
+	}
+
+	static public void setLogDir(String logDir) {
+		log_dir.set(logDir);
+	}
+
+	static public String getThreadPatientId() {
+		return thread_patient_id.get();
+	}
+
 	static public void rememberPatientId(String pid) throws FileNotFoundException, IOException {
+		thread_patient_id.set(pid);
 		if (testmgmt_dir == null) return;
 		
-		FileOutputStream fos = new FileOutputStream(new File(testmgmt_dir + File.separatorChar + "patientid_base.txt"));
-		fos.write(pid.substring(0,pid.indexOf("^")).getBytes());
-		fos.close();
+		synchronized (IdAllocator.FILE_LOCK) {
+			FileOutputStream fos = new FileOutputStream(new File(testmgmt_dir + File.separatorChar + "patientid_base.txt"));
+			fos.write(pid.substring(0,pid.indexOf("^")).getBytes());
+			fos.close();
 
-		fos = new FileOutputStream(new File(testmgmt_dir + File.separatorChar + "assigning_authority.txt"));
-		fos.write(pid.substring(pid.lastIndexOf("^")+1).getBytes());
-		fos.close();
+			fos = new FileOutputStream(new File(testmgmt_dir + File.separatorChar + "assigning_authority.txt"));
+			fos.write(pid.substring(pid.lastIndexOf("^")+1).getBytes());
+			fos.close();
+		}
 	}
 }
@@ -38,10 +38,12 @@ public class UniqueIdAllocator extends IdAllocator {
 	}
 
 	String allocateUniqueId() throws IOException {
-		String uniqueid_base = getUniqueIdBase();
-		int uniqueid_index = Integer.parseInt(getUniqueIdIndex()) + 1;
-		putUniqueIdIndex(String.valueOf(uniqueid_index));
-		return uniqueid_base + uniqueid_index;
+		synchronized (FILE_LOCK) {
+			String uniqueid_base = getUniqueIdBase();
+			int uniqueid_index = Integer.parseInt(getUniqueIdIndex()) + 1;
+			putUniqueIdIndex(String.valueOf(uniqueid_index));
+			return uniqueid_base + uniqueid_index;
+		}
 	}
 
 	String allocate() throws XdsInternalException {
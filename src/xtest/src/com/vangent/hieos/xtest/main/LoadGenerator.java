@@ -0,0 +1,228 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xtest.main;
+
+import com.vangent.hieos.xtest.framework.BasicTransaction;
+import com.vangent.hieos.xtest.framework.LoadStatistics;
+import com.vangent.hieos.xtest.framework.PlanContext;
+import com.vangent.hieos.xtest.framework.StringSub;
+import com.vangent.hieos.xtest.framework.TestConfig;
+import com.vangent.hieos.xutil.exception.ExceptionUtil;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the selected test plans from a number of concurrent virtual users, with
+ * a ramp-up period, a fixed duration and an (optional) target rate of test plan
+ * executions per second across all users.  Per-transaction latencies are
+ * collected in TestConfig.loadStatistics.
+ *
+ * Each virtual user has its own StringSub and writes its logs under
+ * <log dir>/load/vu-<n>/ so that concurrent runs do not overwrite each other.
+ */
+public class LoadGenerator {
+
+    private final List<XTestDriver.TestSpec> testSpecs;
+    private final String logDir;
+    private final int virtualUsers;
+    private final long rampUpMillis;
+    private final long durationMillis;
+    private final double targetRate;
+    private final LoadStatistics loadStatistics = new LoadStatistics();
+    private final AtomicInteger numPlanSuccesses = new AtomicInteger();
+    private final AtomicInteger numPlanFailures = new AtomicInteger();
+    private final AtomicInteger numStepSuccesses = new AtomicInteger();
+    private final AtomicInteger numStepFailures = new AtomicInteger();
+    private long nextPermitTime = 0;  // Guarded by "this".
+
+    /**
+     *
+     * @param testSpecs
+     * @param logDir
+     * @param virtualUsers
+     * @param rampUpSeconds
+     * @param durationSeconds
+     * @param targetRate Test plan executions per second (<= 0 for unthrottled).
+     */
+    public LoadGenerator(List<XTestDriver.TestSpec> testSpecs, String logDir,
+            int virtualUsers, int rampUpSeconds, int durationSeconds, double targetRate) {
+        this.testSpecs = testSpecs;
+        this.logDir = logDir;
+        this.virtualUsers = Math.max(1, virtualUsers);
+        this.rampUpMillis = Math.max(0, rampUpSeconds) * 1000L;
+        this.durationMillis = Math.max(1, durationSeconds) * 1000L;
+        this.targetRate = targetRate;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public LoadStatistics getLoadStatistics() {
+        return loadStatistics;
+    }
+
+    /**
+     * Runs the load and blocks until all virtual users have finished.
+     *
+     * @throws InterruptedException
+     */
+    public void run() throws InterruptedException {
+        TestConfig.loadStatistics = loadStatistics;
+        loadStatistics.start();
+        long startTime = System.currentTimeMillis();
+        long stopTime = startTime + rampUpMillis + durationMillis;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < virtualUsers; i++) {
+            long userStartTime = startTime + (rampUpMillis * i) / virtualUsers;
+            Thread thread = new Thread(new VirtualUser(i + 1, userStartTime, stopTime), "xtest-vu-" + (i + 1));
+            threads.add(thread);
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            loadStatistics.stop();
+            TestConfig.loadStatistics = null;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getSummary() {
+        long elapsedMillis = loadStatistics.getElapsedMillis();
+        int numPlans = numPlanSuccesses.get() + numPlanFailures.get();
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n\n---------------------------------  Load Summary  ------------------------------\n\n");
+        sb.append("\t Virtual users: ").append(virtualUsers).append("\n");
+        sb.append("\t Ramp-up: ").append(rampUpMillis / 1000.0).append(" seconds\n");
+        sb.append("\t Duration: ").append(durationMillis / 1000.0).append(" seconds\n");
+        sb.append("\t Target rate: ").append(targetRate > 0 ? targetRate + " test plans/sec" : "unthrottled").append("\n");
+        sb.append("\t Number of test plans (pass): ").append(numPlanSuccesses.get()).append("\n");
+        sb.append("\t Number of test plans (fail): ").append(numPlanFailures.get()).append("\n");
+        sb.append("\t Number of test step (pass): ").append(numStepSuccesses.get()).append("\n");
+        sb.append("\t Number of test step (fail): ").append(numStepFailures.get()).append("\n");
+        sb.append("\t Test plans/sec: ").append(String.format("%.2f", (numPlans * 1000.0) / elapsedMillis)).append("\n");
+        sb.append("\t Elapsed time: ").append(elapsedMillis / 1000.0).append(" seconds\n\n");
+        sb.append(loadStatistics.getReport());
+        return sb.toString();
+    }
+
+    /**
+     * Blocks until the next test plan execution is allowed by the target rate.
+     *
+     * @param stopTime
+     * @return false if the run ends before a permit is available.
+     * @throws InterruptedException
+     */
+    private boolean acquirePermit(long stopTime) throws InterruptedException {
+        if (targetRate <= 0) {
+            return System.currentTimeMillis() < stopTime;
+        }
+        long permitTime;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            permitTime = Math.max(now, nextPermitTime);
+            nextPermitTime = permitTime + (long) (1000.0 / targetRate);
+        }
+        if (permitTime >= stopTime) {
+            return false;
+        }
+        long waitMillis = permitTime - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            Thread.sleep(waitMillis);
+        }
+        return true;
+    }
+
+    /**
+     *
+     */
+    private class VirtualUser implements Runnable {
+
+        private final int id;
+        private final long userStartTime;
+        private final long stopTime;
+        private final StringSub str_sub = new StringSub();
+
+        /**
+         *
+         * @param id
+         * @param userStartTime
+         * @param stopTime
+         */
+        VirtualUser(int id, long userStartTime, long stopTime) {
+            this.id = id;
+            this.userStartTime = userStartTime;
+            this.stopTime = stopTime;
+        }
+
+        /**
+         *
+         */
+        public void run() {
+            try {
+                long waitMillis = userStartTime - System.currentTimeMillis();
+                if (waitMillis > 0) {
+                    Thread.sleep(waitMillis);
+                }
+                while (System.currentTimeMillis() < stopTime) {
+                    for (XTestDriver.TestSpec testSpec : testSpecs) {
+                        if (!acquirePermit(stopTime)) {
+                            return;
+                        }
+                        this.runTest(testSpec);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // Stop this virtual user.
+            }
+        }
+
+        /**
+         *
+         * @param testSpec
+         */
+        private void runTest(XTestDriver.TestSpec testSpec) {
+            String testPathName = testSpec.getTestSpecDir();
+            if (!testPathName.endsWith("/")) {
+                testPathName = testPathName + "/";
+            }
+            String userLogDir = logDir + File.separatorChar + "load" + File.separatorChar + "vu-" + id
+                    + File.separatorChar + testSpec.getLogDirSuffix() + File.separatorChar;
+            new File(userLogDir).mkdirs();
+            TestConfig.setBasePath(testPathName);
+            TestConfig.setLogDir(userLogDir);
+            boolean ok = false;
+            try {
+                PlanContext plan = new PlanContext(BasicTransaction.xds_b);
+                ok = plan.run(testPathName + "testplan.xml", str_sub);
+                numStepSuccesses.addAndGet(plan.getNumStepSuccesses());
+                numStepFailures.addAndGet(plan.getNumStepFailures());
+            } catch (Exception e) {
+                System.out.println("[vu-" + id + "] " + ExceptionUtil.exception_details(e));
+            }
+            if (ok) {
+                numPlanSuccesses.incrementAndGet();
+            } else {
+                numPlanFailures.incrementAndGet();
+            }
+        }
+    }
+}
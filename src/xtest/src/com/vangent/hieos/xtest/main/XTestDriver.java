@@ -60,6 +60,10 @@ public class XTestDriver {
         String testCollectionName = null;
         boolean loop = false;
         boolean secure = false;
+        int loadUsers = 0;
+        int loadRampUp = 0;
+        int loadDuration = 60;
+        double loadRate = 0;
         try {
             for (int i = 0; i < argv.length; i++) {
                 String cmd = argv[i];
@@ -91,6 +95,34 @@ public class XTestDriver {
                     System.exit(0);
                 } else if (cmd.equals("-loop")) {
                     loop = true;
+                } else if (cmd.equals("-load")) {
+                    i++;
+                    if (i >= argv.length) {
+                        System.out.println("-load missing value");
+                        throw new Exception("");
+                    }
+                    loadUsers = Integer.parseInt(argv[i]);
+                } else if (cmd.equals("-rampup")) {
+                    i++;
+                    if (i >= argv.length) {
+                        System.out.println("-rampup missing value");
+                        throw new Exception("");
+                    }
+                    loadRampUp = Integer.parseInt(argv[i]);
+                } else if (cmd.equals("-duration")) {
+                    i++;
+                    if (i >= argv.length) {
+                        System.out.println("-duration missing value");
+                        throw new Exception("");
+                    }
+                    loadDuration = Integer.parseInt(argv[i]);
+                } else if (cmd.equals("-rate")) {
+                    i++;
+                    if (i >= argv.length) {
+                        System.out.println("-rate missing value");
+                        throw new Exception("");
+                    }
+                    loadRate = Double.parseDouble(argv[i]);
                 } else {
                     driver.usage();
                     System.exit(0);
@@ -117,13 +149,26 @@ public class XTestDriver {
             System.exit(0);
         }
 
+        if (loadUsers > 0) {
+            // Load mode.
+            LoadGenerator loadGenerator = new LoadGenerator(testSpecs, driver.logDir,
+                    loadUsers, loadRampUp, loadDuration, loadRate);
+            try {
+                loadGenerator.run();
+            } catch (InterruptedException ex) {
+                System.out.println("Load run interrupted");
+            }
+            System.out.println(loadGenerator.getSummary());
+            System.exit(0);
+        }
+
         long testRunStartTime = System.currentTimeMillis();  // Start time of test run.
         for (;;) {
             for (TestSpec testSpec : testSpecs) {
-                TestConfig.base_path = testSpec.getTestSpecDir();
-                TestConfig.log_dir = driver.makeLogDir(testSpec);
-                //System.out.println("test spec = " + TestConfig.base_path);
-                boolean ok = driver.runTest(TestConfig.base_path);
+                TestConfig.setBasePath(testSpec.getTestSpecDir());
+                TestConfig.setLogDir(driver.makeLogDir(testSpec));
+                //System.out.println("test spec = " + TestConfig.getBasePath());
+                boolean ok = driver.runTest(TestConfig.getBasePath());
                 if (ok) {
                     System.out.println("...Pass");
                 } else {
@@ -344,7 +389,11 @@ public class XTestDriver {
                 + "   -t <test name> : Selects test plan to run\n"
                 + "   -tc <test collection name> : Selects test collection to run\n"
                 + "   -secure : Run in secure mode\n"
-                + "   -loop : Loops selected test forever\n");
+                + "   -loop : Loops selected test forever\n"
+                + "   -load <users> : Runs selected tests from <users> concurrent virtual users\n"
+                + "   -rampup <seconds> : Load mode ramp-up period (default 0)\n"
+                + "   -duration <seconds> : Load mode duration after ramp-up (default 60)\n"
+                + "   -rate <plans/sec> : Load mode target rate across all users (default unthrottled)\n");
     }
 
     /**
@@ -356,7 +405,7 @@ public class XTestDriver {
         if (!testPathName.endsWith("/")) {
             testPathName = testPathName + "/";
         }
-        TestConfig.base_path = testPathName;
+        TestConfig.setBasePath(testPathName);
         try {
             PlanContext plan = new PlanContext(BasicTransaction.xds_b);
             boolean runResult = plan.run(testPathName + "testplan.xml", str_sub);
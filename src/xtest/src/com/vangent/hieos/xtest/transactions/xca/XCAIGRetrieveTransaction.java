@@ -249,7 +249,7 @@ public class XCAIGRetrieveTransaction extends BasicTransaction {
             OMElement part = (OMElement) elements.next();
             String part_name = part.getLocalName();
             if (part_name.equals("MetadataFile")) {
-                metadata_filename = TestConfig.base_path + part.getText();
+                metadata_filename = TestConfig.getBasePath() + part.getText();
                 s_ctx.add_name_value(instruction_output, "MetadataFile", metadata_filename);
             } else if (part_name.equals("Metadata")) {
                 metadata_filename = "";
@@ -263,7 +263,7 @@ public class XCAIGRetrieveTransaction extends BasicTransaction {
             } else if (part_name.equals("ReferenceDocument")) {
                 String filename = null;
                 String uid = null;
-                filename = TestConfig.base_path + File.separator + part.getText();
+                filename = TestConfig.getBasePath() + File.separator + part.getText();
                 uid = part.getAttributeValue(new QName("uid"));
                 referenced_documents.put(uid, filename);
                 s_ctx.add_name_value(instruction_output, "ReferenceDocument", part);
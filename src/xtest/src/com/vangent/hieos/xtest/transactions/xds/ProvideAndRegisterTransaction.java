@@ -179,7 +179,7 @@ public class ProvideAndRegisterTransaction extends RegisterTransaction {
             if (filename == null || filename.equals("")) {
                 throw new XdsException("ProvideAndRegisterTransaction: Document with id " + id + " has no filename specified");
             }
-            document_id_filenames.put(id, TestConfig.base_path + filename);
+            document_id_filenames.put(id, TestConfig.getBasePath() + filename);
         } else if (part_name.equals("XDSb")) {
             xds_version = BasicTransaction.xds_b;
         /*} else if (part_name.equals("XDSa")) {
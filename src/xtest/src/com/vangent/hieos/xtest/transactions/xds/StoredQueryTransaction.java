@@ -233,7 +233,7 @@ public class StoredQueryTransaction extends QueryTransaction {
             OMElement instruction_output, OMElement part) throws XdsException {
         String part_name = part.getLocalName();
         if (part_name.equals("MetadataFile")) {
-            metadata_filename = TestConfig.base_path + part.getText();
+            metadata_filename = TestConfig.getBasePath() + part.getText();
             s_ctx.add_name_value(instruction_output, "MetadataFile", metadata_filename);
         } else if (part_name.equals("Metadata")) {
             metadata_filename = "";
@@ -20,8 +20,8 @@ import java.util.GregorianCalendar;
 import java.io.StringWriter;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import javax.xml.bind.JAXBException;
 import javax.xml.datatype.XMLGregorianCalendar;
 import org.apache.log4j.Logger;
 
@@ -38,9 +38,9 @@ public class AuditMessageBuilder {
     private CodedValueType eventType;
     private String eventAction;
     private String eventOutcome;
-    private ArrayList apts = new ArrayList();
-    private ArrayList pois = new ArrayList();
-    private ArrayList ass = new ArrayList();
+    private List<ActiveParticipantType> apts = new ArrayList<ActiveParticipantType>();
+    private List<ParticipantObjectIdentificationType> pois = new ArrayList<ParticipantObjectIdentificationType>();
+    private List<AuditSourceIdentificationType> ass = new ArrayList<AuditSourceIdentificationType>();
     private static String syslogHost = null;
     private static int syslogPort = 0;
     private static String syslogProtocol = null;
@@ -245,89 +245,87 @@ public class AuditMessageBuilder {
      * 
      */
     public void persistMessage() {
-        AuditMessage msg = new AuditMessage();
-        String ret = null;
         try {
-            //   javax.xml.bind.JAXBContext jaxbCtx = javax.xml.bind.JAXBContext.newInstance(msg.getClass().getPackage().getName());
-            javax.xml.bind.JAXBContext jaxbCtx = javax.xml.bind.JAXBContext.newInstance(ObjectFactory.class);
-            javax.xml.bind.Marshaller marshaller = jaxbCtx.createMarshaller();
+            String newString = this.buildMessage();
+            SysLogAdapter logAdapter = new SysLogAdapter(syslogHost, syslogPort, syslogProtocol);
+            logAdapter.write(newString);  // This will close the socket (at this point).
+        } catch (Exception e) {
+            logger.error("XATNALogger: persistMessage() failed with exception: ", e);
+        }
+    }
 
-            EventIdentificationType ei = new EventIdentificationType();
-            if (eventId != null) {
+    /**
+     * Serializes the audit message as sent to the ARR (without the XML declaration).
+     *
+     * @return
+     * @throws JAXBException
+     */
+    public String buildMessage() throws JAXBException {
+        AuditMessage msg = new AuditMessage();
+        String ret = null;
+        //   javax.xml.bind.JAXBContext jaxbCtx = javax.xml.bind.JAXBContext.newInstance(msg.getClass().getPackage().getName());
+        javax.xml.bind.JAXBContext jaxbCtx = javax.xml.bind.JAXBContext.newInstance(ObjectFactory.class);
+        javax.xml.bind.Marshaller marshaller = jaxbCtx.createMarshaller();
 
-                ei.setEventID(eventId);
-            }
-            if (eventType != null) {
-                List leit = ei.getEventTypeCode();
-                leit.add(eventType);
-            }
-            if (eventAction != null) {
-                ei.setEventActionCode(eventAction);
-            }
+        EventIdentificationType ei = new EventIdentificationType();
+        if (eventId != null) {
 
-            XMLGregorianCalendar gc = this.getXMLGregorianCalendar();
+            ei.setEventID(eventId);
+        }
+        if (eventType != null) {
+            ei.getEventTypeCode().add(eventType);
+        }
+        if (eventAction != null) {
+            ei.setEventActionCode(eventAction);
+        }
 
-            //       XMLGregorianCalendar  xgc =  new XMLGregorianCalendar(new Date());
+        XMLGregorianCalendar gc = this.getXMLGregorianCalendar();
 
-            ei.setEventDateTime(gc);
-            if (eventOutcome != null) {
-                long leoi = new Long(eventOutcome).longValue();
-                BigInteger eoi = BigInteger.valueOf(leoi);
-                ei.setEventOutcomeIndicator(eoi);
-            }
-            msg.setEventIdentification(ei);
-
-            if (ass.size() > 0) {
-                Iterator it = ass.iterator();
-                List mass = msg.getAuditSourceIdentification();
-                while (it.hasNext()) {
-                    mass.add((AuditSourceIdentificationType) it.next());
-                }
-            }
-            if (apts.size() > 0) {
-                Iterator it = apts.iterator();
-                List mapts = msg.getActiveParticipant();
-                while (it.hasNext()) {
-                    mapts.add((ActiveParticipantType) it.next());
-                }
-            }
-            if (pois.size() > 0) {
-                Iterator it = pois.iterator();
-                List mpois = msg.getParticipantObjectIdentification();
-                while (it.hasNext()) {
-                    mpois.add((ParticipantObjectIdentificationType) it.next());
-                }
-            }
+        //       XMLGregorianCalendar  xgc =  new XMLGregorianCalendar(new Date());
 
-            StringWriter sw = new StringWriter();
-            marshaller.marshal(msg, sw);
-            StringBuffer sb = sw.getBuffer();
-            ret = new String(sb);
-            if (logger.isTraceEnabled()) {
-                logger.trace("--- ATNA Audit Message ---");
-                logger.trace(ret);
-                logger.trace("--------------------------");
-            }
+        ei.setEventDateTime(gc);
+        if (eventOutcome != null) {
+            long leoi = Long.parseLong(eventOutcome);
+            BigInteger eoi = BigInteger.valueOf(leoi);
+            ei.setEventOutcomeIndicator(eoi);
+        }
+        msg.setEventIdentification(ei);
+
+        msg.getAuditSourceIdentification().addAll(ass);
+        if (apts.size() > 0) {
+            // The generated list is typed AuditMessage.ActiveParticipant; the
+            // builder has always added (and marshalled) ActiveParticipantType.
+            @SuppressWarnings("unchecked")
+            List<ActiveParticipantType> mapts = (List<ActiveParticipantType>) (List<?>) msg.getActiveParticipant();
+            mapts.addAll(apts);
+        }
+        msg.getParticipantObjectIdentification().addAll(pois);
+
+        StringWriter sw = new StringWriter();
+        marshaller.marshal(msg, sw);
+        StringBuffer sb = sw.getBuffer();
+        ret = new String(sb);
+        if (logger.isTraceEnabled()) {
+            logger.trace("--- ATNA Audit Message ---");
+            logger.trace(ret);
+            logger.trace("--------------------------");
+        }
 
-            ret = ret.replaceAll("-05:00", "");
+        ret = ret.replaceAll("-05:00", "");
 
-            // Resolve schema validation errors
-            ret = ret.replaceAll(" xsi:type=\"ActiveParticipantType\"", "");
+        // Resolve schema validation errors
+        ret = ret.replaceAll(" xsi:type=\"ActiveParticipantType\"", "");
 
-            // Remove the XML tag before sending the Syslog message
-            int start = ret.indexOf("<AuditMessage>");
-            int end = ret.length();
-            String newString = ret.substring(start, end);
-            //newString = newString.replaceFirst("<AuditMessage>", "<AuditMessage xmlns:tns=\"http://xml.netbeans.org/schema/rfc3881\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
-            if (logger.isTraceEnabled()) {
-                logger.trace("Modified Message Content: " + newString);
-                logger.trace("Message Length: " + newString.length());
-            }
-            SysLogAdapter logAdapter = new SysLogAdapter(syslogHost, syslogPort, syslogProtocol);
-            logAdapter.write(newString);  // This will close the socket (at this point).
-        } catch (Exception e) {
-            logger.error("XATNALogger: persistMessage() failed with exception: ", e);
+        // Remove the XML tag before sending the Syslog message
+        int start = ret.indexOf("<AuditMessage>");
+        int end = ret.length();
+        String newString = ret.substring(start, end);
+        //newString = newString.replaceFirst("<AuditMessage>", "<AuditMessage xmlns:tns=\"http://xml.netbeans.org/schema/rfc3881\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+        if (logger.isTraceEnabled()) {
+            logger.trace("Modified Message Content: " + newString);
+            logger.trace("Message Length: " + newString.length());
         }
+        return newString;
     }
 
     /**
@@ -13,6 +13,7 @@
 package com.vangent.hieos.xutil.atna;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import org.apache.log4j.Logger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -140,7 +141,15 @@ public class SysLogAdapter {
         // MSGID
         String syslogMessage = "<85>1 " + currentDateTime + " " + localHostName + " " + APP_NAME + " " + "- " + "- " + "- " + msg;
         if (protocol == Protocol.TLS) {
-            int messageLength = syslogMessage.length();
+            // RFC 5425 MSG-LEN is the octet count of the UTF-8 encoded message
+            // (see TLSSocketSupport.sendSecureMessage).
+            int messageLength;
+            try {
+                messageLength = syslogMessage.getBytes("UTF-8").length;
+            } catch (UnsupportedEncodingException e) {
+                // UTF-8 is always supported.
+                throw new IllegalStateException(e);
+            }
             syslogMessage = Integer.toString(messageLength) + " " + syslogMessage;
         }
         return syslogMessage;
@@ -13,6 +13,8 @@
 package com.vangent.hieos.xutil.db.support;
 
 import com.vangent.hieos.xutil.exception.XdsInternalException;
+import com.vangent.hieos.xutil.metrics.MetricsRegistry;
+import com.vangent.hieos.xutil.metrics.TimedConnection;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -51,7 +53,9 @@ public class SQLConnectionWrapper {
     static final public String repoJNDIResourceName = "jdbc/hieos-repo";
 
     /**
-     * Returns a Connection instance for a given JNDI resource name.
+     * Returns a Connection instance for a given JNDI resource name.  Time spent
+     * obtaining the connection and executing statements on it is recorded in
+     * the "jdbc" metrics (see MetricsRegistry).
      *
      * @param jndiResourceName  Name of JNDI resource.
      * @return Database connection.
@@ -59,9 +63,12 @@ public class SQLConnectionWrapper {
      */
     public Connection getConnection(String jndiResourceName) throws XdsInternalException {
         Connection con = null;
+        long start = System.nanoTime();
+        boolean success = false;
         try {
             DataSource source = (DataSource) new InitialContext().lookup(jndiResourceName);
             con = source.getConnection();
+            success = true;
         } catch (SQLException ex) {
             // log error
             Logger.getLogger(SQLConnectionWrapper.class.getName()).log(Level.SEVERE, null, ex);
@@ -70,7 +77,10 @@ public class SQLConnectionWrapper {
             // DataSource wasn't found in JNDI
             Logger.getLogger(SQLConnectionWrapper.class.getName()).log(Level.SEVERE, null, ex);
             throw new XdsInternalException("Could not get repository data source: " + ex.getMessage());
+        } finally {
+            MetricsRegistry.getInstance().record(MetricsRegistry.JDBC, jndiResourceName + " getConnection",
+                    System.nanoTime() - start, success);
         }
-        return con;  // All should be well here.
+        return TimedConnection.wrap(con, jndiResourceName);  // All should be well here.
     }
 }
@@ -0,0 +1,321 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.jms;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import org.apache.log4j.Logger;
+
+/**
+ * Long-lived JMS producer for high volume senders.  The connection factory and
+ * destination are looked up once and a single JMS connection is shared; since
+ * JMS sessions are single-threaded, a bounded pool of session/producer pairs is
+ * kept and lent to one sending thread at a time.  If the connection fails it is
+ * re-established on the next send.
+ */
+public class JMSProducerPool implements ExceptionListener {
+
+    private final static Logger logger = Logger.getLogger(JMSProducerPool.class);
+    private final String jmsFactory;
+    private final String jmsDestination;
+    private final String jmsFactoryClass;
+    private final String jmsFactoryURL;
+    private final int maxProducers;
+    private final BlockingQueue<PooledProducer> idleProducers = new LinkedBlockingQueue<PooledProducer>();
+    private final AtomicInteger producerCount = new AtomicInteger(0);
+    private final AtomicLong sentCount = new AtomicLong(0);
+    private final AtomicLong reconnectCount = new AtomicLong(0);
+    private ConnectionFactory connectionFactory;
+    private Destination destination;
+    private Connection connection;
+    private int connectionGeneration = 0;  // Bumped each time the connection is replaced.
+    private volatile boolean closed = false;
+
+    /**
+     *
+     * @param jmsFactory JNDI name of the connection factory.
+     * @param jmsDestination JNDI name of the queue or topic.
+     * @param jmsFactoryClass Initial context factory (null to use the default InitialContext).
+     * @param jmsFactoryURL Provider URL (ignored if jmsFactoryClass is null).
+     * @param maxProducers Maximum number of concurrent sessions.
+     */
+    public JMSProducerPool(String jmsFactory, String jmsDestination,
+            String jmsFactoryClass, String jmsFactoryURL, int maxProducers) {
+        this.jmsFactory = jmsFactory;
+        this.jmsDestination = jmsDestination;
+        this.jmsFactoryClass = jmsFactoryClass;
+        this.jmsFactoryURL = jmsFactoryURL;
+        this.maxProducers = Math.max(1, maxProducers);
+    }
+
+    /**
+     * Looks up the connection factory and destination and opens the connection.
+     *
+     * @throws NamingException
+     * @throws JMSException
+     */
+    public void startup() throws NamingException, JMSException {
+        Context ctx;
+        if (jmsFactoryClass != null) {
+            Properties contextProps = new Properties();
+            contextProps.setProperty(Context.INITIAL_CONTEXT_FACTORY, jmsFactoryClass);
+            contextProps.setProperty(Context.PROVIDER_URL, jmsFactoryURL);
+            ctx = new InitialContext(contextProps);
+        } else {
+            ctx = new InitialContext();
+        }
+        try {
+            connectionFactory = (ConnectionFactory) ctx.lookup(jmsFactory);
+            destination = (Destination) ctx.lookup(jmsDestination);
+        } finally {
+            ctx.close();
+        }
+        this.getConnection();
+        logger.info("JMSProducerPool started (destination = " + jmsDestination
+                + ", max producers = " + maxProducers + ")");
+    }
+
+    /**
+     * Sends a Serializable Java Object to the destination.  A failed send is
+     * retried once on a fresh session (and connection if it was lost).
+     *
+     * @param message
+     * @throws JMSException
+     */
+    public void sendMessage(Serializable message) throws JMSException {
+        try {
+            this.send(message);
+        } catch (JMSException ex) {
+            logger.warn("JMS send failed, retrying: " + ex.getMessage());
+            this.send(message);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getStatistics() {
+        return "JMSProducerPool (destination = " + jmsDestination
+                + ", producers = " + producerCount.get()
+                + ", idle = " + idleProducers.size()
+                + ", sent = " + sentCount.get()
+                + ", reconnects = " + reconnectCount.get() + ")";
+    }
+
+    /**
+     * Closes all sessions and the connection.
+     */
+    public void close() {
+        closed = true;
+        PooledProducer producer;
+        while ((producer = idleProducers.poll()) != null) {
+            this.discard(producer);
+        }
+        synchronized (this) {
+            this.closeConnection();
+        }
+        logger.info(this.getStatistics());
+    }
+
+    /**
+     * Invoked by the JMS provider when the connection fails.
+     *
+     * @param ex
+     */
+    public void onException(JMSException ex) {
+        logger.error("JMS connection failure (will reconnect): " + ex.getMessage());
+        synchronized (this) {
+            this.closeConnection();
+        }
+    }
+
+    /**
+     *
+     * @param message
+     * @throws JMSException
+     */
+    private void send(Serializable message) throws JMSException {
+        PooledProducer producer = this.borrow();
+        boolean ok = false;
+        try {
+            ObjectMessage messageObj = producer.session.createObjectMessage(message);
+            producer.producer.send(messageObj);
+            sentCount.incrementAndGet();
+            ok = true;
+        } finally {
+            if (ok) {
+                this.release(producer);
+            } else {
+                this.discard(producer);
+            }
+        }
+    }
+
+    /**
+     * 
+     * @return
+     * @throws JMSException
+     */
+    private PooledProducer borrow() throws JMSException {
+        if (closed) {
+            throw new JMSException("JMSProducerPool is closed");
+        }
+        while (true) {
+            PooledProducer producer = idleProducers.poll();
+            if (producer == null) {
+                if (producerCount.incrementAndGet() <= maxProducers) {
+                    try {
+                        return this.createProducer();
+                    } catch (JMSException ex) {
+                        producerCount.decrementAndGet();
+                        throw ex;
+                    }
+                }
+                producerCount.decrementAndGet();
+                try {
+                    producer = idleProducers.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new JMSException("Interrupted waiting for a JMS session");
+                }
+            }
+            if (producer.generation == this.getConnectionGeneration()) {
+                return producer;
+            }
+            // Created on a connection that has since been replaced.
+            this.discard(producer);
+        }
+    }
+
+    /**
+     *
+     * @param producer
+     */
+    private void release(PooledProducer producer) {
+        if (closed) {
+            this.discard(producer);
+        } else {
+            idleProducers.offer(producer);
+        }
+    }
+
+    /**
+     *
+     * @param producer
+     */
+    private void discard(PooledProducer producer) {
+        producerCount.decrementAndGet();
+        try {
+            producer.session.close();
+        } catch (Exception ex) {
+            // Ignore (the connection may already be gone).
+        }
+    }
+
+    /**
+     *
+     * @return
+     * @throws JMSException
+     */
+    private PooledProducer createProducer() throws JMSException {
+        Connection conn;
+        int generation;
+        synchronized (this) {
+            conn = this.getConnection();
+            generation = connectionGeneration;
+        }
+        Session session = conn.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(destination);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+        return new PooledProducer(session, producer, generation);
+    }
+
+    /**
+     *
+     * @return
+     * @throws JMSException
+     */
+    private synchronized Connection getConnection() throws JMSException {
+        if (connection == null) {
+            if (connectionGeneration > 0) {
+                reconnectCount.incrementAndGet();
+            }
+            Connection conn = connectionFactory.createConnection();
+            conn.setExceptionListener(this);
+            connection = conn;
+            ++connectionGeneration;
+        }
+        return connection;
+    }
+
+    /**
+     *
+     * @return The current connection generation (-1 if the connection was lost).
+     */
+    private synchronized int getConnectionGeneration() {
+        return connection == null ? -1 : connectionGeneration;
+    }
+
+    /**
+     * Must be called while holding this object's lock.
+     */
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception ex) {
+                logger.error(ex);
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * A session and its producer; only ever used by one thread at a time.
+     */
+    private static class PooledProducer {
+
+        private final Session session;
+        private final MessageProducer producer;
+        private final int generation;
+
+        /**
+         *
+         * @param session
+         * @param producer
+         * @param generation
+         */
+        PooledProducer(Session session, MessageProducer producer, int generation) {
+            this.session = session;
+            this.producer = producer;
+            this.generation = generation;
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class IdIndex {
     private Metadata m;
     private Map<String, OMElement> _object_by_id = null;   // id => OMElement
     private Map<String, Map<String, List<OMElement>>> _object_parts_by_id = null;  // id => HashMap(type => ArrayList(OMElement))   type is Slot, Description, ...
+    private Map<String, List<OMElement>> _associations_by_source = null;  // sourceObject => ArrayList(Association)
+    private Map<String, List<OMElement>> _associations_by_target = null;  // targetObject => ArrayList(Association)
     private XLogMessage log_message = null;
 
     /**
@@ -112,6 +114,34 @@ public class IdIndex {
         return part_map.get("Slot");
     }
 
+    /**
+     * Return the Associations (in document order) whose sourceObject is the given id.
+     *
+     * @param id
+     * @return
+     */
+    public List<OMElement> getAssociationsBySource(String id) {
+        List<OMElement> assocs = associations_by_source().get(id);
+        if (assocs == null) {
+            return new ArrayList<OMElement>();
+        }
+        return assocs;
+    }
+
+    /**
+     * Return the Associations (in document order) whose targetObject is the given id.
+     *
+     * @param id
+     * @return
+     */
+    public List<OMElement> getAssociationsByTarget(String id) {
+        List<OMElement> assocs = associations_by_target().get(id);
+        if (assocs == null) {
+            return new ArrayList<OMElement>();
+        }
+        return assocs;
+    }
+
     /**
      *
      * @param id
@@ -336,6 +366,17 @@ public class IdIndex {
         return name;
     }
 
+    /**
+     * Index additional objects (e.g. objects merged into the metadata after
+     * this index was built).
+     *
+     * @param objects
+     * @throws MetadataException
+     */
+    public void addObjects(List<OMElement> objects) throws MetadataException {
+        this.parse_objects_by_id(objects);
+    }
+
     /**
      * 
      * @param objects
@@ -384,12 +425,56 @@ public class IdIndex {
         return _object_parts_by_id;
     }
 
+    /**
+     *
+     * @return
+     */
+    private Map<String, List<OMElement>> associations_by_source() {
+        if (_associations_by_source == null) {
+            _associations_by_source = new HashMap<String, List<OMElement>>();
+        }
+        return _associations_by_source;
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Map<String, List<OMElement>> associations_by_target() {
+        if (_associations_by_target == null) {
+            _associations_by_target = new HashMap<String, List<OMElement>>();
+        }
+        return _associations_by_target;
+    }
+
+    /**
+     *
+     * @param assoc_map
+     * @param id
+     * @param assoc
+     */
+    private void add_association(Map<String, List<OMElement>> assoc_map, String id, OMElement assoc) {
+        if (id == null) {
+            return;
+        }
+        List<OMElement> assocs = assoc_map.get(id);
+        if (assocs == null) {
+            assocs = new ArrayList<OMElement>();
+            assoc_map.put(id, assocs);
+        }
+        assocs.add(assoc);
+    }
+
     /**
      *
      * @param obj
      * @throws MetadataException
      */
     private void parse_object_by_id(OMElement obj) throws MetadataException {
+        if (obj.getLocalName().equals("Association")) {
+            add_association(associations_by_source(), obj.getAttributeValue(MetadataSupport.source_object_qname), obj);
+            add_association(associations_by_target(), obj.getAttributeValue(MetadataSupport.target_object_qname), obj);
+        }
         String id = obj.getAttributeValue(MetadataSupport.id_qname);
         if (id == null) {
             return;
@@ -25,9 +25,13 @@ import com.vangent.hieos.xutil.xml.XMLParser;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -329,10 +333,13 @@ public class Metadata {
         removeDuplicates(objectRefs);
         removeDuplicates(classifications);
 
-        removeFromObjectRefs(extrinsicObjects);
-        removeFromObjectRefs(registryPackages);
-        removeFromObjectRefs(associations);
-        removeFromObjectRefs(classifications);
+        // Drop ObjectRefs to objects that are present in full.
+        Set<String> ids = new HashSet<String>();
+        ids.addAll(getObjectIds(extrinsicObjects));
+        ids.addAll(getObjectIds(registryPackages));
+        ids.addAll(getObjectIds(associations));
+        ids.addAll(getObjectIds(classifications));
+        removeFromObjectRefs(ids);
 
         allObjects = new ArrayList<OMElement>();
         allObjects.addAll(extrinsicObjects);
@@ -340,6 +347,7 @@ public class Metadata {
         allObjects.addAll(associations);
         allObjects.addAll(classifications);
         allObjects.addAll(objectRefs);
+        reindex();
     }
 
     /**
@@ -360,43 +368,35 @@ public class Metadata {
      * @param set
      */
     private void removeDuplicates(List<OMElement> set) {
-        boolean running = true;
-        while (running) {
-            running = false;
-            for (int targetI = 0; targetI < set.size(); targetI++) {
-                OMElement target = set.get(targetI);
-                String targetId = id(target);
-                for (int i = targetI + 1; i < set.size(); i++) {
-                    OMElement it = set.get(i);
-                    if (targetId.equals(id(it))) {
-                        set.remove(i);
-                        running = true;
-                        break;
-                    }
-                }
+        // Keep the first occurrence of each id (single pass).
+        Set<String> seen = new HashSet<String>();
+        List<OMElement> unique = new ArrayList<OMElement>(set.size());
+        for (OMElement target : set) {
+            if (seen.add(id(target))) {
+                unique.add(target);
             }
         }
+        if (unique.size() != set.size()) {
+            set.clear();
+            set.addAll(unique);
+        }
     }
 
     /**
      *
-     * @param set
+     * @param ids
      */
-    private void removeFromObjectRefs(List<OMElement> set) {
-        for (int i = 0; i < set.size(); i++) {
-            String id = id(set.get(i));
-            boolean restart = true;
-            while (restart) {
-                restart = false;
-                for (int j = 0; j < objectRefs.size(); j++) {
-                    if (id.equals(id(objectRefs.get(j)))) {
-                        objectRefs.remove(j);
-                        restart = true;
-                        break;
-                    }
-                }
+    private void removeFromObjectRefs(Set<String> ids) {
+        List<OMElement> remaining = new ArrayList<OMElement>(objectRefs.size());
+        for (OMElement objectRef : objectRefs) {
+            if (!ids.contains(id(objectRef))) {
+                remaining.add(objectRef);
             }
         }
+        if (remaining.size() != objectRefs.size()) {
+            objectRefs.clear();
+            objectRefs.addAll(remaining);
+        }
     }
 
     /**
@@ -451,6 +451,7 @@ public class Metadata {
         folders = filter(folders, ids);
         associations = filter(associations, ids);
         allObjects = filter(allObjects, ids);
+        reindex();
     }
 
     /**
@@ -592,8 +593,31 @@ public class Metadata {
         this.metadata = metadata;
         wrapper = find_metadata_wrapper();
         wrappers.add(wrapper);
-        reindex();
-        parse(discard_duplicates);
+        if (idIndex == null) {
+            parse(discard_duplicates);
+            return;
+        }
+        // Extend the existing index with the newly parsed objects only (rather
+        // than rebuilding it from scratch on every merge).
+        int ssCount = submissionSets.size();
+        int folderCount = folders.size();
+        int eoCount = extrinsicObjects.size();
+        int assocCount = associations.size();
+        int classificationCount = classifications.size();
+        boolean indexed = false;
+        try {
+            parse(discard_duplicates);
+            idIndex.addObjects(submissionSets.subList(ssCount, submissionSets.size()));
+            idIndex.addObjects(folders.subList(folderCount, folders.size()));
+            idIndex.addObjects(extrinsicObjects.subList(eoCount, extrinsicObjects.size()));
+            idIndex.addObjects(associations.subList(assocCount, associations.size()));
+            idIndex.addObjects(classifications.subList(classificationCount, classifications.size()));
+            indexed = true;
+        } finally {
+            if (!indexed) {
+                reindex();
+            }
+        }
     }
 
     /**
@@ -1637,6 +1661,15 @@ public class Metadata {
     public OMElement addAssociation(OMElement a) {
         this.associations.add(a);
         this.allObjects.add(a);
+        if (idIndex != null) {
+            List<OMElement> added = new ArrayList<OMElement>();
+            added.add(a);
+            try {
+                idIndex.addObjects(added);
+            } catch (MetadataException e) {
+                reindex();
+            }
+        }
         return a;
     }
 
@@ -1680,6 +1713,8 @@ public class Metadata {
         OMNamespace namespace = wrapper.getNamespace();
         String namespace_uri = (namespace != null) ? namespace.getNamespaceURI() : "";
         detect_metadata_version(namespace_uri);
+        // Ids already held by each list (built on first use) when discarding duplicates.
+        Map<List<OMElement>, Set<String>> idSets = discard_duplicates ? new IdentityHashMap<List<OMElement>, Set<String>>() : null;
         for (Iterator<OMElement> it = wrapper.getChildElements(); it.hasNext();) {
             OMElement obj = it.next();
             String type = obj.getLocalName();
@@ -1694,17 +1729,13 @@ public class Metadata {
                     id_att.setAttributeValue(allocate_id());
                 }
             }
-            if (!discard_duplicates || !getObjectIds(allObjects).contains(id(obj))) {
-                allObjects.add(obj);
-            }
+            addObject(allObjects, obj, idSets);
 
             add_to_classifications_of_id(findClassifications(obj));
 
             if (type.equals("RegistryPackage")) {
                 if (hasExternalIdentifier(obj, MetadataSupport.XDSSubmissionSet_uniqueid_uuid)) {
-                    if (!discard_duplicates || !getObjectIds(submissionSets).contains(id(obj))) {
-                        submissionSets.add(obj);
-                    }
+                    addObject(submissionSets, obj, idSets);
 
                     if (submissionSet != null && this.grok_metadata == true) {
                         throw new MetadataException("Metadata: Submission has multiple SubmissionSets");
@@ -1712,34 +1743,22 @@ public class Metadata {
                     submissionSet = obj;
 
                 } else if (hasExternalIdentifier(obj, MetadataSupport.XDSFolder_uniqueid_uuid)) {
-                    if (!discard_duplicates || !getObjectIds(folders).contains(id(obj))) {
-                        folders.add(obj);
-                    }
-                }
-                if (!discard_duplicates || !getObjectIds(registryPackages).contains(id(obj))) {
-                    registryPackages.add(obj);
+                    addObject(folders, obj, idSets);
                 }
+                addObject(registryPackages, obj, idSets);
 
             } else if (type.equals("ExtrinsicObject")) {
-                if (!discard_duplicates || !getObjectIds(extrinsicObjects).contains(id(obj))) {
-                    extrinsicObjects.add(obj);
-                }
+                addObject(extrinsicObjects, obj, idSets);
 
             } else if (type.equals("ObjectRef")) {
-                if (!discard_duplicates || !getObjectIds(objectRefs).contains(id(obj))) {
-                    objectRefs.add(obj);
-                }
+                addObject(objectRefs, obj, idSets);
 
             } else if (type.equals("Classification")) {
-                if (!discard_duplicates || !getObjectIds(classifications).contains(id(obj))) {
-                    classifications.add(obj);
-                }
+                addObject(classifications, obj, idSets);
                 add_to_classifications_of_id(obj);
 
             } else if (type.equals("Association")) {
-                if (!discard_duplicates || !getObjectIds(associations).contains(id(obj))) {
-                    associations.add(obj);
-                }
+                addObject(associations, obj, idSets);
             } else {
                 throw new MetadataException("Metadata: parse(): did not expect a " + type + " object at the top level");
             }
@@ -1748,9 +1767,7 @@ public class Metadata {
                 OMElement obj_i = it1.next();
                 String type_i = obj_i.getLocalName();
                 if (type_i.equals("Classification")) {
-                    if (!discard_duplicates || !getObjectIds(classifications).contains(id(obj_i))) {
-                        classifications.add(obj_i);
-                    }
+                    addObject(classifications, obj_i, idSets);
                 }
             }
         }
@@ -1759,6 +1776,30 @@ public class Metadata {
         }
     }
 
+    /**
+     * Add the object to the list.  If idSets is not null (discarding duplicates),
+     * the object is only added if the list does not already hold an object with
+     * the same id.
+     *
+     * @param list
+     * @param obj
+     * @param idSets
+     */
+    private void addObject(List<OMElement> list, OMElement obj, Map<List<OMElement>, Set<String>> idSets) {
+        if (idSets == null) {
+            list.add(obj);
+            return;
+        }
+        Set<String> ids = idSets.get(list);
+        if (ids == null) {
+            ids = new HashSet<String>(getObjectIds(list));
+            idSets.put(list, ids);
+        }
+        if (ids.add(id(obj))) {
+            list.add(obj);
+        }
+    }
+
     /**
      *
      * @param namespace_uri
@@ -1821,17 +1862,41 @@ public class Metadata {
      * @param ids
      * @return
      */
-    public List<OMElement> getAssociationsInclusive(List<String> ids) {
+    public List<OMElement> getAssociationsInclusive(List<String> ids) throws MetadataException {
+        Set<String> idSet = new LinkedHashSet<String>(ids);
         List<OMElement> assocs = new ArrayList<OMElement>();
-        for (OMElement a : this.getAssociations()) {
-            if (ids.contains(getAssocSource(a))
-                    && ids.contains(getAssocTarget(a))) {
-                assocs.add(a);
+        for (String id : idSet) {
+            for (OMElement a : getAssociationsWithSource(id)) {
+                if (idSet.contains(getAssocTarget(a))) {
+                    assocs.add(a);
+                }
             }
         }
         return assocs;
     }
 
+    /**
+     * Return the Associations whose sourceObject is the given id.
+     *
+     * @param id
+     * @return
+     * @throws MetadataException
+     */
+    public List<OMElement> getAssociationsWithSource(String id) throws MetadataException {
+        return id_index().getAssociationsBySource(id);
+    }
+
+    /**
+     * Return the Associations whose targetObject is the given id.
+     *
+     * @param id
+     * @return
+     * @throws MetadataException
+     */
+    public List<OMElement> getAssociationsWithTarget(String id) throws MetadataException {
+        return id_index().getAssociationsByTarget(id);
+    }
+
     /**
      *
      * @return
@@ -186,8 +186,9 @@ public class Structure {
 
     /**
      *
+     * @throws MetadataException
      */
-    private void validateDocumentsInSubmissionSet() {
+    private void validateDocumentsInSubmissionSet() throws MetadataException {
         List<OMElement> docs = m.getExtrinsicObjects();
         String submissionSetId = m.getSubmissionSetId();
         for (OMElement doc : docs) {
@@ -200,8 +201,9 @@ public class Structure {
 
     /**
      *
+     * @throws MetadataException
      */
-    private void validateFoldersInSubmissionSet() {
+    private void validateFoldersInSubmissionSet() throws MetadataException {
         List<OMElement> fols = m.getFolders();
         String submissionSetId = m.getSubmissionSetId();
         for (OMElement fol : fols) {
@@ -398,9 +400,8 @@ public class Structure {
         for (OMElement folderAssoc : folderAssocs) {
             String folderAssocId = folderAssoc.getAttributeValue(MetadataSupport.id_qname);
             boolean good = false;
-            for (OMElement assoc : m.getAssociations()) {
+            for (OMElement assoc : m.getAssociationsWithTarget(folderAssocId)) {
                 if (m.getAssocSource(assoc).equals(submissionSetId)
-                        && m.getAssocTarget(assoc).equals(folderAssocId)
                         && MetadataSupport.xdsB_eb_assoc_type_has_member.equals(m.getAssocType(assoc))) {
                     if (good) {
                         err("Multiple HasMember Associations link Submission Set " + submissionSetId
@@ -423,15 +424,14 @@ public class Structure {
      * @param type
      * @param target
      * @return
+     * @throws MetadataException
      */
-    private boolean hasAssociation(String source, String type, String target) {
-        List<OMElement> assocs = m.getAssociations();
+    private boolean hasAssociation(String source, String type, String target) throws MetadataException {
+        List<OMElement> assocs = m.getAssociationsWithTarget(target);
         for (OMElement assoc : assocs) {
-            String assocTarget = assoc.getAttributeValue(MetadataSupport.target_object_qname);
             String assocType = assoc.getAttributeValue(MetadataSupport.association_type_qname);
             String assocSource = assoc.getAttributeValue(MetadataSupport.source_object_qname);
-            if (assocTarget != null && assocTarget.equals(target)
-                    && assocType != null && assocType.equals(type)
+            if (assocType != null && assocType.equals(type)
                     && assocSource != null && assocSource.equals(source)) {
                 return true;
             }
@@ -0,0 +1,136 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.apache.log4j.Logger;
+
+/**
+ * Minimal HTTP endpoint ("GET /metrics") that returns the metrics report as
+ * tab separated plain text.  The endpoint has no authentication, so it should
+ * only be bound to the loopback (default) or a management interface.  At most
+ * one server is started per JVM; if the port is already bound (e.g. by another
+ * web application) the existing server is used since it reports all registered
+ * metrics MBeans.
+ */
+public class MetricsHttpServer {
+
+    private final static Logger logger = Logger.getLogger(MetricsHttpServer.class);
+    public final static String CONTEXT_PATH = "/metrics";
+    private static HttpServer _server = null;
+
+    /**
+     *
+     */
+    private MetricsHttpServer() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @param bindAddress
+     * @param port
+     * @param registry
+     */
+    static public synchronized void start(final String bindAddress, final int port, final MetricsRegistry registry) {
+        if (_server != null) {
+            return;
+        }
+        // The server's dispatcher thread inherits the daemon status of the thread that
+        // creates it; create it from a daemon thread so it never holds up JVM shutdown.
+        Thread starter = new Thread(new Runnable() {
+
+            public void run() {
+                _server = MetricsHttpServer.create(bindAddress, port, registry);
+            }
+        }, "HIEOS-MetricsHttpServer-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *
+     * @param bindAddress
+     * @param port
+     * @param registry
+     * @return
+     */
+    static private HttpServer create(String bindAddress, int port, final MetricsRegistry registry) {
+        InetSocketAddress address = new InetSocketAddress(bindAddress, port);
+        if (address.isUnresolved()) {
+            logger.warn("Metrics HTTP endpoint not started (unknown bind address " + bindAddress + ")");
+            return null;
+        }
+        try {
+            HttpServer server = HttpServer.create(address, 0);
+            server.createContext(CONTEXT_PATH, new HttpHandler() {
+
+                public void handle(HttpExchange exchange) throws IOException {
+                    try {
+                        byte[] body = registry.getReport().getBytes("UTF-8");
+                        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                        exchange.sendResponseHeaders(200, body.length);
+                        OutputStream os = exchange.getResponseBody();
+                        os.write(body);
+                        os.close();
+                    } finally {
+                        exchange.close();
+                    }
+                }
+            });
+            ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "HIEOS-MetricsHttpServer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            server.setExecutor(executor);
+            server.start();
+            logger.info("Metrics available at http://" + bindAddress + ":" + port + CONTEXT_PATH);
+            return server;
+        } catch (IOException ex) {
+            logger.info("Metrics HTTP endpoint not started on " + bindAddress + ":" + port + " (" + ex.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     *
+     */
+    static public synchronized void stop() {
+        if (_server != null) {
+            _server.stop(0);
+            // The server does not shut down an executor it was given.
+            ExecutorService executor = (ExecutorService) _server.getExecutor();
+            if (executor != null) {
+                executor.shutdown();
+            }
+            _server = null;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.metrics;
+
+import com.vangent.hieos.xutil.xconfig.XConfig;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.AttributeList;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * In-process registry of per-operation counters and latency histograms.  Each
+ * entry is registered with the platform MBean server as
+ * "com.vangent.hieos:type=Metrics,category=...,name=..." and (optionally)
+ * served as plain text over HTTP (see MetricsHttpServer).  The HTTP endpoint
+ * runs while at least one web service is deployed (see register/unregister).
+ *
+ * Configured in xconfig.xml (home community): MetricsEnabled (default false),
+ * MetricsHTTPPort (HTTP endpoint is off unless set) and MetricsHTTPBindAddress
+ * (default 127.0.0.1).
+ */
+public class MetricsRegistry {
+
+    private final static Logger logger = Logger.getLogger(MetricsRegistry.class);
+    /**
+     * Inbound web service transactions (XAbstractService).
+     */
+    public final static String SERVICE = "service";
+    /**
+     * Outbound SOAP calls (Soap).
+     */
+    public final static String SOAP = "soap";
+    /**
+     * JDBC time on connections obtained through SQLConnectionWrapper.
+     */
+    public final static String JDBC = "jdbc";
+    /**
+     * EMPI candidate retrieval and matching.
+     */
+    public final static String EMPI = "empi";
+    public final static String JMX_DOMAIN = "com.vangent.hieos";
+    private final static String XCONFIG_PARAM_ENABLED = "MetricsEnabled";
+    private final static String XCONFIG_PARAM_HTTP_PORT = "MetricsHTTPPort";
+    private final static String XCONFIG_PARAM_HTTP_BIND_ADDRESS = "MetricsHTTPBindAddress";
+    private final static String DEFAULT_HTTP_BIND_ADDRESS = "127.0.0.1";
+    private final static int MAX_METRICS = 2000;
+    private final static String OVERFLOW_NAME = "(other)";
+    private static volatile MetricsRegistry _instance = null;
+    private static int serviceCount = 0;
+    private final ConcurrentMap<String, TransactionMetrics> metrics = new ConcurrentHashMap<String, TransactionMetrics>();
+    private final List<ObjectName> objectNames = Collections.synchronizedList(new ArrayList<ObjectName>());
+    private boolean enabled = false;
+    private MBeanServer mbeanServer = null;
+    private String httpPort = null;
+    private String httpBindAddress = DEFAULT_HTTP_BIND_ADDRESS;
+
+    /**
+     *
+     */
+    private MetricsRegistry() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @return
+     */
+    static public MetricsRegistry getInstance() {
+        if (_instance == null) {
+            synchronized (MetricsRegistry.class) {
+                if (_instance == null) {
+                    MetricsRegistry registry = new MetricsRegistry();
+                    registry.configure();
+                    _instance = registry;
+                }
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * Registers a deployed (web) service; the HTTP endpoint (if configured) is
+     * started with the first one.
+     */
+    static public synchronized void register() {
+        if (++serviceCount == 1) {
+            MetricsRegistry.getInstance().startHttpServer();
+        }
+    }
+
+    /**
+     * Unregisters a (web) service; the HTTP endpoint is stopped and this
+     * registry's MBeans are unregistered once the last one is gone.
+     */
+    static public synchronized void unregister() {
+        if (serviceCount > 0 && --serviceCount == 0) {
+            MetricsHttpServer.stop();
+            if (_instance != null) {
+                _instance.unregisterMBeans();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records one timed operation.
+     *
+     * @param category
+     * @param name
+     * @param elapsedNanos
+     * @param success
+     */
+    public void record(String category, String name, long elapsedNanos, boolean success) {
+        if (!enabled) {
+            return;
+        }
+        this.getTransactionMetrics(category, name).record(elapsedNanos, success);
+    }
+
+    /**
+     *
+     * @param category
+     * @param name
+     * @return
+     */
+    public TransactionMetrics getTransactionMetrics(String category, String name) {
+        if (name == null) {
+            name = "unknown";
+        }
+        String key = category + "|" + name;
+        TransactionMetrics transactionMetrics = metrics.get(key);
+        if (transactionMetrics == null) {
+            if (metrics.size() >= MAX_METRICS) {
+                // Protect against unbounded names (e.g. unexpected SOAP actions).
+                name = OVERFLOW_NAME;
+                key = category + "|" + name;
+                transactionMetrics = metrics.get(key);
+                if (transactionMetrics != null) {
+                    return transactionMetrics;
+                }
+            }
+            TransactionMetrics newMetrics = new TransactionMetrics(category, name);
+            transactionMetrics = metrics.putIfAbsent(key, newMetrics);
+            if (transactionMetrics == null) {
+                transactionMetrics = newMetrics;
+                this.registerMBean(newMetrics);
+            }
+        }
+        return transactionMetrics;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<TransactionMetrics> getTransactionMetrics() {
+        List<TransactionMetrics> result = new ArrayList<TransactionMetrics>(metrics.values());
+        Collections.sort(result, new Comparator<TransactionMetrics>() {
+
+            public int compare(TransactionMetrics m1, TransactionMetrics m2) {
+                int result = m1.getCategory().compareTo(m2.getCategory());
+                return result != 0 ? result : m1.getName().compareTo(m2.getName());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns a plain text report of all metrics registered with the MBean
+     * server (which includes those recorded by other web applications in the
+     * same JVM).  Falls back to this registry's metrics if JMX is not available.
+     *
+     * @return
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("category\tname\tcount\terrors\tmeanMs\tp50Ms\tp95Ms\tp99Ms\tmaxMs\n");
+        List<String> lines = new ArrayList<String>();
+        if (mbeanServer != null) {
+            try {
+                Set<ObjectName> names = mbeanServer.queryNames(new ObjectName(JMX_DOMAIN + ":type=Metrics,*"), null);
+                String[] attributes = {"Category", "Name", "Count", "ErrorCount", "MeanMillis",
+                    "P50Millis", "P95Millis", "P99Millis", "MaxMillis"};
+                for (ObjectName objectName : names) {
+                    AttributeList values = mbeanServer.getAttributes(objectName, attributes);
+                    if (values.size() != attributes.length) {
+                        continue;
+                    }
+                    Object[] row = new Object[attributes.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = ((javax.management.Attribute) values.get(i)).getValue();
+                    }
+                    lines.add(this.formatLine(row));
+                }
+            } catch (Exception ex) {
+                logger.warn("Unable to read metrics from MBean server: " + ex.getMessage());
+                lines.clear();
+            }
+        }
+        if (lines.isEmpty()) {
+            for (TransactionMetrics m : this.getTransactionMetrics()) {
+                lines.add(this.formatLine(new Object[]{m.getCategory(), m.getName(), m.getCount(),
+                            m.getErrorCount(), m.getMeanMillis(), m.getP50Millis(), m.getP95Millis(),
+                            m.getP99Millis(), m.getMaxMillis()}));
+            }
+        }
+        Collections.sort(lines);
+        for (String line : lines) {
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    private String formatLine(Object[] row) {
+        return String.format(Locale.US, "%s\t%s\t%d\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\n", row);
+    }
+
+    /**
+     *
+     * @param transactionMetrics
+     */
+    private void registerMBean(TransactionMetrics transactionMetrics) {
+        if (mbeanServer == null) {
+            return;
+        }
+        String baseName = JMX_DOMAIN + ":type=Metrics,category=" + ObjectName.quote(transactionMetrics.getCategory())
+                + ",name=" + ObjectName.quote(transactionMetrics.getName());
+        try {
+            ObjectName objectName = new ObjectName(baseName);
+            // Another web application (class loader) may have registered the same name.
+            for (int instance = 2; mbeanServer.isRegistered(objectName); instance++) {
+                objectName = new ObjectName(baseName + ",instance=" + instance);
+            }
+            mbeanServer.registerMBean(transactionMetrics, objectName);
+            objectNames.add(objectName);
+        } catch (InstanceAlreadyExistsException ex) {
+            logger.debug("Metrics MBean already registered: " + baseName);
+        } catch (Exception ex) {
+            logger.warn("Unable to register metrics MBean " + baseName + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the MBeans registered by this registry (so the web application's
+     * classes are not held by the platform MBean server after undeployment).  The
+     * metrics are discarded; they are registered again when next recorded.
+     */
+    private void unregisterMBeans() {
+        List<ObjectName> names;
+        synchronized (objectNames) {
+            names = new ArrayList<ObjectName>(objectNames);
+            objectNames.clear();
+        }
+        metrics.clear();
+        for (ObjectName objectName : names) {
+            try {
+                mbeanServer.unregisterMBean(objectName);
+            } catch (Exception ex) {
+                logger.debug("Unable to unregister metrics MBean " + objectName + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    private void configure() {
+        try {
+            XConfig xconf = XConfig.getInstance();
+            enabled = xconf.getHomeCommunityConfigPropertyAsBoolean(XCONFIG_PARAM_ENABLED, false);
+            httpPort = xconf.getHomeCommunityConfigProperty(XCONFIG_PARAM_HTTP_PORT);
+            String bindAddress = xconf.getHomeCommunityConfigProperty(XCONFIG_PARAM_HTTP_BIND_ADDRESS);
+            if (bindAddress != null && bindAddress.trim().length() > 0) {
+                httpBindAddress = bindAddress.trim();
+            }
+        } catch (Exception ex) {
+            logger.warn("Unable to read metrics configuration (using defaults): " + ex.getMessage());
+        }
+        if (!enabled) {
+            logger.info("Metrics collection is disabled");
+            return;
+        }
+        try {
+            mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        } catch (Exception ex) {
+            logger.warn("Platform MBean server not available, metrics not exposed over JMX: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Starts the HTTP endpoint if metrics are enabled and a port is configured.
+     */
+    private void startHttpServer() {
+        if (!enabled || httpPort == null || httpPort.trim().length() == 0) {
+            return;
+        }
+        try {
+            MetricsHttpServer.start(httpBindAddress, Integer.parseInt(httpPort.trim()), this);
+        } catch (NumberFormatException ex) {
+            logger.warn("Invalid " + XCONFIG_PARAM_HTTP_PORT + ": " + httpPort);
+        }
+    }
+}
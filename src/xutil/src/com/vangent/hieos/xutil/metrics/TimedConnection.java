@@ -0,0 +1,166 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Wraps a JDBC connection so that statement execution time (execute*,
+ * including executeBatch) is recorded under the "jdbc" metrics category,
+ * keyed by data source name.
+ */
+public class TimedConnection {
+
+    /**
+     *
+     */
+    private TimedConnection() {
+        // Do not allow.
+    }
+
+    /**
+     *
+     * @param connection
+     * @param resourceName
+     * @return
+     */
+    static public Connection wrap(Connection connection, String resourceName) {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        if (connection == null || !registry.isEnabled()) {
+            return connection;
+        }
+        TransactionMetrics executeMetrics = registry.getTransactionMetrics(MetricsRegistry.JDBC, resourceName + " execute");
+        return (Connection) Proxy.newProxyInstance(TimedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, executeMetrics));
+    }
+
+    /**
+     *
+     * @param target
+     * @param method
+     * @param args
+     * @return
+     * @throws Throwable
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     *
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final TransactionMetrics executeMetrics;
+
+        /**
+         *
+         * @param connection
+         * @param executeMetrics
+         */
+        ConnectionHandler(Connection connection, TransactionMetrics executeMetrics) {
+            this.connection = connection;
+            this.executeMetrics = executeMetrics;
+        }
+
+        /**
+         *
+         * @param proxy
+         * @param method
+         * @param args
+         * @return
+         * @throws Throwable
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            } else if (method.getName().equals("hashCode") && (args == null || args.length == 0)) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = TimedConnection.invoke(connection, method, args);
+            Class<?> statementType = null;
+            if (result instanceof CallableStatement) {
+                statementType = CallableStatement.class;
+            } else if (result instanceof PreparedStatement) {
+                statementType = PreparedStatement.class;
+            } else if (result instanceof Statement) {
+                statementType = Statement.class;
+            }
+            if (statementType != null) {
+                return Proxy.newProxyInstance(TimedConnection.class.getClassLoader(),
+                        new Class<?>[]{statementType}, new StatementHandler(result, (Connection) proxy, executeMetrics));
+            }
+            return result;
+        }
+    }
+
+    /**
+     *
+     */
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Object statement;
+        private final Connection connection;
+        private final TransactionMetrics executeMetrics;
+
+        /**
+         *
+         * @param statement
+         * @param connection
+         * @param executeMetrics
+         */
+        StatementHandler(Object statement, Connection connection, TransactionMetrics executeMetrics) {
+            this.statement = statement;
+            this.connection = connection;
+            this.executeMetrics = executeMetrics;
+        }
+
+        /**
+         *
+         * @param proxy
+         * @param method
+         * @param args
+         * @return
+         * @throws Throwable
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("getConnection") && (args == null || args.length == 0)) {
+                return connection;
+            }
+            if (!method.getName().startsWith("execute")) {
+                return TimedConnection.invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = TimedConnection.invoke(statement, method, args);
+                success = true;
+                return result;
+            } finally {
+                executeMetrics.record(System.nanoTime() - start, success);
+            }
+        }
+    }
+}
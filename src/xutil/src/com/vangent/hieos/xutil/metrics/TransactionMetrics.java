@@ -0,0 +1,122 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.metrics;
+
+/**
+ * Counters and latency histogram for one operation, keyed by category
+ * (e.g. "service", "soap", "jdbc", "empi") and name.
+ */
+public class TransactionMetrics implements TransactionMetricsMBean {
+
+    private final String category;
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     *
+     * @param category
+     * @param name
+     */
+    public TransactionMetrics(String category, String name) {
+        this.category = category;
+        this.name = name;
+    }
+
+    /**
+     *
+     * @param elapsedNanos
+     * @param success
+     */
+    public void record(long elapsedNanos, boolean success) {
+        histogram.record(elapsedNanos, success);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getErrorCount() {
+        return histogram.getErrorCount();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMeanMillis() {
+        return histogram.getMeanMillis();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getP50Millis() {
+        return histogram.getPercentileMillis(50.0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getP95Millis() {
+        return histogram.getPercentileMillis(95.0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getP99Millis() {
+        return histogram.getPercentileMillis(99.0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMaxMillis() {
+        return histogram.getMaxMillis();
+    }
+
+    /**
+     *
+     */
+    public void reset() {
+        histogram.reset();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.metrics;
+
+/**
+ * JMX view of a single timed operation (see TransactionMetrics).
+ */
+public interface TransactionMetricsMBean {
+
+    /**
+     *
+     * @return
+     */
+    String getCategory();
+
+    /**
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     *
+     * @return
+     */
+    long getCount();
+
+    /**
+     *
+     * @return
+     */
+    long getErrorCount();
+
+    /**
+     *
+     * @return
+     */
+    double getMeanMillis();
+
+    /**
+     *
+     * @return
+     */
+    double getP50Millis();
+
+    /**
+     *
+     * @return
+     */
+    double getP95Millis();
+
+    /**
+     *
+     * @return
+     */
+    double getP99Millis();
+
+    /**
+     *
+     * @return
+     */
+    double getMaxMillis();
+
+    /**
+     *
+     */
+    void reset();
+}
@@ -19,6 +19,7 @@ import com.vangent.hieos.xutil.exception.XdsInternalException;
 import com.vangent.hieos.xutil.response.AdhocQueryResponse;
 import com.vangent.hieos.xutil.metadata.structure.MetadataSupport;
 import com.vangent.hieos.xutil.exception.ExceptionUtil;
+import com.vangent.hieos.xutil.metrics.MetricsRegistry;
 import com.vangent.hieos.xutil.response.RegistryErrorList;
 import com.vangent.hieos.xutil.response.RegistryResponse;
 import com.vangent.hieos.xutil.response.RetrieveMultipleResponse;
@@ -71,6 +72,7 @@ abstract public class XAbstractService implements ServiceLifeCycle, Lifecycle {
     protected XLogMessage log_message = null;
     private String serviceName;
     private boolean active = true;
+    private long transactionStartTime = 0;
 
     /**
      *
@@ -229,6 +231,7 @@ abstract public class XAbstractService implements ServiceLifeCycle, Lifecycle {
     protected void beginTransaction(String serviceName, OMElement request) throws SOAPFaultException {
         // This gets around a bug in Leopard (MacOS X 10.5) on Macs
         //System.setProperty("http.nonProxyHosts", "");
+        this.transactionStartTime = System.nanoTime();
         this.serviceName = serviceName;
         //this.mActor = actor;
         MessageContext messageContext = this.getCurrentMessageContext();
@@ -326,6 +329,13 @@ abstract public class XAbstractService implements ServiceLifeCycle, Lifecycle {
      * @param status
      */
     protected void endTransaction(boolean status) {
+        if (transactionStartTime != 0) {
+            // Only want to record once (keyed by service class and transaction).
+            MetricsRegistry.getInstance().record(MetricsRegistry.SERVICE,
+                    this.getClass().getSimpleName() + " " + serviceName,
+                    System.nanoTime() - transactionStartTime, status);
+            transactionStartTime = 0;
+        }
         if (active && logger.isInfoEnabled()) {
             active = false;  // Only want to emit once.
             logger.info("End " + serviceName + " "
@@ -623,6 +633,7 @@ abstract public class XAbstractService implements ServiceLifeCycle, Lifecycle {
         //logger.info("XdsService:::startup() - NOOP (not overridden)");
         XLogger xlog = XLogger.getInstance();
         xlog.startup();
+        MetricsRegistry.register();
         startup();
     }
 
@@ -635,6 +646,7 @@ abstract public class XAbstractService implements ServiceLifeCycle, Lifecycle {
     public void shutDown(ConfigurationContext configctx, AxisService service) {
         //logger.info("XdsService:::shutdown() - NOOP (not overridden)");
         shutdown();
+        MetricsRegistry.unregister();
         XLogger xlog = XLogger.getInstance();
         xlog.shutdown();
     }
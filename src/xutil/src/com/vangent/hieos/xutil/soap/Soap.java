@@ -17,6 +17,7 @@ package com.vangent.hieos.xutil.soap;
 //import com.vangent.hieos.xutil.exception.XdsInternalException;
 //import com.vangent.hieos.xutil.metadata.structure.MetadataSupport;
 import com.vangent.hieos.xutil.exception.SOAPFaultException;
+import com.vangent.hieos.xutil.metrics.MetricsRegistry;
 import com.vangent.hieos.xutil.xml.Util;
 
 import java.util.HashMap;
@@ -78,6 +79,7 @@ public class Soap {
     private OMElement result = null;                // Holds the SOAP result.
     private boolean async = false;                  // Boolean value (determines "async" mode).
     private MessageContext parentThreadMessageContext = null;
+    private HttpConnectionManager httpConnectionManager = null;  // Shared (pooled) manager (null if not used).
 
     /**
      * Set boolean value to determine if this request should be an asynchronous
@@ -97,6 +99,16 @@ public class Soap {
         this.parentThreadMessageContext = parentThreadMessageContext;
     }
 
+    /**
+     * Sets a (typically pooled) HTTP connection manager to use for requests.  If
+     * not set, a new connection is opened (and closed) for each request.
+     *
+     * @param httpConnectionManager The HTTP connection manager.
+     */
+    public void setHttpConnectionManager(HttpConnectionManager httpConnectionManager) {
+        this.httpConnectionManager = httpConnectionManager;
+    }
+
     /**
      * Sets the XUA object used to properly generate SAML during Axis2 outbound
      * message handling.
@@ -124,6 +136,9 @@ public class Soap {
             boolean addressing, boolean soap12, String action, String expectedReturnAction)
             throws SOAPFaultException {
 
+        long start = System.nanoTime();
+        boolean success = false;
+        boolean transportCleanedUp = false;
         try {
             // Get the AXIS2 ServiceClient.
             if (this.serviceClient == null) {
@@ -153,9 +168,15 @@ public class Soap {
             // Setup for XUA (if required).
             this.setupXUA(serviceClient, action);
 
-            HttpConnectionManager connMgr =
-                    new XUtilSimpleHttpConnectionManager(true);
+            HttpConnectionManager connMgr = this.httpConnectionManager;
+            if (connMgr == null) {
+                connMgr = new XUtilSimpleHttpConnectionManager(true);
+            }
             HttpClient httpClient = new HttpClient(connMgr);
+            if (this.httpConnectionManager != null) {
+                // Do not wait forever for a (shared) pooled connection.
+                httpClient.getParams().setConnectionManagerTimeout(options.getTimeOutInMilliSeconds());
+            }
 
             // set the above created objects to re use.
             options.setProperty(HTTPConstants.REUSE_HTTP_CLIENT,
@@ -188,6 +209,7 @@ public class Soap {
                 }
 
                 this.serviceClient.cleanupTransport();
+                transportCleanedUp = true;
             }
 
             // Cleanup after "async" (if required).
@@ -204,8 +226,22 @@ public class Soap {
             } else if (addressing) {  // Only validate in this case.
                 verifySOAPReturnAction(expectedReturnAction, null);
             }
+            success = true;
         } catch (AxisFault ex) {
             throw new SOAPFaultException(ex.getMessage());
+        } finally {
+            if (!transportCleanedUp && this.httpConnectionManager != null && this.serviceClient != null) {
+                // Return the connection to the shared manager (the response may not
+                // have been consumed).
+                try {
+                    this.serviceClient.cleanupTransport();
+                } catch (AxisFault ex) {
+                    logger.warn("Unable to cleanup SOAP transport: " + ex.getMessage());
+                }
+            }
+            // Outbound call time (keyed by SOAP action).
+            MetricsRegistry.getInstance().record(MetricsRegistry.SOAP, action,
+                    System.nanoTime() - start, success);
         }
 
         // Return the SOAP result.
@@ -491,13 +527,8 @@ public class Soap {
         // Get SAML assertion from STS issuer.
         XServiceUser xServiceUser = new XServiceUser();
         try {
-            // Get the SAML assertion from the STS provider (for the given user):
-            SOAPEnvelope responseEnvelope = xServiceUser.getToken(this.xuaObject);
-            if (logger.isDebugEnabled()) {
-                //logger.debug("XUA: XUAOutPhaseHandler::invoke - STS Response: " + responseEnvelope.toString());
-                logger.info("XUA: XUAOutPhaseHandler::invoke - STS Response: " + responseEnvelope.toString());
-            }
-            OMElement samlTokenEle = xServiceUser.getTokenFromSTSResponse(responseEnvelope);
+            // Get the SAML assertion from the STS provider (for the given user) or token cache:
+            OMElement samlTokenEle = xServiceUser.getSAMLAssertion(this.xuaObject);
             if (logger.isDebugEnabled()) {
                 //logger.debug("XUA: XUAOutPhaseHandler::invoke - SAML Token: " + samlTokenEle.toString());
                 logger.info("XUA: XUAOutPhaseHandler::invoke - SAML Token: " + samlTokenEle.toString());
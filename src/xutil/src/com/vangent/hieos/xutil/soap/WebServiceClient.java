@@ -13,6 +13,7 @@
 package com.vangent.hieos.xutil.soap;
 
 import com.vangent.hieos.xutil.xconfig.XConfigActor;
+import org.apache.commons.httpclient.HttpConnectionManager;
 
 /**
  *
@@ -21,6 +22,7 @@ import com.vangent.hieos.xutil.xconfig.XConfigActor;
 public abstract class WebServiceClient {
 
     private XConfigActor config;
+    private HttpConnectionManager httpConnectionManager = null;
 
     /**
      *
@@ -37,4 +39,22 @@ public abstract class WebServiceClient {
     public XConfigActor getConfig() {
         return this.config;
     }
+
+    /**
+     *
+     * @return
+     */
+    public HttpConnectionManager getHttpConnectionManager() {
+        return httpConnectionManager;
+    }
+
+    /**
+     * Sets a (pooled) HTTP connection manager to be shared by SOAP requests
+     * issued through this client.
+     *
+     * @param httpConnectionManager
+     */
+    public void setHttpConnectionManager(HttpConnectionManager httpConnectionManager) {
+        this.httpConnectionManager = httpConnectionManager;
+    }
 }
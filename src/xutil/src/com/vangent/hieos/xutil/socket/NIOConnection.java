@@ -0,0 +1,450 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import org.apache.log4j.Logger;
+
+/**
+ * State for a single connection accepted by an NIOServer.  Reads, writes and
+ * TLS processing (via SSLEngine) are done on the server's selector thread;
+ * write() may be called from any thread.
+ */
+public class NIOConnection {
+
+    private static final Logger logger = Logger.getLogger(NIOConnection.class);
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+    private final NIOServer server;
+    private final SocketChannel channel;
+    private final SSLEngine sslEngine;
+    private final NIOFrameDecoder decoder;
+    private final InetAddress remoteAddress;
+    private final int remotePort;
+    private final ConcurrentLinkedQueue<ByteBuffer> pendingWrites = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final LinkedList<byte[]> pendingFrames = new LinkedList<byte[]>();  // Guarded by "this".
+    private boolean processing = false;  // Guarded by "this".
+    private volatile boolean closed = false;
+    private volatile Object attachment = null;
+    private ByteBuffer appIn;   // Plain text received (not yet framed).
+    private ByteBuffer netIn;   // TLS only: encrypted bytes received.
+    private ByteBuffer netOut;  // TLS only: encrypted bytes waiting to be written.
+
+    /**
+     *
+     * @param server
+     * @param channel
+     * @param sslEngine (null if TLS is not used)
+     * @param decoder
+     */
+    NIOConnection(NIOServer server, SocketChannel channel, SSLEngine sslEngine, NIOFrameDecoder decoder) {
+        this.server = server;
+        this.channel = channel;
+        this.sslEngine = sslEngine;
+        this.decoder = decoder;
+        this.remoteAddress = channel.socket().getInetAddress();
+        this.remotePort = channel.socket().getPort();
+        if (sslEngine != null) {
+            int packetBufferSize = sslEngine.getSession().getPacketBufferSize();
+            int applicationBufferSize = sslEngine.getSession().getApplicationBufferSize();
+            this.netIn = ByteBuffer.allocate(packetBufferSize);
+            this.netOut = ByteBuffer.allocate(packetBufferSize);
+            this.appIn = ByteBuffer.allocate(Math.max(applicationBufferSize, DEFAULT_BUFFER_SIZE));
+        } else {
+            this.appIn = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public InetAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getRemotePort() {
+        return remotePort;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isSecure() {
+        return sslEngine != null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public SSLEngine getSSLEngine() {
+        return sslEngine;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Application specific state associated with the connection.
+     *
+     * @return
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     *
+     * @param attachment
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Queues a payload (framed by the server's protocol) for writing.  May be
+     * called from any thread.
+     *
+     * @param payload
+     */
+    public void write(byte[] payload) {
+        if (closed) {
+            return;
+        }
+        pendingWrites.add(server.getProtocol().encode(payload));
+        server.requestWrite(this);
+    }
+
+    /**
+     * Closes the connection.  May be called from any thread.
+     */
+    public void close() {
+        server.closeConnection(this);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "remote ip = " + remoteAddress + ", remote port = " + remotePort + ", TLS = " + this.isSecure();
+    }
+
+    // Selector thread only (below).
+    /**
+     * Starts the TLS handshake (if needed).
+     *
+     * @throws IOException
+     */
+    void open() throws IOException {
+        if (sslEngine != null) {
+            sslEngine.beginHandshake();
+            this.handleHandshakeStatus(sslEngine.getHandshakeStatus());
+        }
+    }
+
+    /**
+     * Marks the connection closed; returns false if it was already closed.
+     *
+     * @return
+     */
+    synchronized boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        pendingWrites.clear();
+        return true;
+    }
+
+    /**
+     * Drops any frames not yet handled (after close).
+     *
+     * @return The number of frames dropped.
+     */
+    synchronized int discardPendingFrames() {
+        int count = pendingFrames.size();
+        pendingFrames.clear();
+        return count;
+    }
+
+    /**
+     * Reads available bytes and returns up to maxFrames complete frames (the
+     * rest stay buffered).
+     *
+     * @param maxFrames
+     * @return
+     * @throws IOException (EOFException when the peer closed the connection).
+     */
+    List<byte[]> read(int maxFrames) throws IOException {
+        if (sslEngine == null) {
+            this.ensureAppInCapacity();
+            if (channel.read(appIn) < 0) {
+                throw new EOFException("Connection closed by peer");
+            }
+        } else {
+            if (channel.read(netIn) < 0) {
+                throw new EOFException("Connection closed by peer");
+            }
+            this.unwrap();
+        }
+        return this.decode(maxFrames);
+    }
+
+    /**
+     * Returns up to maxFrames complete frames from the bytes already received
+     * (without reading from the socket).
+     *
+     * @param maxFrames
+     * @return
+     * @throws IOException
+     */
+    List<byte[]> decode(int maxFrames) throws IOException {
+        List<byte[]> frames = new ArrayList<byte[]>();
+        appIn.flip();
+        try {
+            byte[] frame;
+            while (frames.size() < maxFrames && (frame = decoder.decode(appIn)) != null) {
+                frames.add(frame);
+            }
+        } finally {
+            appIn.compact();
+        }
+        return frames;
+    }
+
+    /**
+     * Writes as much pending output as the socket will take.
+     *
+     * @return true if all pending output was written.
+     * @throws IOException
+     */
+    boolean flush() throws IOException {
+        if (sslEngine == null) {
+            ByteBuffer buffer;
+            while ((buffer = pendingWrites.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return false;  // Socket buffer is full.
+                }
+                pendingWrites.poll();
+            }
+            return true;
+        }
+        while (true) {
+            // Write out any encrypted bytes first.
+            netOut.flip();
+            channel.write(netOut);
+            boolean remaining = netOut.hasRemaining();
+            netOut.compact();
+            if (remaining) {
+                return false;  // Socket buffer is full.
+            }
+            if (this.isHandshaking()) {
+                return true;  // Application data waits for the handshake to complete.
+            }
+            ByteBuffer buffer = pendingWrites.peek();
+            if (buffer == null) {
+                return true;
+            }
+            SSLEngineResult result = sslEngine.wrap(buffer, netOut);
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                netOut = this.enlarge(netOut, sslEngine.getSession().getPacketBufferSize());
+                continue;
+            } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new EOFException("TLS session closed");
+            }
+            this.handleHandshakeStatus(result.getHandshakeStatus());
+            if (!buffer.hasRemaining()) {
+                pendingWrites.poll();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    boolean hasPendingOutput() {
+        return !pendingWrites.isEmpty() || (netOut != null && netOut.position() > 0);
+    }
+
+    /**
+     * Queues a received frame; returns true if the caller must schedule
+     * processing of the connection's frames.
+     *
+     * @param frame
+     * @return
+     */
+    synchronized boolean addFrame(byte[] frame) {
+        if (closed) {
+            return false;
+        }
+        pendingFrames.add(frame);
+        if (processing) {
+            return false;
+        }
+        processing = true;
+        return true;
+    }
+
+    /**
+     *
+     * @return The number of frames queued but not yet taken for processing.
+     */
+    synchronized int getPendingFrameCount() {
+        return pendingFrames.size();
+    }
+
+    /**
+     * Returns the next frame to process (or null, ending the processing run).
+     *
+     * @return
+     */
+    synchronized byte[] nextFrame() {
+        byte[] frame = closed ? null : pendingFrames.poll();
+        if (frame == null) {
+            processing = false;
+        }
+        return frame;
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    private void unwrap() throws IOException {
+        netIn.flip();
+        try {
+            while (netIn.hasRemaining()) {
+                SSLEngineResult result = sslEngine.unwrap(netIn, appIn);
+                SSLEngineResult.Status status = result.getStatus();
+                if (status == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    appIn = this.enlarge(appIn, sslEngine.getSession().getApplicationBufferSize());
+                    continue;
+                } else if (status == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    break;  // Need more bytes from the network.
+                } else if (status == SSLEngineResult.Status.CLOSED) {
+                    throw new EOFException("TLS session closed by peer");
+                }
+                this.handleHandshakeStatus(result.getHandshakeStatus());
+                if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                    break;
+                }
+            }
+        } finally {
+            netIn.compact();
+        }
+        if (!netIn.hasRemaining()) {
+            // A TLS record larger than the buffer is arriving.
+            netIn = this.enlarge(netIn, sslEngine.getSession().getPacketBufferSize());
+        }
+    }
+
+    /**
+     *
+     * @param handshakeStatus
+     * @throws SSLException
+     */
+    private void handleHandshakeStatus(HandshakeStatus handshakeStatus) throws SSLException {
+        while (true) {
+            if (handshakeStatus == HandshakeStatus.NEED_TASK) {
+                Runnable task;
+                while ((task = sslEngine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+                handshakeStatus = sslEngine.getHandshakeStatus();
+            } else if (handshakeStatus == HandshakeStatus.NEED_WRAP) {
+                SSLEngineResult result = sslEngine.wrap(EMPTY_BUFFER, netOut);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    netOut = this.enlarge(netOut, sslEngine.getSession().getPacketBufferSize());
+                } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("TLS session closed during handshake");
+                }
+                handshakeStatus = result.getHandshakeStatus();
+            } else {
+                if (handshakeStatus == HandshakeStatus.FINISHED && logger.isDebugEnabled()) {
+                    logger.debug("TLS handshake completed (" + this + ", cipher suite = "
+                            + sslEngine.getSession().getCipherSuite() + ")");
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private boolean isHandshaking() {
+        HandshakeStatus handshakeStatus = sslEngine.getHandshakeStatus();
+        return handshakeStatus != HandshakeStatus.NOT_HANDSHAKING
+                && handshakeStatus != HandshakeStatus.FINISHED;
+    }
+
+    /**
+     * Grows the plain text buffer when it is full (a frame larger than the
+     * buffer is arriving).  The frame decoder bounds the maximum size.
+     */
+    private void ensureAppInCapacity() {
+        if (!appIn.hasRemaining()) {
+            appIn = this.enlarge(appIn, appIn.capacity());
+        }
+    }
+
+    /**
+     * Returns a larger buffer (in "write" mode) holding the contents of the given buffer.
+     *
+     * @param buffer
+     * @param minimumIncrease
+     * @return
+     */
+    private ByteBuffer enlarge(ByteBuffer buffer, int minimumIncrease) {
+        ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() + Math.max(minimumIncrease, buffer.capacity()));
+        buffer.flip();
+        newBuffer.put(buffer);
+        return newBuffer;
+    }
+}
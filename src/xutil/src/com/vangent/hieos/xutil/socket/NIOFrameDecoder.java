@@ -0,0 +1,34 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.socket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Extracts complete frames from the bytes received on a single connection.
+ * A decoder is created per connection and may keep state between calls.
+ */
+public interface NIOFrameDecoder {
+
+    /**
+     * Returns the next complete frame found in the buffer (in "read" mode), or
+     * null if more bytes are required.  Bytes belonging to a returned frame must
+     * be consumed from the buffer; bytes of a partial frame may be left in place.
+     *
+     * @param buffer
+     * @return
+     * @throws IOException if the stream is not properly framed.
+     */
+    public byte[] decode(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,42 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.socket;
+
+/**
+ * Application callback for an NIOServer.  handleFrame is invoked from the
+ * server's worker pool; frames from one connection are handled one at a time
+ * and in the order received.
+ */
+public interface NIOFrameHandler {
+
+    /**
+     *
+     * @param connection
+     */
+    public void connectionOpened(NIOConnection connection);
+
+    /**
+     *
+     * @param connection
+     * @param frame
+     * @return The response payload to send back (or null if no response).
+     * @throws Exception
+     */
+    public byte[] handleFrame(NIOConnection connection, byte[] frame) throws Exception;
+
+    /**
+     *
+     * @param connection
+     */
+    public void connectionClosed(NIOConnection connection);
+}
@@ -0,0 +1,34 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.socket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes how frames are delimited on the wire for an NIOServer.
+ */
+public interface NIOFrameProtocol {
+
+    /**
+     *
+     * @return A new decoder (one per connection).
+     */
+    public NIOFrameDecoder createDecoder();
+
+    /**
+     *
+     * @param payload
+     * @return The framed payload (ready to be written).
+     */
+    public ByteBuffer encode(byte[] payload);
+}
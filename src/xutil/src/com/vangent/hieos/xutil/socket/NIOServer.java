@@ -0,0 +1,558 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.apache.log4j.Logger;
+
+/**
+ * Selector based socket server.  A single thread accepts connections and
+ * reads/writes all sockets (performing TLS via SSLEngine if configured); complete
+ * frames are handed to a worker pool.  No thread is held by an idle connection.
+ * A connection is not read while it has too many frames waiting to be handled.
+ */
+public class NIOServer implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(NIOServer.class);
+    private static final int SHUTDOWN_TIMEOUT_MSEC = 500;
+    /**
+     * Frames queued for a connection before reading from it is suspended.
+     */
+    public static final int DEFAULT_MAX_PENDING_FRAMES_PER_CONNECTION = 8;
+    private final String name;
+    private final int port;
+    private final int backlog;
+    private final NIOFrameProtocol protocol;
+    private final NIOFrameHandler frameHandler;
+    private final ExecutorService workerPool;
+    private SSLContext sslContext = null;
+    private String[] cipherSuites = null;
+    private boolean needClientAuth = true;
+    private int maxPendingFramesPerConnection = DEFAULT_MAX_PENDING_FRAMES_PER_CONNECTION;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ExecutorService selectorThread;
+    private volatile boolean shuttingDown = false;
+    private final ConcurrentLinkedQueue<NIOConnection> writeRequests = new ConcurrentLinkedQueue<NIOConnection>();
+    private final ConcurrentHashMap<NIOConnection, SelectionKey> connections = new ConcurrentHashMap<NIOConnection, SelectionKey>();
+    // Statistics.
+    private final AtomicLong acceptedConnectionCount = new AtomicLong(0);
+    private final AtomicLong receivedFrameCount = new AtomicLong(0);
+    private final AtomicLong handledFrameCount = new AtomicLong(0);
+    private final AtomicLong failedFrameCount = new AtomicLong(0);
+    private final AtomicInteger pendingFrameCount = new AtomicInteger(0);
+    private final AtomicInteger maxPendingFrameCount = new AtomicInteger(0);
+
+    /**
+     *
+     * @param name Used for logging and thread names.
+     * @param port
+     * @param backlog
+     * @param protocol
+     * @param frameHandler
+     * @param workerPool Pool used to run the frame handler.
+     */
+    public NIOServer(String name, int port, int backlog, NIOFrameProtocol protocol,
+            NIOFrameHandler frameHandler, ExecutorService workerPool) {
+        this.name = name;
+        this.port = port;
+        this.backlog = backlog;
+        this.protocol = protocol;
+        this.frameHandler = frameHandler;
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * Enables TLS for accepted connections.
+     *
+     * @param sslContext
+     * @param cipherSuites (null to use the SSLContext defaults).
+     * @param needClientAuth
+     */
+    public void setTLS(SSLContext sslContext, String[] cipherSuites, boolean needClientAuth) {
+        this.sslContext = sslContext;
+        this.cipherSuites = cipherSuites;
+        this.needClientAuth = needClientAuth;
+    }
+
+    /**
+     * Sets the number of frames that may be queued (not yet handled) for a
+     * connection before the server stops reading from it.
+     *
+     * @param maxPendingFramesPerConnection
+     */
+    public void setMaxPendingFramesPerConnection(int maxPendingFramesPerConnection) {
+        this.maxPendingFramesPerConnection = Math.max(1, maxPendingFramesPerConnection);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public NIOFrameProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * 
+     * @throws IOException
+     */
+    public void startup() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(port), backlog);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        selectorThread = Executors.newSingleThreadExecutor();
+        selectorThread.submit(this);
+        logger.info(getVitals() + "listening (TLS = " + (sslContext != null) + ")");
+    }
+
+    /**
+     *
+     */
+    public void shutdownAndAwaitTermination() {
+        shuttingDown = true;
+        logger.info(getVitals() + "shutting down (" + this.getStatistics() + ")");
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            selectorThread.shutdown();
+            try {
+                if (!selectorThread.awaitTermination(SHUTDOWN_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                    selectorThread.shutdownNow();
+                    logger.warn(getVitals() + "selector thread terminated after forced shutdown!");
+                }
+            } catch (InterruptedException ex) {
+                selectorThread.shutdownNow();
+                logger.warn(getVitals() + "selector thread terminated after forced shutdown!", ex);
+            }
+        }
+        // Close all connections.
+        for (NIOConnection connection : connections.keySet()) {
+            this.closeConnection(connection);
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException ex) {
+            logger.error(getVitals() + "exception when closing socket", ex);
+        }
+    }
+
+    /**
+     * 
+     * @return
+     */
+    public int getOpenConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getAcceptedConnectionCount() {
+        return acceptedConnectionCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getReceivedFrameCount() {
+        return receivedFrameCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getHandledFrameCount() {
+        return handledFrameCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getFailedFrameCount() {
+        return failedFrameCount.get();
+    }
+
+    /**
+     * Frames received but not yet handled (across all connections).
+     *
+     * @return
+     */
+    public int getPendingFrameCount() {
+        return pendingFrameCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMaxPendingFrameCount() {
+        return maxPendingFrameCount.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getStatistics() {
+        return "open connections = " + getOpenConnectionCount()
+                + ", accepted connections = " + getAcceptedConnectionCount()
+                + ", received frames = " + getReceivedFrameCount()
+                + ", handled frames = " + getHandledFrameCount()
+                + ", failed frames = " + getFailedFrameCount()
+                + ", pending frames = " + getPendingFrameCount()
+                + ", max pending frames = " + getMaxPendingFrameCount();
+    }
+
+    /**
+     * 
+     */
+    public void run() {
+        logger.info(getVitals() + "selector thread started (thread = " + Thread.currentThread().getName() + ")");
+        while (!shuttingDown) {
+            try {
+                selector.select();
+                this.processWriteRequests();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        this.processKey(key);
+                    } catch (RuntimeException ex) {
+                        this.failConnection(key.attachment(), ex);
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                break;
+            } catch (IOException ex) {
+                if (!shuttingDown) {
+                    logger.error(getVitals() + "exception in selector loop", ex);
+                }
+            }
+        }
+        logger.info(getVitals() + "selector thread ended!");
+    }
+
+    // Package level (used by NIOConnection).
+    /**
+     * Asks the selector thread to flush pending output for the connection (and
+     * to update its interest set).
+     *
+     * @param connection
+     */
+    void requestWrite(NIOConnection connection) {
+        writeRequests.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     *
+     * @param connection
+     */
+    void closeConnection(NIOConnection connection) {
+        if (!connection.markClosed()) {
+            return;  // Already closed.
+        }
+        pendingFrameCount.addAndGet(-connection.discardPendingFrames());
+        SelectionKey key = connections.remove(connection);
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            if (connection.getSSLEngine() != null) {
+                connection.getSSLEngine().closeOutbound();
+            }
+            connection.getChannel().close();
+        } catch (IOException ex) {
+            logger.warn(getVitals() + "exception when closing connection (" + connection + ")", ex);
+        }
+        logger.info(getVitals() + "closed connection (" + connection + ")");
+        try {
+            frameHandler.connectionClosed(connection);
+        } catch (Exception ex) {
+            logger.error(getVitals() + "exception in connectionClosed", ex);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private String getVitals() {
+        return "NIOServer [" + name + ", port = " + port + "]: ";
+    }
+
+    /**
+     *
+     * @param key
+     * @throws IOException
+     */
+    private void processKey(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            this.accept();
+        } else {
+            NIOConnection connection = (NIOConnection) key.attachment();
+            if (key.isReadable()) {
+                this.read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                this.write(connection);
+            }
+        }
+    }
+
+    /**
+     * Handles an unexpected exception for a single key (e.g. a
+     * CancelledKeyException when a worker closed the connection, or a
+     * RejectedExecutionException from the worker pool) by closing only that
+     * connection; the selector thread keeps running.
+     *
+     * @param attachment
+     * @param ex
+     */
+    private void failConnection(Object attachment, RuntimeException ex) {
+        if (attachment instanceof NIOConnection) {
+            NIOConnection connection = (NIOConnection) attachment;
+            if (!shuttingDown) {
+                logger.warn(getVitals() + "closing connection (" + connection + ") after exception: " + ex);
+            }
+            this.closeConnection(connection);
+        } else if (!shuttingDown) {
+            logger.error(getVitals() + "exception in selector loop", ex);
+        }
+    }
+
+    /**
+     * 
+     * @throws IOException
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.socket().setKeepAlive(true);
+        SSLEngine sslEngine = null;
+        if (sslContext != null) {
+            sslEngine = sslContext.createSSLEngine();
+            sslEngine.setUseClientMode(false);
+            sslEngine.setNeedClientAuth(needClientAuth);
+            if (cipherSuites != null) {
+                sslEngine.setEnabledCipherSuites(cipherSuites);
+            }
+        }
+        NIOConnection connection = new NIOConnection(this, channel, sslEngine, protocol.createDecoder());
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.put(connection, key);
+        acceptedConnectionCount.incrementAndGet();
+        logger.info(getVitals() + "accepted connection (" + connection
+                + ", open connections = " + connections.size() + ")");
+        try {
+            frameHandler.connectionOpened(connection);
+            connection.open();
+            this.updateInterest(connection, key);
+        } catch (Exception ex) {
+            logger.error(getVitals() + "exception opening connection (" + connection + ")", ex);
+            this.closeConnection(connection);
+        }
+    }
+
+    /**
+     *
+     * @param connection
+     */
+    private void read(NIOConnection connection) {
+        int room = maxPendingFramesPerConnection - connection.getPendingFrameCount();
+        if (room <= 0) {
+            return;  // Reading is suspended (see updateInterest).
+        }
+        List<byte[]> frames;
+        try {
+            frames = connection.read(room);
+        } catch (EOFException ex) {
+            this.closeConnection(connection);
+            return;
+        } catch (IOException ex) {
+            logger.warn(getVitals() + "exception reading from connection (" + connection + "): " + ex.getMessage());
+            this.closeConnection(connection);
+            return;
+        }
+        this.queueFrames(connection, frames);
+        SelectionKey key = connections.get(connection);
+        if (key != null) {
+            this.updateInterest(connection, key);
+        }
+    }
+
+    /**
+     *
+     * @param connection
+     * @param frames
+     */
+    private void queueFrames(NIOConnection connection, List<byte[]> frames) {
+        for (byte[] frame : frames) {
+            receivedFrameCount.incrementAndGet();
+            this.recordPendingFrame(pendingFrameCount.incrementAndGet());
+            if (connection.addFrame(frame)) {
+                workerPool.execute(new FrameProcessor(connection));
+            }
+        }
+    }
+
+    /**
+     * 
+     * @param connection
+     */
+    private void write(NIOConnection connection) {
+        SelectionKey key = connections.get(connection);
+        if (key == null) {
+            return;  // Closed.
+        }
+        try {
+            connection.flush();
+            // Frames left buffered while reading was suspended.
+            int room = maxPendingFramesPerConnection - connection.getPendingFrameCount();
+            if (room > 0) {
+                this.queueFrames(connection, connection.decode(room));
+            }
+            this.updateInterest(connection, key);
+        } catch (IOException ex) {
+            logger.warn(getVitals() + "exception writing to connection (" + connection + "): " + ex.getMessage());
+            this.closeConnection(connection);
+        }
+    }
+
+    /**
+     * 
+     */
+    private void processWriteRequests() {
+        NIOConnection connection;
+        while ((connection = writeRequests.poll()) != null) {
+            try {
+                this.write(connection);
+            } catch (RuntimeException ex) {
+                this.failConnection(connection, ex);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param connection
+     * @param key
+     */
+    private void updateInterest(NIOConnection connection, SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        // Stop reading while the worker pool catches up (backpressure).
+        int ops = 0;
+        if (connection.getPendingFrameCount() < maxPendingFramesPerConnection) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.hasPendingOutput()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     *
+     * @param pending
+     */
+    private void recordPendingFrame(int pending) {
+        int currentMax;
+        do {
+            currentMax = maxPendingFrameCount.get();
+        } while (pending > currentMax && !maxPendingFrameCount.compareAndSet(currentMax, pending));
+    }
+
+    /**
+     * Handles the frames of one connection (in order) on a worker thread.
+     */
+    private class FrameProcessor implements Runnable {
+
+        private final NIOConnection connection;
+
+        /**
+         *
+         * @param connection
+         */
+        FrameProcessor(NIOConnection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         *
+         */
+        public void run() {
+            byte[] frame;
+            while ((frame = connection.nextFrame()) != null) {
+                pendingFrameCount.decrementAndGet();
+                try {
+                    byte[] response = frameHandler.handleFrame(connection, frame);
+                    handledFrameCount.incrementAndGet();
+                    if (response != null) {
+                        connection.write(response);
+                    } else {
+                        // Resume reading (if suspended).
+                        requestWrite(connection);
+                    }
+                } catch (Exception ex) {
+                    // No response can be sent; close the connection so that the
+                    // peer is not left waiting for one.
+                    failedFrameCount.incrementAndGet();
+                    logger.error(getVitals() + "exception handling frame (" + connection + ")", ex);
+                    closeConnection(connection);
+                }
+            }
+        }
+    }
+}
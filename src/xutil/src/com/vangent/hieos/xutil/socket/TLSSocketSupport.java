@@ -18,6 +18,7 @@ import javax.net.ServerSocketFactory;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.security.KeyStore;
@@ -96,7 +97,9 @@ public class TLSSocketSupport {
         try {
             log.debug("TLS CLIENT Establishing Connection");
             Socket clientSocket = getSecureClientSocket(hostname, port);
-            pw = new PrintWriter(clientSocket.getOutputStream(), true);
+            // Syslog frames are octet-counted in UTF-8 (see SysLogAdapter).
+            pw = new PrintWriter(new OutputStreamWriter(
+                    clientSocket.getOutputStream(), "UTF-8"), true);
             pw.print(message);
             //pw.close();
             log.debug("TLS Message Sent to Server");
@@ -162,6 +165,26 @@ public class TLSSocketSupport {
      * @throws Exception
      */
     public java.net.ServerSocket getSecureServerSocket(int port, int backlog, String[] cipherSuites) throws Exception {
+        SSLContext context = this.getServerSSLContext();
+        ServerSocketFactory serverSocketFactory = context.getServerSocketFactory();
+        SSLServerSocket socket = (SSLServerSocket) serverSocketFactory.createServerSocket(port, backlog);
+        socket.setNeedClientAuth(true);
+        socket.setEnabledCipherSuites(cipherSuites);
+        if (log.isTraceEnabled()) {
+            printCipherSuites(socket);
+        }
+        log.debug("+++++ TLS SOCKET CREATED (port = " + port + ") +++++");
+        return socket;
+    }
+
+    /**
+     * Returns an SSLContext initialized from the key/trust stores configured in
+     * the "javax.net.ssl.*" system properties (e.g. for use with an SSLEngine).
+     *
+     * @return
+     * @throws Exception
+     */
+    public SSLContext getServerSSLContext() throws Exception {
         // Get props.
         String keyStoreFileName = System.getProperty(KEY_STORE_FILE_NAME);
         String keyStorePassword = System.getProperty(KEY_STORE_PASSWORD);
@@ -175,15 +198,7 @@ public class TLSSocketSupport {
         SSLContext context = SSLContext.getInstance("TLS");
         //TODO investigate: could also be "SSLContext context = SSLContext.getInstance("TLS");" Why?
         context.init(keyManagers, trustManagers, null);
-        ServerSocketFactory serverSocketFactory = context.getServerSocketFactory();
-        SSLServerSocket socket = (SSLServerSocket) serverSocketFactory.createServerSocket(port, backlog);
-        socket.setNeedClientAuth(true);
-        socket.setEnabledCipherSuites(cipherSuites);
-        if (log.isTraceEnabled()) {
-            printCipherSuites(socket);
-        }
-        log.debug("+++++ TLS SOCKET CREATED (port = " + port + ") +++++");
-        return socket;
+        return context;
     }
 
     /**
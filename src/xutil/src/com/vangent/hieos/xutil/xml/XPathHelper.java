@@ -14,17 +14,55 @@ package com.vangent.hieos.xutil.xml;
 
 import com.vangent.hieos.xutil.exception.XPathHelperException;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.xpath.AXIOMXPath;
 import org.jaxen.JaxenException;
 
 /**
- * A utility to simplify XPath usage.
+ * A utility to simplify XPath usage.  Compiled XPath expressions are cached
+ * (keyed by expression and namespace bindings) and shared across threads; they
+ * are never modified once placed in the cache.
  *
  * @author Bernie Thuman
  */
 public class XPathHelper {
 
+    // Upper bound on the compiled expressions kept (the cache is cleared when reached).
+    private static final int MAX_CACHED_EXPRESSIONS = 2000;
+    private static final ConcurrentHashMap<String, AXIOMXPath> _xpathCache = new ConcurrentHashMap<String, AXIOMXPath>();
+
+    /**
+     * Return a compiled XPath expression (from the cache if available).
+     *
+     * @param xpathExpression The XPATH expression.
+     * @param namespacePrefixes List of namespace prefixes.
+     * @param namespaceURIs List of namespace URIs (parallel array to namespacePrefixes).
+     * @return AXIOMXPath
+     * @throws JaxenException
+     */
+    static public AXIOMXPath getXPath(
+            String xpathExpression, String[] namespacePrefixes, String[] namespaceURIs) throws JaxenException {
+        StringBuilder sb = new StringBuilder(xpathExpression);
+        for (int i = 0; i < namespacePrefixes.length; i++) {
+            sb.append('\n').append(namespacePrefixes[i]).append('=').append(namespaceURIs[i]);
+        }
+        String key = sb.toString();
+        AXIOMXPath xpath = _xpathCache.get(key);
+        if (xpath == null) {
+            xpath = new AXIOMXPath(xpathExpression);
+            for (int i = 0; i < namespacePrefixes.length; i++) {
+                xpath.addNamespace(namespacePrefixes[i], namespaceURIs[i]);
+            }
+            if (_xpathCache.size() >= MAX_CACHED_EXPRESSIONS) {
+                // Expressions are likely being built dynamically; start over.
+                _xpathCache.clear();
+            }
+            _xpathCache.put(key, xpath);
+        }
+        return xpath;
+    }
+
     /**
      * Return a single OMElement given the XPATH expression.
      *
@@ -57,10 +95,7 @@ public class XPathHelper {
             OMElement rootNode, String xpathExpression, String[] namespacePrefixes, String[] namespaceURIs) throws XPathHelperException {
         OMElement resultNode = null;
         try {
-            AXIOMXPath xpath = new AXIOMXPath(xpathExpression);
-            for (int i = 0; i < namespacePrefixes.length; i++) {
-                xpath.addNamespace(namespacePrefixes[i], namespaceURIs[i]);
-            }
+            AXIOMXPath xpath = XPathHelper.getXPath(xpathExpression, namespacePrefixes, namespaceURIs);
             resultNode = (OMElement) xpath.selectSingleNode(rootNode);
         } catch (JaxenException e) {
             throw new XPathHelperException(e.getMessage());
@@ -99,10 +134,7 @@ public class XPathHelper {
             OMElement rootNode, String xpathExpression, String[] namespacePrefixes, String[] namespaceURIs) throws XPathHelperException {
         List resultNodes = null;
         try {
-            AXIOMXPath xpath = new AXIOMXPath(xpathExpression);
-            for (int i = 0; i < namespacePrefixes.length; i++) {
-                xpath.addNamespace(namespacePrefixes[i], namespaceURIs[i]);
-            }
+            AXIOMXPath xpath = XPathHelper.getXPath(xpathExpression, namespacePrefixes, namespaceURIs);
             resultNodes = xpath.selectNodes(rootNode);
         } catch (JaxenException e) {
             throw new XPathHelperException(e.getMessage());
@@ -142,10 +174,7 @@ public class XPathHelper {
 
         String result = null;
         try {
-            AXIOMXPath xpath = new AXIOMXPath(xpathExpression);
-            for (int i = 0; i < namespacePrefixes.length; i++) {
-                xpath.addNamespace(namespacePrefixes[i], namespaceURIs[i]);
-            }
+            AXIOMXPath xpath = XPathHelper.getXPath(xpathExpression, namespacePrefixes, namespaceURIs);
             result = xpath.stringValueOf(rootNode);
         } catch (JaxenException e) {
             throw new XPathHelperException(e.getMessage());
@@ -0,0 +1,103 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.xua.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds SAML assertions issued by the STS so they can be reused for subsequent
+ * outbound requests made on behalf of the same principal (and claims).  An
+ * assertion is reused until shortly before its NotOnOrAfter time.
+ */
+public class IssuedTokenCache {
+
+    private final int maxEntries;
+    private final long refreshMargin;
+    private final Map<String, Entry> entries;
+
+    /**
+     *
+     * @param maxEntries
+     * @param refreshMargin Time (in milliseconds) before expiry at which a new token is requested.
+     */
+    public IssuedTokenCache(int maxEntries, long refreshMargin) {
+        this.maxEntries = maxEntries;
+        this.refreshMargin = refreshMargin;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     *
+     * @param key
+     * @return The cached assertion (serialized) or null if none can be reused.
+     */
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.notOnOrAfter - refreshMargin <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.assertion;
+    }
+
+    /**
+     *
+     * @param key
+     * @param assertion
+     * @param notOnOrAfter
+     */
+    public synchronized void put(String key, String assertion, long notOnOrAfter) {
+        if (maxEntries <= 0 || notOnOrAfter - refreshMargin <= System.currentTimeMillis()) {
+            return;  // Would not be reused.
+        }
+        if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+            // Evict least recently used.
+            Iterator<String> it = entries.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+        entries.put(key, new Entry(assertion, notOnOrAfter));
+    }
+
+    /**
+     *
+     * @param key
+     */
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     *
+     */
+    private static class Entry {
+
+        final String assertion;
+        final long notOnOrAfter;
+
+        /**
+         *
+         * @param assertion
+         * @param notOnOrAfter
+         */
+        Entry(String assertion, long notOnOrAfter) {
+            this.assertion = assertion;
+            this.notOnOrAfter = notOnOrAfter;
+        }
+    }
+}
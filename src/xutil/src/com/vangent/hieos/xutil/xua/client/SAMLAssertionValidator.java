@@ -0,0 +1,297 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.xua.client;
+
+import com.vangent.hieos.xutil.xconfig.XConfigActor;
+import com.vangent.hieos.xutil.xml.XMLParser;
+import com.vangent.hieos.xutil.xua.utils.KeyStoreCache;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+import javax.xml.namespace.QName;
+import org.apache.axiom.om.OMElement;
+import org.apache.log4j.Logger;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Validates a SAML 2.0 assertion in-process (without a round trip to the STS):
+ * the assertion's Conditions are checked and its enveloped signature is verified
+ * using either the X.509 certificate supplied in the signature's KeyInfo (which
+ * must chain to the trust store) or the STS issuer certificate held in the trust
+ * store.  Only a positive result is conclusive; callers should defer to the STS
+ * when this validator does not accept the assertion.  As in the SAML signature
+ * profile (see OpenSAML's SAMLSignatureProfileValidator), the reference may only
+ * use the enveloped-signature and exclusive canonicalization transforms, and the
+ * signature is validated in secure validation mode.  Not thread-safe; create
+ * one per validation.
+ */
+public class SAMLAssertionValidator {
+
+    private final static Logger logger = Logger.getLogger(SAMLAssertionValidator.class);
+    private static final String SAML2_NS = "urn:oasis:names:tc:SAML:2.0:assertion";
+    private static final String DEFAULT_ISSUER_ALIAS = "s1as";
+    private static final String SECURE_VALIDATION = "org.jcp.xml.dsig.secureValidation";
+    private static final Set<String> ALLOWED_TRANSFORMS = new HashSet<String>(Arrays.asList(
+            Transform.ENVELOPED, CanonicalizationMethod.EXCLUSIVE,
+            CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS));
+    private final String trustStoreFileName;
+    private final String trustStorePassword;
+    private final String issuerAlias;
+    private String failureReason = null;
+
+    /**
+     *
+     * @param stsConfig
+     */
+    public SAMLAssertionValidator(XConfigActor stsConfig) {
+        String value = stsConfig.getProperty("TrustStore");
+        trustStoreFileName = value != null ? value : System.getProperty("javax.net.ssl.trustStore");
+        value = stsConfig.getProperty("TrustStorePassword");
+        trustStorePassword = value != null ? value : System.getProperty("javax.net.ssl.trustStorePassword");
+        value = stsConfig.getProperty("IssuerAlias");
+        issuerAlias = value != null ? value : DEFAULT_ISSUER_ALIAS;
+    }
+
+    /**
+     *
+     * @param assertion
+     * @return true if the assertion is valid (false if invalid or could not be determined).
+     */
+    public boolean validate(OMElement assertion) {
+        failureReason = null;
+        try {
+            Element assertionElement = XMLParser.convertOMToDOM(assertion);
+
+            // Validate conditions (if they exist).
+            Element conditions = SAMLAssertionValidator.getChildElement(assertionElement, SAML2_NS, "Conditions");
+            if (conditions != null) {
+                long now = System.currentTimeMillis();
+                long notBefore = SAMLAssertionValidator.getTime(conditions, "NotBefore");
+                if (notBefore != -1 && notBefore > now) {
+                    failureReason = "Assertion not valid yet";
+                    return false;
+                }
+                long notOnOrAfter = SAMLAssertionValidator.getTime(conditions, "NotOnOrAfter");
+                if (notOnOrAfter != -1 && notOnOrAfter <= now) {
+                    failureReason = "Assertion expired";
+                    return false;
+                }
+            }
+
+            // Locate the enveloped signature.
+            Element signatureElement = SAMLAssertionValidator.getChildElement(assertionElement, XMLSignature.XMLNS, "Signature");
+            if (signatureElement == null) {
+                failureReason = "Assertion is not signed";
+                return false;
+            }
+            String assertionId = assertionElement.getAttributeNS(null, "ID");
+            if (assertionId == null || assertionId.length() == 0) {
+                failureReason = "Assertion has no ID";
+                return false;
+            }
+            assertionElement.setIdAttributeNS(null, "ID", true);
+
+            KeyStore trustStore = KeyStoreCache.getKeyStore(trustStoreFileName, trustStorePassword);
+            DOMValidateContext validateContext = new DOMValidateContext(new TrustStoreKeySelector(trustStore), signatureElement);
+            validateContext.setProperty(SECURE_VALIDATION, Boolean.TRUE);
+            XMLSignatureFactory signatureFactory = XMLSignatureFactory.getInstance("DOM");
+            XMLSignature signature = signatureFactory.unmarshalXMLSignature(validateContext);
+
+            // The signature must cover the assertion itself (and nothing else).
+            List<?> references = signature.getSignedInfo().getReferences();
+            if (references.size() != 1
+                    || !("#" + assertionId).equals(((Reference) references.get(0)).getURI())) {
+                failureReason = "Signature does not reference the assertion";
+                return false;
+            }
+            List<?> transforms = ((Reference) references.get(0)).getTransforms();
+            if (transforms.size() > 2) {
+                failureReason = "Signature reference has too many transforms";
+                return false;
+            }
+            for (Object transform : transforms) {
+                String algorithm = ((Transform) transform).getAlgorithm();
+                if (!ALLOWED_TRANSFORMS.contains(algorithm)) {
+                    failureReason = "Signature reference uses an unsupported transform: " + algorithm;
+                    return false;
+                }
+            }
+            if (!signature.validate(validateContext)) {
+                failureReason = "Signature is not valid";
+                return false;
+            }
+            return true;
+        } catch (Exception ex) {
+            failureReason = "Unable to validate Assertion: " + ex.getMessage();
+            if (logger.isDebugEnabled()) {
+                logger.debug("XUA: Local assertion validation failed", ex);
+            }
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @return reason the last assertion was not accepted (or null).
+     */
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    /**
+     *
+     * @param assertion
+     * @return NotOnOrAfter time (in milliseconds) of the assertion or -1 if not present.
+     */
+    public static long getNotOnOrAfter(OMElement assertion) {
+        OMElement conditions = assertion.getFirstChildWithName(new QName(SAML2_NS, "Conditions"));
+        if (conditions != null) {
+            String value = conditions.getAttributeValue(new QName("NotOnOrAfter"));
+            if (value != null) {
+                try {
+                    return DatatypeConverter.parseDateTime(value.trim()).getTimeInMillis();
+                } catch (IllegalArgumentException ex) {
+                    logger.warn("XUA: Invalid NotOnOrAfter value: " + value);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param element
+     * @param attributeName
+     * @return
+     */
+    private static long getTime(Element element, String attributeName) {
+        String value = element.getAttributeNS(null, attributeName);
+        if (value == null || value.length() == 0) {
+            return -1;
+        }
+        return DatatypeConverter.parseDateTime(value.trim()).getTimeInMillis();
+    }
+
+    /**
+     *
+     * @param parent
+     * @param namespaceURI
+     * @param localName
+     * @return
+     */
+    private static Element getChildElement(Element parent, String namespaceURI, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE
+                    && namespaceURI.equals(node.getNamespaceURI())
+                    && localName.equals(node.getLocalName())) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects the signature validation key: a KeyInfo certificate chaining to the
+     * trust store, else the issuer certificate from the trust store.
+     */
+    private class TrustStoreKeySelector extends KeySelector {
+
+        private final KeyStore trustStore;
+
+        /**
+         *
+         * @param trustStore
+         */
+        TrustStoreKeySelector(KeyStore trustStore) {
+            this.trustStore = trustStore;
+        }
+
+        /**
+         *
+         * @param keyInfo
+         * @param purpose
+         * @param method
+         * @param context
+         * @return
+         * @throws KeySelectorException
+         */
+        public KeySelectorResult select(KeyInfo keyInfo, KeySelector.Purpose purpose,
+                AlgorithmMethod method, XMLCryptoContext context) throws KeySelectorException {
+            try {
+                X509Certificate certificate = this.getCertificate(keyInfo);
+                if (certificate != null) {
+                    certificate.checkValidity();
+                    KeyStoreCache.validateCertificatePath(certificate, trustStore);
+                } else {
+                    Certificate issuerCertificate = trustStore.getCertificate(issuerAlias);
+                    if (!(issuerCertificate instanceof X509Certificate)) {
+                        throw new KeySelectorException("No certificate found for issuer alias " + issuerAlias);
+                    }
+                    certificate = (X509Certificate) issuerCertificate;
+                }
+                final Key key = certificate.getPublicKey();
+                return new KeySelectorResult() {
+
+                    public Key getKey() {
+                        return key;
+                    }
+                };
+            } catch (KeySelectorException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new KeySelectorException(ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         *
+         * @param keyInfo
+         * @return
+         */
+        private X509Certificate getCertificate(KeyInfo keyInfo) {
+            if (keyInfo == null) {
+                return null;
+            }
+            for (Object content : keyInfo.getContent()) {
+                if (content instanceof X509Data) {
+                    for (Object x509Content : ((X509Data) content).getContent()) {
+                        if (x509Content instanceof X509Certificate) {
+                            return (X509Certificate) x509Content;
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.xua.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers SAML assertions that have already been validated (by the STS or
+ * locally) so that repeated use of the same assertion does not require another
+ * validation.  Entries are keyed by assertion ID, carry a digest of the assertion
+ * (so a different assertion reusing the same ID is not accepted) and are honored
+ * until the assertion's NotOnOrAfter time.
+ */
+public class ValidatedAssertionCache {
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    /**
+     *
+     * @param maxEntries
+     */
+    public ValidatedAssertionCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     *
+     * @param assertionId
+     * @param digest
+     * @return true if the assertion was previously validated and has not expired.
+     */
+    public synchronized boolean isValidated(String assertionId, String digest) {
+        Entry entry = entries.get(assertionId);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.notOnOrAfter <= System.currentTimeMillis()) {
+            entries.remove(assertionId);
+            return false;
+        }
+        return entry.digest.equals(digest);
+    }
+
+    /**
+     *
+     * @param assertionId
+     * @param digest
+     * @param notOnOrAfter
+     */
+    public synchronized void put(String assertionId, String digest, long notOnOrAfter) {
+        long now = System.currentTimeMillis();
+        if (maxEntries <= 0 || notOnOrAfter <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            this.purgeExpired(now);
+            if (entries.size() >= maxEntries) {
+                // Evict least recently used.
+                Iterator<String> it = entries.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+        entries.put(assertionId, new Entry(digest, notOnOrAfter));
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     *
+     * @param now
+     */
+    private void purgeExpired(long now) {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().notOnOrAfter <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    private static class Entry {
+
+        final String digest;
+        final long notOnOrAfter;
+
+        /**
+         *
+         * @param digest
+         * @param notOnOrAfter
+         */
+        Entry(String digest, long notOnOrAfter) {
+            this.digest = digest;
+            this.notOnOrAfter = notOnOrAfter;
+        }
+    }
+}
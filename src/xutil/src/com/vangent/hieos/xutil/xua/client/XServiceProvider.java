@@ -23,6 +23,7 @@ import com.vangent.hieos.xutil.xua.utils.XUAConstants;
 import com.vangent.hieos.xutil.xua.utils.XUAUtil;
 
 import java.net.URISyntaxException;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.namespace.QName;
@@ -34,6 +35,7 @@ import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axiom.soap.SOAPHeader;
 import org.apache.axiom.soap.SOAPHeaderBlock;
 import org.apache.axis2.context.MessageContext;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.log4j.Logger;
 
 /**
@@ -41,7 +43,8 @@ import org.apache.log4j.Logger;
  * on its service request. It has a responsibility to validate the Assertion token
  * by sending it to X-Assertion Provider. It initializes the X-ServiceProviderClient
  * which constructs the SOAP message with received token and send it to STS for
- * validation.
+ * validation.  Assertions may optionally be validated in-process (see
+ * SAMLAssertionValidator) and validated assertions are cached until they expire.
  * 
  * @author Fred Aabedi / Bernie Thuman
  */
@@ -49,6 +52,9 @@ public class XServiceProvider {
 
     private final static Logger logger = Logger.getLogger(XServiceProvider.class);
     private static XConfigActor _stsConfig = null;
+    private static ValidatedAssertionCache _validatedAssertionCache = null;
+    // Maximum number of validated assertions remembered (least recently used are evicted).
+    private static final int DEFAULT_VALIDATED_ASSERTION_CACHE_SIZE = 1000;
 
     public enum Status {
 
@@ -110,10 +116,8 @@ public class XServiceProvider {
         if (logMessage.isLogEnabled()) {
             logMessage.addSOAPParam("XUA:SAMLAssertion", assertion.toString());
         }
-        // Now validate the SAML token for validatity against the STS:
-
-        // send the assertion for validation to STS
-        boolean validationStatus = this.validateToken(XServiceProvider.getSTSConfig(), assertion);
+        // Now validate the SAML token (cache, then locally if enabled, then against the STS).
+        boolean validationStatus = this.validateAssertion(XServiceProvider.getSTSConfig(), assertion);
         if (logMessage.isLogEnabled()) {
             logMessage.addSOAPParam("XUA:Validation_Status", validationStatus);
         }
@@ -141,6 +145,84 @@ public class XServiceProvider {
         return _stsConfig;
     }
 
+    /**
+     *
+     * @param stsConfig
+     * @return
+     */
+    private static synchronized ValidatedAssertionCache getValidatedAssertionCache(XConfigActor stsConfig) {
+        if (_validatedAssertionCache == null) {
+            int maxEntries = DEFAULT_VALIDATED_ASSERTION_CACHE_SIZE;
+            String maxEntriesText = stsConfig.getProperty("ValidatedTokenCacheSize");
+            if (maxEntriesText != null) {
+                maxEntries = Integer.parseInt(maxEntriesText.trim());
+            }
+            _validatedAssertionCache = new ValidatedAssertionCache(maxEntries);
+        }
+        return _validatedAssertionCache;
+    }
+
+    /**
+     * Validate the assertion.  Assertions already validated (and not yet expired)
+     * are accepted from the cache.  Otherwise, the assertion is validated locally
+     * (if enabled) and, failing that, by the STS.
+     *
+     * @param stsConfig
+     * @param assertion
+     * @return
+     * @throws SOAPFaultException
+     */
+    private boolean validateAssertion(XConfigActor stsConfig, OMElement assertion) throws SOAPFaultException {
+        ValidatedAssertionCache cache = null;
+        String assertionId = assertion.getAttributeValue(new QName("ID"));
+        long notOnOrAfter = SAMLAssertionValidator.getNotOnOrAfter(assertion);
+        String digest = null;
+        if (stsConfig.getPropertyAsBoolean("ValidatedTokenCacheEnabled", true)
+                && assertionId != null && notOnOrAfter != -1) {
+            cache = XServiceProvider.getValidatedAssertionCache(stsConfig);
+            digest = XServiceProvider.getDigest(assertion.toString());
+            if (cache.isValidated(assertionId, digest)) {
+                logMessage.addSOAPParam("XUA:Validation_Source", "cache");
+                return true;
+            }
+        }
+        boolean validationStatus = false;
+        if (stsConfig.getPropertyAsBoolean("LocalTokenValidationEnabled", false)) {
+            SAMLAssertionValidator validator = new SAMLAssertionValidator(stsConfig);
+            validationStatus = validator.validate(assertion);
+            if (validationStatus) {
+                logMessage.addSOAPParam("XUA:Validation_Source", "local");
+            } else if (logMessage.isLogEnabled()) {
+                logMessage.addSOAPParam("XUA:Note", "Local validation not conclusive ("
+                        + validator.getFailureReason() + "), using STS");
+            }
+        }
+        if (!validationStatus) {
+            // send the assertion for validation to STS
+            validationStatus = this.validateToken(stsConfig, assertion);
+            logMessage.addSOAPParam("XUA:Validation_Source", "sts");
+        }
+        if (validationStatus && cache != null) {
+            cache.put(assertionId, digest, notOnOrAfter);
+        }
+        return validationStatus;
+    }
+
+    /**
+     *
+     * @param text
+     * @return
+     * @throws SOAPFaultException
+     */
+    private static String getDigest(String text) throws SOAPFaultException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return new String(Hex.encodeHex(md.digest(text.getBytes("UTF-8"))));
+        } catch (Exception ex) {
+            throw new SOAPFaultException("XUA:Exception: Unable to compute assertion digest: " + ex.getMessage());
+        }
+    }
+
     /**
      *
      * @param mc
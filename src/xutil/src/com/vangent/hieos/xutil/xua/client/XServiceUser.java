@@ -13,13 +13,16 @@
 package com.vangent.hieos.xutil.xua.client;
 
 import com.vangent.hieos.xutil.exception.SOAPFaultException;
+import com.vangent.hieos.xutil.exception.XMLParserException;
 import com.vangent.hieos.xutil.exception.XPathHelperException;
 import com.vangent.hieos.xutil.template.TemplateUtil;
+import com.vangent.hieos.xutil.xml.XMLParser;
 import com.vangent.hieos.xutil.xml.XPathHelper;
 import com.vangent.hieos.xutil.xua.utils.XUAConstants;
 import com.vangent.hieos.xutil.xua.utils.XUAObject;
 import com.vangent.hieos.xutil.xua.utils.XUAUtil;
 import java.net.URISyntaxException;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.namespace.QName;
@@ -29,6 +32,7 @@ import org.apache.axiom.om.util.ElementHelper;
 import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axiom.soap.SOAPHeaderBlock;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.log4j.Logger;
 
 /**
@@ -42,6 +46,10 @@ import org.apache.log4j.Logger;
 public class XServiceUser {
 
     private final static Logger logger = Logger.getLogger(XServiceUser.class);
+    // Maximum number of issued tokens kept for reuse (least recently used are evicted).
+    private static final int MAX_CACHED_TOKENS = 1000;
+    private static final long TOKEN_REFRESH_MARGIN = 60 * 1000;  // 1 min before expiry.
+    private static final IssuedTokenCache _issuedTokenCache = new IssuedTokenCache(MAX_CACHED_TOKENS, TOKEN_REFRESH_MARGIN);
 
     /**
      * Constructor
@@ -179,6 +187,70 @@ public class XServiceUser {
         return response;
     }
 
+    /**
+     * Get SAML assertion for the principal (and claims) in the given XUAObject.
+     * An assertion previously issued by the STS for the same principal, claims
+     * and service is reused until shortly before it expires (if enabled on the
+     * XUAObject); otherwise a new one is requested from the STS.
+     *
+     * @param xuaObject Holds relevant data.
+     * @return SAML assertion (a new element for each call).
+     * @throws SOAPFaultException
+     */
+    public OMElement getSAMLAssertion(XUAObject xuaObject) throws SOAPFaultException {
+        String cacheKey = null;
+        if (xuaObject.isTokenReuseEnabled()) {
+            cacheKey = XServiceUser.getTokenCacheKey(xuaObject);
+            String cachedAssertion = _issuedTokenCache.get(cacheKey);
+            if (cachedAssertion != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("XUA: Reusing SAML token previously issued by the STS");
+                }
+                try {
+                    return XMLParser.stringToOM(cachedAssertion);
+                } catch (XMLParserException ex) {
+                    _issuedTokenCache.remove(cacheKey);  // Fall through and get new token.
+                }
+            }
+        }
+        SOAPEnvelope responseEnvelope = this.getToken(xuaObject);
+        if (logger.isDebugEnabled()) {
+            logger.debug("XUA: STS Response: " + responseEnvelope.toString());
+        }
+        OMElement assertion = this.getTokenFromSTSResponse(responseEnvelope);
+        if (cacheKey != null) {
+            long notOnOrAfter = SAMLAssertionValidator.getNotOnOrAfter(assertion);
+            if (notOnOrAfter != -1) {
+                _issuedTokenCache.put(cacheKey, assertion.toString(), notOnOrAfter);
+            }
+        }
+        return assertion;
+    }
+
+    /**
+     *
+     * @param xuaObject
+     * @return
+     * @throws SOAPFaultException
+     */
+    private static String getTokenCacheKey(XUAObject xuaObject) throws SOAPFaultException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(xuaObject.getSTSUrl()).append('|');
+        sb.append(xuaObject.getSTSUri()).append('|');
+        sb.append(xuaObject.getUserName()).append('|');
+        sb.append(xuaObject.getPassword()).append('|');
+        sb.append(xuaObject.getClientCertBase64Encoded()).append('|');
+        OMElement claims = xuaObject.getClaims();
+        sb.append(claims != null ? claims.toString() : null);
+        try {
+            // Digest, so credentials are not held in the cache.
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return new String(Hex.encodeHex(md.digest(sb.toString().getBytes("UTF-8"))));
+        } catch (Exception ex) {
+            throw new SOAPFaultException("XUA:Exception: Unable to compute token cache key: " + ex.getMessage());
+        }
+    }
+
     /**
      * Get SAML token from the response SOAP Envelope
      * @param envelope soap Envelope
@@ -86,12 +86,8 @@ public class XUAOutPhaseHandler extends AbstractHandler {
         // Continue to get the assertion from the STS
         XServiceUser xServiceUser = new XServiceUser();
         try {
-            // Get the SAML assertion from the STS provider (for the given user):
-            SOAPEnvelope responseEnvelope = xServiceUser.getToken(this.xuaObject);
-            if (logger.isDebugEnabled()) {
-                logger.debug("XUA: XUAOutPhaseHandler::invoke - STS Response: " + responseEnvelope.toString());
-            }
-            OMElement samlTokenEle = xServiceUser.getTokenFromSTSResponse(responseEnvelope);
+            // Get the SAML assertion from the STS provider (for the given user) or token cache:
+            OMElement samlTokenEle = xServiceUser.getSAMLAssertion(this.xuaObject);
             if (logger.isDebugEnabled()) {
                 logger.debug("XUA: XUAOutPhaseHandler::invoke - SAML Token: " + samlTokenEle.toString());
             }
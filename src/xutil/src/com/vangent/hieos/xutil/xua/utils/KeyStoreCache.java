@@ -0,0 +1,187 @@
+/*
+ * This code is subject to the HIEOS License, Version 1.0
+ *
+ * Copyright(c) 2013 Vangent, Inc.  All rights reserved.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vangent.hieos.xutil.xua.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches key/trust stores loaded from disk (reloaded only when the file changes)
+ * along with the PKIX parameters built from a trust store and the outcome of
+ * certificate path validations against it.
+ */
+public class KeyStoreCache {
+
+    private final static Logger logger = Logger.getLogger(KeyStoreCache.class);
+    // Validated certificate paths are trusted for this long before being re-validated.
+    private static final long VALIDATED_CERTIFICATE_TTL = 10 * 60 * 1000;  // 10 mins.
+    private static final int MAX_VALIDATED_CERTIFICATES = 1000;
+    private static final Map<String, CachedKeyStore> _keyStores = new HashMap<String, CachedKeyStore>();
+    private static final Map<KeyStore, TrustAnchors> _trustAnchors = new WeakHashMap<KeyStore, TrustAnchors>();
+
+    /**
+     *
+     */
+    private KeyStoreCache() {
+        // Do not allow.
+    }
+
+    /**
+     * Return the key store held in the given file.  The store is only loaded
+     * from disk the first time or when the file has been modified since.  Callers
+     * must not modify the returned key store.
+     *
+     * @param fileName
+     * @param password
+     * @return
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public static KeyStore getKeyStore(String fileName, String password) throws IOException, GeneralSecurityException {
+        if (fileName == null) {
+            throw new IOException("No key store file name specified");
+        }
+        long lastModified = new File(fileName).lastModified();
+        String key = fileName + "|" + password;
+        synchronized (_keyStores) {
+            CachedKeyStore cached = _keyStores.get(key);
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached.keyStore;
+            }
+        }
+        KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
+        char[] pw = password != null ? password.toCharArray() : null;
+        FileInputStream fis = new FileInputStream(fileName);
+        try {
+            ks.load(fis, pw);
+        } finally {
+            fis.close();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Loaded key store " + fileName);
+        }
+        synchronized (_keyStores) {
+            _keyStores.put(key, new CachedKeyStore(ks, lastModified));
+        }
+        return ks;
+    }
+
+    /**
+     * Validate the certificate path of the given certificate against the trust
+     * anchors in the given trust store (revocation checking is disabled).
+     * Successful validations are remembered for a short time, keyed by the
+     * certificate's fingerprint.  Date validity of the certificate itself is
+     * left to the caller.
+     *
+     * @param cert
+     * @param trustStore
+     * @throws GeneralSecurityException
+     */
+    public static void validateCertificatePath(X509Certificate cert, KeyStore trustStore) throws GeneralSecurityException {
+        TrustAnchors trustAnchors;
+        synchronized (_trustAnchors) {
+            trustAnchors = _trustAnchors.get(trustStore);
+            if (trustAnchors == null) {
+                PKIXParameters params = new PKIXParameters(trustStore);
+                // Revocation (CRL/OCSP) is not checked.
+                params.setRevocationEnabled(false);
+                trustAnchors = new TrustAnchors(params);
+                _trustAnchors.put(trustStore, trustAnchors);
+            }
+        }
+        String fingerprint = KeyStoreCache.getFingerprint(cert);
+        long now = System.currentTimeMillis();
+        synchronized (trustAnchors) {
+            Long validUntil = trustAnchors.validated.get(fingerprint);
+            if (validUntil != null && validUntil.longValue() > now) {
+                return;  // Already validated.
+            }
+        }
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        List<X509Certificate> certs = new ArrayList<X509Certificate>();
+        certs.add(cert);
+        CertPath cp = cf.generateCertPath(certs);
+        CertPathValidator cpv = CertPathValidator.getInstance(CertPathValidator.getDefaultType());
+        cpv.validate(cp, trustAnchors.params);
+        long validUntil = Math.min(now + VALIDATED_CERTIFICATE_TTL, cert.getNotAfter().getTime());
+        synchronized (trustAnchors) {
+            if (trustAnchors.validated.size() >= MAX_VALIDATED_CERTIFICATES) {
+                trustAnchors.validated.clear();
+            }
+            trustAnchors.validated.put(fingerprint, validUntil);
+        }
+    }
+
+    /**
+     *
+     * @param cert
+     * @return
+     * @throws GeneralSecurityException
+     */
+    private static String getFingerprint(X509Certificate cert) throws GeneralSecurityException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        return new String(Hex.encodeHex(md.digest(cert.getEncoded())));
+    }
+
+    /**
+     *
+     */
+    private static class CachedKeyStore {
+
+        final KeyStore keyStore;
+        final long lastModified;
+
+        /**
+         *
+         * @param keyStore
+         * @param lastModified
+         */
+        CachedKeyStore(KeyStore keyStore, long lastModified) {
+            this.keyStore = keyStore;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     *
+     */
+    private static class TrustAnchors {
+
+        final PKIXParameters params;
+        final Map<String, Long> validated = new HashMap<String, Long>();
+
+        /**
+         *
+         * @param params
+         */
+        TrustAnchors(PKIXParameters params) {
+            this.params = params;
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class XUAObject {
     private String clientCertBase64Encoded = null;
     private OMElement claims = null;
     private List soapActionsList = new ArrayList();
+    private boolean tokenReuseEnabled = true;
 
     /**
      * Constructor
@@ -119,6 +120,23 @@ public class XUAObject {
         return this.xuaEnabled;
     }
 
+    /**
+     * Set whether SAML tokens issued for this principal may be reused
+     * (until shortly before they expire) on subsequent requests.
+     * @param tokenReuseEnabled
+     */
+    public void setTokenReuseEnabled(boolean tokenReuseEnabled) {
+        this.tokenReuseEnabled = tokenReuseEnabled;
+    }
+
+    /**
+     * Are issued SAML tokens reused or not
+     * @return tokenReuseEnabled
+     */
+    public boolean isTokenReuseEnabled() {
+        return this.tokenReuseEnabled;
+    }
+
     /**
      * set STS URL
      * @param url